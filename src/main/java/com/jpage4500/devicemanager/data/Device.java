@@ -101,6 +101,19 @@ public class Device {
         else return propMap.get(key);
     }
 
+    /**
+     * @return SDK version (0 if not known yet)
+     */
+    public int getSdk() {
+        String sdk = getProperty(PROP_SDK);
+        if (sdk == null) return 0;
+        try {
+            return Integer.parseInt(sdk.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     public String getCustomProperty(String key) {
         if (customPropertyMap == null) return null;
         else return customPropertyMap.get(key);
@@ -0,0 +1,496 @@
+package com.jpage4500.devicemanager.data;
+
+import com.jpage4500.devicemanager.table.LogsTableModel;
+import com.jpage4500.devicemanager.utils.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses log filter text into a tree of {@link LogPredicate} nodes (see {@link LogFilter#parse(String)})
+ *
+ * <pre>
+ * filter := and ( "||" and )*
+ * and    := unary ( "&&" unary )*
+ * unary  := "!" unary | "(" filter ")" | term
+ * term   := [column ":"] value
+ * value  := "/regex/" ["i"] | (">" | ">=" | "<" | "<=") value | "quoted text" | text with * wildcards
+ * </pre>
+ * - column is one of {@link LogsTableModel.Columns} or "*" (= tag, app or message); text without a column is
+ * "*:*text*"
+ * - comparisons work on date (eg: "date:>10:15:00", "date:<2024-10-16 08:00"), pid and tid
+ * - text values can contain spaces; they end at the next "&&", "||" or unmatched ")"
+ * - a regex is read through to its closing "/" (it can contain "&&", "||" and ")"; "\/" for a "/" in it)
+ * - children of "&&" and "||" are checked cheapest first
+ */
+public class FilterParser {
+    private static final int REGEX_COST = 20;
+
+    private final String text;
+    private int pos;
+    // number of open "("
+    private int depth;
+
+    /**
+     * @throws IllegalArgumentException if text isn't a valid filter
+     */
+    public static Node parse(String text) {
+        FilterParser parser = new FilterParser(text);
+        Node node = parser.parseOr();
+        parser.skipSpace();
+        if (parser.pos < text.length()) throw parser.error("unexpected '" + text.charAt(parser.pos) + "'");
+        return node;
+    }
+
+    private FilterParser(String text) {
+        this.text = text;
+    }
+
+    private Node parseOr() {
+        List<Node> list = new ArrayList<>();
+        list.add(parseAnd());
+        while (consume("||")) list.add(parseAnd());
+        return list.size() == 1 ? list.get(0) : new OrNode(list);
+    }
+
+    private Node parseAnd() {
+        List<Node> list = new ArrayList<>();
+        list.add(parseUnary());
+        while (consume("&&")) list.add(parseUnary());
+        return list.size() == 1 ? list.get(0) : new AndNode(list);
+    }
+
+    private Node parseUnary() {
+        skipSpace();
+        if (consume("!")) return new NotNode(parseUnary());
+        if (consume("(")) {
+            depth++;
+            Node node = parseOr();
+            if (!consume(")")) throw error("expected ')'");
+            depth--;
+            return node;
+        }
+        return parseTerm();
+    }
+
+    private Node parseTerm() {
+        // -- column --
+        LogsTableModel.Columns column = null;
+        boolean hasKey = false;
+        int colonPos = text.indexOf(':', pos);
+        if (colonPos > pos) {
+            String key = text.substring(pos, colonPos).trim();
+            column = getColumn(key);
+            hasKey = column != null || key.equals("*");
+            if (hasKey) pos = colonPos + 1;
+        }
+        skipSpace();
+
+        // -- value --
+        String value;
+        boolean isQuoted = pos < text.length() && text.charAt(pos) == '"';
+        if (isQuoted) {
+            value = readQuoted();
+        } else {
+            value = readRegex();
+            if (value == null) value = readValue();
+        }
+
+        if (!isQuoted && isRegex(value)) {
+            boolean ignoreCase = value.endsWith("/i");
+            String regex = value.substring(1, value.length() - (ignoreCase ? 2 : 1));
+            try {
+                return new RegexNode(column, Pattern.compile(regex, ignoreCase ? Pattern.CASE_INSENSITIVE : 0), value);
+            } catch (IllegalArgumentException e) {
+                throw error("invalid regex: " + regex);
+            }
+        }
+        if (!isQuoted && isComparable(column) && TextUtils.notEmpty(value) && (value.charAt(0) == '>' || value.charAt(0) == '<')) {
+            return CompareNode.create(column, value);
+        }
+        if (value.isEmpty() && !isQuoted) value = "*";
+        else if (!hasKey && value.indexOf('*') < 0) value = "*" + value + "*"; // plain text: tag, app or message contains it
+        return new TermNode(LogFilter.parseExpression(column, value));
+    }
+
+    /**
+     * @return text up to the next "&&", "||", unmatched ")" or end
+     */
+    private String readValue() {
+        int start = pos;
+        int end = text.length();
+        int andPos = text.indexOf("&&", start);
+        if (andPos >= 0) end = andPos;
+        int orPos = text.indexOf("||", start);
+        if (orPos >= 0 && orPos < end) end = orPos;
+        if (depth > 0) {
+            // ")" closing a group isn't part of the value (unless it closes a "(" in the value)
+            int open = 0;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c == '(') open++;
+                else if (c == ')' && open-- == 0) {
+                    end = i;
+                    break;
+                }
+            }
+        }
+        pos = end;
+        return text.substring(start, end).trim();
+    }
+
+    /**
+     * @return "/regex/" or "/regex/i" starting at pos, or null if value isn't a regex (eg: "/path/to")
+     */
+    private String readRegex() {
+        if (pos >= text.length() || text.charAt(pos) != '/') return null;
+        int end = pos + 1;
+        while (end < text.length() && text.charAt(end) != '/') {
+            // skip escaped char ("\/", "\)")
+            end += text.charAt(end) == '\\' ? 2 : 1;
+        }
+        if (end >= text.length()) return null;
+        end++;
+        if (end < text.length() && text.charAt(end) == 'i') end++;
+        // must be the whole value
+        int next = end;
+        while (next < text.length() && Character.isWhitespace(text.charAt(next))) next++;
+        if (next < text.length() && !text.startsWith("&&", next) && !text.startsWith("||", next) &&
+                !(depth > 0 && text.charAt(next) == ')')) {
+            return null;
+        }
+        String value = text.substring(pos, end);
+        pos = end;
+        return value;
+    }
+
+    private String readQuoted() {
+        StringBuilder sb = new StringBuilder();
+        pos++;
+        while (pos < text.length()) {
+            char c = text.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c == '\\' && pos < text.length()) c = text.charAt(pos++);
+            sb.append(c);
+        }
+        throw error("missing closing '\"'");
+    }
+
+    private static boolean isRegex(String value) {
+        if (value.length() < 2 || value.charAt(0) != '/') return false;
+        return value.endsWith("/") || (value.length() >= 3 && value.endsWith("/i"));
+    }
+
+    private static boolean isComparable(LogsTableModel.Columns column) {
+        return column == LogsTableModel.Columns.DATE || column == LogsTableModel.Columns.PID ||
+                column == LogsTableModel.Columns.TID;
+    }
+
+    private static LogsTableModel.Columns getColumn(String key) {
+        for (LogsTableModel.Columns column : LogsTableModel.Columns.values()) {
+            if (column.name().equalsIgnoreCase(key)) return column;
+        }
+        return null;
+    }
+
+    private void skipSpace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+    }
+
+    private boolean consume(String token) {
+        skipSpace();
+        if (!text.startsWith(token, pos)) return false;
+        pos += token.length();
+        return true;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " (position " + (pos + 1) + ")");
+    }
+
+    // -- nodes --
+
+    /**
+     * parsed filter; toString() returns filter text
+     */
+    public interface Node extends LogPredicate {
+    }
+
+    private static String getColumnKey(LogsTableModel.Columns column) {
+        return column == null ? "*" : column.name().toLowerCase();
+    }
+
+    /**
+     * existing "column:value" expression (supports *, ! and level "+")
+     */
+    public static class TermNode implements Node {
+        public final LogFilter.FilterExpression expression;
+        private final LogPredicate predicate;
+
+        TermNode(LogFilter.FilterExpression expression) {
+            this.expression = expression;
+            predicate = expression.compile();
+        }
+
+        @Override
+        public boolean test(LogEntry logEntry) {
+            return predicate.test(logEntry);
+        }
+
+        @Override
+        public int getCost() {
+            return predicate.getCost();
+        }
+
+        @Override
+        public String toString() {
+            return expression.toString();
+        }
+    }
+
+    static class RegexNode implements Node {
+        final LogsTableModel.Columns column;
+        final Pattern pattern;
+        private final String value;
+        private final Function<LogEntry, String> getter;
+        // NOTE: re-used; filters are only checked on the Swing thread
+        private final Matcher matcher;
+
+        RegexNode(LogsTableModel.Columns column, Pattern pattern, String value) {
+            this.column = column;
+            this.pattern = pattern;
+            this.value = value;
+            getter = column != null ? LogFilter.FilterExpression.getColumnGetter(column) : null;
+            matcher = pattern.matcher("");
+        }
+
+        private boolean find(String text) {
+            return text != null && matcher.reset(text).find();
+        }
+
+        @Override
+        public boolean test(LogEntry logEntry) {
+            if (getter != null) return find(getter.apply(logEntry));
+            return find(logEntry.tag) || find(logEntry.app) || find(logEntry.message);
+        }
+
+        @Override
+        public int getCost() {
+            return column != null ? REGEX_COST : REGEX_COST * 3;
+        }
+
+        @Override
+        public String toString() {
+            return getColumnKey(column) + ":" + value;
+        }
+    }
+
+    /**
+     * date (text) or pid/tid (number) compared with >, >=, <, <=
+     */
+    private static class CompareNode implements Node {
+        private final LogsTableModel.Columns column;
+        private final String op;
+        private final String value;
+        private final Function<LogEntry, String> getter;
+        private final long number;
+        // where value starts in the date field ("yyyy-MM-dd HH:mm:ss")
+        private final int dateOffset;
+
+        static CompareNode create(LogsTableModel.Columns column, String text) {
+            String op = text.startsWith(">=") || text.startsWith("<=") ? text.substring(0, 2) : text.substring(0, 1);
+            String value = text.substring(op.length()).trim();
+            if (value.isEmpty()) throw new IllegalArgumentException("missing value after " + op);
+            return new CompareNode(column, op, value);
+        }
+
+        private CompareNode(LogsTableModel.Columns column, String op, String value) {
+            this.column = column;
+            this.op = op;
+            this.value = value;
+            getter = LogFilter.FilterExpression.getColumnGetter(column);
+            if (column == LogsTableModel.Columns.DATE) {
+                number = 0;
+                if (value.length() > 4 && value.charAt(4) == '-') dateOffset = 0; // yyyy-MM-dd..
+                else if (value.length() > 2 && value.charAt(2) == '-') dateOffset = 5; // MM-dd..
+                else dateOffset = 11; // HH:mm..
+            } else {
+                dateOffset = 0;
+                try {
+                    number = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("not a number: " + value);
+                }
+            }
+        }
+
+        @Override
+        public boolean test(LogEntry logEntry) {
+            String fieldValue = getter.apply(logEntry);
+            if (fieldValue == null) return false;
+            int result;
+            if (column == LogsTableModel.Columns.DATE) {
+                if (fieldValue.length() <= dateOffset) return false;
+                // fixed width fields so text order = time order
+                result = fieldValue.substring(dateOffset).compareTo(value);
+            } else {
+                try {
+                    result = Long.compare(Long.parseLong(fieldValue), number);
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+            return switch (op) {
+                case ">" -> result > 0;
+                case ">=" -> result >= 0;
+                case "<" -> result < 0;
+                default -> result <= 0;
+            };
+        }
+
+        @Override
+        public int getCost() {
+            return column == LogsTableModel.Columns.DATE ? 2 : 1;
+        }
+
+        @Override
+        public String toString() {
+            return getColumnKey(column) + ":" + op + value;
+        }
+    }
+
+    private static class NotNode implements Node {
+        private final Node node;
+
+        NotNode(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        public boolean test(LogEntry logEntry) {
+            return !node.test(logEntry);
+        }
+
+        @Override
+        public int getCost() {
+            return node.getCost();
+        }
+
+        @Override
+        public String toString() {
+            return node instanceof TermNode || node instanceof NotNode ? "!" + node : "!(" + node + ")";
+        }
+    }
+
+    static class AndNode implements Node {
+        // in original order (for display)
+        final List<Node> nodeList;
+        private final Node[] nodeArr;
+        private final int cost;
+
+        AndNode(List<Node> list) {
+            nodeList = list;
+            nodeArr = sortByCost(list);
+            cost = sumCost(nodeArr);
+        }
+
+        @Override
+        public boolean test(LogEntry logEntry) {
+            for (Node node : nodeArr) {
+                if (!node.test(logEntry)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int getCost() {
+            return cost;
+        }
+
+        @Override
+        public String toString() {
+            return join(nodeList, " && ");
+        }
+    }
+
+    static class OrNode implements Node {
+        final List<Node> nodeList;
+        private final Node[] nodeArr;
+        private final int cost;
+
+        OrNode(List<Node> list) {
+            nodeList = list;
+            nodeArr = sortByCost(list);
+            cost = sumCost(nodeArr);
+        }
+
+        @Override
+        public boolean test(LogEntry logEntry) {
+            for (Node node : nodeArr) {
+                if (node.test(logEntry)) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public int getCost() {
+            return cost;
+        }
+
+        @Override
+        public String toString() {
+            return join(nodeList, " || ");
+        }
+    }
+
+    /**
+     * @return true if node is only "&&" of column:value terms (can be saved as a list of FilterExpression)
+     */
+    static boolean isSimple(Node node) {
+        if (node instanceof TermNode) return true;
+        if (!(node instanceof AndNode andNode)) return false;
+        for (Node child : andNode.nodeList) {
+            if (!(child instanceof TermNode)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return terms of a simple node (see isSimple())
+     */
+    static List<LogFilter.FilterExpression> getExpressions(Node node) {
+        List<LogFilter.FilterExpression> list = new ArrayList<>();
+        if (node instanceof TermNode termNode) list.add(termNode.expression);
+        else if (node instanceof AndNode andNode) {
+            for (Node child : andNode.nodeList) list.add(((TermNode) child).expression);
+        }
+        return list;
+    }
+
+    private static Node[] sortByCost(List<Node> list) {
+        List<Node> sortedList = new ArrayList<>(list);
+        sortedList.sort(Comparator.comparingInt(LogPredicate::getCost));
+        return sortedList.toArray(new Node[0]);
+    }
+
+    private static int sumCost(Node[] nodeArr) {
+        int cost = 0;
+        for (Node node : nodeArr) cost += node.getCost();
+        return cost;
+    }
+
+    private static String join(List<Node> nodeList, String separator) {
+        StringBuilder sb = new StringBuilder();
+        for (Node node : nodeList) {
+            if (!sb.isEmpty()) sb.append(separator);
+            // NOTE: nested "&&"/"||" need parentheses to keep their meaning
+            if (node instanceof AndNode || node instanceof OrNode) sb.append("(").append(node).append(")");
+            else sb.append(node);
+        }
+        return sb.toString();
+    }
+}
@@ -17,9 +17,13 @@ public class LogEntry {
     public String level;
     public String tag;
     public String message;
+    public String device;   // serial of device line came from
 
     public Long timestamp;
 
+    public LogEntry() {
+    }
+
     /**
      * 10-16 11:34:17.824  2063  2063 D PluginAODManager: onNotificationInfoUpdated() 0|com.test.pm|2000|null|10400
      * 10-16 11:34:17.825  2063  2063 I AODNotificationManager: updateVisibleNotifications: 4
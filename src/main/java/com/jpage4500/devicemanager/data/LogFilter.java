@@ -6,11 +6,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 public class LogFilter {
     private static final Logger log = LoggerFactory.getLogger(LogFilter.class);
     List<FilterExpression> filterList;
+    // filter text when it can't be represented by filterList (eg: uses "||", "()" or regex)
+    String query;
+    // built from filterList/query on first use (not saved)
+    private transient LogPredicate predicate;
 
     public enum Expression {
         EQUALS("is"),
@@ -45,6 +52,7 @@ public class LogFilter {
             if (TextUtils.equalsIgnoreCaseAny(value, "*", "")) {
                 sb.append("*");
             } else {
+                int valuePos = sb.length();
                 if (isNotExpression) sb.append("!");
                 switch (expression) {
                     case STARTS_WITH:
@@ -64,72 +72,134 @@ public class LogFilter {
                         sb.append(value);
                         break;
                 }
+                if (value != null && (value.contains("&&") || value.contains("||") || TextUtils.indexOf(value, '(') >= 0 ||
+                        TextUtils.indexOf(value, ')') >= 0 || TextUtils.indexOf(value, '"') >= 0)) {
+                    // quote so text can be parsed again (see FilterParser)
+                    String text = sb.substring(valuePos).replace("\\", "\\\\").replace("\"", "\\\"");
+                    sb.setLength(valuePos);
+                    sb.append('"').append(text).append('"');
+                }
             }
 
             return sb.toString();
         }
 
-        public boolean isMatch(LogEntry logEntry) {
-            boolean isMatch;
-            if (column != null) {
-                String logValue = null;
-                switch (column) {
-                    case DATE -> logValue = logEntry.date;
-                    case APP -> logValue = logEntry.app;
-                    case TID -> logValue = logEntry.tid;
-                    case PID -> logValue = logEntry.pid;
-                    case LEVEL -> {
-                        logValue = logEntry.level;
-                        //log.trace("isMatch: {}, val:{}, expr:{}", logValue, value, expression);
-                        if (value != null && expression == Expression.STARTS_WITH) {
-                            switch (value) {
-                                case "D":
-                                    return TextUtils.equalsIgnoreCaseAny(logValue, "D", "I", "W", "E");
-                                case "I":
-                                    return TextUtils.equalsIgnoreCaseAny(logValue, "I", "W", "E");
-                                case "W":
-                                    return TextUtils.equalsIgnoreCaseAny(logValue, "W", "E");
-                            }
-                        }
-                    }
-                    case TAG -> logValue = logEntry.tag;
-                    case MSG -> logValue = logEntry.message;
+        /**
+         * @return predicate with column and value resolved up front (same result as checking this expression)
+         */
+        public LogPredicate compile() {
+            if (column == LogsTableModel.Columns.LEVEL && value != null && expression == Expression.STARTS_WITH) {
+                // "W+" = this level or higher
+                String[] levelArr = switch (value) {
+                    case "D" -> new String[]{"D", "I", "W", "E"};
+                    case "I" -> new String[]{"I", "W", "E"};
+                    case "W" -> new String[]{"W", "E"};
+                    default -> null;
+                };
+                if (levelArr != null) {
+                    // NOTE: '!' isn't applied here (same as before)
+                    return createPredicate(1, e -> TextUtils.equalsIgnoreCaseAny(e.level, levelArr));
                 }
-                isMatch = evaluateExpression(expression, logValue);
-            } else {
-                // match text from one of: message, app, tag
-                isMatch = evaluateExpression(expression, logEntry.message) ||
-                        evaluateExpression(expression, logEntry.app) ||
-                        evaluateExpression(expression, logEntry.tag);
             }
-            return isNotExpression != isMatch;
+
+            FieldMatcher matcher = createMatcher();
+            if (column != null) {
+                Function<LogEntry, String> getter = getColumnGetter(column);
+                return createPredicate(getCost(column), e -> isNotExpression != matcher.isMatch(getter.apply(e)));
+            }
+            // match text from one of: tag, app, message (shortest first)
+            return createPredicate(getCost(null), e -> isNotExpression != (matcher.isMatch(e.tag) ||
+                    matcher.isMatch(e.app) || matcher.isMatch(e.message)));
         }
 
-        private boolean evaluateExpression(Expression expression, String searchField) {
-            boolean isMatch = false;
-            if (expression == null) return false;
-            switch (expression) {
-                case EQUALS -> isMatch = TextUtils.equalsIgnoreCase(searchField, value);
-                case CONTAINS -> isMatch = TextUtils.containsAny(searchField, true, value);
-                case STARTS_WITH -> isMatch = TextUtils.startsWithAny(searchField, true, value);
-                case ENDS_WITH -> isMatch = TextUtils.endsWithAny(searchField, true, value);
+        private FieldMatcher createMatcher() {
+            if (expression == null) return text -> false;
+            if (value == null) {
+                // only an empty field matches a missing value
+                return expression == Expression.EQUALS ? text -> text == null : text -> false;
             }
-            return isMatch;
+            TextMatcher matcher = new TextMatcher(value);
+            return switch (expression) {
+                case EQUALS -> matcher::isEqual;
+                case CONTAINS -> matcher::contains;
+                case STARTS_WITH -> matcher::startsWith;
+                case ENDS_WITH -> matcher::endsWith;
+            };
+        }
+
+        static Function<LogEntry, String> getColumnGetter(LogsTableModel.Columns column) {
+            return switch (column) {
+                case DATE -> e -> e.date;
+                case APP -> e -> e.app;
+                case TID -> e -> e.tid;
+                case PID -> e -> e.pid;
+                case LEVEL -> e -> e.level;
+                case TAG -> e -> e.tag;
+                case MSG -> e -> e.message;
+                case DEVICE -> e -> e.device;
+            };
+        }
+
+        /**
+         * short fields that rarely match are cheapest; any-column search is most expensive
+         */
+        private static int getCost(LogsTableModel.Columns column) {
+            if (column == null) return 10;
+            return switch (column) {
+                case LEVEL, PID, TID -> 1;
+                case TAG, DATE, APP, DEVICE -> 2;
+                case MSG -> 5;
+            };
+        }
+
+        private interface FieldMatcher {
+            boolean isMatch(String text);
         }
     }
 
+    private static LogPredicate createPredicate(int cost, Predicate<LogEntry> test) {
+        return new LogPredicate() {
+            @Override
+            public boolean test(LogEntry logEntry) {
+                return test.test(logEntry);
+            }
+
+            @Override
+            public int getCost() {
+                return cost;
+            }
+        };
+    }
+
+    /**
+     * @return predicate that's true if ALL expressions match (cheapest checked first)
+     */
+    public LogPredicate compile() {
+        if (query != null) return FilterParser.parse(query);
+        if (filterList == null) return createPredicate(0, e -> false);
+        List<LogPredicate> list = new ArrayList<>();
+        for (FilterExpression filter : filterList) list.add(filter.compile());
+        list.sort(Comparator.comparingInt(LogPredicate::getCost));
+        LogPredicate[] predicateArr = list.toArray(new LogPredicate[0]);
+        int cost = list.stream().mapToInt(LogPredicate::getCost).sum();
+        return createPredicate(cost, e -> {
+            // iterate until 1 filter is 'false'
+            for (LogPredicate predicate : predicateArr) {
+                if (!predicate.test(e)) return false;
+            }
+            return true;
+        });
+    }
+
     public boolean isMatch(LogEntry logEntry) {
-        if (filterList == null) return false;
-        // iterate until 1 filter is 'false'
-        for (FilterExpression filter : filterList) {
-            if (!filter.isMatch(logEntry)) return false;
-        }
-        // all filters matched - return true
-        return true;
+        if (predicate == null) predicate = compile();
+        return predicate.test(logEntry);
     }
 
     @Override
     public String toString() {
+        if (query != null) return query;
+        if (filterList == null) return "";
         StringBuilder sb = new StringBuilder();
         for (FilterExpression expression : filterList) {
             if (!sb.isEmpty()) sb.append(" && ");
@@ -138,54 +208,60 @@ public class LogFilter {
         return sb.toString();
     }
 
+    /**
+     * @throws IllegalArgumentException if filter text isn't valid (see {@link FilterParser})
+     */
     public static LogFilter parse(String filterText) {
         if (filterText == null) return null;
+        FilterParser.Node node = FilterParser.parse(filterText);
         LogFilter filter = new LogFilter();
-        filter.filterList = new ArrayList<>();
-        // TODO: support more than just "&&" (ie: "||")
-        String[] filterArr = filterText.split(" && ");
-        for (String entry : filterArr) {
-            String[] entryArr = entry.split(":", 2);
-            String key = entryArr[0].trim();
-            String value = entryArr[1].trim();
-            LogFilter.FilterExpression expr = new LogFilter.FilterExpression();
-            if (TextUtils.notEmpty(key)) {
-                String colName = key.toUpperCase();
-                try {
-                    expr.column = LogsTableModel.Columns.valueOf(colName);
-                } catch (IllegalArgumentException e) {
-                }
-            }
-            if (TextUtils.equalsIgnoreCaseAny(value, "*", "")) {
-                filter.filterList.add(expr);
-                continue;
-            }
-            char firstChar = value.charAt(0);
-            if (firstChar == '!') {
-                expr.isNotExpression = true;
-                firstChar = value.charAt(1);
-            }
-            if (firstChar == '*') {
-                expr.expression = Expression.ENDS_WITH;
-            }
-            char lastChar = value.charAt(value.length() - 1);
-            if (lastChar == '*' || (expr.column == LogsTableModel.Columns.LEVEL && lastChar == '+')) {
-                if (expr.expression == Expression.ENDS_WITH) expr.expression = Expression.CONTAINS;
-                else expr.expression = Expression.STARTS_WITH;
+        if (FilterParser.isSimple(node)) {
+            // "column:value && .." can be saved/edited as a list of expressions
+            filter.filterList = FilterParser.getExpressions(node);
+        } else {
+            filter.query = filterText.trim();
+            filter.predicate = node;
+        }
+        return filter;
+    }
+
+    /**
+     * parse a single "column:value" value (supports *, ! and level "+")
+     */
+    static FilterExpression parseExpression(LogsTableModel.Columns column, String value) {
+        LogFilter.FilterExpression expr = new LogFilter.FilterExpression();
+        expr.column = column;
+        if (TextUtils.equalsIgnoreCaseAny(value, "*", "")) return expr;
+
+        char firstChar = value.charAt(0);
+        if (firstChar == '!') {
+            expr.isNotExpression = true;
+            if (value.length() == 1) {
+                expr.value = "";
+                return expr;
             }
-            int stPos = 0;
-            if (expr.isNotExpression) stPos++;
-            if (expr.expression == Expression.ENDS_WITH || expr.expression == Expression.CONTAINS) stPos++;
+            firstChar = value.charAt(1);
+        }
+        if (firstChar == '*') {
+            expr.expression = Expression.ENDS_WITH;
+        }
+        char lastChar = value.charAt(value.length() - 1);
+        if (lastChar == '*' || (expr.column == LogsTableModel.Columns.LEVEL && lastChar == '+')) {
+            if (expr.expression == Expression.ENDS_WITH) expr.expression = Expression.CONTAINS;
+            else expr.expression = Expression.STARTS_WITH;
+        }
+        int stPos = 0;
+        if (expr.isNotExpression) stPos++;
+        if (expr.expression == Expression.ENDS_WITH || expr.expression == Expression.CONTAINS) stPos++;
 
-            int endPos = value.length();
-            if (expr.expression == Expression.STARTS_WITH || expr.expression == Expression.CONTAINS) endPos--;
+        int endPos = value.length();
+        if (expr.expression == Expression.STARTS_WITH || expr.expression == Expression.CONTAINS) endPos--;
 
-            expr.value = value.substring(stPos, endPos);
+        // NOTE: "*" on its own (eg: "!*") leaves nothing in between
+        expr.value = value.substring(Math.min(stPos, endPos), endPos);
 
-            //log.trace("parse: expr:{}", GsonHelper.toJson(expr));
-            filter.filterList.add(expr);
-        }
-        return filter;
+        //log.trace("parse: expr:{}", GsonHelper.toJson(expr));
+        return expr;
     }
 
 }
@@ -0,0 +1,13 @@
+package com.jpage4500.devicemanager.data;
+
+/**
+ * A compiled log filter (see {@link LogFilter#isMatch(LogEntry)})
+ */
+public interface LogPredicate {
+    boolean test(LogEntry logEntry);
+
+    /**
+     * @return rough cost of test(); when combined, cheaper predicates run first
+     */
+    int getCost();
+}
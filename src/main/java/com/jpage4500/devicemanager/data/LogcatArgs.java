@@ -0,0 +1,168 @@
+package com.jpage4500.devicemanager.data;
+
+import com.jpage4500.devicemanager.table.LogsTableModel;
+import com.jpage4500.devicemanager.utils.TextUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Turns log filters into logcat arguments so the device only sends lines that could match
+ *
+ * - only the "&&" parts of filters are used; every line matching the filters must still be sent (filters are
+ * checked again once lines arrive)
+ * - level ("level:W+") and tags ("tag:ActivityManager", "tag:A || tag:B") -> filterspecs: "ActivityManager:W *:S"
+ * - pid ("pid:1234") or app ("app:com.foo", resolved using the process map) -> "--pid=1234"
+ * - case-sensitive message regex ("msg:/regex/") -> "-e regex"
+ *
+ * NOTE: tags are matched exactly on the device but filters here ignore case; a tag is only sent when it's written
+ * the same as a tag already received, along with every other spelling received ("tag:activitymanager" isn't sent
+ * unless a line was tagged exactly that)
+ */
+public class LogcatArgs {
+    // logcat --pid and -e
+    private static final int MIN_SDK_PID_REGEX = 24;
+    private static final String LEVELS = "VDIWEF";
+    // regex syntax that means the same to Java and logcat (ECMAScript)
+    private static final Pattern PORTABLE_REGEX = Pattern.compile("([\\w .*+?|^$()\\[\\]{},:=/'\"!@#%&<>~-]|\\\\[dDwWsS.\\\\()\\[\\]{}*+?|^$/-])*");
+
+    private int minLevel;
+    private final Set<String> tagSet = new LinkedHashSet<>();
+    private String pid;
+    private String regex;
+    // tags received so far
+    private final Set<String> seenTagSet;
+
+    private LogcatArgs(Set<String> seenTagSet) {
+        this.seenTagSet = seenTagSet != null ? seenTagSet : Set.of();
+    }
+
+    /**
+     * @param processMap pid -> app name for this device (can be null)
+     * @param seenTagSet tags of lines received so far (can be null; no tags are sent)
+     * @param sdk        device SDK version (0 if unknown)
+     * @return logcat arguments; empty if nothing can be checked on the device
+     */
+    public static List<String> build(LogFilter[] filterArr, Map<String, String> processMap, Set<String> seenTagSet, int sdk) {
+        List<String> argList = new ArrayList<>();
+        if (filterArr == null) return argList;
+        LogcatArgs logcatArgs = new LogcatArgs(seenTagSet);
+        for (LogFilter filter : filterArr) {
+            // a missing filter matches nothing; leave it to the view
+            if (filter == null) return argList;
+            if (filter.query != null) {
+                logcatArgs.add(FilterParser.parse(filter.query), processMap);
+            } else if (filter.filterList != null) {
+                for (LogFilter.FilterExpression expression : filter.filterList) {
+                    logcatArgs.addExpression(expression, processMap);
+                }
+            }
+        }
+
+        if (!logcatArgs.tagSet.isEmpty()) {
+            String level = String.valueOf(LEVELS.charAt(logcatArgs.minLevel));
+            for (String tag : logcatArgs.tagSet) argList.add(tag + ":" + level);
+            argList.add("*:S");
+        } else if (logcatArgs.minLevel > 0) {
+            argList.add("*:" + LEVELS.charAt(logcatArgs.minLevel));
+        }
+        if (sdk >= MIN_SDK_PID_REGEX) {
+            if (logcatArgs.pid != null) argList.add("--pid=" + logcatArgs.pid);
+            if (logcatArgs.regex != null) {
+                argList.add("-e");
+                argList.add(logcatArgs.regex);
+            }
+        }
+        return argList;
+    }
+
+    private void add(FilterParser.Node node, Map<String, String> processMap) {
+        if (node instanceof FilterParser.AndNode andNode) {
+            for (FilterParser.Node child : andNode.nodeList) add(child, processMap);
+        } else if (node instanceof FilterParser.TermNode termNode) {
+            addExpression(termNode.expression, processMap);
+        } else if (node instanceof FilterParser.OrNode orNode) {
+            // "tag:A || tag:B"
+            Set<String> orTagSet = new LinkedHashSet<>();
+            for (FilterParser.Node child : orNode.nodeList) {
+                Set<String> tags = child instanceof FilterParser.TermNode termNode ? getTags(termNode.expression) : null;
+                if (tags == null) return;
+                orTagSet.addAll(tags);
+            }
+            addTags(orTagSet);
+        } else if (node instanceof FilterParser.RegexNode regexNode) {
+            String pattern = regexNode.pattern.pattern();
+            // NOTE: no "(?" groups (flags, lookbehind, named groups differ between Java and logcat)
+            if (regexNode.column == LogsTableModel.Columns.MSG && regexNode.pattern.flags() == 0 && regex == null &&
+                    !pattern.contains("(?") && PORTABLE_REGEX.matcher(pattern).matches()) {
+                regex = pattern;
+            }
+        }
+    }
+
+    private void addExpression(LogFilter.FilterExpression expression, Map<String, String> processMap) {
+        if (expression.isNotExpression || expression.column == null || TextUtils.isEmpty(expression.value)) return;
+        switch (expression.column) {
+            case LEVEL -> {
+                // "W" or "W+"; both are at least W
+                if (expression.expression != LogFilter.Expression.EQUALS && expression.expression != LogFilter.Expression.STARTS_WITH) return;
+                if (expression.value.length() != 1) return;
+                int level = LEVELS.indexOf(Character.toUpperCase(expression.value.charAt(0)));
+                if (level > minLevel) minLevel = level;
+            }
+            case TAG -> {
+                Set<String> tags = getTags(expression);
+                if (tags != null) addTags(tags);
+            }
+            case PID -> {
+                if (expression.expression == LogFilter.Expression.EQUALS && expression.value.matches("\\d+")) {
+                    pid = expression.value;
+                }
+            }
+            case APP -> {
+                if (expression.expression != LogFilter.Expression.EQUALS || processMap == null) return;
+                // only if app is a single process that's running now
+                String appPid = null;
+                for (Map.Entry<String, String> entry : processMap.entrySet()) {
+                    if (!expression.value.equalsIgnoreCase(entry.getValue())) continue;
+                    if (appPid != null) return;
+                    appPid = entry.getKey();
+                }
+                if (appPid != null && pid == null) pid = appPid;
+            }
+        }
+    }
+
+    /**
+     * @return every received spelling of tag if expression is "tag:value", value is written the same as a tag
+     * received and can be used in a filterspec; null otherwise
+     */
+    private Set<String> getTags(LogFilter.FilterExpression expression) {
+        if (expression.isNotExpression || expression.column != LogsTableModel.Columns.TAG) return null;
+        if (expression.expression != LogFilter.Expression.EQUALS || TextUtils.isEmpty(expression.value)) return null;
+        String tag = expression.value;
+        // device could send this tag written some other way; can't tell which
+        if (!seenTagSet.contains(tag)) return null;
+        Set<String> tags = new LinkedHashSet<>();
+        for (String seenTag : seenTagSet) {
+            if (!seenTag.equalsIgnoreCase(tag)) continue;
+            for (int i = 0; i < seenTag.length(); i++) {
+                char c = seenTag.charAt(i);
+                if (c == ':' || c == '*' || Character.isWhitespace(c)) return null;
+            }
+            tags.add(seenTag);
+        }
+        return tags;
+    }
+
+    /**
+     * lines must have one of these tags; first set wins (more than 1 set would need their intersection)
+     */
+    private void addTags(Set<String> tags) {
+        if (tagSet.isEmpty()) tagSet.addAll(tags);
+    }
+}
@@ -0,0 +1,213 @@
+package com.jpage4500.devicemanager.data;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Decodes "logcat -B" output (raw logger_entry structs) into {@link LogEntry}
+ *
+ * - header (little endian): u16 payload len, u16 header size (0 = v1, 20 bytes), i32 pid, i32 tid, u32 sec, u32 nsec,
+ * then u32 euid (v2), u32 lid (v3) or u32 lid + u32 uid (v4)
+ * - payload: priority byte, tag\0, message\0
+ * - multi-line messages become one entry per line, same as "logcat -v threadtime"
+ * - date and timestamp match what {@link LogcatParser} gets from the same line in text: date is the wall time in
+ * the device's time zone, and timestamp is that wall time read in the host's time zone (plus ms). Otherwise start
+ * times and merging would be off by the difference between the two zones when switching modes
+ * - binary buffers (events, stats, security) are skipped
+ *
+ * NOTE: not thread safe; use one parser per logcat stream
+ */
+public class LogcatBinaryParser {
+    private static final int HEADER_V1_SIZE = 20;
+    // largest header/payload accepted; anything bigger means the stream isn't logger_entry structs
+    private static final int MAX_HEADER_SIZE = 100;
+    private static final int MAX_PAYLOAD_SIZE = 64 * 1024;
+
+    private static final int LOG_ID_EVENTS = 2;
+    private static final int LOG_ID_STATS = 5;
+    private static final int LOG_ID_SECURITY = 6;
+
+    private static final String[] LEVEL_ARR = {"?", "?", "V", "D", "I", "W", "E", "F", "S"};
+
+    private final InputStream inputStream;
+    private final byte[] header = new byte[MAX_HEADER_SIZE];
+    private byte[] payload = new byte[4096];
+
+    // device wall time
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    // reads device wall time as host time (same as text mode)
+    private final SimpleDateFormat hostDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    // date string is the same for every entry logged within the same second
+    private long lastSec = -1;
+    private String lastDate;
+    private long lastSecMs;
+
+    // pid/tid strings repeat on nearly every entry
+    private final int[] idKeyArr = new int[1024];
+    private final String[] idValueArr = new String[1024];
+    private final String[] tagArr = new String[1024];
+
+    /**
+     * @param deviceTimeZone time zone set on the device (persist.sys.timezone); what text output is shown in
+     */
+    public LogcatBinaryParser(InputStream inputStream, TimeZone deviceTimeZone) {
+        this.inputStream = inputStream;
+        dateFormat.setTimeZone(deviceTimeZone);
+    }
+
+    /**
+     * read the next logger_entry and add resulting log lines to logList (nothing is added for binary buffers)
+     *
+     * @return false at end of stream
+     * @throws IOException if stream doesn't contain logger_entry structs
+     */
+    public boolean readEntry(List<LogEntry> logList) throws IOException {
+        if (!readFully(header, 0, 4, true)) return false;
+        int len = readU16(header, 0);
+        int hdrSize = readU16(header, 2);
+        if (hdrSize == 0) hdrSize = HEADER_V1_SIZE;
+        if (hdrSize < HEADER_V1_SIZE || hdrSize > MAX_HEADER_SIZE || len > MAX_PAYLOAD_SIZE) {
+            throw new IOException("not a logger_entry: len:" + len + ", hdr:" + hdrSize);
+        }
+        readFully(header, 4, hdrSize - 4, false);
+        if (payload.length < len) payload = new byte[Math.max(len, payload.length * 2)];
+        readFully(payload, 0, len, false);
+
+        // v3 and v4 have the log buffer id right after nsec
+        // NOTE: v2 has euid in the same place (same header size as v3); only a euid of 2/5/6 would be confused for a lid
+        if (hdrSize >= 24) {
+            int lid = readI32(header, 20);
+            if (lid == LOG_ID_EVENTS || lid == LOG_ID_STATS || lid == LOG_ID_SECURITY) return true;
+        }
+        if (len < 2) return true;
+
+        int pid = readI32(header, 4);
+        int tid = readI32(header, 8);
+        long sec = readI32(header, 12) & 0xFFFFFFFFL;
+        long nsec = readI32(header, 16) & 0xFFFFFFFFL;
+
+        // -- priority, tag\0, message\0 --
+        int priority = payload[0] & 0xFF;
+        int tagEnd = indexOf(payload, 1, len, (byte) 0);
+        if (tagEnd < 0) tagEnd = len;
+        int msgStart = Math.min(tagEnd + 1, len);
+        int msgEnd = indexOf(payload, msgStart, len, (byte) 0);
+        if (msgEnd < 0) msgEnd = len;
+        // trailing newlines aren't shown
+        while (msgEnd > msgStart && (payload[msgEnd - 1] == '\n' || payload[msgEnd - 1] == '\r')) msgEnd--;
+
+        String date = getDate(sec);
+        long timestamp = lastSecMs + nsec / 1_000_000;
+        String pidStr = getId(pid);
+        String tidStr = getId(tid);
+        String level = priority < LEVEL_ARR.length ? LEVEL_ARR[priority] : "?";
+        String tag = getTag(payload, 1, tagEnd);
+
+        // one entry per line
+        int lineStart = msgStart;
+        while (true) {
+            int lineEnd = indexOf(payload, lineStart, msgEnd, (byte) '\n');
+            if (lineEnd < 0) lineEnd = msgEnd;
+            LogEntry logEntry = new LogEntry();
+            logEntry.date = date;
+            logEntry.timestamp = timestamp;
+            logEntry.pid = pidStr;
+            logEntry.tid = tidStr;
+            logEntry.level = level;
+            logEntry.tag = tag;
+            logEntry.message = new String(payload, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8).trim();
+            logList.add(logEntry);
+            if (lineEnd >= msgEnd) break;
+            lineStart = lineEnd + 1;
+        }
+        return true;
+    }
+
+    private boolean readFully(byte[] buffer, int offset, int len, boolean allowEof) throws IOException {
+        int total = 0;
+        while (total < len) {
+            int n = inputStream.read(buffer, offset + total, len - total);
+            if (n < 0) {
+                if (allowEof && total == 0) return false;
+                throw new EOFException("logger_entry truncated");
+            }
+            total += n;
+        }
+        return true;
+    }
+
+    /**
+     * @return device wall time; also sets lastSecMs
+     */
+    private String getDate(long sec) {
+        if (sec != lastSec) {
+            lastDate = dateFormat.format(new Date(sec * 1000));
+            try {
+                lastSecMs = hostDateFormat.parse(lastDate).getTime();
+            } catch (ParseException e) {
+                // can't happen (same pattern); use real time
+                lastSecMs = sec * 1000;
+            }
+            lastSec = sec;
+        }
+        return lastDate;
+    }
+
+    private String getId(int id) {
+        int slot = id & (idKeyArr.length - 1);
+        String value = idValueArr[slot];
+        if (value == null || idKeyArr[slot] != id) {
+            value = Integer.toString(id);
+            idKeyArr[slot] = id;
+            idValueArr[slot] = value;
+        }
+        return value;
+    }
+
+    private String getTag(byte[] data, int start, int end) {
+        // same as String.trim()
+        while (start < end && (data[start] & 0xFF) <= ' ') start++;
+        while (end > start && (data[end - 1] & 0xFF) <= ' ') end--;
+        int hash = end - start;
+        for (int i = start; i < end; i++) hash = 31 * hash + data[i];
+        int slot = (hash ^ (hash >>> 16)) & (tagArr.length - 1);
+        String cached = tagArr[slot];
+        if (cached != null && isSame(cached, data, start, end)) return cached;
+        String value = new String(data, start, end - start, StandardCharsets.UTF_8);
+        tagArr[slot] = value;
+        return value;
+    }
+
+    /**
+     * @return true if ASCII string matches bytes (non-ASCII tags are never treated as a match)
+     */
+    private static boolean isSame(String value, byte[] data, int start, int end) {
+        if (value.length() != end - start) return false;
+        for (int i = start; i < end; i++) {
+            if (data[i] < 0 || value.charAt(i - start) != data[i]) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] data, int start, int end, byte value) {
+        for (int i = start; i < end; i++) {
+            if (data[i] == value) return i;
+        }
+        return -1;
+    }
+
+    private static int readU16(byte[] data, int pos) {
+        return (data[pos] & 0xFF) | (data[pos + 1] & 0xFF) << 8;
+    }
+
+    private static int readI32(byte[] data, int pos) {
+        return (data[pos] & 0xFF) | (data[pos + 1] & 0xFF) << 8 | (data[pos + 2] & 0xFF) << 16 | (data[pos + 3] & 0xFF) << 24;
+    }
+}
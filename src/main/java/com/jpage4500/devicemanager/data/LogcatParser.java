@@ -0,0 +1,206 @@
+package com.jpage4500.devicemanager.data;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+
+/**
+ * Parses "logcat -v threadtime" lines into {@link LogEntry} in a single pass (no regex, no date parsing)
+ *
+ * - produces the same values as {@link LogEntry#LogEntry(String, SimpleDateFormat, int)}, which is still used for
+ * lines that don't have the expected "MM-dd HH:mm:ss.SSS" prefix
+ * - timestamp is the (cached) start of the hour + minutes/seconds; an hour is used instead of a day so DST changes
+ * are handled the same way as SimpleDateFormat
+ * - date, pid, tid, level and tag strings are reused since they repeat on nearly every line
+ *
+ * NOTE: not thread safe; use one parser per logcat stream
+ */
+public class LogcatParser {
+    // "10-16 11:34:17.824"
+    private static final int TIME_LEN = 18;
+
+    private final int year;
+    private final SimpleDateFormat legacyDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private final Calendar calendar = Calendar.getInstance();
+
+    // start of last seen hour
+    private int hourKey = -1;
+    private long hourMs;
+
+    // last seen date string (same for every line logged within the same second)
+    private String lastDate;
+    private final char[] lastDateChars = new char[TIME_LEN - 4];
+
+    private final StringCache stringCache = new StringCache(1024);
+
+    public LogcatParser(int year) {
+        this.year = year;
+    }
+
+    /**
+     * 10-16 11:34:17.824  2063  2063 D PluginAODManager: onNotificationInfoUpdated() 0|com.test.pm|2000|null|10400
+     *
+     * @return null if line isn't a log entry (eg: "--------- beginning of main")
+     */
+    public LogEntry parse(String line) {
+        int len = line.length();
+        // NOTE: out of range minutes/seconds are left to SimpleDateFormat which rolls them over the same way Calendar does
+        if (!isTimePrefix(line) || digits(line, 9) > 59 || digits(line, 12) > 59) {
+            LogEntry logEntry = new LogEntry(line, legacyDateFormat, year);
+            return logEntry.date != null ? logEntry : null;
+        }
+
+        // -- pid, tid, level --
+        int pos = skipSpace(line, TIME_LEN, len);
+        int pidStart = pos;
+        pos = skipToken(line, pos, len);
+        int pidEnd = pos;
+        pos = skipSpace(line, pos, len);
+        int tidStart = pos;
+        pos = skipToken(line, pos, len);
+        int tidEnd = pos;
+        pos = skipSpace(line, pos, len);
+        int levelStart = pos;
+        pos = skipToken(line, pos, len);
+        int levelEnd = pos;
+        // a 6th field is required (may be empty if line ends with whitespace)
+        if (levelEnd == levelStart || pos == len) return null;
+        int msgStart = skipSpace(line, pos, len);
+
+        LogEntry logEntry = new LogEntry();
+        logEntry.date = getDate(line);
+        logEntry.timestamp = getTimestamp(line);
+        logEntry.pid = stringCache.get(line, pidStart, pidEnd);
+        logEntry.tid = stringCache.get(line, tidStart, tidEnd);
+        logEntry.level = stringCache.get(line, levelStart, levelEnd);
+
+        // -- tag: message --
+        int tagPos = line.indexOf(':', msgStart);
+        if (tagPos > msgStart) {
+            int tagEnd = trimEnd(line, msgStart, tagPos);
+            logEntry.tag = stringCache.get(line, trimStart(line, msgStart, tagEnd), tagEnd);
+            int messageStart = trimStart(line, tagPos + 1, len);
+            logEntry.message = line.substring(messageStart, trimEnd(line, messageStart, len));
+        } else {
+            logEntry.message = line.substring(msgStart);
+        }
+        return logEntry;
+    }
+
+    /**
+     * @return true if line starts with "MM-dd HH:mm:ss.SSS" followed by whitespace
+     */
+    private static boolean isTimePrefix(String line) {
+        if (line.length() <= TIME_LEN || !isSpace(line.charAt(TIME_LEN))) return false;
+        for (int i = 0; i < TIME_LEN; i++) {
+            char c = line.charAt(i);
+            switch (i) {
+                case 2:
+                    if (c != '-') return false;
+                    break;
+                case 5:
+                    if (c != ' ') return false;
+                    break;
+                case 8:
+                case 11:
+                    if (c != ':') return false;
+                    break;
+                case 14:
+                    if (c != '.') return false;
+                    break;
+                default:
+                    if (c < '0' || c > '9') return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return "yyyy-MM-dd HH:mm:ss"
+     */
+    private String getDate(String line) {
+        int len = lastDateChars.length;
+        if (lastDate != null) {
+            boolean isSame = true;
+            for (int i = len - 1; i >= 0; i--) {
+                if (lastDateChars[i] != line.charAt(i)) {
+                    isSame = false;
+                    break;
+                }
+            }
+            if (isSame) return lastDate;
+        }
+        line.getChars(0, len, lastDateChars, 0);
+        lastDate = year + "-" + line.substring(0, len);
+        return lastDate;
+    }
+
+    private long getTimestamp(String line) {
+        int month = digits(line, 0);
+        int day = digits(line, 3);
+        int hour = digits(line, 6);
+        int key = (month * 100 + day) * 100 + hour;
+        if (key != hourKey) {
+            // NOTE: lenient like SimpleDateFormat (Calendar months are 0-based)
+            calendar.clear();
+            calendar.set(year, month - 1, day, hour, 0, 0);
+            hourMs = calendar.getTimeInMillis();
+            hourKey = key;
+        }
+        return hourMs + digits(line, 9) * 60_000L + digits(line, 12) * 1000L;
+    }
+
+    private static int digits(String line, int pos) {
+        return (line.charAt(pos) - '0') * 10 + (line.charAt(pos + 1) - '0');
+    }
+
+    // same characters as regex "\s"
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private static int skipSpace(String line, int pos, int len) {
+        while (pos < len && isSpace(line.charAt(pos))) pos++;
+        return pos;
+    }
+
+    private static int skipToken(String line, int pos, int len) {
+        while (pos < len && !isSpace(line.charAt(pos))) pos++;
+        return pos;
+    }
+
+    // same characters as String.trim()
+    private static int trimStart(String line, int start, int end) {
+        while (start < end && line.charAt(start) <= ' ') start++;
+        return start;
+    }
+
+    private static int trimEnd(String line, int start, int end) {
+        while (end > start && line.charAt(end - 1) <= ' ') end--;
+        return end;
+    }
+
+    /**
+     * small direct-mapped cache of substrings; a miss simply replaces the slot
+     */
+    private static class StringCache {
+        private final String[] slotArr;
+        private final int mask;
+
+        StringCache(int size) {
+            slotArr = new String[size];
+            mask = size - 1;
+        }
+
+        String get(String line, int start, int end) {
+            int len = end - start;
+            int hash = len;
+            for (int i = start; i < end; i++) hash = 31 * hash + line.charAt(i);
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            String cached = slotArr[slot];
+            if (cached != null && cached.length() == len && line.regionMatches(start, cached, 0, len)) return cached;
+            String value = line.substring(start, end);
+            slotArr[slot] = value;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.jpage4500.devicemanager.data;
+
+import java.util.Arrays;
+
+/**
+ * Case-insensitive matching of a fixed value against log fields (see {@link LogFilter})
+ *
+ * - value is case-folded once; field chars are folded as they're compared (table lookup for ASCII)
+ * - contains() uses Boyer-Moore-Horspool so most field chars are skipped instead of compared
+ * - same results as String.regionMatches(true, ...) / equalsIgnoreCase()
+ */
+public class TextMatcher {
+    // folded value of each ASCII char
+    private static final char[] FOLD_ARR = new char[128];
+    // shift for any non-ASCII char
+    private static final int OTHER = 128;
+
+    static {
+        for (char c = 0; c < 128; c++) FOLD_ARR[c] = Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private final char[] valueArr;
+    private final int[] shiftArr = new int[OTHER + 1];
+
+    public TextMatcher(String value) {
+        int len = value.length();
+        valueArr = new char[len];
+        for (int i = 0; i < len; i++) valueArr[i] = fold(value.charAt(i));
+        // how far to move when last compared char is c
+        Arrays.fill(shiftArr, Math.max(len, 1));
+        for (int i = 0; i < len - 1; i++) {
+            char c = valueArr[i];
+            int slot = c < OTHER ? c : OTHER;
+            // NOTE: all non-ASCII chars share a slot; use the smallest shift of any of them
+            shiftArr[slot] = len - 1 - i;
+        }
+    }
+
+    private static char fold(char c) {
+        return c < 128 ? FOLD_ARR[c] : Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    public boolean isEqual(String text) {
+        if (text == null || text.length() != valueArr.length) return false;
+        return regionMatches(text, 0);
+    }
+
+    public boolean startsWith(String text) {
+        if (text == null || text.length() < valueArr.length) return false;
+        return regionMatches(text, 0);
+    }
+
+    public boolean endsWith(String text) {
+        if (text == null || text.length() < valueArr.length) return false;
+        return regionMatches(text, text.length() - valueArr.length);
+    }
+
+    public boolean contains(String text) {
+        // same as TextUtils.containsIgnoreCase(), except chars that only match after case folding (eg: dotless i, Kelvin
+        // sign) are found there too (containsIgnoreCase() skips them when checking the 1st char)
+        if (text == null || text.isEmpty()) return false;
+        int len = valueArr.length;
+        if (len == 0) return true;
+        int last = len - 1;
+        char lastChar = valueArr[last];
+        for (int pos = 0, end = text.length() - len; pos <= end; ) {
+            char c = fold(text.charAt(pos + last));
+            if (c == lastChar && regionMatches(text, pos, last)) return true;
+            pos += shiftArr[c < OTHER ? c : OTHER];
+        }
+        return false;
+    }
+
+    private boolean regionMatches(String text, int offset) {
+        return regionMatches(text, offset, valueArr.length);
+    }
+
+    /**
+     * @return true if first len chars of value match text at offset
+     */
+    private boolean regionMatches(String text, int offset, int len) {
+        for (int i = 0; i < len; i++) {
+            if (fold(text.charAt(offset + i)) != valueArr[i]) return false;
+        }
+        return true;
+    }
+}
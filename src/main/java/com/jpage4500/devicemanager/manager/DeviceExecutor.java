@@ -0,0 +1,274 @@
+package com.jpage4500.devicemanager.manager;
+
+import com.jpage4500.devicemanager.data.Device;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs background work for {@link DeviceManager}
+ *
+ * - tasks for a device run in that device's lane: at most MAX_PER_DEVICE at once, the rest wait in order.
+ * A slow device (or a long install) only holds up its own lane, never the other devices
+ * - within a lane, INTERACTIVE tasks start before BACKGROUND ones; a task submitted with the same key as one
+ * that's still waiting is merged into it
+ * - long running tasks (logcat, scrcpy, terminal) bypass the lanes so they don't hold a slot forever
+ * - a removed device's lane is dropped once its last task is done
+ * - threads come from an unbounded cached pool, or are virtual threads (Java 21+) when enabled
+ */
+public class DeviceExecutor {
+    private static final Logger log = LoggerFactory.getLogger(DeviceExecutor.class);
+
+    // same as the per-device transport limit in TransportPool (long-lived streams aren't counted there)
+    private static final int MAX_PER_DEVICE = 4;
+
+    private final ExecutorService executorService;
+    private final boolean isVirtualThreads;
+    // key = device serial
+    private final Map<String, Lane> laneMap = new ConcurrentHashMap<>();
+
+    private final AtomicLong numSubmitted = new AtomicLong();
+    private final AtomicLong numStarted = new AtomicLong();
+    private final AtomicLong numCoalesced = new AtomicLong();
+    private final AtomicLong numPromoted = new AtomicLong();
+    private final AtomicLong totalWaitMs = new AtomicLong();
+    private final AtomicLong maxWaitMs = new AtomicLong();
+
+    public enum Priority {
+        // user is waiting on the result (list files, install, screenshot, etc)
+        INTERACTIVE,
+        // periodic refresh, process lookups, etc
+        BACKGROUND,
+    }
+
+    private static class LaneTask {
+        final FutureTask<?> future;
+        final String key;
+        final long queuedMs;
+
+        LaneTask(FutureTask<?> future, String key) {
+            this.future = future;
+            this.key = key;
+            this.queuedMs = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * tasks for a single device; interactive tasks always start before background ones
+     */
+    private class Lane {
+        private final String serial;
+        private final ArrayDeque<LaneTask> interactiveQueue = new ArrayDeque<>();
+        private final ArrayDeque<LaneTask> backgroundQueue = new ArrayDeque<>();
+        private int numRunning;
+        private boolean isRemoved;
+
+        Lane(String serial) {
+            this.serial = serial;
+        }
+
+        synchronized Future<?> add(Priority priority, String key, Runnable runnable) {
+            numSubmitted.incrementAndGet();
+            if (key != null) {
+                // same task already waiting to run? reuse it instead of running it twice
+                LaneTask pending = find(interactiveQueue, key);
+                if (pending == null) {
+                    pending = find(backgroundQueue, key);
+                    if (pending != null && priority == Priority.INTERACTIVE) {
+                        // user is now waiting on it
+                        backgroundQueue.remove(pending);
+                        interactiveQueue.add(pending);
+                        numPromoted.incrementAndGet();
+                    }
+                }
+                if (pending != null) {
+                    numCoalesced.incrementAndGet();
+                    return pending.future;
+                }
+            }
+            LaneTask task = new LaneTask(new FutureTask<>(runnable, null), key);
+            if (priority == Priority.INTERACTIVE) interactiveQueue.add(task);
+            else backgroundQueue.add(task);
+            drain();
+            return task.future;
+        }
+
+        private LaneTask find(ArrayDeque<LaneTask> queue, String key) {
+            for (LaneTask task : queue) {
+                if (key.equals(task.key)) return task;
+            }
+            return null;
+        }
+
+        private synchronized void onTaskDone() {
+            numRunning--;
+            drain();
+            if (isRemoved) dropIfIdle();
+        }
+
+        synchronized void remove() {
+            isRemoved = true;
+            dropIfIdle();
+        }
+
+        private void dropIfIdle() {
+            if (numRunning == 0 && interactiveQueue.isEmpty() && backgroundQueue.isEmpty()) {
+                laneMap.remove(serial, this);
+            }
+        }
+
+        private void drain() {
+            while (numRunning < MAX_PER_DEVICE) {
+                LaneTask task = interactiveQueue.poll();
+                if (task == null) task = backgroundQueue.poll();
+                if (task == null) break;
+                long waitMs = System.currentTimeMillis() - task.queuedMs;
+                totalWaitMs.addAndGet(waitMs);
+                maxWaitMs.accumulateAndGet(waitMs, Math::max);
+                numStarted.incrementAndGet();
+                numRunning++;
+                FutureTask<?> future = task.future;
+                try {
+                    executorService.execute(() -> {
+                        try {
+                            future.run();
+                        } finally {
+                            onTaskDone();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // shutting down
+                    numRunning--;
+                    future.cancel(false);
+                }
+            }
+        }
+
+        synchronized void addStats(Stats stats) {
+            stats.queuedInteractive += interactiveQueue.size();
+            stats.queuedBackground += backgroundQueue.size();
+            stats.running += numRunning;
+        }
+    }
+
+    /**
+     * snapshot of lane metrics
+     */
+    public static class Stats {
+        public long submitted;
+        public long started;
+        public long coalesced;
+        public long promoted;
+        public long avgWaitMs;
+        public long maxWaitMs;
+        public int queuedInteractive;
+        public int queuedBackground;
+        public int running;
+        public int lanes;
+
+        @Override
+        public String toString() {
+            return "submitted:" + submitted + ", started:" + started + ", coalesced:" + coalesced + " (promoted:" + promoted +
+                    "), wait:" + avgWaitMs + "/" + maxWaitMs + "ms, queued:" + queuedInteractive + "/" + queuedBackground +
+                    ", running:" + running + ", lanes:" + lanes;
+        }
+    }
+
+    public DeviceExecutor(boolean useVirtualThreads) {
+        ExecutorService virtualExecutor = useVirtualThreads ? createVirtualThreadExecutor() : null;
+        isVirtualThreads = virtualExecutor != null;
+        if (virtualExecutor != null) {
+            executorService = virtualExecutor;
+        } else {
+            AtomicInteger threadNum = new AtomicInteger();
+            executorService = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "device-task-" + threadNum.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        log.debug("DeviceExecutor: virtual threads:{} (requested:{})", isVirtualThreads, useVirtualThreads);
+    }
+
+    /**
+     * @return Executors.newVirtualThreadPerTaskExecutor() if running on Java 21+; null otherwise
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            // NOTE: called by reflection since app is built for Java 17
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (Exception e) {
+            log.debug("createVirtualThreadExecutor: not available: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * run a task that isn't tied to a device (adb server, scripts)
+     */
+    public Future<?> submit(Runnable task) {
+        return executorService.submit(task);
+    }
+
+    /**
+     * run an interactive task in the device's lane
+     */
+    public Future<?> submit(Device device, Runnable task) {
+        return submit(device, Priority.INTERACTIVE, null, task);
+    }
+
+    /**
+     * run a task in the device's lane
+     *
+     * @param key if not null and a task with the same key is still waiting to run, that task is returned instead
+     *            (and promoted to INTERACTIVE if needed)
+     */
+    public Future<?> submit(Device device, Priority priority, String key, Runnable task) {
+        return laneMap.computeIfAbsent(device.serial, Lane::new).add(priority, key, task);
+    }
+
+    /**
+     * drop the device's lane (call when device is removed); waits for any queued or running tasks to finish first
+     */
+    public void removeDevice(String serial) {
+        Lane lane = laneMap.get(serial);
+        if (lane != null) lane.remove();
+    }
+
+    /**
+     * run a task that can block for a long time (or forever); not limited by device lane
+     */
+    public Future<?> submitLongRunning(Runnable task) {
+        return executorService.submit(task);
+    }
+
+    public Stats getStats() {
+        Stats stats = new Stats();
+        stats.submitted = numSubmitted.get();
+        stats.started = numStarted.get();
+        stats.coalesced = numCoalesced.get();
+        stats.promoted = numPromoted.get();
+        stats.avgWaitMs = stats.started > 0 ? totalWaitMs.get() / stats.started : 0;
+        stats.maxWaitMs = maxWaitMs.get();
+        for (Lane lane : laneMap.values()) {
+            lane.addStats(stats);
+            stats.lanes++;
+        }
+        return stats;
+    }
+
+    public boolean isVirtualThreads() {
+        return isVirtualThreads;
+    }
+
+    public void shutdownNow() {
+        executorService.shutdownNow();
+    }
+}
@@ -3,6 +3,9 @@ package com.jpage4500.devicemanager.manager;
 import com.jpage4500.devicemanager.data.Device;
 import com.jpage4500.devicemanager.data.DeviceFile;
 import com.jpage4500.devicemanager.data.LogEntry;
+import com.jpage4500.devicemanager.data.LogcatArgs;
+import com.jpage4500.devicemanager.data.LogcatBinaryParser;
+import com.jpage4500.devicemanager.data.LogcatParser;
 import com.jpage4500.devicemanager.ui.dialog.ConnectDialog;
 import com.jpage4500.devicemanager.ui.dialog.SettingsDialog;
 import com.jpage4500.devicemanager.utils.*;
@@ -41,6 +44,7 @@ public class DeviceManager {
     public static final String COMMAND_DISK_SIZE = "df";
     public static final String COMMAND_LIST_PROCESSES = "ps -A -o PID,ARGS"; // | grep u0_
     public static final String COMMAND_DUMPSYS_BATTERY = "dumpsys battery";
+    public static final String COMMAND_GETPROP = "getprop";
 
     public static final String APP_SCRCPY = "scrcpy";
     public static final String APP_ADB = "adb";
@@ -53,11 +57,15 @@ public class DeviceManager {
     private static final String SCRIPT_CUSTOM = "run-custom";
 
     public static final String FILE_CUSTOM_PROP = "/sdcard/android_device_manager.properties";
+    public static final String COMMAND_CUSTOM_PROP = "cat " + FILE_CUSTOM_PROP + " 2>/dev/null";
 
     public static final String ERR_ROOT_NOT_AVAILABLE = "root not available";
     public static final String ERR_PERMISSION_DENIED = "permission denied";
     public static final String ERR_NOT_A_DIRECTORY = "Not a directory";
     public static final String SHELL_BOOT_COMPLETED = "getprop sys.boot_completed";
+    public static final String COMMAND_TIMEZONE = "getprop persist.sys.timezone";
+
+    private static final Set<DeviceRefresher.Field> ALL_FIELDS = Collections.unmodifiableSet(EnumSet.allOf(DeviceRefresher.Field.class));
 
     private static volatile DeviceManager instance;
 
@@ -65,13 +73,20 @@ public class DeviceManager {
     private final String tempFolder;
     private final List<Process> processList;
 
-    private final ExecutorService commandExecutorService;
+    private final DeviceExecutor deviceExecutor;
     private final ScheduledExecutorService scheduledExecutorService;
-    private ScheduledFuture<?> deviceRefreshRuture;
+    private final DeviceRefresher deviceRefresher;
+    private volatile DeviceListener deviceListener;
+    // key = device serial
+    private final Map<String, DeviceStatusStream> statusStreamMap = new ConcurrentHashMap<>();
 
-    private final AtomicBoolean isLogging = new AtomicBoolean(false);
+    // key = device serial; 1 session per listener (eg: device logs view and merged logs view)
+    private final Map<String, List<LogSession>> logSessionMap = new ConcurrentHashMap<>();
+    // key = device serial; shared by all log sessions for a device
+    private final Map<String, ProcessResolver> processResolverMap = new ConcurrentHashMap<>();
 
     private JadbConnection connection;
+    private DeviceMonitor deviceMonitor;
 
     public static DeviceManager getInstance() {
         if (instance == null) {
@@ -88,8 +103,9 @@ public class DeviceManager {
         deviceList = new ArrayList<>();
         processList = new ArrayList<>();
 
-        commandExecutorService = Executors.newFixedThreadPool(10);
+        deviceExecutor = new DeviceExecutor(PreferenceUtils.getPreference(PreferenceUtils.PrefBoolean.PREF_VIRTUAL_THREADS));
         scheduledExecutorService = Executors.newScheduledThreadPool(3);
+        deviceRefresher = new DeviceRefresher(scheduledExecutorService, this::handleRefreshDue);
 
         tempFolder = System.getProperty("java.io.tmpdir");
         copyResourcesToFiles();
@@ -109,25 +125,55 @@ public class DeviceManager {
     }
 
     public void connectAdbServer(boolean allowRetry, DeviceManager.DeviceListener listener) {
+        // release pooled sockets and streams from any previous connection
+        if (deviceMonitor != null) deviceMonitor.close();
+        if (connection != null) connection.close();
         connection = new JadbConnection();
-        commandExecutorService.submit(() -> {
+        deviceListener = listener;
+        deviceExecutor.submit(() -> {
             try {
                 String hostVersion = connection.getHostVersion();
                 log.debug("connectAdbServer: v:{}", hostVersion);
-                connection.createDeviceWatcher(new DeviceDetectionListener() {
+                // NOTE: monitor runs on the connection's selector thread; handlers below must not block
+                deviceMonitor = connection.createDeviceMonitor(new DeviceMonitor.Listener() {
                     @Override
-                    public void onDetect(List<JadbDevice> devices) {
-                        handleDeviceUpdate(devices, listener);
+                    public void onDeviceAdded(JadbDevice jadbDevice, JadbDevice.State state) {
+                        handleDeviceAdded(jadbDevice, state, listener);
                     }
 
                     @Override
-                    public void onException(Exception e) {
-                        log.error("connectAdbServer: onException: {}", e.getMessage());
-                        // change all devices to offline
-                        for (Device device : deviceList) device.isOnline = false;
-                        listener.handleException(e);
+                    public void onDeviceStateChanged(JadbDevice jadbDevice, JadbDevice.State oldState, JadbDevice.State state) {
+                        Device device = getDevice(jadbDevice.getSerial());
+                        if (device == null) return;
+                        log.trace("onDeviceStateChanged: {}: {} -> {}", device.getDisplayName(), oldState, state);
+                        handleDeviceState(device, state, listener);
+                    }
+
+                    @Override
+                    public void onDeviceRemoved(JadbDevice jadbDevice) {
+                        handleDeviceRemoved(jadbDevice.getSerial(), listener);
+                    }
+
+                    @Override
+                    public void onConnected() {
+                        log.debug("connectAdbServer: onConnected");
+                    }
+
+                    @Override
+                    public void onDisconnected(Exception e) {
+                        log.error("connectAdbServer: onDisconnected: {}", e.getMessage());
+                        // pooled sockets are useless once the server goes away
+                        connection.getTransportPool().clear();
+                        // change all devices to offline; monitor will bring them back once it reconnects
+                        for (Device device : getDevices()) device.isOnline = false;
+                        listener.handleDevicesUpdated(getDevices());
+                        // server might have been killed.. try to start it again
+                        startServer((isSuccess, error) -> {
+                            if (!isSuccess) listener.handleException(e);
+                        });
                     }
-                }).run();
+                });
+                deviceMonitor.start();
             } catch (Exception e) {
                 log.error("connectAdbServer: Exception: {}", e.getMessage());
                 // likley because adb server isn't running.. try to start it now
@@ -144,195 +190,257 @@ public class DeviceManager {
     }
 
     /**
-     * called when a device is added/updated/removed
-     * NOTE: run on background thread
+     * called when ADB server reports a new device
+     * NOTE: run on selector thread
      */
-    private void handleDeviceUpdate(List<JadbDevice> devices, DeviceListener listener) {
-        //log.debug("onDetect: GOT:{}, {}", devices.size(), GsonHelper.toJson(devices));
-        List<Device> addedDeviceList = new ArrayList<>();
-
-        // 1) look for devices that don't exist today
-        for (JadbDevice jadbDevice : devices) {
-            String serial = jadbDevice.getSerial();
-            // -- does this device already exist? --
-            Device device = getDevice(serial);
-            if (device == null || !device.isOnline) {
-                // -- ADD DEVICE --
-                if (device == null) {
-                    device = new Device();
-                    log.trace("handleDeviceUpdate: DEVICE_ADDED: {}", serial);
-                    synchronized (deviceList) {
-                        deviceList.add(device);
-                    }
-                }
-                device.serial = serial;
-                device.jadbDevice = jadbDevice;
-                addedDeviceList.add(device);
+    private void handleDeviceAdded(JadbDevice jadbDevice, JadbDevice.State state, DeviceListener listener) {
+        String serial = jadbDevice.getSerial();
+        // -- does this device already exist? --
+        Device device = getDevice(serial);
+        if (device == null) {
+            device = new Device();
+            log.trace("handleDeviceAdded: DEVICE_ADDED: {}", serial);
+            synchronized (deviceList) {
+                deviceList.add(device);
             }
         }
+        device.serial = serial;
+        device.jadbDevice = jadbDevice;
 
-        // 2) look for devices that are now offline
-        for (Iterator<Device> iterator = deviceList.iterator(); iterator.hasNext(); ) {
-            Device device = iterator.next();
-            boolean isFound = false;
-            for (JadbDevice jadbDevice : devices) {
-                if (device.serial.equals(jadbDevice.getSerial())) {
-                    isFound = true;
-                    break;
-                }
-            }
-            if (!isFound) {
-                if (log.isTraceEnabled()) log.trace("handleDeviceUpdate: DEVICE_OFFLINE: {}", device.getDisplayName());
-                iterator.remove();
-                // -- DEVICE REMOVED --
-                device.isOnline = false;
-                device.lastUpdateMs = System.currentTimeMillis();
-                listener.handleDeviceRemoved(device);
-            }
-        }
-
-        if (!addedDeviceList.isEmpty()) {
-            // notify listener that device list changed
-            listener.handleDevicesUpdated(deviceList);
+        // notify listener that device list changed
+        listener.handleDevicesUpdated(getDevices());
+        handleDeviceState(device, state, listener);
+    }
 
-            for (Device addedDevice : addedDeviceList) {
-                // fetch more details for these devices
-                try {
-                    JadbDevice.State state = addedDevice.jadbDevice.getState();
-                    if (state == JadbDevice.State.Device) {
-                        log.trace("handleDeviceUpdate: ONLINE: {}", addedDevice.serial);
-                        addedDevice.isOnline = true;
-                        addedDevice.status = null;
-                        addedDevice.lastUpdateMs = System.currentTimeMillis();
-                        listener.handleDeviceUpdated(addedDevice);
-                        fetchDeviceDetails(addedDevice, true, listener);
-                    } else {
-                        log.debug("handleDeviceUpdate: NOT_READY: {} -> {}", addedDevice.serial, state);
-                        addedDevice.status = state.name();
-                        listener.handleDeviceUpdated(addedDevice);
-                    }
-                } catch (Exception e) {
-                    String errMsg = e.getMessage();
-                    //  command failed: device offline
-                    //  command failed: device still authorizing
-                    //  command failed: device unauthorized.
-                    //  This adb server's $ADB_VENDOR_KEYS is not set
-                    //  Try 'adb kill-server' if that seems wrong.
-                    //  Otherwise check for a confirmation dialog on your device.
-                    log.debug("handleDeviceUpdate: NOT_READY_EXCEPTION: {} -> {}", addedDevice.serial, errMsg);
-                    addedDevice.status = errMsg;
-                    // TODO: check error message before setting device to offline?
-                    addedDevice.isOnline = false;
-                    listener.handleDeviceUpdated(addedDevice);
-                }
-            }
+    /**
+     * called when a device is added or its state changes (online, offline, unauthorized, etc)
+     * NOTE: run on selector thread
+     */
+    private void handleDeviceState(Device device, JadbDevice.State state, DeviceListener listener) {
+        if (state == JadbDevice.State.Device) {
+            log.trace("handleDeviceState: ONLINE: {}", device.serial);
+            device.isOnline = true;
+            device.status = null;
+            device.lastUpdateMs = System.currentTimeMillis();
+            listener.handleDeviceUpdated(device);
+            fetchDeviceDetails(device, ALL_FIELDS, DeviceExecutor.Priority.INTERACTIVE, listener);
+            startStatusStream(device, listener);
+        } else {
+            //  offline, authorizing, unauthorized, etc
+            log.debug("handleDeviceState: NOT_READY: {} -> {}", device.serial, state);
+            stopStatusStream(device.serial);
+            deviceRefresher.removeDevice(device.serial);
+            device.isOnline = false;
+            device.status = state.name();
+            listener.handleDeviceUpdated(device);
+        }
+    }
 
-            // run periodic task to update device state
-            if (deviceRefreshRuture == null) {
-                deviceRefreshRuture = scheduledExecutorService.scheduleWithFixedDelay(() -> {
-                    //log.trace("handleDeviceUpdate: REFRESH");
-                    for (Device device : deviceList) {
-                        fetchDeviceDetails(device, false, listener);
-                    }
-                }, 5, 5, TimeUnit.MINUTES);
-            }
+    /**
+     * NOTE: run on selector thread
+     */
+    private void handleDeviceRemoved(String serial, DeviceListener listener) {
+        Device device = getDevice(serial);
+        if (device == null) return;
+        if (log.isTraceEnabled()) log.trace("handleDeviceRemoved: DEVICE_OFFLINE: {}", device.getDisplayName());
+        synchronized (deviceList) {
+            deviceList.remove(device);
         }
+        // -- DEVICE REMOVED --
+        connection.getTransportPool().invalidate(serial);
+        stopStatusStream(serial);
+        deviceRefresher.removeDevice(serial);
+        deviceExecutor.removeDevice(serial);
+        device.isOnline = false;
+        device.lastUpdateMs = System.currentTimeMillis();
+        listener.handleDeviceRemoved(device);
     }
 
     public void refreshDevices(DeviceListener listener) {
         synchronized (deviceList) {
             for (Device device : deviceList) {
-                fetchDeviceDetails(device, true, listener);
+                fetchDeviceDetails(device, ALL_FIELDS, DeviceExecutor.Priority.INTERACTIVE, listener);
             }
         }
     }
 
+    /**
+     * enable/disable pushed battery and boot state for all online devices
+     */
+    public void setStatusStreamEnabled(boolean isEnabled) {
+        DeviceListener listener = deviceListener;
+        for (Device device : getDevices()) {
+            if (!isEnabled) stopStatusStream(device.serial);
+            else if (device.isOnline && listener != null) startStatusStream(device, listener);
+        }
+    }
+
+    /**
+     * keep a shell open on the device which reports battery and boot changes (see {@link DeviceStatusStream});
+     * battery and boot state are only polled when this isn't running
+     */
+    private void startStatusStream(Device device, DeviceListener listener) {
+        if (!PreferenceUtils.getPreference(PreferenceUtils.PrefBoolean.PREF_STREAM_DEVICE_STATUS, true)) return;
+        deviceExecutor.submit(device, DeviceExecutor.Priority.BACKGROUND, "status-stream", () -> {
+            if (!device.isOnline || statusStreamMap.containsKey(device.serial)) return;
+            try {
+                DeviceStatusStream stream = DeviceStatusStream.start(device, connection.getStreamSelector(), new DeviceStatusStream.Listener() {
+                    @Override
+                    public void onStatusChanged(Device device, boolean isBootChanged) {
+                        listener.handleDeviceUpdated(device);
+                        if (isBootChanged && device.isBooted) {
+                            // details can't be fetched until device is fully booted
+                            fetchDeviceDetails(device, EnumSet.of(DeviceRefresher.Field.DETAILS, DeviceRefresher.Field.APPS, DeviceRefresher.Field.DISK),
+                                    DeviceExecutor.Priority.BACKGROUND, listener);
+                        }
+                    }
+
+                    @Override
+                    public void onStreamClosed(Device device, IOException e) {
+                        log.debug("onStreamClosed: {}, {}", device.serial, e != null ? e.getMessage() : "");
+                        statusStreamMap.remove(device.serial);
+                        // go back to polling and try again later
+                        deviceRefresher.setPushedFields(device, Collections.emptySet());
+                        if (device.isOnline) {
+                            scheduledExecutorService.schedule(() -> startStatusStream(device, listener), 30, TimeUnit.SECONDS);
+                        }
+                    }
+                });
+                statusStreamMap.put(device.serial, stream);
+                deviceRefresher.setPushedFields(device, EnumSet.of(DeviceRefresher.Field.BATTERY, DeviceRefresher.Field.BOOT));
+            } catch (Exception e) {
+                log.debug("startStatusStream: {}, Exception: {}", device.serial, e.getMessage());
+            }
+        });
+    }
+
+    private void stopStatusStream(String serial) {
+        DeviceStatusStream stream = statusStreamMap.remove(serial);
+        if (stream != null) stream.close();
+    }
+
+    /**
+     * called by {@link DeviceRefresher} when some of a device's values are out of date
+     */
+    private void handleRefreshDue(Device device, Set<DeviceRefresher.Field> fieldSet) {
+        if (log.isTraceEnabled()) log.trace("handleRefreshDue: {}: {}, pool:{}, tasks:{}", device.getDisplayName(), fieldSet, connection.getTransportPool().getStats(), deviceExecutor.getStats());
+        DeviceListener listener = deviceListener;
+        if (listener == null) return;
+        fetchDeviceDetails(device, fieldSet, DeviceExecutor.Priority.BACKGROUND, listener);
+    }
+
     /**
      * fetch device details (phone #, name, model, disk space, battery level, etc)
      *
-     * @param fullRefresh - true to fetch everythign; false to only fetch values that would change often (battery, disk)
+     * @param fieldSet - which groups of values to fetch (see {@link DeviceRefresher.Field})
+     * @param priority - INTERACTIVE when user asked for it
      */
-    private void fetchDeviceDetails(Device device, boolean fullRefresh, DeviceListener listener) {
+    private void fetchDeviceDetails(Device device, Set<DeviceRefresher.Field> fieldSet, DeviceExecutor.Priority priority, DeviceListener listener) {
         if (!device.isOnline) return;
-        commandExecutorService.submit(() -> {
+        // repeated refresh requests are merged while one is still waiting to run
+        String key = "refresh:" + fieldSet;
+        deviceExecutor.submit(device, priority, key, () -> {
             Timer timer = new Timer();
             // show device as 'busy'
             device.busyCounter.incrementAndGet();
             listener.handleDeviceUpdated(device);
 
-            // NOTE: if device just restarted, the initial fullRefresh will fail so try again next time
-            if (fullRefresh || device.nickname == null) {
+            boolean isDetails = fieldSet.contains(DeviceRefresher.Field.DETAILS);
+            boolean isApps = fieldSet.contains(DeviceRefresher.Field.APPS);
+            List<String> customApps = isApps ? SettingsDialog.getCustomApps() : Collections.emptyList();
+
+            // all commands are run in a single shell session; results are returned in the same order
+            List<String> commandList = new ArrayList<>();
+            if (isDetails) {
+                commandList.add(COMMAND_DEVICE_NICKNAME);
+                commandList.add(COMMAND_SERVICE_PHONE1);
+                commandList.add(COMMAND_SERVICE_PHONE2);
+                commandList.add(COMMAND_SERVICE_IMEI);
+                commandList.add(COMMAND_GETPROP);
+                commandList.add(COMMAND_CUSTOM_PROP);
+            }
+            if (fieldSet.contains(DeviceRefresher.Field.DISK)) commandList.add(COMMAND_DISK_SIZE);
+            for (String customApp : customApps) {
+                commandList.add("dumpsys package " + customApp + " | grep versionName");
+            }
+            if (fieldSet.contains(DeviceRefresher.Field.BATTERY)) commandList.add(COMMAND_DUMPSYS_BATTERY);
+            if (fieldSet.contains(DeviceRefresher.Field.BOOT)) commandList.add(SHELL_BOOT_COMPLETED);
+
+            List<ShellResult> resultList = runShellBatch(device, commandList);
+            Iterator<ShellResult> resultIterator = resultList.iterator();
+            if (isDetails) {
                 // -- device nickname --
-                fetchNickname(device);
+                parseNickname(device, resultIterator.next());
 
                 // -- phone number --
-                String phone = runShellServiceCall(device, COMMAND_SERVICE_PHONE1);
+                String phone = parseServiceCall(COMMAND_SERVICE_PHONE1, resultIterator.next());
                 if (TextUtils.notEmpty(phone)) device.phone = phone;
-                if (TextUtils.isEmpty(device.phone)) {
-                    // alternative way of getting phone number
-                    phone = runShellServiceCall(device, COMMAND_SERVICE_PHONE2);
-                    if (TextUtils.notEmpty(phone)) device.phone = phone;
-                }
+                // alternative way of getting phone number
+                phone = parseServiceCall(COMMAND_SERVICE_PHONE2, resultIterator.next());
+                if (TextUtils.isEmpty(device.phone) && TextUtils.notEmpty(phone)) device.phone = phone;
 
                 // -- IMEI --
-                String imei = runShellServiceCall(device, COMMAND_SERVICE_IMEI);
+                String imei = parseServiceCall(COMMAND_SERVICE_IMEI, resultIterator.next());
                 if (TextUtils.notEmpty(imei)) device.imei = imei;
 
                 // -- device properties (model, OS) --
-                try {
-                    device.propMap = new PropertyManager(device.jadbDevice).getprop();
-                } catch (Exception e) {
-                    log.error("fetchDeviceDetails: PROP Exception:{}", e.getMessage());
+                ShellResult propResult = resultIterator.next();
+                if (propResult.isSuccess) {
+                    device.propMap = new PropertyManager(device.jadbDevice).parseProp(propResult.resultList);
                 }
 
                 // -- custom properties --
-                fetchCustomProperties(device);
+                parseCustomProperties(device, resultIterator.next());
             }
 
             // -- disk free space --
-            fetchFreeDiskSpace(device);
+            if (fieldSet.contains(DeviceRefresher.Field.DISK)) parseFreeDiskSpace(device, resultIterator.next());
 
             // -- version of installed apps --
-            fetchInstalledAppVersions(device);
+            for (String customApp : customApps) {
+                String versionName = parseAppVersion(customApp, resultIterator.next());
+                if (device.customAppVersionList == null) device.customAppVersionList = new HashMap<>();
+                device.customAppVersionList.put(customApp, versionName);
+            }
 
             // -- battery level, charging status, etc --
-            fetchBatteryInfo(device);
+            if (fieldSet.contains(DeviceRefresher.Field.BATTERY)) parseBatteryInfo(device, resultIterator.next().resultList);
 
-            fetchDeviceBooted(device);
+            if (fieldSet.contains(DeviceRefresher.Field.BOOT)) parseDeviceBooted(device, resultIterator.next());
 
             device.lastUpdateMs = System.currentTimeMillis();
 
-            if (fullRefresh) {
+            if (isDetails) {
                 if (log.isTraceEnabled()) log.trace("fetchDeviceDetails: FULL_REFRESH:{}: {}", timer, GsonHelper.toJson(device));
                 // keep track of wireless devices
                 ConnectDialog.addWirelessDevice(device);
             } else {
-                if (log.isTraceEnabled()) log.trace("fetchDeviceDetails: REFRESH:{}: {}", timer, GsonHelper.toJson(device));
+                if (log.isTraceEnabled()) log.trace("fetchDeviceDetails: REFRESH:{}: {}: {}", fieldSet, timer, GsonHelper.toJson(device));
             }
             int busyCount = device.busyCounter.decrementAndGet();
             if (busyCount == 0) listener.handleDeviceUpdated(device);
 
-            // if devicce isn't fully booted yet, schedule another refresh
-            if (!device.isBooted) {
-                scheduledExecutorService.schedule(() -> {
-                    log.trace("fetchDeviceDetails: try again for {}", device.getDisplayName());
-                    fetchDeviceDetails(device, true, listener);
-                }, 10, TimeUnit.SECONDS);
-            }
+            // schedule next refresh (sooner if device isn't fully booted yet or couldn't be reached)
+            boolean isSuccess = false;
+            for (ShellResult result : resultList) isSuccess |= result.isSuccess;
+            deviceRefresher.onRefreshDone(device, fieldSet, isSuccess);
         });
     }
 
     /**
      * check if device is fully booted
      */
-    private void fetchDeviceBooted(Device device) {
-        ShellResult result = runShell(device, SHELL_BOOT_COMPLETED);
+    private void parseDeviceBooted(Device device, ShellResult result) {
         device.isBooted = (result.isSuccess && TextUtils.equals(result.getResult(0), "1"));
     }
 
-    private void fetchBatteryInfo(Device device) {
-        ShellResult result = runShell(device, COMMAND_DUMPSYS_BATTERY);
-        for (String batteryLine : result.resultList) {
+    /**
+     * @param lineList output of "dumpsys battery"
+     */
+    static void parseBatteryInfo(Device device, List<String> lineList) {
+        // only charging sources that are on are listed below
+        if (!lineList.isEmpty()) device.powerStatus = Device.PowerStatus.POWER_NONE;
+        for (String batteryLine : lineList) {
             String[] batteryArr = batteryLine.split(": ", 2);
             if (batteryArr.length < 2) continue;
             String name = batteryArr[0].trim();
@@ -347,8 +455,9 @@ public class DeviceManager {
                             device.batteryLevel = level;
                         }
                     } catch (NumberFormatException e) {
-                        log.debug("fetchDeviceDetails: BAD_INT: {}, {}", value, e.getMessage());
+                        log.debug("parseBatteryInfo: BAD_INT: {}, {}", value, e.getMessage());
                     }
+                    break;
                 case "AC powered":
                     //  AC powered: true
                     if (Boolean.parseBoolean(value)) device.powerStatus = Device.PowerStatus.POWER_AC;
@@ -369,17 +478,7 @@ public class DeviceManager {
         }
     }
 
-    private void fetchInstalledAppVersions(Device device) {
-        List<String> customApps = SettingsDialog.getCustomApps();
-        for (String customApp : customApps) {
-            String versionName = getAppVersion(device, customApp);
-            if (device.customAppVersionList == null) device.customAppVersionList = new HashMap<>();
-            device.customAppVersionList.put(customApp, versionName);
-        }
-    }
-
-    private void fetchFreeDiskSpace(Device device) {
-        ShellResult result = runShell(device, COMMAND_DISK_SIZE);
+    private void parseFreeDiskSpace(Device device, ShellResult result) {
         if (result.isSuccess && !result.resultList.isEmpty()) {
             // only interested in last line
             String last = result.resultList.get(result.resultList.size() - 1);
@@ -395,36 +494,27 @@ public class DeviceManager {
         }
     }
 
-    private void fetchCustomProperties(Device device) {
-        OutputStream outputStream = new ByteArrayOutputStream();
-        RemoteFile file = new RemoteFile(FILE_CUSTOM_PROP);
-        try {
-            device.jadbDevice.pull(file, outputStream);
-            String customPropStr = outputStream.toString();
-            String[] customPropArr = customPropStr.split("\\n+");
-            for (String customProp : customPropArr) {
-                String[] propArr = customProp.split("=", 2);
-                if (propArr.length < 2) continue;
-                String propKey = propArr[0];
-                String propValue = propArr[1];
-                // old versions replaced spaces with "~"
-                propValue = propValue.replaceAll("~", " ");
-                if (device.customPropertyMap == null) device.customPropertyMap = new HashMap<>();
-                device.customPropertyMap.put(propKey, propValue);
-            }
-        } catch (Exception e) {
-            // NOTE: this is normal as file won't exist unless set
-            //log.trace("fetchDeviceDetails: PULL Exception:{}", e.getMessage());
+    private void parseCustomProperties(Device device, ShellResult result) {
+        // NOTE: file won't exist unless a custom property was set
+        if (!result.isSuccess) return;
+        for (String customProp : result.resultList) {
+            String[] propArr = customProp.split("=", 2);
+            if (propArr.length < 2) continue;
+            String propKey = propArr[0];
+            String propValue = propArr[1];
+            // old versions replaced spaces with "~"
+            propValue = propValue.replaceAll("~", " ");
+            if (device.customPropertyMap == null) device.customPropertyMap = new HashMap<>();
+            device.customPropertyMap.put(propKey, propValue);
         }
     }
 
-    private void fetchNickname(Device device) {
-        ShellResult result = runShell(device, COMMAND_DEVICE_NICKNAME);
+    private void parseNickname(Device device, ShellResult result) {
         if (result.isSuccess && !result.resultList.isEmpty()) {
             String nickname = result.resultList.get(0).trim();
             // look for error: "cmd: Can't find service: settings"
             if (TextUtils.containsIgnoreCase(nickname, "Can't find service")) {
-                log.trace("fetchNickname: ERROR: {}", nickname);
+                log.trace("parseNickname: ERROR: {}", nickname);
                 return;
             }
             device.nickname = nickname;
@@ -432,17 +522,15 @@ public class DeviceManager {
     }
 
     /**
-     * run a 'shell service call ..." command and parse the results into a String
+     * parse the results of a 'shell service call ..." command into a String
      */
-    private String runShellServiceCall(Device device, String command) {
-        ShellResult result = runShell(device, command);
+    private String parseServiceCall(String command, ShellResult result) {
         if (!result.isSuccess) return null;
         // look for errors like:
         // "service: Service iphonesubinfo does not exist"
         String resultDesc = TextUtils.join(result.resultList, ",");
         if (TextUtils.containsAny(resultDesc, true, "does not exist")) {
-            log.trace("runShellServiceCall: {}: ERROR: {}", command, resultDesc);
-            result.isSuccess = false;
+            log.trace("parseServiceCall: {}: ERROR: {}", command, resultDesc);
             return null;
         }
 
@@ -465,7 +553,7 @@ public class DeviceManager {
                 }
             }
         }
-        //log.trace("runShellServiceCall: RESULTS: {}", result);
+        //log.trace("parseServiceCall: RESULTS: {}", result);
         return sb != null ? sb.toString() : null;
     }
 
@@ -480,16 +568,27 @@ public class DeviceManager {
 
     public static class ShellResult {
         boolean isSuccess;
+        // stdout and stderr combined
         List<String> resultList;
+        // stderr only (shell v2)
+        List<String> errorList;
+        int exitCode = ShellResponse.EXIT_CODE_UNKNOWN;
 
         public String getResult(int index) {
             if (resultList != null && resultList.size() > index) return resultList.get(index);
             else return null;
         }
 
+        /**
+         * @return true if command ran and didn't report a failure (exit code is unknown with legacy shell)
+         */
+        public boolean isCommandSuccess() {
+            return isSuccess && (exitCode == ShellResponse.EXIT_CODE_UNKNOWN || exitCode == 0);
+        }
+
         @Override
         public String toString() {
-            return "success: " + isSuccess + ", results: " + GsonHelper.toJson(resultList);
+            return "success: " + isSuccess + ", exit: " + exitCode + ", results: " + GsonHelper.toJson(resultList);
         }
     }
 
@@ -499,34 +598,52 @@ public class DeviceManager {
     private ShellResult runShell(Device device, String command) {
         ShellResult result = new ShellResult();
         result.resultList = new ArrayList<>();
+        result.errorList = new ArrayList<>();
         List<String> commandList = TextUtils.splitSafe(command);
-        InputStream inputStream = null;
         try {
             String firstCommand = commandList.get(0);
             List<String> subList = commandList.subList(1, commandList.size());
             //log.trace("runShell: COMMAND:{}, ARGS:{}", firstCommand, GsonHelper.toJson(subList));
-            inputStream = device.jadbDevice.executeShell(firstCommand, subList.toArray(new String[0]));
-            BufferedReader input = new BufferedReader(new InputStreamReader(inputStream));
-            String line;
-            while ((line = input.readLine()) != null) {
-                result.resultList.add(line);
-            }
+            ShellResponse response = device.jadbDevice.executeShellCommand(firstCommand, subList.toArray(new String[0]));
+            result.resultList.addAll(response.getOutputList());
+            result.resultList.addAll(response.getErrorList());
+            result.errorList.addAll(response.getErrorList());
+            result.exitCode = response.getExitCode();
             result.isSuccess = true;
             //log.trace("runShell: cmd:{}, {}", command, GsonHelper.toJson(result.resultList));
         } catch (Exception e) {
             log.error("runShell: cmd:{}, Exception: {}", command, e.getMessage());
             result.isSuccess = false;
-        } finally {
-            if (inputStream != null) {
-                try {
-                    inputStream.close();
-                } catch (IOException ignored) {
-                }
-            }
         }
         return result;
     }
 
+    /**
+     * run several shell commands in a single shell session
+     *
+     * @return one result per command, in the same order
+     */
+    private List<ShellResult> runShellBatch(Device device, List<String> commandList) {
+        List<ShellResult> resultList = new ArrayList<>();
+        List<ShellResponse> responseList = null;
+        try {
+            responseList = device.jadbDevice.executeShellBatch(commandList);
+        } catch (Exception e) {
+            log.error("runShellBatch: cmds:{}, Exception: {}", commandList.size(), e.getMessage());
+        }
+        for (int i = 0; i < commandList.size(); i++) {
+            ShellResult result = new ShellResult();
+            ShellResponse response = responseList != null ? responseList.get(i) : null;
+            result.resultList = response != null ? response.getOutputList() : new ArrayList<>();
+            result.errorList = new ArrayList<>();
+            result.exitCode = response != null ? response.getExitCode() : ShellResponse.EXIT_CODE_UNKNOWN;
+            // only successful if command ran to completion (like runShell, exit code is not checked)
+            result.isSuccess = response != null && response.isComplete();
+            resultList.add(result);
+        }
+        return resultList;
+    }
+
     private Device getDevice(String serial) {
         synchronized (deviceList) {
             for (Device device : deviceList) {
@@ -542,7 +659,7 @@ public class DeviceManager {
      * run scrcpy app to mirror device
      */
     public void mirrorDevice(Device device, TaskListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submitLongRunning(() -> {
             log.debug("mirrorDevice: {}", device.getDisplayName());
             AppResult appResult = null;
             File scriptFile = getScriptFile(SCRIPT_MIRROR);
@@ -570,7 +687,7 @@ public class DeviceManager {
      * run scrcpy app to mirror device
      */
     public void recordScreen(Device device, TaskListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submitLongRunning(() -> {
             String downloadFolder = Utils.getDownloadFolder();
             String prefix = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
             File file = FileUtils.findAvailableFile(downloadFolder, prefix, ".mp4");
@@ -645,7 +762,7 @@ public class DeviceManager {
     }
 
     public void captureScreenshot(Device device, TaskListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submit(device, () -> {
             String downloadFolder = Utils.getDownloadFolder();
             // 20211215-1441PM-1.png
             String name = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".png";
@@ -667,7 +784,7 @@ public class DeviceManager {
     }
 
     public void setProperty(Device device, String key, String value, TaskListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submit(device, () -> {
             if (device.customPropertyMap == null) device.customPropertyMap = new HashMap<>();
             // update property
             device.customPropertyMap.put(key, value);
@@ -691,7 +808,7 @@ public class DeviceManager {
     }
 
     public void installApp(Device device, File file, TaskListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submit(device, () -> {
             try {
                 PackageManager packageManager = new PackageManager(device.jadbDevice);
                 packageManager.install(file);
@@ -730,7 +847,7 @@ public class DeviceManager {
     }
 
     public void copyFiles(Device device, List<File> fileList, String dest, ProgressListener progressListener, TaskListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submit(device, () -> {
             // come up with total files to copy
             FileUtils.FileStats stats = FileUtils.getFileStats(fileList);
             AtomicInteger count = new AtomicInteger();
@@ -743,21 +860,21 @@ public class DeviceManager {
     }
 
     public void restartDevice(Device device, TaskListener listener) {
-        commandExecutorService.submit(() -> {
-            runShell(device, COMMAND_REBOOT);
-            // TODO: detect success/fail
-            listener.onTaskComplete(true, null);
+        deviceExecutor.submit(device, () -> {
+            ShellResult result = runShell(device, COMMAND_REBOOT);
+            // NOTE: device usually drops the connection before reporting an exit code
+            listener.onTaskComplete(result.isCommandSuccess(), TextUtils.join(result.errorList, "\n"));
         });
     }
 
     public void runCustomCommand(Device device, String customCommand, TaskListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submit(device, () -> {
             ShellResult result = runShell(device, customCommand);
-            boolean isSuccess = result.isSuccess;
-            log.trace("runCustomCommand: DONE: success:{}, {}", isSuccess, GsonHelper.toJson(result.resultList));
+            boolean isSuccess = result.isCommandSuccess();
+            log.trace("runCustomCommand: DONE: success:{}, exit:{}, {}", isSuccess, result.exitCode, GsonHelper.toJson(result.resultList));
             String displayStr = TextUtils.join(result.resultList, "\n");
-            // check if command runs but fails
-            if (TextUtils.containsIgnoreCase(displayStr, "inaccessible or not found")) {
+            // legacy shell: no exit code so check if command runs but fails
+            if (result.exitCode == ShellResponse.EXIT_CODE_UNKNOWN && TextUtils.containsIgnoreCase(displayStr, "inaccessible or not found")) {
                 isSuccess = false;
             }
             if (listener != null) listener.onTaskComplete(isSuccess, displayStr);
@@ -765,7 +882,7 @@ public class DeviceManager {
     }
 
     public void openTerminal(Device device, TaskListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submitLongRunning(() -> {
             File scriptFile = getScriptFile(SCRIPT_TERMINAL);
             runApp(scriptFile.getAbsolutePath(), true, device.serial);
         });
@@ -775,7 +892,7 @@ public class DeviceManager {
      * start ADB server
      */
     public void startServer(TaskListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submit(() -> {
             AppResult appResult = null;
             File scriptFile = getScriptFile(SCRIPT_START_SERVER);
             if (scriptFile != null) {
@@ -795,7 +912,7 @@ public class DeviceManager {
     }
 
     public void listFiles(Device device, String path, boolean useRoot, DeviceFileListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submit(device, () -> {
             try {
                 String safePath = path;
                 // make sure folder ends with "/"
@@ -849,7 +966,7 @@ public class DeviceManager {
 
     public void downloadFile(Device device, String path, DeviceFile file, File saveFile, TaskListener listener) {
         log.debug("downloadFile: {}/{} -> {}", path, file.name, saveFile.getAbsolutePath());
-        commandExecutorService.submit(() -> downloadFileInternal(device, path, file, saveFile));
+        deviceExecutor.submit(device, () -> downloadFileInternal(device, path, file, saveFile));
     }
 
     /**
@@ -884,26 +1001,24 @@ public class DeviceManager {
     }
 
     public void deleteFile(Device device, String path, DeviceFile file, TaskListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submit(device, () -> {
             String command = "rm -rf \"" + path + "/" + file.name + "\"";
             ShellResult result = runShell(device, command);
             log.debug("deleteFile: {} -> {}", command, result);
-            // TODO: determine success/fail
-            listener.onTaskComplete(true, null);
+            listener.onTaskComplete(result.isCommandSuccess(), TextUtils.join(result.errorList, "\n"));
         });
     }
 
     public void createFolder(Device device, String path, TaskListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submit(device, () -> {
             ShellResult result = runShell(device, "mkdir \"" + path + "\"");
             log.debug("createFolder: {} -> {}", path, result);
-            // TODO: determine success/fail
-            listener.onTaskComplete(true, null);
+            listener.onTaskComplete(result.isCommandSuccess(), TextUtils.join(result.errorList, "\n"));
         });
     }
 
     public void connectDevice(String ip, int port, TaskListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submit(() -> {
             try {
                 log.debug("connectDevice: {}:{}", ip, port);
                 connection.connectToTcpDevice(new InetSocketAddress(ip, port));
@@ -916,7 +1031,7 @@ public class DeviceManager {
     }
 
     public void disconnectDevice(String serial, TaskListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submit(() -> {
             String[] deviceArr = TextUtils.split(serial, ":");
             if (deviceArr.length < 2) {
                 log.error("disconnectDevice: bad device:{}", serial);
@@ -936,7 +1051,7 @@ public class DeviceManager {
     }
 
     public void sendInputText(Device device, String text, TaskListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submit(device, () -> {
             String command = "input text \"" + text + "\"";
             ShellResult result = runShell(device, command);
             log.trace("sendInputText: {} -> {}", text, result);
@@ -946,10 +1061,11 @@ public class DeviceManager {
     }
 
     public void sendInputKeyCode(Device device, int keyEvent, TaskListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submit(device, () -> {
             log.debug("sendInputKeyCode: {}", keyEvent);
-            try {
-                device.jadbDevice.inputKeyEvent(keyEvent);
+            try (InputStream inputStream = device.jadbDevice.inputKeyEvent(keyEvent)) {
+                // wait for command to finish before closing
+                Stream.readAll(inputStream, StandardCharsets.UTF_8);
                 if (listener != null) listener.onTaskComplete(true, null);
             } catch (Exception e) {
                 log.error("sendInputKeyCode: {}, Exception:{}", keyEvent, e.getMessage());
@@ -958,87 +1074,218 @@ public class DeviceManager {
         });
     }
 
-    public interface DeviceLogListener {
-        void handleLogEntries(List<LogEntry> logEntryList);
-
-        void handleProcessMap(Map<String, String> processMap);
+    public interface DeviceLogListener extends LogPipeline.Listener {
+        void handleProcessMap(String serial, Map<String, String> processMap);
     }
 
-    public void startLogging(Device device, Long startTime, DeviceLogListener listener) {
-        stopLogging(device);
-        commandExecutorService.submit(() -> {
-            log.debug("startLogging: {}", startTime);
-            isLogging.set(true);
-            InputStream inputStream = null;
-            try {
-                String[] args = new String[]{"-v", "threadtime"};
-                inputStream = device.jadbDevice.executeShell("logcat", args);
-                BufferedReader input = new BufferedReader(new InputStreamReader(inputStream));
-
-                long lastUpdateMs = System.currentTimeMillis();
-                List<LogEntry> logList = new ArrayList<>();
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                int year = Calendar.getInstance().get(Calendar.YEAR);
-                String line;
-                while ((line = input.readLine()) != null) {
-                    LogEntry logEntry = new LogEntry(line, dateFormat, year);
-                    if (logEntry.date == null) continue;
-                    else if (startTime != null && startTime > logEntry.timestamp) {
-                        //log.trace("startLogging: too old: {} ({}) vs {}", logEntry.timestamp, logEntry.date, startTime);
-                        continue;
-                    }
+    /**
+     * logcat stream for 1 device
+     */
+    private static class LogSession {
+        final DeviceLogListener listener;
+        volatile boolean isRunning = true;
+        // removed from logSessionMap (stopped, or stream ended)
+        final AtomicBoolean isRemoved = new AtomicBoolean();
+        // closed when stopped so a blocked read returns right away
+        volatile InputStream inputStream;
+
+        LogSession(DeviceLogListener listener) {
+            this.listener = listener;
+        }
 
-                    logList.add(logEntry);
+        void stop() {
+            isRunning = false;
+            InputStream stream = inputStream;
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
 
-                    // only update every X ms
-                    if (System.currentTimeMillis() - lastUpdateMs >= 100 && !logList.isEmpty()) {
-                        // update
-                        listener.handleLogEntries(logList);
-                        logList.clear();
-                        lastUpdateMs = System.currentTimeMillis();
+    /**
+     * start reading logs from device on its own thread (stops logging already running for this device + listener)
+     * NOTE: each device has its own pipeline so a busy device can't hold up (or cause drops for) the others
+     *
+     * @return pipeline that log lines are delivered through (for stats; stop it when done)
+     */
+    public LogPipeline startLogging(Device device, Long startTime, DeviceLogListener listener) {
+        return startLogging(device, startTime, List.of(), listener);
+    }
 
-                        // check if logging is still running
-                        if (!isLogging.get()) break;
-                    }
+    /**
+     * @param filterArgs extra logcat arguments so device only sends some lines (see {@link LogcatArgs})
+     */
+    public LogPipeline startLogging(Device device, Long startTime, List<String> filterArgs, DeviceLogListener listener) {
+        stopLogging(device, listener);
+        LogSession session = new LogSession(listener);
+        logSessionMap.computeIfAbsent(device.serial, k -> new CopyOnWriteArrayList<>()).add(session);
+        LogPipeline pipeline = new LogPipeline(listener);
+        // resolves pid -> app name as lines arrive
+        ProcessResolver resolver = processResolverMap.computeIfAbsent(device.serial, k -> {
+            ProcessResolver processResolver = new ProcessResolver(device, deviceExecutor, scheduledExecutorService, this::getProcessMap);
+            processResolver.start();
+            return processResolver;
+        });
+        resolver.addListener(listener);
+        deviceExecutor.submitLongRunning(() -> {
+            log.debug("startLogging: {}, {}, {}", device.serial, startTime, filterArgs);
+            LogBatch logBatch = new LogBatch(device.serial, startTime, pipeline, session, resolver);
+            try {
+                if (PreferenceUtils.getPreference(PreferenceUtils.PrefBoolean.PREF_BINARY_LOGCAT)) {
+                    // fall back to text if device doesn't support "logcat -B"
+                    if (readLogcatBinary(device, filterArgs, logBatch)) return;
                 }
-            } catch (Exception e) {
-                log.error("startLogging: {}", e.getMessage());
+                readLogcatText(device, filterArgs, logBatch);
             } finally {
-                if (inputStream != null) {
-                    try {
-                        inputStream.close();
-                    } catch (IOException ignored) {
-                    }
-                }
+                // stream ended (or was stopped); logging can be started again
+                removeLogSession(device.serial, session);
             }
         });
+        return pipeline;
+    }
+
+    /**
+     * skips lines older than start time, sets device and app, and hands the rest to the pipeline
+     */
+    private static class LogBatch {
+        private final String serial;
+        private final Long startTime;
+        private final LogPipeline pipeline;
+        private final LogSession session;
+        private final ProcessResolver resolver;
+        // last app looked up (lines from the same pid usually come together)
+        private String lastPid;
+        private String lastApp;
+        private int lastVersion = -1;
+
+        LogBatch(String serial, Long startTime, LogPipeline pipeline, LogSession session, ProcessResolver resolver) {
+            this.serial = serial;
+            this.startTime = startTime;
+            this.pipeline = pipeline;
+            this.session = session;
+            this.resolver = resolver;
+        }
 
-        // run a periodic task to fetch running apps from device so logs can replace PID with app name
-        commandExecutorService.submit(() -> {
-            Map<String, String> pidMap = getProcessMap(device);
-            if (!pidMap.isEmpty()) {
-                listener.handleProcessMap(pidMap);
+        private String getApp(String pid) {
+            if (pid == null) return null;
+            int version = resolver.getVersion();
+            if (version != lastVersion || !pid.equals(lastPid)) {
+                lastApp = resolver.getApp(pid);
+                lastPid = pid;
+                lastVersion = version;
             }
-            // check if logging is still running and schedule next lookup
-            if (isLogging.get()) {
-                scheduleNextProcessCheck(device, listener);
+            return lastApp;
+        }
+
+        /**
+         * keep stream so it can be closed when logging is stopped
+         */
+        void setInputStream(InputStream inputStream) {
+            session.inputStream = inputStream;
+            // stopped before stream was opened
+            if (!session.isRunning) session.stop();
+        }
+
+        /**
+         * @return false if logging was stopped
+         */
+        boolean add(LogEntry logEntry) {
+            if (startTime != null && logEntry.timestamp != null && startTime > logEntry.timestamp) {
+                //log.trace("startLogging: too old: {} ({}) vs {}", logEntry.timestamp, logEntry.date, startTime);
+                return true;
             }
-        });
+            logEntry.device = serial;
+            // NOTE: app is set once here instead of each time row is displayed
+            if (logEntry.app == null) logEntry.app = getApp(logEntry.pid);
+            // NOTE: if the Swing thread falls behind, lines are dropped (and counted) instead of queued
+            pipeline.offer(logEntry);
+            return session.isRunning;
+        }
     }
 
-    private void scheduleNextProcessCheck(Device device, DeviceLogListener listener) {
-        // make sure logging is still running
-        if (!isLogging.get()) return;
+    /**
+     * read "logcat -v threadtime" output
+     */
+    private void readLogcatText(Device device, List<String> filterArgs, LogBatch logBatch) {
+        InputStream inputStream = null;
+        try {
+            List<String> argList = new ArrayList<>(List.of("-v", "threadtime"));
+            argList.addAll(filterArgs);
+            inputStream = device.jadbDevice.executeShellStream("logcat", argList.toArray(new String[0]));
+            logBatch.setInputStream(inputStream);
+            BufferedReader input = new BufferedReader(new InputStreamReader(inputStream));
+
+            LogcatParser parser = new LogcatParser(Calendar.getInstance().get(Calendar.YEAR));
+            String line;
+            while ((line = input.readLine()) != null) {
+                LogEntry logEntry = parser.parse(line);
+                if (logEntry == null) continue;
+                if (!logBatch.add(logEntry)) break;
+            }
+        } catch (Exception e) {
+            if (logBatch.session.isRunning) log.error("readLogcatText: {}", e.getMessage());
+        } finally {
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
 
-        // run in 30 seconds
-        scheduledExecutorService.schedule(() -> {
-            // make sure logging is still running
-            if (!isLogging.get()) return;
+    /**
+     * read "logcat -B" output (binary log entries; no text formatting on device or parsing here)
+     *
+     * @return false if nothing could be decoded (caller should use text output instead)
+     */
+    private boolean readLogcatBinary(Device device, List<String> filterArgs, LogBatch logBatch) {
+        InputStream inputStream = null;
+        boolean isDecoded = false;
+        try {
+            // NOTE: exec: service keeps binary output as-is (shell: may convert line endings)
+            List<String> argList = new ArrayList<>(List.of("-B"));
+            argList.addAll(filterArgs);
+            TimeZone timeZone = getDeviceTimeZone(device);
+            inputStream = device.jadbDevice.executeStream("logcat", argList.toArray(new String[0]));
+            logBatch.setInputStream(inputStream);
+            LogcatBinaryParser parser = new LogcatBinaryParser(inputStream, timeZone);
+            List<LogEntry> entryList = new ArrayList<>();
+            while (parser.readEntry(entryList)) {
+                isDecoded = true;
+                for (LogEntry logEntry : entryList) {
+                    if (!logBatch.add(logEntry)) return true;
+                }
+                entryList.clear();
+            }
+        } catch (Exception e) {
+            // NOTE: stopped while reading counts as decoded (don't fall back to text)
+            if (!logBatch.session.isRunning) return true;
+            log.error("readLogcatBinary: decoded:{}, {}", isDecoded, e.getMessage());
+        } finally {
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        return isDecoded;
+    }
 
-            Map<String, String> pidMap = getProcessMap(device);
-            listener.handleProcessMap(pidMap);
-            scheduleNextProcessCheck(device, listener);
-        }, 30, TimeUnit.SECONDS);
+    /**
+     * @return time zone set on device, or host time zone if unknown
+     */
+    private TimeZone getDeviceTimeZone(Device device) {
+        ShellResult result = runShell(device, COMMAND_TIMEZONE);
+        String id = !result.resultList.isEmpty() ? result.resultList.get(0).trim() : null;
+        // NOTE: getTimeZone() returns GMT for unknown ids
+        if (TextUtils.notEmpty(id) && TimeZone.getTimeZone(id).getID().equals(id)) return TimeZone.getTimeZone(id);
+        log.debug("getDeviceTimeZone: {}, unknown: {}", device.serial, id);
+        return TimeZone.getDefault();
     }
 
     private Map<String, String> getProcessMap(Device device) {
@@ -1060,15 +1307,45 @@ public class DeviceManager {
         return pidMap;
     }
 
-    public void stopLogging(Device device) {
-        if (isLogging.get()) {
-            log.debug("stopLogging: ");
-            isLogging.set(false);
+    /**
+     * stop logging for this device + listener only
+     */
+    public void stopLogging(Device device, DeviceLogListener listener) {
+        LogSession session = getLogSession(device, listener);
+        if (session != null) {
+            log.debug("stopLogging: {}", device.serial);
+            session.stop();
+            removeLogSession(device.serial, session);
         }
     }
 
-    public boolean isLogging(Device device) {
-        return isLogging.get();
+    public boolean isLogging(Device device, DeviceLogListener listener) {
+        return getLogSession(device, listener) != null;
+    }
+
+    private LogSession getLogSession(Device device, DeviceLogListener listener) {
+        List<LogSession> sessionList = logSessionMap.get(device.serial);
+        if (sessionList == null) return null;
+        for (LogSession session : sessionList) {
+            if (session.listener == listener) return session;
+        }
+        return null;
+    }
+
+    private void removeLogSession(String serial, LogSession session) {
+        // NOTE: called when stopped and again when stream ends
+        if (!session.isRemoved.compareAndSet(false, true)) return;
+        logSessionMap.computeIfPresent(serial, (k, sessionList) -> {
+            sessionList.remove(session);
+            return sessionList.isEmpty() ? null : sessionList;
+        });
+        // stop resolving pids when no one is logging this device
+        processResolverMap.computeIfPresent(serial, (k, resolver) -> {
+            resolver.removeListener(session.listener);
+            if (resolver.hasListeners()) return resolver;
+            resolver.stop();
+            return null;
+        });
     }
 
     public void handleExit() {
@@ -1084,8 +1361,17 @@ public class DeviceManager {
             }
         }
 
-        if (deviceRefreshRuture != null) deviceRefreshRuture.cancel(true);
-        commandExecutorService.shutdownNow();
+        deviceRefresher.clear();
+        for (String serial : statusStreamMap.keySet()) stopStatusStream(serial);
+        for (List<LogSession> sessionList : logSessionMap.values()) {
+            for (LogSession session : sessionList) session.stop();
+        }
+        logSessionMap.clear();
+        for (ProcessResolver resolver : processResolverMap.values()) resolver.stop();
+        processResolverMap.clear();
+        if (deviceMonitor != null) deviceMonitor.close();
+        if (connection != null) connection.close();
+        deviceExecutor.shutdownNow();
         scheduledExecutorService.shutdownNow();
     }
 
@@ -1185,7 +1471,7 @@ public class DeviceManager {
     }
 
     public void runCustomScript(TaskListener listener, String path, String... args) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submit(() -> {
             log.debug("runCustomScript: {}", path);
             AppResult appResult;
             File scriptFile = getScriptFile(SCRIPT_CUSTOM);
@@ -1309,7 +1595,7 @@ public class DeviceManager {
      * fetch all installed apps (package names)
      */
     public void getInstalledApps(Device device, InstalledAppListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submit(device, () -> {
             try {
                 HashSet<String> appSet = device.jadbDevice.listInstalledPackages();
                 listener.onComplete(appSet);
@@ -1328,7 +1614,7 @@ public class DeviceManager {
      * fetch version for a given app package
      */
     public void fetchAppVersion(Device device, String appPkg, InstalledAppVersionListener listener) {
-        commandExecutorService.submit(() -> {
+        deviceExecutor.submit(device, () -> {
             String appVersion = getAppVersion(device, appPkg);
             listener.onComplete(appVersion);
         });
@@ -1337,6 +1623,10 @@ public class DeviceManager {
     private String getAppVersion(Device device, String appPkg) {
         // shell dumpsys package $PACKAGE | grep versionName | sed 's/    versionName=//')
         ShellResult result = runShell(device, "dumpsys package " + appPkg);
+        return parseAppVersion(appPkg, result);
+    }
+
+    private String parseAppVersion(String appPkg, ShellResult result) {
         for (String appLine : result.resultList) {
             // "    versionName=24.05.16.160",
             int index = appLine.indexOf("versionName=");
@@ -0,0 +1,201 @@
+package com.jpage4500.devicemanager.manager;
+
+import com.jpage4500.devicemanager.data.Device;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when each device's details need to be fetched again
+ *
+ * - every field group has its own TTL (battery changes often, phone number/model almost never)
+ * - each device is scheduled on its own, at the time its next field expires
+ * - after the first fetch a field's next refresh is spread anywhere across its TTL, so devices connected at the
+ * same time (eg: app start) don't refresh together; after that each refresh adds +/- JITTER
+ * - devices that keep failing are retried with exponential backoff
+ */
+public class DeviceRefresher {
+    private static final Logger log = LoggerFactory.getLogger(DeviceRefresher.class);
+
+    // +/- 15% of TTL
+    private static final double JITTER = 0.15;
+    private static final long MIN_BACKOFF_MS = TimeUnit.SECONDS.toMillis(10);
+    private static final long MAX_BACKOFF_MS = TimeUnit.MINUTES.toMillis(10);
+    // check boot state this often until device is fully booted
+    private static final long BOOTING_TTL_MS = TimeUnit.SECONDS.toMillis(10);
+
+    public enum Field {
+        // nickname, phone, IMEI, properties, custom properties
+        DETAILS(TimeUnit.MINUTES.toMillis(30)),
+        // versions of custom apps
+        APPS(TimeUnit.MINUTES.toMillis(10)),
+        DISK(TimeUnit.MINUTES.toMillis(5)),
+        BATTERY(TimeUnit.MINUTES.toMillis(2)),
+        BOOT(TimeUnit.MINUTES.toMillis(30)),
+        ;
+
+        final long ttlMs;
+
+        Field(long ttlMs) {
+            this.ttlMs = ttlMs;
+        }
+    }
+
+    public interface RefreshListener {
+        /**
+         * fetch given fields for device; must call {@link #onRefreshDone} when finished
+         */
+        void refresh(Device device, Set<Field> fieldSet);
+    }
+
+    private static class RefreshState {
+        // when each field is due next; indexed by Field.ordinal()
+        final long[] dueMs = new long[Field.values().length];
+        int numFailures;
+        ScheduledFuture<?> future;
+    }
+
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final RefreshListener listener;
+    private final Random random = new Random();
+    // key = device serial
+    private final Map<String, RefreshState> stateMap = new ConcurrentHashMap<>();
+    // fields kept up to date some other way (see DeviceStatusStream); key = device serial
+    private final Map<String, Set<Field>> pushedMap = new ConcurrentHashMap<>();
+
+    public DeviceRefresher(ScheduledExecutorService scheduledExecutorService, RefreshListener listener) {
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.listener = listener;
+    }
+
+    /**
+     * record a finished refresh and schedule the next one for this device
+     *
+     * @param isSuccess false if the device couldn't be reached
+     */
+    public void onRefreshDone(Device device, Set<Field> fieldSet, boolean isSuccess) {
+        RefreshState state = stateMap.computeIfAbsent(device.serial, k -> new RefreshState());
+        long now = System.currentTimeMillis();
+        long nextMs;
+        synchronized (state) {
+            if (isSuccess) {
+                state.numFailures = 0;
+                for (Field field : fieldSet) {
+                    long ttlMs = getTtlMs(device, field);
+                    boolean isFirst = state.dueMs[field.ordinal()] == 0;
+                    state.dueMs[field.ordinal()] = now + (isFirst ? stagger(ttlMs) : jitter(ttlMs));
+                }
+                nextMs = getNextDueMs(device, state);
+            } else {
+                state.numFailures++;
+                long backoffMs = MIN_BACKOFF_MS << Math.min(state.numFailures - 1, 16);
+                nextMs = now + jitter(Math.min(backoffMs, MAX_BACKOFF_MS));
+                log.trace("onRefreshDone: FAILED: {}, attempts:{}, retry in {}ms", device.serial, state.numFailures, nextMs - now);
+            }
+            schedule(device, state, Math.max(0, nextMs - now));
+        }
+    }
+
+    /**
+     * stop (or resume) polling for fields that are pushed by the device
+     *
+     * @param fieldSet fields to skip; empty to poll for everything again
+     */
+    public void setPushedFields(Device device, Set<Field> fieldSet) {
+        if (fieldSet.isEmpty()) pushedMap.remove(device.serial);
+        else pushedMap.put(device.serial, EnumSet.copyOf(fieldSet));
+        RefreshState state = stateMap.get(device.serial);
+        if (state == null) return;
+        synchronized (state) {
+            if (state.numFailures > 0) return;
+            long now = System.currentTimeMillis();
+            schedule(device, state, Math.max(0, getNextDueMs(device, state) - now));
+        }
+    }
+
+    /**
+     * stop refreshing device (offline or removed); next refresh will fetch everything
+     */
+    public void removeDevice(String serial) {
+        pushedMap.remove(serial);
+        RefreshState state = stateMap.remove(serial);
+        if (state == null) return;
+        synchronized (state) {
+            if (state.future != null) state.future.cancel(false);
+        }
+    }
+
+    public void clear() {
+        for (String serial : stateMap.keySet()) removeDevice(serial);
+    }
+
+    private void schedule(Device device, RefreshState state, long delayMs) {
+        if (state.future != null) state.future.cancel(false);
+        state.future = scheduledExecutorService.schedule(() -> {
+            Set<Field> fieldSet = getDueFields(device, state);
+            if (!device.isOnline) return;
+            if (fieldSet.isEmpty()) {
+                // nothing due after all (eg: fields are now pushed); wait for the next one
+                synchronized (state) {
+                    schedule(device, state, Math.max(0, getNextDueMs(device, state) - System.currentTimeMillis()));
+                }
+                return;
+            }
+            listener.refresh(device, fieldSet);
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private long getNextDueMs(Device device, RefreshState state) {
+        Set<Field> pushedSet = pushedMap.getOrDefault(device.serial, Collections.emptySet());
+        long nextMs = Long.MAX_VALUE;
+        for (Field field : Field.values()) {
+            if (!pushedSet.contains(field)) nextMs = Math.min(nextMs, state.dueMs[field.ordinal()]);
+        }
+        return nextMs;
+    }
+
+    private Set<Field> getDueFields(Device device, RefreshState state) {
+        long now = System.currentTimeMillis();
+        Set<Field> pushedSet = pushedMap.getOrDefault(device.serial, Collections.emptySet());
+        Set<Field> fieldSet = EnumSet.noneOf(Field.class);
+        synchronized (state) {
+            boolean isRetry = state.numFailures > 0;
+            for (Field field : Field.values()) {
+                if (pushedSet.contains(field)) continue;
+                // also take fields that are almost due so they're fetched in the same shell session
+                long earlyMs = (long) (getTtlMs(device, field) * JITTER * 2);
+                if (isRetry || state.dueMs[field.ordinal()] <= now + earlyMs) fieldSet.add(field);
+            }
+        }
+        // NOTE: if device just restarted, details will fail so keep trying until booted
+        if (!device.isBooted && !pushedSet.contains(Field.BOOT)) fieldSet.add(Field.BOOT);
+        if (!device.isBooted) fieldSet.add(Field.DETAILS);
+        return fieldSet;
+    }
+
+    private long getTtlMs(Device device, Field field) {
+        if (!device.isBooted && (field == Field.BOOT || field == Field.DETAILS)) return BOOTING_TTL_MS;
+        return field.ttlMs;
+    }
+
+    /**
+     * @return random time in (0, ms]
+     */
+    private long stagger(long ms) {
+        return Math.max(1, (long) (ms * (1 - random.nextDouble())));
+    }
+
+    private long jitter(long ms) {
+        double factor = 1 + (random.nextDouble() * 2 - 1) * JITTER;
+        return (long) (ms * factor);
+    }
+}
@@ -0,0 +1,161 @@
+package com.jpage4500.devicemanager.manager;
+
+import com.jpage4500.devicemanager.data.Device;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.vidstige.jadb.JadbException;
+import se.vidstige.jadb.LineStreamListener;
+import se.vidstige.jadb.StreamSelector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Long-lived shell on a device that reports battery and boot state as they change, instead of polling for them
+ *
+ * - until the device is booted, sys.boot_completed is checked every BOOT_POLL_SECS (the only polling left)
+ * - then current battery values are printed once and the shell becomes "logcat -b events" filtered to the
+ * battery_level / battery_status events that BatteryService logs when they change, so the device pushes changes
+ * and nothing runs on a timer
+ * - reports (boot state, battery values) end with MARKER; events are handled as they arrive. listener is only
+ * called if the parsed values are different
+ * - a reboot drops the adb connection, which ends the stream
+ */
+public class DeviceStatusStream implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(DeviceStatusStream.class);
+
+    private static final String MARKER = "--ADM-STATUS--";
+    private static final int BOOT_POLL_SECS = 5;
+    private static final String BOOT_COMPLETED = "boot_completed";
+    private static final String EVENT_LEVEL = "battery_level";
+    private static final String EVENT_STATUS = "battery_status";
+
+    // NOTE: logcat starts from the time taken before dumpsys, so no change between the two is missed
+    private static final String COMMAND = "b=$(getprop sys.boot_completed); " +
+            "echo " + BOOT_COMPLETED + ": $b; echo " + MARKER + "; " +
+            "while [ \"$b\" != 1 ]; do sleep " + BOOT_POLL_SECS + "; b=$(getprop sys.boot_completed); done; " +
+            "t=$(date '+%m-%d %H:%M:%S.000'); " +
+            "echo " + BOOT_COMPLETED + ": 1; dumpsys battery | grep -E 'level:|powered:'; echo " + MARKER + "; " +
+            "exec logcat -b events -v tag -T \"$t\" " + EVENT_LEVEL + ":I " + EVENT_STATUS + ":I '*:S'";
+
+    // BatteryManager.BATTERY_PLUGGED_*
+    private static final int PLUGGED_AC = 1;
+    private static final int PLUGGED_USB = 2;
+    private static final int PLUGGED_WIRELESS = 4;
+    private static final int PLUGGED_DOCK = 8;
+
+    public interface Listener {
+        /**
+         * battery level, power status or boot state changed; called on selector thread
+         *
+         * @param isBootChanged true if device.isBooted changed
+         */
+        void onStatusChanged(Device device, boolean isBootChanged);
+
+        /**
+         * stream ended on its own (device went offline, shell was killed, etc); not called after {@link #close()}
+         */
+        void onStreamClosed(Device device, IOException e);
+    }
+
+    private final Device device;
+    private final Listener listener;
+    private final List<String> lineList = new ArrayList<>();
+    private Closeable registration;
+
+    private DeviceStatusStream(Device device, Listener listener) {
+        this.device = device;
+        this.listener = listener;
+    }
+
+    /**
+     * start streaming; blocks until the device accepted the shell command
+     */
+    public static DeviceStatusStream start(Device device, StreamSelector selector, Listener listener) throws IOException, JadbException {
+        DeviceStatusStream stream = new DeviceStatusStream(device, listener);
+        stream.registration = device.jadbDevice.executeShell(selector, new LineStreamListener() {
+            @Override
+            public void onLine(String line) {
+                stream.handleLine(line);
+            }
+
+            @Override
+            public void onClosed(IOException e) {
+                listener.onStreamClosed(device, e);
+            }
+        }, COMMAND);
+        return stream;
+    }
+
+    private void handleLine(String line) {
+        if (line.startsWith("I/" + EVENT_LEVEL) || line.startsWith("I/" + EVENT_STATUS)) {
+            // I/battery_level: [85,4123,290]
+            // I/battery_status: [2,2,1,2,Li-ion]
+            Integer oldLevel = device.batteryLevel;
+            Device.PowerStatus oldPowerStatus = device.powerStatus;
+            parseEvent(line);
+            notifyIfChanged(oldLevel, oldPowerStatus, device.isBooted);
+            return;
+        } else if (!line.equals(MARKER)) {
+            lineList.add(line);
+            return;
+        }
+        Integer oldLevel = device.batteryLevel;
+        Device.PowerStatus oldPowerStatus = device.powerStatus;
+        boolean oldBooted = device.isBooted;
+
+        List<String> batteryList = new ArrayList<>();
+        for (String statusLine : lineList) {
+            if (statusLine.startsWith(BOOT_COMPLETED)) device.isBooted = statusLine.endsWith(": 1");
+            else batteryList.add(statusLine);
+        }
+        if (!batteryList.isEmpty()) DeviceManager.parseBatteryInfo(device, batteryList);
+        lineList.clear();
+        notifyIfChanged(oldLevel, oldPowerStatus, oldBooted);
+    }
+
+    private void parseEvent(String line) {
+        int start = line.indexOf('[');
+        int end = line.lastIndexOf(']');
+        if (start < 0 || end < start) return;
+        String[] valueArr = line.substring(start + 1, end).split(",");
+        try {
+            if (line.startsWith("I/" + EVENT_LEVEL)) {
+                int level = Integer.parseInt(valueArr[0].trim());
+                // some Android TV devices list battery level as 0
+                if (level > 0 && level <= 100) device.batteryLevel = level;
+            } else if (valueArr.length >= 4) {
+                int plugged = Integer.parseInt(valueArr[3].trim());
+                device.powerStatus = switch (plugged) {
+                    case PLUGGED_AC -> Device.PowerStatus.POWER_AC;
+                    case PLUGGED_USB -> Device.PowerStatus.POWER_USB;
+                    case PLUGGED_WIRELESS -> Device.PowerStatus.POWER_WIRELESS;
+                    case PLUGGED_DOCK -> Device.PowerStatus.POWER_DOCK;
+                    default -> Device.PowerStatus.POWER_NONE;
+                };
+            }
+        } catch (NumberFormatException e) {
+            log.debug("parseEvent: BAD_INT: {}, {}", line, e.getMessage());
+        }
+    }
+
+    private void notifyIfChanged(Integer oldLevel, Device.PowerStatus oldPowerStatus, boolean oldBooted) {
+        boolean isBootChanged = oldBooted != device.isBooted;
+        if (isBootChanged || !Objects.equals(oldLevel, device.batteryLevel) || oldPowerStatus != device.powerStatus) {
+            log.trace("notifyIfChanged: CHANGED: {}: battery:{}, power:{}, booted:{}", device.serial, device.batteryLevel, device.powerStatus, device.isBooted);
+            device.lastUpdateMs = System.currentTimeMillis();
+            listener.onStatusChanged(device, isBootChanged);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            registration.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
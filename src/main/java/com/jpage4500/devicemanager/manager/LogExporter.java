@@ -0,0 +1,299 @@
+package com.jpage4500.devicemanager.manager;
+
+import com.jpage4500.devicemanager.data.LogEntry;
+import com.jpage4500.devicemanager.data.LogPredicate;
+import com.jpage4500.devicemanager.table.LogsTableModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Saves log lines to a file (.log, or gzip compressed if file name ends with .gz) in the background
+ *
+ * - lines are copied from the model on the Swing thread a chunk at a time, a few ms per tick; a writer thread
+ * formats and writes them
+ * - at most MAX_CHUNKS chunks wait for the writer (copying pauses when it falls behind), so memory use doesn't
+ * depend on how many lines are exported
+ * - lines are copied by id: lines arriving while exporting don't shift anything and aren't included (export is
+ * everything up to when it started); lines removed before they were copied are skipped and counted
+ * - output is written to a FileChannel WRITE_BUFFER bytes at a time
+ */
+public class LogExporter {
+    private static final Logger log = LoggerFactory.getLogger(LogExporter.class);
+
+    private static final int CHUNK_LINES = 5000;
+    private static final int MAX_CHUNKS = 4;
+    private static final int WRITE_BUFFER = 1 << 20;
+    // longest time spent copying per tick on Swing thread
+    private static final long COPY_MS = 5;
+    private static final long PROGRESS_MS = 250;
+
+    public interface Listener {
+        /**
+         * called on Swing thread
+         */
+        void handleExportProgress(LogExporter exporter);
+
+        /**
+         * called on Swing thread when export finishes
+         *
+         * @param error null if successful
+         */
+        void handleExportDone(LogExporter exporter, Exception error);
+    }
+
+    private record Chunk(List<LogEntry> logEntryList, long endId) {
+    }
+
+    // tells writer there's nothing more
+    private static final Chunk END = new Chunk(List.of(), -1);
+
+    private final LogsTableModel model;
+    private final LogPredicate predicate;
+    private final File file;
+    private final boolean isMultiDevice;
+    private final Listener listener;
+    private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(MAX_CHUNKS);
+    private final Timer copyTimer;
+    private final long startId;
+    private final long endId;
+
+    // -- Swing thread --
+    private long nextId;
+    private volatile long numSkipped;
+
+    // -- set by writer thread --
+    private volatile long numWritten;
+    private volatile long writtenId;
+    private volatile boolean isCancelled;
+    private long lastProgressMs;
+
+    /**
+     * @param predicate     only export lines matching this (null for all lines)
+     * @param isMultiDevice add device serial to each line
+     */
+    public LogExporter(LogsTableModel model, LogPredicate predicate, File file, boolean isMultiDevice, Listener listener) {
+        this.model = model;
+        this.predicate = predicate;
+        this.file = file;
+        this.isMultiDevice = isMultiDevice;
+        this.listener = listener;
+        startId = model.getRowId(0);
+        endId = model.getRowId(model.getRowCount());
+        nextId = startId;
+        writtenId = startId;
+        copyTimer = new Timer(10, e -> copyLines());
+    }
+
+    /**
+     * start export (Swing thread)
+     */
+    public void start() {
+        log.debug("start: {}, lines:{}", file.getName(), endId - startId);
+        Thread thread = new Thread(this::writeLines, "log-export");
+        thread.setDaemon(true);
+        thread.start();
+        copyTimer.start();
+    }
+
+    /**
+     * stop export and delete what was written so far (Swing thread)
+     */
+    public void cancel() {
+        isCancelled = true;
+        copyTimer.stop();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return 0-100
+     */
+    public int getPercent() {
+        long total = endId - startId;
+        if (total <= 0) return 100;
+        return (int) ((writtenId - startId) * 100 / total);
+    }
+
+    /**
+     * @return lines to export (fixed when export starts; lines arriving after that aren't included)
+     */
+    public long getNumLines() {
+        return endId - startId;
+    }
+
+    public long getNumWritten() {
+        return numWritten;
+    }
+
+    /**
+     * @return lines removed (eg: over max lines) before they could be exported
+     */
+    public long getNumSkipped() {
+        return numSkipped;
+    }
+
+    /**
+     * copy next chunks for writer; stops when writer is behind or time is up (Swing thread)
+     */
+    private void copyLines() {
+        long stopMs = System.currentTimeMillis() + COPY_MS;
+        while (!isCancelled && queue.remainingCapacity() > 0 && System.currentTimeMillis() < stopMs) {
+            if (nextId >= endId) {
+                queue.offer(END);
+                copyTimer.stop();
+                return;
+            }
+            long firstId = model.getRowId(0);
+            if (nextId < firstId) {
+                // removed while exporting
+                numSkipped += Math.min(firstId, endId) - nextId;
+                nextId = Math.min(firstId, endId);
+                continue;
+            }
+            List<LogEntry> logEntryList = new ArrayList<>(CHUNK_LINES);
+            long chunkEndId = Math.min(endId, nextId + CHUNK_LINES);
+            for (; nextId < chunkEndId; nextId++) {
+                LogEntry logEntry = model.getLogEntryById(nextId, new LogEntry());
+                if (logEntry == null) {
+                    numSkipped++;
+                    continue;
+                }
+                if (predicate != null && !predicate.test(logEntry)) continue;
+                logEntryList.add(logEntry);
+            }
+            queue.offer(new Chunk(logEntryList, chunkEndId));
+        }
+    }
+
+    /**
+     * write chunks until END (writer thread)
+     */
+    private void writeLines() {
+        long startMs = System.currentTimeMillis();
+        Exception error = null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream out = new ChannelOutputStream(channel);
+            if (file.getName().endsWith(".gz")) out = new GZIPOutputStream(out, 1 << 16);
+            // NOTE: closing writer finishes gzip stream and writes what's left in buffer (doesn't close channel)
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16)) {
+                StringBuilder sb = new StringBuilder(256);
+                while (!isCancelled) {
+                    Chunk chunk = queue.poll(200, TimeUnit.MILLISECONDS);
+                    if (chunk == null) continue;
+                    else if (chunk == END) break;
+                    for (LogEntry logEntry : chunk.logEntryList) {
+                        sb.setLength(0);
+                        formatLine(logEntry, sb);
+                        writer.append(sb);
+                    }
+                    numWritten += chunk.logEntryList.size();
+                    writtenId = chunk.endId;
+                    notifyProgress();
+                }
+            }
+        } catch (Exception e) {
+            error = e;
+        }
+
+        if (isCancelled || error != null) {
+            if (!file.delete()) log.debug("writeLines: unable to delete {}", file.getName());
+        }
+        log.debug("writeLines: {}, lines:{}, skipped:{}, cancelled:{}, {}ms, error:{}", file.getName(), numWritten,
+                numSkipped, isCancelled, System.currentTimeMillis() - startMs, error != null ? error.getMessage() : null);
+        if (isCancelled) return;
+        Exception result = error;
+        SwingUtilities.invokeLater(() -> {
+            copyTimer.stop();
+            listener.handleExportDone(this, result);
+        });
+    }
+
+    private void notifyProgress() {
+        long now = System.currentTimeMillis();
+        if (now - lastProgressMs < PROGRESS_MS) return;
+        lastProgressMs = now;
+        SwingUtilities.invokeLater(() -> {
+            if (!isCancelled) listener.handleExportProgress(this);
+        });
+    }
+
+    /**
+     * [device] date pid tid level tag: message
+     */
+    private void formatLine(LogEntry logEntry, StringBuilder sb) {
+        if (isMultiDevice) sb.append(logEntry.device).append(' ');
+        sb.append(logEntry.date).append(' ');
+        pad(sb, logEntry.pid, 5).append(' ');
+        pad(sb, logEntry.tid, 5).append(' ');
+        sb.append(logEntry.level).append(' ');
+        sb.append(logEntry.tag).append(": ");
+        sb.append(logEntry.message).append('\n');
+    }
+
+    private static StringBuilder pad(StringBuilder sb, String text, int width) {
+        int len = text != null ? text.length() : 0;
+        for (int i = len; i < width; i++) sb.append(' ');
+        return sb.append(text != null ? text : "");
+    }
+
+    /**
+     * buffers writes into large FileChannel writes
+     */
+    private static class ChannelOutputStream extends OutputStream {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER);
+
+        ChannelOutputStream(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) flushBuffer();
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!buffer.hasRemaining()) flushBuffer();
+                int count = Math.min(length, buffer.remaining());
+                buffer.put(data, offset, count);
+                offset += count;
+                length -= count;
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushBuffer();
+        }
+    }
+}
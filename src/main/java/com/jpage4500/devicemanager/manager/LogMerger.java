@@ -0,0 +1,175 @@
+package com.jpage4500.devicemanager.manager;
+
+import com.jpage4500.devicemanager.data.LogEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Merges log lines from several devices into 1 list ordered by time (see {@link LogPipeline})
+ *
+ * - each device delivers lines through its own pipeline; lines wait here in a queue per device
+ * - a min-heap on the time of each queue's first line picks the next line (k-way merge)
+ * - a line is only passed on once every device that's still sending has a later line queued, or it has waited
+ * HOLD_MS (a device that's gone quiet doesn't hold up the others)
+ * - a device that hasn't sent anything yet (logcat still starting) counts as still sending for up to STARTUP_HOLD_MS
+ * after it was added
+ * - lines within a device keep the order they arrived in (lines without a time use the previous line's time)
+ *
+ * NOTE: not thread safe; only accessed on the Swing thread
+ */
+public class LogMerger {
+    private static final Logger log = LoggerFactory.getLogger(LogMerger.class);
+
+    // longest a line waits for other devices to catch up
+    private static final int HOLD_MS = 500;
+    // how long a device that hasn't sent anything yet is waited for
+    private static final int STARTUP_HOLD_MS = 5000;
+    // pass lines on regardless if this many are waiting
+    private static final int MAX_QUEUED = 100_000;
+
+    private final LogPipeline.Listener listener;
+    // key = device serial
+    private final Map<String, Source> sourceMap = new HashMap<>();
+    private final PriorityQueue<Source> heap = new PriorityQueue<>((lhs, rhs) -> Long.compare(lhs.getHeadTime(), rhs.getHeadTime()));
+    private final List<LogEntry> mergedList = new ArrayList<>();
+    private final Timer flushTimer;
+    private int numQueued;
+
+    private class Source implements LogPipeline.Listener {
+        final String serial;
+        final long addedMs = System.currentTimeMillis();
+        final ArrayDeque<LogEntry> queue = new ArrayDeque<>();
+        // arrival time (ms) and size of each batch still in queue
+        final ArrayDeque<long[]> batchQueue = new ArrayDeque<>();
+        long lastReceivedMs;
+        // time of last line passed on
+        long lastTime = Long.MIN_VALUE;
+        // latest timestamp received (used to restart logging from where it left off)
+        Long lastTimestamp;
+
+        Source(String serial) {
+            this.serial = serial;
+        }
+
+        @Override
+        public void handleLogEntries(List<LogEntry> logEntryList) {
+            // merger was stopped
+            if (sourceMap.get(serial) != this) return;
+            // NOTE: list is re-used by pipeline; entries aren't
+            for (LogEntry logEntry : logEntryList) {
+                // eg: "lines dropped" line added by pipeline
+                if (logEntry.device == null) logEntry.device = serial;
+                if (logEntry.timestamp != null) lastTimestamp = logEntry.timestamp;
+                queue.add(logEntry);
+            }
+            lastReceivedMs = System.currentTimeMillis();
+            batchQueue.add(new long[]{lastReceivedMs, logEntryList.size()});
+            numQueued += logEntryList.size();
+            merge();
+        }
+
+        long getHeadTime() {
+            LogEntry logEntry = queue.peek();
+            return logEntry != null && logEntry.timestamp != null ? logEntry.timestamp : lastTime;
+        }
+
+        /**
+         * @return true if first line in queue has waited long enough
+         */
+        boolean isHeadExpired(long now) {
+            long[] batch = batchQueue.peek();
+            return batch != null && now - batch[0] >= HOLD_MS;
+        }
+
+        /**
+         * @return true if device is still sending but nothing is queued (its next line could be older than others)
+         */
+        boolean isWaiting(long now) {
+            if (!queue.isEmpty()) return false;
+            // nothing received yet; first lines could be older than what other devices sent
+            if (lastReceivedMs == 0) return now - addedMs < STARTUP_HOLD_MS;
+            return now - lastReceivedMs < HOLD_MS;
+        }
+
+        LogEntry poll() {
+            LogEntry logEntry = queue.poll();
+            if (logEntry.timestamp != null) lastTime = logEntry.timestamp;
+            long[] batch = batchQueue.peek();
+            if (batch != null && --batch[1] <= 0) batchQueue.poll();
+            numQueued--;
+            return logEntry;
+        }
+    }
+
+    public LogMerger(LogPipeline.Listener listener) {
+        this.listener = listener;
+        flushTimer = new Timer(HOLD_MS / 2, e -> merge());
+    }
+
+    /**
+     * @return listener to pass to this device's pipeline
+     */
+    public LogPipeline.Listener addSource(String serial) {
+        return sourceMap.computeIfAbsent(serial, Source::new);
+    }
+
+    /**
+     * @return latest log time received from this device (or null if none)
+     */
+    public Long getLastTimestamp(String serial) {
+        Source source = sourceMap.get(serial);
+        return source != null ? source.lastTimestamp : null;
+    }
+
+    /**
+     * pass on queued lines that are ready
+     */
+    private void merge() {
+        long now = System.currentTimeMillis();
+        boolean isAnyWaiting = false;
+        heap.clear();
+        for (Source source : sourceMap.values()) {
+            if (!source.queue.isEmpty()) heap.add(source);
+            else if (source.isWaiting(now)) isAnyWaiting = true;
+        }
+
+        while (!heap.isEmpty()) {
+            Source source = heap.peek();
+            if (isAnyWaiting && !source.isHeadExpired(now) && numQueued < MAX_QUEUED) break;
+            heap.poll();
+            mergedList.add(source.poll());
+            if (!source.queue.isEmpty()) heap.add(source);
+            else if (source.isWaiting(now)) isAnyWaiting = true;
+        }
+
+        if (!mergedList.isEmpty()) {
+            try {
+                listener.handleLogEntries(mergedList);
+            } catch (Exception e) {
+                log.error("merge: {}", e.getMessage(), e);
+            }
+            mergedList.clear();
+        }
+
+        // check again later for lines held back
+        if (numQueued > 0) {
+            if (!flushTimer.isRunning()) flushTimer.start();
+        } else {
+            flushTimer.stop();
+        }
+    }
+
+    public void stop() {
+        flushTimer.stop();
+        sourceMap.clear();
+        numQueued = 0;
+    }
+}
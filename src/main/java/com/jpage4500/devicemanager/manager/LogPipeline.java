@@ -0,0 +1,207 @@
+package com.jpage4500.devicemanager.manager;
+
+import com.jpage4500.devicemanager.data.LogEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded hand-off of log lines from the logcat reader thread to the Swing thread
+ *
+ * - single producer (reader) / single consumer (Swing thread) ring buffer; no locks and no allocation per line
+ * - at most 1 drain is queued on the Swing thread at a time; lines that arrive meanwhile are picked up by that drain
+ * - after each drain the next one waits a little longer when the last drain was slow (adaptive batch window)
+ * - when the ring is full, new lines are dropped and a single "dropped N lines" line is added in their place (after
+ * the lines that were received before them)
+ *
+ * NOTE: there are 2 batching windows between logcat and the table: this one (how often lines reach the Swing thread)
+ * and the LogsScreen frame timer (how often the table is updated). The window here only measures the listener, which
+ * in LogsScreen just queues lines for the next frame, so it normally stays at MIN_WINDOW_MS and the frame timer sets
+ * the refresh rate. It only grows when the listener itself is slow (eg: merging). A line waits at most 1 window + 1
+ * frame before being shown.
+ */
+public class LogPipeline {
+    private static final Logger log = LoggerFactory.getLogger(LogPipeline.class);
+
+    private static final int CAPACITY = 1 << 17;
+    private static final int MASK = CAPACITY - 1;
+    // most lines handed to the Swing thread at once
+    private static final int MAX_BATCH = 20_000;
+    private static final int MIN_WINDOW_MS = 50;
+    private static final int MAX_WINDOW_MS = 1000;
+
+    public interface Listener {
+        /**
+         * called on Swing thread
+         */
+        void handleLogEntries(List<LogEntry> logEntryList);
+    }
+
+    private final Listener listener;
+    private final LogEntry[] entryArr = new LogEntry[CAPACITY];
+    // when each line was added (to measure lag)
+    private final long[] addedNsArr = new long[CAPACITY];
+    // next slot to write (producer) and read (consumer)
+    private final AtomicLong writeIndex = new AtomicLong();
+    private final AtomicLong readIndex = new AtomicLong();
+
+    private final AtomicBoolean isDrainPending = new AtomicBoolean();
+    private final AtomicLong numDropped = new AtomicLong();
+    // write index when last line was dropped; lines before it were received before the dropped lines
+    private volatile long droppedIndex;
+    private final List<LogEntry> batchList = new ArrayList<>();
+    private final Timer drainTimer;
+    private volatile boolean isStopped;
+
+    // -- stats (Swing thread) --
+    private long numReportedDropped;
+    private long lagMs;
+    private long rateStartMs = System.currentTimeMillis();
+    private long rateStartCount;
+    private double linesPerSec;
+
+    public LogPipeline(Listener listener) {
+        this.listener = listener;
+        drainTimer = new Timer(MIN_WINDOW_MS, e -> drain());
+        drainTimer.setRepeats(false);
+    }
+
+    /**
+     * add a line (reader thread)
+     *
+     * @return false if line was dropped because the Swing thread is too far behind
+     */
+    public boolean offer(LogEntry logEntry) {
+        long write = writeIndex.get();
+        if (write - readIndex.get() >= CAPACITY) {
+            // NOTE: set before count so drain never sees the count without it
+            droppedIndex = write;
+            numDropped.incrementAndGet();
+            requestDrain();
+            return false;
+        }
+        int index = (int) (write & MASK);
+        entryArr[index] = logEntry;
+        addedNsArr[index] = System.nanoTime();
+        // publishes slot to consumer
+        writeIndex.lazySet(write + 1);
+        requestDrain();
+        return true;
+    }
+
+    private void requestDrain() {
+        if (isDrainPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::drain);
+        }
+    }
+
+    private void drain() {
+        if (isStopped) return;
+        long startMs = System.currentTimeMillis();
+        long read = readIndex.get();
+        long available = writeIndex.get() - read;
+        int count = (int) Math.min(available, MAX_BATCH);
+
+        if (count > 0) {
+            lagMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - addedNsArr[(int) (read & MASK)]);
+        } else {
+            lagMs = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            int index = (int) ((read + i) & MASK);
+            batchList.add(entryArr[index]);
+            entryArr[index] = null;
+        }
+        // frees slots for producer
+        readIndex.lazySet(read + count);
+
+        long dropped = numDropped.get();
+        if (dropped > numReportedDropped && read + count >= droppedIndex) {
+            // summarize lines that didn't fit; they came after every line received so far
+            batchList.add(createDroppedEntry(dropped - numReportedDropped));
+            numReportedDropped = dropped;
+        }
+
+        if (batchList.isEmpty()) {
+            // nothing new since last drain; next line will request another
+            isDrainPending.set(false);
+            // in case a line was added before flag was cleared
+            if (writeIndex.get() != readIndex.get() || numDropped.get() != numReportedDropped) requestDrain();
+            return;
+        }
+
+        try {
+            listener.handleLogEntries(batchList);
+        } catch (Exception e) {
+            log.error("drain: {}", e.getMessage(), e);
+        }
+        batchList.clear();
+
+        // give the Swing thread time to paint/handle input before the next batch; longer when it's busy
+        long elapsedMs = System.currentTimeMillis() - startMs;
+        int windowMs = (int) Math.max(MIN_WINDOW_MS, Math.min(MAX_WINDOW_MS, elapsedMs * 4));
+        drainTimer.setInitialDelay(windowMs);
+        drainTimer.restart();
+    }
+
+    private LogEntry createDroppedEntry(long count) {
+        LogEntry logEntry = new LogEntry();
+        long timestamp = System.currentTimeMillis();
+        logEntry.timestamp = timestamp;
+        logEntry.date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(timestamp);
+        logEntry.level = "W";
+        logEntry.tag = "DeviceManager";
+        logEntry.message = "--- " + count + " log lines dropped (logs arriving faster than they can be displayed) ---";
+        return logEntry;
+    }
+
+    /**
+     * stop delivering lines (Swing thread)
+     */
+    public void stop() {
+        isStopped = true;
+        drainTimer.stop();
+    }
+
+    // -- stats; call from Swing thread --
+
+    /**
+     * @return lines added per second (averaged since last call, at most once a second)
+     */
+    public double getLinesPerSec() {
+        long now = System.currentTimeMillis();
+        long elapsedMs = now - rateStartMs;
+        if (elapsedMs >= 1000) {
+            long count = writeIndex.get() + numDropped.get();
+            linesPerSec = (count - rateStartCount) * 1000.0 / elapsedMs;
+            rateStartCount = count;
+            rateStartMs = now;
+        }
+        return linesPerSec;
+    }
+
+    /**
+     * @return how long the oldest line in the last batch waited before being displayed
+     */
+    public long getLagMs() {
+        return lagMs;
+    }
+
+    public long getNumDropped() {
+        return numDropped.get();
+    }
+
+    /**
+     * @return lines waiting to be displayed
+     */
+    public long getBacklog() {
+        return writeIndex.get() - readIndex.get();
+    }
+}
@@ -0,0 +1,317 @@
+package com.jpage4500.devicemanager.manager;
+
+import com.jpage4500.devicemanager.data.Device;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Keeps pid -> app name up to date for 1 device while its logs are being read
+ *
+ * - reads am_proc_start / am_proc_died from the "events" log buffer; events already in the buffer are read first
+ * (so apps started before logging began are known right away)
+ * - pids that still aren't known when a log line arrives are looked up with "ps" (at most once every PS_INTERVAL_MS,
+ * and only while there are unknown pids)
+ * - listeners get a copy of the map when it changes (at most once every NOTIFY_MS)
+ *
+ * NOTE: thread safe; called from logcat reader threads
+ */
+public class ProcessResolver {
+    private static final Logger log = LoggerFactory.getLogger(ProcessResolver.class);
+
+    private static final String EVENT_START = "am_proc_start";
+    private static final String EVENT_DIED = "am_proc_died";
+    private static final long PS_INTERVAL_MS = 5000;
+    private static final long NOTIFY_MS = 1000;
+
+    private final Device device;
+    private final DeviceExecutor deviceExecutor;
+    private final ScheduledExecutorService scheduledExecutorService;
+    // runs "ps" on device; returns pid -> app name
+    private final Function<Device, Map<String, String>> psFunction;
+    private final List<DeviceManager.DeviceLogListener> listenerList = new CopyOnWriteArrayList<>();
+
+    // -- guarded by this --
+    private final PidMap pidMap = new PidMap();
+    // pids waiting for "ps"
+    private final Set<Integer> pendingSet = new HashSet<>();
+    // pids "ps" didn't find (or that died); not looked up again
+    private final Set<Integer> missSet = new HashSet<>();
+    private long lastPsMs;
+
+    // changes whenever map changes (lets callers cache lookups)
+    private volatile int version;
+    private volatile boolean isRunning = true;
+    private volatile InputStream eventStream;
+    private final AtomicBoolean isNotifyPending = new AtomicBoolean();
+
+    public ProcessResolver(Device device, DeviceExecutor deviceExecutor, ScheduledExecutorService scheduledExecutorService,
+                           Function<Device, Map<String, String>> psFunction) {
+        this.device = device;
+        this.deviceExecutor = deviceExecutor;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.psFunction = psFunction;
+    }
+
+    public void start() {
+        deviceExecutor.submitLongRunning(this::readEvents);
+    }
+
+    public void stop() {
+        isRunning = false;
+        closeEvents();
+    }
+
+    private void closeEvents() {
+        InputStream stream = eventStream;
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    public void addListener(DeviceManager.DeviceLogListener listener) {
+        listenerList.add(listener);
+        // send what's known so far
+        scheduleNotify();
+    }
+
+    public void removeListener(DeviceManager.DeviceLogListener listener) {
+        listenerList.remove(listener);
+    }
+
+    public boolean hasListeners() {
+        return !listenerList.isEmpty();
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return app name for pid, or null if not known yet (it's then looked up)
+     */
+    public String getApp(String pidText) {
+        int pid = parsePid(pidText);
+        if (pid <= 0) return null;
+        synchronized (this) {
+            String app = pidMap.get(pid);
+            if (app != null || missSet.contains(pid) || !pendingSet.add(pid)) return app;
+            // first unknown pid since last "ps"
+            if (pendingSet.size() == 1) {
+                long delayMs = Math.max(0, lastPsMs + PS_INTERVAL_MS - System.currentTimeMillis());
+                scheduledExecutorService.schedule(() -> deviceExecutor.submit(device, DeviceExecutor.Priority.BACKGROUND,
+                        "process-map", this::lookupPending), delayMs, TimeUnit.MILLISECONDS);
+            }
+            return null;
+        }
+    }
+
+    private static int parsePid(String pidText) {
+        if (pidText == null || pidText.isEmpty() || pidText.length() > 9) return -1;
+        int pid = 0;
+        for (int i = 0; i < pidText.length(); i++) {
+            char c = pidText.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            pid = pid * 10 + (c - '0');
+        }
+        return pid;
+    }
+
+    /**
+     * run "ps" for pids that weren't known
+     */
+    void lookupPending() {
+        if (!isRunning) return;
+        // NOTE: pids that show up while "ps" runs stay pending (and get their own lookup)
+        Set<Integer> lookupSet;
+        synchronized (this) {
+            lookupSet = new HashSet<>(pendingSet);
+            pendingSet.clear();
+            lastPsMs = System.currentTimeMillis();
+        }
+        Map<String, String> psMap = psFunction.apply(device);
+        synchronized (this) {
+            for (Map.Entry<String, String> entry : psMap.entrySet()) {
+                int pid = parsePid(entry.getKey());
+                if (pid > 0) pidMap.put(pid, entry.getValue());
+            }
+            for (Integer pid : lookupSet) {
+                if (pidMap.get(pid) == null) missSet.add(pid);
+            }
+            log.trace("lookupPending: {}, unknown:{}, found:{}", device.serial, lookupSet.size(), psMap.size());
+            version++;
+        }
+        scheduleNotify();
+    }
+
+    /**
+     * read am_proc_start/am_proc_died events until stopped
+     * 10-16 11:34:17.824  1000  1853 I am_proc_start: [0,12345,10123,com.foo.bar,activity,{com.foo.bar/com.foo.bar.MainActivity}]
+     * 10-16 11:40:02.113  1000  1853 I am_proc_died: [0,12345,com.foo.bar,900,17]
+     */
+    private void readEvents() {
+        try {
+            String[] args = new String[]{"-b", "events", "-v", "threadtime", EVENT_START + ":I", EVENT_DIED + ":I", "*:S"};
+            eventStream = device.jadbDevice.executeShellStream("logcat", args);
+            // stopped before stream was opened
+            if (!isRunning) closeEvents();
+            BufferedReader input = new BufferedReader(new InputStreamReader(eventStream, StandardCharsets.UTF_8));
+            String line;
+            while (isRunning && (line = input.readLine()) != null) {
+                handleEvent(line);
+            }
+        } catch (Exception e) {
+            // NOTE: unknown pids are still looked up with "ps"
+            if (isRunning) log.error("readEvents: {}, {}", device.serial, e.getMessage());
+        } finally {
+            closeEvents();
+        }
+    }
+
+    void handleEvent(String line) {
+        boolean isStart = line.contains(EVENT_START + ":");
+        if (!isStart && !line.contains(EVENT_DIED + ":")) return;
+        int start = line.indexOf('[');
+        int end = line.lastIndexOf(']');
+        if (start < 0 || end < start) return;
+        // [user, pid, ...]; start: process name is 4th field, died: 3rd field
+        String[] fieldArr = line.substring(start + 1, end).split(",", 5);
+        int nameIndex = isStart ? 3 : 2;
+        if (fieldArr.length <= nameIndex) return;
+        int pid = parsePid(fieldArr[1].trim());
+        if (pid <= 0) return;
+        synchronized (this) {
+            if (isStart) {
+                pidMap.put(pid, fieldArr[nameIndex].trim());
+                missSet.remove(pid);
+            } else {
+                pidMap.remove(pid);
+                // don't look up pid again for lines logged just before it died
+                missSet.add(pid);
+            }
+            version++;
+        }
+        scheduleNotify();
+    }
+
+    private void scheduleNotify() {
+        if (!isNotifyPending.compareAndSet(false, true)) return;
+        scheduledExecutorService.schedule(() -> {
+            isNotifyPending.set(false);
+            if (!isRunning) return;
+            Map<String, String> processMap = getProcessMap();
+            for (DeviceManager.DeviceLogListener listener : listenerList) {
+                listener.handleProcessMap(device.serial, processMap);
+            }
+        }, NOTIFY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return copy of pid -> app name
+     */
+    public synchronized Map<String, String> getProcessMap() {
+        Map<String, String> processMap = new HashMap<>();
+        pidMap.forEach((pid, app) -> processMap.put(String.valueOf(pid), app));
+        return processMap;
+    }
+
+    /**
+     * int -> String hash map (open addressing; no boxing on lookup)
+     */
+    static class PidMap {
+        private static final int EMPTY = 0;
+        // NOTE: pid 0 is never stored (used to mark empty slots)
+        private int[] keyArr = new int[1024];
+        private String[] valueArr = new String[1024];
+        private int size;
+
+        String get(int pid) {
+            int mask = keyArr.length - 1;
+            for (int i = hash(pid) & mask; keyArr[i] != EMPTY; i = (i + 1) & mask) {
+                if (keyArr[i] == pid) return valueArr[i];
+            }
+            return null;
+        }
+
+        void put(int pid, String app) {
+            if ((size + 1) * 2 > keyArr.length) grow();
+            int mask = keyArr.length - 1;
+            int i = hash(pid) & mask;
+            while (keyArr[i] != EMPTY) {
+                if (keyArr[i] == pid) {
+                    valueArr[i] = app;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keyArr[i] = pid;
+            valueArr[i] = app;
+            size++;
+        }
+
+        void remove(int pid) {
+            int mask = keyArr.length - 1;
+            int i = hash(pid) & mask;
+            while (keyArr[i] != pid) {
+                if (keyArr[i] == EMPTY) return;
+                i = (i + 1) & mask;
+            }
+            keyArr[i] = EMPTY;
+            valueArr[i] = null;
+            size--;
+            // move following entries back so lookups don't stop at the hole
+            for (int j = (i + 1) & mask; keyArr[j] != EMPTY; j = (j + 1) & mask) {
+                int key = keyArr[j];
+                String value = valueArr[j];
+                keyArr[j] = EMPTY;
+                valueArr[j] = null;
+                size--;
+                put(key, value);
+            }
+        }
+
+        void forEach(PidConsumer consumer) {
+            for (int i = 0; i < keyArr.length; i++) {
+                if (keyArr[i] != EMPTY) consumer.accept(keyArr[i], valueArr[i]);
+            }
+        }
+
+        private void grow() {
+            int[] oldKeyArr = keyArr;
+            String[] oldValueArr = valueArr;
+            keyArr = new int[oldKeyArr.length * 2];
+            valueArr = new String[oldKeyArr.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeyArr.length; i++) {
+                if (oldKeyArr[i] != EMPTY) put(oldKeyArr[i], oldValueArr[i]);
+            }
+        }
+
+        static int hash(int pid) {
+            int h = pid * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    interface PidConsumer {
+        void accept(int pid, String app);
+    }
+}
@@ -0,0 +1,251 @@
+package com.jpage4500.devicemanager.table;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * Inverted index of words in log tag/message -> row ids (see {@link LogsTableModel#setSearchText(String)})
+ *
+ * - rows are grouped into blocks of BLOCK_ROWS; each block has its own word -> posting list map
+ * - posting lists are row offsets within the block, delta + varint encoded (most deltas fit in 1 byte)
+ * - removing rows from the head drops whole blocks
+ * - words are lower case runs of letters/digits (at least MIN_WORD chars)
+ *
+ * NOTE: not thread safe; only accessed on the Swing thread
+ */
+public class LogIndex {
+    private static final int BLOCK_BITS = 16;
+    private static final int BLOCK_ROWS = 1 << BLOCK_BITS;
+    private static final int MIN_WORD = 2;
+    // longer words are cut (still found by prefix)
+    private static final int MAX_WORD = 48;
+
+    private static class Posting {
+        byte[] data = new byte[4];
+        int size;
+        int lastOffset = -1;
+
+        void add(int offset) {
+            // same word more than once in a row
+            if (offset == lastOffset) return;
+            int delta = offset - lastOffset;
+            lastOffset = offset;
+            if (size + 5 > data.length) data = Arrays.copyOf(data, data.length * 2);
+            while (delta >= 0x80) {
+                data[size++] = (byte) (delta | 0x80);
+                delta >>>= 7;
+            }
+            data[size++] = (byte) delta;
+        }
+
+        void addTo(BitSet bitSet) {
+            int offset = -1;
+            int pos = 0;
+            while (pos < size) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[pos++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                offset += delta;
+                bitSet.set(offset);
+            }
+        }
+    }
+
+    private static class Block {
+        final long firstId;
+        final Map<String, Posting> wordMap = new HashMap<>();
+
+        Block(long firstId) {
+            this.firstId = firstId;
+        }
+    }
+
+    private final ArrayDeque<Block> blockList = new ArrayDeque<>();
+    private final StringBuilder wordBuilder = new StringBuilder(MAX_WORD);
+
+    /**
+     * index row; ids must be added in increasing order
+     */
+    public void add(long id, String tag, String message) {
+        Block block = blockList.peekLast();
+        if (block == null || id >= block.firstId + BLOCK_ROWS) {
+            block = new Block(id & ~(BLOCK_ROWS - 1L));
+            blockList.add(block);
+        }
+        int offset = (int) (id - block.firstId);
+        addWords(block, offset, tag);
+        addWords(block, offset, message);
+    }
+
+    private void addWords(Block block, int offset, String text) {
+        if (text == null) return;
+        int len = text.length();
+        int i = 0;
+        while (i < len) {
+            while (i < len && !Character.isLetterOrDigit(text.charAt(i))) i++;
+            wordBuilder.setLength(0);
+            while (i < len && Character.isLetterOrDigit(text.charAt(i))) {
+                if (wordBuilder.length() < MAX_WORD) wordBuilder.append(Character.toLowerCase(text.charAt(i)));
+                i++;
+            }
+            if (wordBuilder.length() >= MIN_WORD) {
+                block.wordMap.computeIfAbsent(wordBuilder.toString(), k -> new Posting()).add(offset);
+            }
+        }
+    }
+
+    /**
+     * drop index for rows before headId
+     */
+    public void trim(long headId) {
+        while (!blockList.isEmpty() && blockList.peekFirst().firstId + BLOCK_ROWS <= headId) {
+            blockList.removeFirst();
+        }
+    }
+
+    public void clear() {
+        blockList.clear();
+    }
+
+    /**
+     * find rows containing text (case insensitive)
+     *
+     * @param fromId  first id to return (rows before this may have been removed)
+     * @param checker checks candidate rows actually contain text (words only narrow down the rows to check)
+     * @param resultList matching ids are added in increasing order
+     * @return false if text has no usable words (caller needs to check every row)
+     */
+    public boolean find(String text, long fromId, LongPredicate checker, LongList resultList) {
+        List<String> wordList = splitWords(text);
+        // a word in the middle is a whole word; first word could end a longer word, last word could start one
+        boolean hasStart = !wordList.isEmpty() && !Character.isLetterOrDigit(text.charAt(0));
+        boolean hasEnd = !wordList.isEmpty() && !Character.isLetterOrDigit(text.charAt(text.length() - 1));
+        boolean isUsable = false;
+        for (String word : wordList) {
+            if (word.length() >= MIN_WORD) isUsable = true;
+        }
+        if (!isUsable) return false;
+
+        for (Block block : blockList) {
+            if (block.firstId + BLOCK_ROWS <= fromId) continue;
+            BitSet matchSet = null;
+            for (int w = 0; w < wordList.size(); w++) {
+                String word = wordList.get(w);
+                if (word.length() < MIN_WORD) continue;
+                boolean isFirst = w == 0 && !hasStart;
+                boolean isLast = w == wordList.size() - 1 && !hasEnd;
+                BitSet wordSet = new BitSet();
+                if (!isFirst && !isLast && word.length() < MAX_WORD) {
+                    Posting posting = block.wordMap.get(word);
+                    if (posting != null) posting.addTo(wordSet);
+                } else {
+                    for (Map.Entry<String, Posting> entry : block.wordMap.entrySet()) {
+                        if (isWordMatch(entry.getKey(), word, isFirst, isLast)) entry.getValue().addTo(wordSet);
+                    }
+                }
+                if (matchSet == null) matchSet = wordSet;
+                else matchSet.and(wordSet);
+                if (matchSet.isEmpty()) break;
+            }
+            if (matchSet == null) continue;
+            int start = (int) Math.max(0, fromId - block.firstId);
+            for (int offset = matchSet.nextSetBit(start); offset >= 0; offset = matchSet.nextSetBit(offset + 1)) {
+                long id = block.firstId + offset;
+                if (checker.test(id)) resultList.add(id);
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWordMatch(String indexWord, String word, boolean isFirst, boolean isLast) {
+        // long words are cut in the index
+        if (word.length() > MAX_WORD) word = word.substring(0, MAX_WORD);
+        if (isFirst && isLast) return indexWord.contains(word) || indexWord.length() == MAX_WORD;
+        else if (isFirst) return indexWord.endsWith(word) || indexWord.length() == MAX_WORD;
+        else if (isLast) return indexWord.startsWith(word);
+        return indexWord.equals(word);
+    }
+
+    private static List<String> splitWords(String text) {
+        List<String> wordList = new ArrayList<>();
+        int len = text.length();
+        int i = 0;
+        while (i < len) {
+            while (i < len && !Character.isLetterOrDigit(text.charAt(i))) i++;
+            StringBuilder sb = new StringBuilder();
+            // NOTE: same case conversion as index
+            while (i < len && Character.isLetterOrDigit(text.charAt(i))) sb.append(Character.toLowerCase(text.charAt(i++)));
+            if (!sb.isEmpty()) wordList.add(sb.toString());
+        }
+        return wordList;
+    }
+
+    /**
+     * growable list of row ids
+     */
+    public static class LongList {
+        private long[] valueArr = new long[64];
+        private int start;
+        private int end;
+
+        public void add(long value) {
+            if (end == valueArr.length) {
+                int size = size();
+                long[] newArr = size * 2 > valueArr.length ? new long[valueArr.length * 2] : valueArr;
+                System.arraycopy(valueArr, start, newArr, 0, size);
+                valueArr = newArr;
+                start = 0;
+                end = size;
+            }
+            valueArr[end++] = value;
+        }
+
+        public long get(int index) {
+            return valueArr[start + index];
+        }
+
+        public int size() {
+            return end - start;
+        }
+
+        public void clear() {
+            start = end = 0;
+        }
+
+        /**
+         * remove values less than value (list is sorted)
+         */
+        public void removeBefore(long value) {
+            start = indexOf(value);
+        }
+
+        /**
+         * @return index of first value >= value (list is sorted)
+         */
+        public int search(long value) {
+            return indexOf(value) - start;
+        }
+
+        private int indexOf(long value) {
+            int low = start;
+            int high = end;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (valueArr[mid] < value) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.jpage4500.devicemanager.table;
+
+import com.jpage4500.devicemanager.data.LogEntry;
+import com.jpage4500.devicemanager.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Log history of a single device saved to disk (see {@link LogsTableModel})
+ *
+ * - rows are appended to segment files of SEGMENT_ROWS rows: NNN.records (records) and NNN.index (offset of each
+ * record); the file name is the id of the segment's first row so ids continue across sessions
+ * - date and app are saved as received (like {@link LogStore}); segments from before app was saved (.rows) are
+ * still read, with no app; segments from before date was saved (.dat/.idx) are deleted
+ * - rows are read back through memory mapped files so they don't use heap
+ * - oldest segments are deleted once there are more than MAX_SEGMENTS; a file that can't be deleted yet (still
+ * mapped on Windows until the buffer is garbage collected) is tried again on the next trim
+ * - {@link Reader} reads a range of rows on another thread (eg: filtering history) using its own mappings
+ *
+ * NOTE: not thread safe; only accessed on the Swing thread (except Reader)
+ */
+public class LogSegmentStore implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(LogSegmentStore.class);
+
+    private static final int SEGMENT_ROWS = 100_000;
+    // ~5M rows per device
+    private static final int MAX_SEGMENTS = 50;
+    private static final String DATA_EXT = ".records";
+    // older format without app
+    private static final String NO_APP_DATA_EXT = ".rows";
+    private static final String INDEX_EXT = ".index";
+    // older format without date
+    private static final String[] OLD_EXT_ARR = {".dat", ".idx"};
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final int NO_VALUE = -1;
+    // recently read rows (renderer asks for every column of a row)
+    private static final int CACHE_SIZE = 256;
+
+    private static class Segment {
+        final long firstId;
+        final File dataFile;
+        final File indexFile;
+        // false for segments saved before app was
+        final boolean hasApp;
+        int numRows;
+        // mapped on first read; re-mapped if segment grew since
+        MappedByteBuffer dataBuffer;
+        MappedByteBuffer indexBuffer;
+
+        Segment(File folder, long firstId, boolean hasApp) {
+            this.firstId = firstId;
+            this.hasApp = hasApp;
+            String name = String.format("%016d", firstId);
+            dataFile = new File(folder, name + (hasApp ? DATA_EXT : NO_APP_DATA_EXT));
+            indexFile = new File(folder, name + INDEX_EXT);
+        }
+    }
+
+    private final File folder;
+    private final List<Segment> segmentList = new ArrayList<>();
+    // id of next row when there are no segments (after clear)
+    private long nextId;
+
+    // writing to last segment
+    private DataOutputStream dataOut;
+    private DataOutputStream indexOut;
+    private long dataSize;
+
+    private final LogEntry[] cacheArr = new LogEntry[CACHE_SIZE];
+    private final long[] cacheIdArr = new long[CACHE_SIZE];
+    // files of removed segments that couldn't be deleted yet
+    private final List<File> pendingDeleteList = new ArrayList<>();
+
+    /**
+     * @return folder where logs for device are saved
+     */
+    public static File getFolder(String serial) {
+        // NOTE: serial can be "ip:port" for wireless devices
+        String name = serial.replaceAll("[^A-Za-z0-9._-]", "_");
+        return new File(Utils.getAppDataFolder(), "logs" + File.separator + name);
+    }
+
+    /**
+     * open (and restore) log history saved in folder
+     */
+    public LogSegmentStore(File folder) throws IOException {
+        this.folder = folder;
+        if (!folder.isDirectory() && !folder.mkdirs()) throw new IOException("unable to create " + folder);
+        File[] oldFileArr = folder.listFiles((dir, name) -> name.endsWith(OLD_EXT_ARR[0]) || name.endsWith(OLD_EXT_ARR[1]));
+        if (oldFileArr != null) {
+            for (File file : oldFileArr) {
+                if (!file.delete()) log.debug("LogSegmentStore: unable to delete: {}", file.getName());
+            }
+        }
+        File[] fileArr = folder.listFiles((dir, name) -> name.endsWith(INDEX_EXT));
+        if (fileArr != null) {
+            List<Long> idList = new ArrayList<>();
+            for (File file : fileArr) {
+                String name = file.getName();
+                try {
+                    idList.add(Long.parseLong(name.substring(0, name.length() - INDEX_EXT.length())));
+                } catch (NumberFormatException e) {
+                    log.debug("LogSegmentStore: ignoring: {}", name);
+                }
+            }
+            idList.sort(null);
+            for (Long id : idList) {
+                Segment segment = new Segment(folder, id, true);
+                if (!segment.dataFile.exists()) segment = new Segment(folder, id, false);
+                segment.numRows = (int) (segment.indexFile.length() / Long.BYTES);
+                // rows must be continuous; drop anything after a gap
+                if (!segmentList.isEmpty() && getTailId() != id) {
+                    deleteSegment(segment);
+                    continue;
+                }
+                segmentList.add(segment);
+            }
+        }
+        // last segment could have been cut short (app killed); drop unreadable rows
+        while (!segmentList.isEmpty()) {
+            Segment last = segmentList.get(segmentList.size() - 1);
+            while (last.numRows > 0 && readRow(last, last.numRows - 1) == null) last.numRows--;
+            if (last.numRows > 0) break;
+            segmentList.remove(last);
+            deleteSegment(last);
+        }
+        log.debug("LogSegmentStore: {}, segments:{}, rows:{}", folder.getName(), segmentList.size(), size());
+    }
+
+    public long getFirstId() {
+        return segmentList.isEmpty() ? nextId : segmentList.get(0).firstId;
+    }
+
+    /**
+     * @return id the next row will get
+     */
+    public long getTailId() {
+        if (segmentList.isEmpty()) return nextId;
+        Segment last = segmentList.get(segmentList.size() - 1);
+        return last.firstId + last.numRows;
+    }
+
+    public long size() {
+        return getTailId() - getFirstId();
+    }
+
+    public void append(LogEntry logEntry) throws IOException {
+        Segment segment = segmentList.isEmpty() ? null : segmentList.get(segmentList.size() - 1);
+        if (dataOut == null || segment.numRows >= SEGMENT_ROWS) {
+            // new session or last segment is full; start a new one
+            closeWriter();
+            segment = new Segment(folder, getTailId(), true);
+            segmentList.add(segment);
+            dataOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(segment.dataFile), 64 * 1024));
+            indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(segment.indexFile), 8 * 1024));
+            dataSize = 0;
+        }
+        indexOut.writeLong(dataSize);
+        dataOut.writeLong(logEntry.timestamp != null ? logEntry.timestamp : NO_TIMESTAMP);
+        dataSize += Long.BYTES;
+        dataSize += writeString(logEntry.date);
+        dataSize += writeString(logEntry.pid);
+        dataSize += writeString(logEntry.tid);
+        dataSize += writeString(logEntry.level);
+        dataSize += writeString(logEntry.tag);
+        dataSize += writeString(logEntry.message);
+        dataSize += writeString(logEntry.app);
+        segment.numRows++;
+    }
+
+    private int writeString(String value) throws IOException {
+        if (value == null) {
+            dataOut.writeInt(NO_VALUE);
+            return Integer.BYTES;
+        }
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        dataOut.writeInt(data.length);
+        dataOut.write(data);
+        return Integer.BYTES + data.length;
+    }
+
+    /**
+     * delete oldest segments over the limit
+     *
+     * @return number of rows removed
+     */
+    public int trim() {
+        if (!pendingDeleteList.isEmpty()) pendingDeleteList.removeIf(File::delete);
+        int numRemoved = 0;
+        while (segmentList.size() > MAX_SEGMENTS) {
+            Segment segment = segmentList.remove(0);
+            numRemoved += segment.numRows;
+            deleteSegment(segment);
+        }
+        return numRemoved;
+    }
+
+    /**
+     * @return row or null if it couldn't be read
+     */
+    public LogEntry read(long id) {
+        int slot = (int) (id & (CACHE_SIZE - 1));
+        LogEntry cached = cacheArr[slot];
+        if (cached != null && cacheIdArr[slot] == id) return cached;
+
+        Segment segment = findSegment(id);
+        if (segment == null) return null;
+        LogEntry logEntry = readRow(segment, (int) (id - segment.firstId));
+        if (logEntry != null) {
+            cacheArr[slot] = logEntry;
+            cacheIdArr[slot] = id;
+        }
+        return logEntry;
+    }
+
+    private Segment findSegment(long id) {
+        // binary search; segments are sorted by first id
+        int low = 0;
+        int high = segmentList.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Segment segment = segmentList.get(mid);
+            if (id < segment.firstId) high = mid - 1;
+            else if (id >= segment.firstId + segment.numRows) low = mid + 1;
+            else return segment;
+        }
+        return null;
+    }
+
+    private LogEntry readRow(Segment segment, int row) {
+        try {
+            if (segment.indexBuffer == null || segment.indexBuffer.capacity() < (row + 1) * (long) Long.BYTES) {
+                // not mapped yet (or mapped before this row was written)
+                if (segment == segmentList.get(segmentList.size() - 1)) flush();
+                segment.indexBuffer = map(segment.indexFile);
+                segment.dataBuffer = map(segment.dataFile);
+            }
+            return readRecord(segment, segment.indexBuffer, segment.dataBuffer, row);
+        } catch (IOException | RuntimeException e) {
+            // truncated or corrupt record
+            log.trace("readRow: {}:{}, {}", segment.dataFile.getName(), row, e.getMessage());
+            return null;
+        }
+    }
+
+    private static LogEntry readRecord(Segment segment, ByteBuffer indexBuffer, ByteBuffer dataBuffer, int row) {
+        int offset = (int) indexBuffer.getLong(row * Long.BYTES);
+        ByteBuffer buffer = dataBuffer.duplicate();
+        buffer.position(offset);
+        LogEntry logEntry = new LogEntry();
+        long timestamp = buffer.getLong();
+        if (timestamp != NO_TIMESTAMP) logEntry.timestamp = timestamp;
+        logEntry.date = readString(buffer);
+        logEntry.pid = readString(buffer);
+        logEntry.tid = readString(buffer);
+        logEntry.level = readString(buffer);
+        logEntry.tag = readString(buffer);
+        logEntry.message = readString(buffer);
+        if (segment.hasApp) logEntry.app = readString(buffer);
+        return logEntry;
+    }
+
+    private void flush() throws IOException {
+        if (dataOut == null) return;
+        dataOut.flush();
+        indexOut.flush();
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NO_VALUE) return null;
+        byte[] data = new byte[length];
+        buffer.get(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * delete all saved rows; next row keeps counting from the current tail id
+     */
+    public void clear() {
+        // keep ids increasing so new rows don't re-use ids
+        nextId = getTailId();
+        closeWriter();
+        for (Segment segment : segmentList) deleteSegment(segment);
+        segmentList.clear();
+        for (int i = 0; i < CACHE_SIZE; i++) cacheArr[i] = null;
+    }
+
+    private void deleteSegment(Segment segment) {
+        // drop this store's mappings and cached rows first; mapped files can't be deleted on Windows
+        segment.dataBuffer = null;
+        segment.indexBuffer = null;
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            long id = cacheIdArr[i];
+            if (cacheArr[i] != null && id >= segment.firstId && id < segment.firstId + segment.numRows) cacheArr[i] = null;
+        }
+        for (File file : new File[]{segment.dataFile, segment.indexFile}) {
+            if (file.delete() || !file.exists()) continue;
+            // still mapped (here or by a Reader) until buffer is garbage collected; try again later
+            log.debug("deleteSegment: unable to delete: {}", file.getName());
+            pendingDeleteList.add(file);
+            file.deleteOnExit();
+        }
+    }
+
+    private void closeWriter() {
+        if (dataOut == null) return;
+        try {
+            dataOut.close();
+            indexOut.close();
+        } catch (IOException e) {
+            log.debug("closeWriter: {}", e.getMessage());
+        }
+        dataOut = null;
+        indexOut = null;
+    }
+
+    @Override
+    public void close() {
+        closeWriter();
+        pendingDeleteList.removeIf(File::delete);
+    }
+
+    /**
+     * @return reader for rows from fromId up to (not including) toId that can be used on any thread; rows that are
+     * removed while reading are skipped
+     */
+    public Reader openReader(long fromId, long toId) {
+        try {
+            // rows written so far need to be in the files
+            flush();
+        } catch (IOException e) {
+            log.debug("openReader: {}", e.getMessage());
+        }
+        List<Segment> readList = new ArrayList<>();
+        for (Segment segment : segmentList) {
+            if (segment.firstId + segment.numRows <= fromId || segment.firstId >= toId) continue;
+            // copy; mapped separately from the Swing thread's buffers
+            Segment copy = new Segment(folder, segment.firstId, segment.hasApp);
+            copy.numRows = segment.numRows;
+            readList.add(copy);
+        }
+        return new Reader(readList, fromId, toId);
+    }
+
+    public interface RowListener {
+        /**
+         * @param logEntry only valid until next call
+         * @return false to stop reading
+         */
+        boolean handleRow(long id, LogEntry logEntry);
+    }
+
+    /**
+     * reads a range of saved rows in order (see openReader())
+     */
+    public static class Reader {
+        private final List<Segment> segmentList;
+        private final long fromId;
+        private final long toId;
+
+        private Reader(List<Segment> segmentList, long fromId, long toId) {
+            this.segmentList = segmentList;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        public long getFromId() {
+            return fromId;
+        }
+
+        public long getToId() {
+            return toId;
+        }
+
+        public void read(RowListener listener) {
+            for (Segment segment : segmentList) {
+                ByteBuffer indexBuffer;
+                ByteBuffer dataBuffer;
+                try {
+                    indexBuffer = map(segment.indexFile);
+                    dataBuffer = map(segment.dataFile);
+                } catch (IOException e) {
+                    // segment was deleted (trimmed)
+                    log.trace("read: {}, {}", segment.dataFile.getName(), e.getMessage());
+                    continue;
+                }
+                long startId = Math.max(fromId, segment.firstId);
+                long endId = Math.min(toId, segment.firstId + segment.numRows);
+                for (long id = startId; id < endId; id++) {
+                    LogEntry logEntry;
+                    try {
+                        logEntry = readRecord(segment, indexBuffer, dataBuffer, (int) (id - segment.firstId));
+                    } catch (RuntimeException e) {
+                        log.trace("read: {}:{}, {}", segment.dataFile.getName(), id, e.getMessage());
+                        break;
+                    }
+                    if (!listener.handleRow(id, logEntry)) return;
+                }
+            }
+        }
+    }
+}
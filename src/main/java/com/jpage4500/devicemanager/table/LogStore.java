@@ -0,0 +1,358 @@
+package com.jpage4500.devicemanager.table;
+
+import com.jpage4500.devicemanager.data.LogEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column-oriented storage for log lines (see {@link LogsTableModel})
+ *
+ * - one primitive array per column instead of a LogEntry (6 Strings + Long) per line
+ * - pid, tid, level, tag, device and app are ids into a string pool; messages are UTF-8 bytes in 1MB chunks
+ * - date is kept as received (device wall time, see LogcatParser) in its own pool: it can't be regenerated from the
+ * timestamp (lines without one, DST) and all lines within the same second share it
+ * - every row has an id that never changes; removing the oldest rows only moves the head (and frees message
+ * chunks that are no longer used)
+ * - when a chunk is freed, the string and date pools are rebuilt from the rows that are left so values only used by
+ * removed rows (old dates, pids of apps that are gone) don't pile up during long sessions
+ *
+ * NOTE: not thread safe; only accessed on the Swing thread
+ */
+public class LogStore {
+    private static final int INITIAL_CAPACITY = 1 << 14;
+    private static final int CHUNK_BITS = 20;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final int NO_VALUE = -1;
+
+    // rows are stored at (id & mask); capacity is always a power of 2
+    private int mask;
+    private long[] timestampArr;
+    private int[] pidArr;
+    private int[] tidArr;
+    private byte[] levelArr;
+    private int[] tagArr;
+    private long[] msgOffsetArr;
+    private int[] msgLengthArr;
+    private int[] deviceArr;
+    private int[] appArr;
+    private int[] dateArr;
+
+    // id of first (oldest) row and id the next row will get
+    private long headId;
+    private long tailId;
+
+    // message chunks; chunkList[0] is chunk number firstChunk
+    private final List<byte[]> chunkList = new ArrayList<>();
+    private long firstChunk;
+    private long writeOffset;
+
+    private StringPool stringPool = new StringPool();
+    private final StringPool levelPool = new StringPool();
+    private StringPool datePool = new StringPool();
+    // parsers return the same date instance for lines within the same second
+    private String lastDate;
+    private int lastDateId = NO_VALUE;
+
+    public LogStore() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @return id of new row
+     */
+    public long add(LogEntry logEntry) {
+        if (tailId - headId > mask) grow();
+        int index = (int) (tailId & mask);
+        timestampArr[index] = logEntry.timestamp != null ? logEntry.timestamp : NO_TIMESTAMP;
+        pidArr[index] = stringPool.getId(logEntry.pid);
+        tidArr[index] = stringPool.getId(logEntry.tid);
+        int levelId = levelPool.getId(logEntry.level);
+        levelArr[index] = (byte) (levelId <= Byte.MAX_VALUE ? levelId : NO_VALUE);
+        tagArr[index] = stringPool.getId(logEntry.tag);
+        addMessage(index, logEntry.message);
+        deviceArr[index] = stringPool.getId(logEntry.device);
+        appArr[index] = stringPool.getId(logEntry.app);
+        dateArr[index] = getDateId(logEntry.date);
+        return tailId++;
+    }
+
+    private int getDateId(String date) {
+        if (date != lastDate) {
+            lastDateId = datePool.getId(date);
+            lastDate = date;
+        }
+        return lastDateId;
+    }
+
+    private void addMessage(int index, String message) {
+        if (message == null) {
+            msgLengthArr[index] = NO_VALUE;
+            return;
+        }
+        byte[] data = message.getBytes(StandardCharsets.UTF_8);
+        // NOTE: a single message can't span chunks (logcat limits them to ~4K anyway)
+        int length = Math.min(data.length, CHUNK_SIZE);
+        int chunkPos = (int) (writeOffset & (CHUNK_SIZE - 1));
+        if (chunkPos + length > CHUNK_SIZE) {
+            // doesn't fit; start at next chunk
+            writeOffset += CHUNK_SIZE - chunkPos;
+            chunkPos = 0;
+        }
+        long chunkNum = writeOffset >> CHUNK_BITS;
+        if (chunkList.isEmpty()) firstChunk = chunkNum;
+        while (firstChunk + chunkList.size() <= chunkNum) chunkList.add(new byte[CHUNK_SIZE]);
+        System.arraycopy(data, 0, chunkList.get((int) (chunkNum - firstChunk)), chunkPos, length);
+        msgOffsetArr[index] = writeOffset;
+        msgLengthArr[index] = length;
+        writeOffset += length;
+    }
+
+    private void grow() {
+        int oldMask = mask;
+        long[] oldTimestampArr = timestampArr;
+        int[] oldPidArr = pidArr;
+        int[] oldTidArr = tidArr;
+        byte[] oldLevelArr = levelArr;
+        int[] oldTagArr = tagArr;
+        long[] oldMsgOffsetArr = msgOffsetArr;
+        int[] oldMsgLengthArr = msgLengthArr;
+        int[] oldDeviceArr = deviceArr;
+        int[] oldAppArr = appArr;
+        int[] oldDateArr = dateArr;
+        allocate((oldMask + 1) * 2);
+        for (long id = headId; id < tailId; id++) {
+            int from = (int) (id & oldMask);
+            int to = (int) (id & mask);
+            timestampArr[to] = oldTimestampArr[from];
+            pidArr[to] = oldPidArr[from];
+            tidArr[to] = oldTidArr[from];
+            levelArr[to] = oldLevelArr[from];
+            tagArr[to] = oldTagArr[from];
+            msgOffsetArr[to] = oldMsgOffsetArr[from];
+            msgLengthArr[to] = oldMsgLengthArr[from];
+            deviceArr[to] = oldDeviceArr[from];
+            appArr[to] = oldAppArr[from];
+            dateArr[to] = oldDateArr[from];
+        }
+    }
+
+    private void allocate(int capacity) {
+        mask = capacity - 1;
+        timestampArr = new long[capacity];
+        pidArr = new int[capacity];
+        tidArr = new int[capacity];
+        levelArr = new byte[capacity];
+        tagArr = new int[capacity];
+        msgOffsetArr = new long[capacity];
+        msgLengthArr = new int[capacity];
+        deviceArr = new int[capacity];
+        appArr = new int[capacity];
+        dateArr = new int[capacity];
+    }
+
+    /**
+     * remove oldest rows
+     */
+    public void removeHead(int count) {
+        headId = Math.min(headId + count, tailId);
+        if (headId == tailId) {
+            chunkList.clear();
+            stringPool = new StringPool();
+            datePool = new StringPool();
+            lastDate = null;
+            lastDateId = NO_VALUE;
+            return;
+        }
+        // free message chunks older than the first row's message
+        long headChunk = writeOffset >> CHUNK_BITS;
+        for (long id = headId; id < tailId; id++) {
+            int index = (int) (id & mask);
+            if (msgLengthArr[index] == NO_VALUE) continue;
+            headChunk = msgOffsetArr[index] >> CHUNK_BITS;
+            break;
+        }
+        int numFree = (int) Math.min(headChunk - firstChunk, chunkList.size() - 1);
+        if (numFree > 0) {
+            chunkList.subList(0, numFree).clear();
+            firstChunk += numFree;
+            rebuildPools();
+        }
+    }
+
+    /**
+     * replace string and date pools with ones that only have values used by remaining rows
+     */
+    private void rebuildPools() {
+        // old id -> new id
+        int[] stringIdArr = createIdMap(stringPool);
+        int[] dateIdArr = createIdMap(datePool);
+        StringPool newStringPool = new StringPool();
+        StringPool newDatePool = new StringPool();
+        for (long id = headId; id < tailId; id++) {
+            int index = (int) (id & mask);
+            pidArr[index] = remap(pidArr[index], stringIdArr, stringPool, newStringPool);
+            tidArr[index] = remap(tidArr[index], stringIdArr, stringPool, newStringPool);
+            tagArr[index] = remap(tagArr[index], stringIdArr, stringPool, newStringPool);
+            deviceArr[index] = remap(deviceArr[index], stringIdArr, stringPool, newStringPool);
+            appArr[index] = remap(appArr[index], stringIdArr, stringPool, newStringPool);
+            dateArr[index] = remap(dateArr[index], dateIdArr, datePool, newDatePool);
+        }
+        // NOTE: last row is never removed here, so its date is still in the pool
+        if (lastDateId != NO_VALUE) lastDateId = dateIdArr[lastDateId];
+        if (lastDateId == NO_VALUE) lastDate = null;
+        stringPool = newStringPool;
+        datePool = newDatePool;
+    }
+
+    private static int[] createIdMap(StringPool pool) {
+        int[] idArr = new int[pool.size()];
+        Arrays.fill(idArr, NO_VALUE);
+        return idArr;
+    }
+
+    private static int remap(int oldId, int[] idArr, StringPool oldPool, StringPool newPool) {
+        if (oldId == NO_VALUE) return NO_VALUE;
+        int newId = idArr[oldId];
+        if (newId == NO_VALUE) {
+            newId = newPool.getId(oldPool.get(oldId));
+            idArr[oldId] = newId;
+        }
+        return newId;
+    }
+
+    /**
+     * @return number of strings in string and date pools
+     */
+    int getPoolSize() {
+        return stringPool.size() + datePool.size();
+    }
+
+    public void clear() {
+        reset(tailId);
+    }
+
+    /**
+     * remove all rows; next row will get nextId
+     */
+    public void reset(long nextId) {
+        headId = tailId = nextId;
+        chunkList.clear();
+        stringPool = new StringPool();
+        datePool = new StringPool();
+        lastDate = null;
+        lastDateId = NO_VALUE;
+        if (mask + 1 > INITIAL_CAPACITY) allocate(INITIAL_CAPACITY);
+    }
+
+    public int size() {
+        return (int) (tailId - headId);
+    }
+
+    public long getHeadId() {
+        return headId;
+    }
+
+    public long getTailId() {
+        return tailId;
+    }
+
+    /**
+     * @return timestamp or null if line didn't have a valid date
+     */
+    public Long getTimestamp(long id) {
+        long timestamp = timestampArr[(int) (id & mask)];
+        return timestamp != NO_TIMESTAMP ? timestamp : null;
+    }
+
+    /**
+     * @return "yyyy-MM-dd HH:mm:ss" as received
+     */
+    public String getDate(long id) {
+        return datePool.get(dateArr[(int) (id & mask)]);
+    }
+
+    public String getPid(long id) {
+        return stringPool.get(pidArr[(int) (id & mask)]);
+    }
+
+    public String getTid(long id) {
+        return stringPool.get(tidArr[(int) (id & mask)]);
+    }
+
+    public String getLevel(long id) {
+        return levelPool.get(levelArr[(int) (id & mask)]);
+    }
+
+    public String getTag(long id) {
+        return stringPool.get(tagArr[(int) (id & mask)]);
+    }
+
+    public String getDevice(long id) {
+        return stringPool.get(deviceArr[(int) (id & mask)]);
+    }
+
+    /**
+     * @return app name set when line was received (null if it wasn't known then)
+     */
+    public String getApp(long id) {
+        return stringPool.get(appArr[(int) (id & mask)]);
+    }
+
+    public String getMessage(long id) {
+        int index = (int) (id & mask);
+        int length = msgLengthArr[index];
+        if (length == NO_VALUE) return null;
+        long offset = msgOffsetArr[index];
+        byte[] chunk = chunkList.get((int) ((offset >> CHUNK_BITS) - firstChunk));
+        return new String(chunk, (int) (offset & (CHUNK_SIZE - 1)), length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * copy row values into logEntry
+     */
+    public LogEntry load(long id, LogEntry logEntry) {
+        logEntry.timestamp = getTimestamp(id);
+        logEntry.date = getDate(id);
+        logEntry.pid = getPid(id);
+        logEntry.tid = getTid(id);
+        logEntry.level = getLevel(id);
+        logEntry.tag = getTag(id);
+        logEntry.message = getMessage(id);
+        logEntry.device = getDevice(id);
+        logEntry.app = getApp(id);
+        return logEntry;
+    }
+
+    /**
+     * maps strings to int ids; strings are only removed by replacing the pool (see rebuildPools())
+     */
+    private static class StringPool {
+        private final Map<String, Integer> idMap = new HashMap<>();
+        private final List<String> valueList = new ArrayList<>();
+
+        int getId(String value) {
+            if (value == null) return NO_VALUE;
+            Integer id = idMap.get(value);
+            if (id == null) {
+                id = valueList.size();
+                valueList.add(value);
+                idMap.put(value, id);
+            }
+            return id;
+        }
+
+        String get(int id) {
+            return id >= 0 ? valueList.get(id) : null;
+        }
+
+        int size() {
+            return valueList.size();
+        }
+    }
+}
@@ -6,45 +6,165 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.swing.table.AbstractTableModel;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class LogsTableModel extends AbstractTableModel {
     private static final Logger log = LoggerFactory.getLogger(LogsTableModel.class);
-    private static final int MAX_LINES = 90000;
-    private static final int REMOVE_EXTRA = 5000;
+    private static final int MAX_LINES = 1_000_000;
+    private static final int REMOVE_EXTRA = 50_000;
 
-    private final ArrayList<LogEntry> logEntryList;
-    // map of PID <-> app name
-    private final Map<String, String> processMap;
+    private final LogStore logStore;
+    // all rows (including ones no longer in logStore) when saving logs is enabled
+    private LogSegmentStore segmentStore;
+    // device that saved rows came from
+    private String historySerial;
+    // device serial -> map of PID <-> app name
+    private final Map<String, Map<String, String>> processMap;
+    // columns shown (device column only when showing logs from more than 1 device)
+    private final Columns[] columnArr;
     private String searchText;
+    // words -> rows for rows in logStore
+    private final LogIndex logIndex = new LogIndex();
+    // ids of rows containing searchText (only rows in logStore are searched)
+    private final LogIndex.LongList searchResultList = new LogIndex.LongList();
+    // every tag received (see LogcatArgs)
+    private final Set<String> tagSet = new HashSet<>();
 
     /**
      * get text value for a given LogEntry and column
      */
     public String getTextValue(int row, int column) {
-        LogEntry logEntry = (LogEntry) getValueAt(row, column);
-        if (logEntry == null) return null;
-        LogsTableModel.Columns col = LogsTableModel.Columns.values()[column];
+        if (row >= getRowCount() || column >= getColumnCount()) return null;
+        long id = getFirstId() + row;
+        LogsTableModel.Columns col = columnArr[column];
+        if (id < logStore.getHeadId()) {
+            // older row; only on disk
+            LogEntry logEntry = segmentStore.read(id);
+            if (logEntry == null) return null;
+            return switch (col) {
+                case DATE -> logEntry.date;
+                // NOTE: app saved with row; pid could belong to another app now (eg: after a reboot)
+                case APP -> logEntry.app;
+                case TID -> TextUtils.equals(logEntry.tid, logEntry.pid) ? "-" : logEntry.tid;
+                case PID -> logEntry.pid;
+                case LEVEL -> logEntry.level;
+                case TAG -> logEntry.tag;
+                case MSG -> logEntry.message;
+                case DEVICE -> historySerial;
+            };
+        }
         return switch (col) {
-            case DATE -> logEntry.date;
+            case DATE -> logStore.getDate(id);
             case APP -> {
-                // set app using app <-> pid list
-                logEntry.app = getAppForPid(logEntry.pid);
-                yield logEntry.app;
+                String app = logStore.getApp(id);
+                // app wasn't known yet when line was received
+                if (app == null) app = getAppForPid(logStore.getDevice(id), logStore.getPid(id));
+                yield app;
             }
             case TID -> {
-                if (TextUtils.equals(logEntry.tid, logEntry.pid)) yield "-";
-                yield logEntry.tid;
+                String tid = logStore.getTid(id);
+                if (TextUtils.equals(tid, logStore.getPid(id))) yield "-";
+                yield tid;
             }
-            case PID -> logEntry.pid;
-            case LEVEL -> logEntry.level;
-            case TAG -> logEntry.tag;
-            case MSG -> logEntry.message;
+            case PID -> logStore.getPid(id);
+            case LEVEL -> logStore.getLevel(id);
+            case TAG -> logStore.getTag(id);
+            case MSG -> logStore.getMessage(id);
+            case DEVICE -> logStore.getDevice(id);
         };
+    }
 
+    /**
+     * @return copy of log line at given row (safe to keep)
+     */
+    public LogEntry getLogEntry(int row) {
+        return getLogEntry(row, new LogEntry());
+    }
+
+    /**
+     * load log line at given row into an existing LogEntry (used when checking many rows)
+     */
+    public LogEntry getLogEntry(int row, LogEntry logEntry) {
+        if (row >= getRowCount()) return null;
+        return getLogEntryById(getFirstId() + row, logEntry);
+    }
+
+    /**
+     * load log line with given id (see getRowId()) into an existing LogEntry
+     *
+     * @return null if line was removed or doesn't exist yet
+     */
+    public LogEntry getLogEntryById(long id, LogEntry logEntry) {
+        if (id < getFirstId() || id >= logStore.getTailId()) return null;
+        if (id < logStore.getHeadId()) {
+            LogEntry diskEntry = segmentStore.read(id);
+            if (diskEntry == null) return null;
+            logEntry.timestamp = diskEntry.timestamp;
+            logEntry.date = diskEntry.date;
+            logEntry.pid = diskEntry.pid;
+            logEntry.tid = diskEntry.tid;
+            logEntry.level = diskEntry.level;
+            logEntry.tag = diskEntry.tag;
+            logEntry.message = diskEntry.message;
+            logEntry.device = historySerial;
+            // app saved with row (null if it wasn't known); not looked up again
+            logEntry.app = diskEntry.app;
+            return logEntry;
+        }
+        logStore.load(id, logEntry);
+        if (logEntry.app == null) logEntry.app = getAppForPid(logEntry.device, logEntry.pid);
+        return logEntry;
+    }
+
+    public String getLevel(int row) {
+        if (row >= getRowCount()) return null;
+        long id = getFirstId() + row;
+        if (id >= logStore.getHeadId()) return logStore.getLevel(id);
+        LogEntry logEntry = segmentStore.read(id);
+        return logEntry != null ? logEntry.level : null;
+    }
+
+    /**
+     * @return id of row (ids don't change as rows are added/removed; a row's contents never change)
+     */
+    public long getRowId(int row) {
+        return getFirstId() + row;
+    }
+
+    /**
+     * @return first row kept in memory; rows before it are only on disk (too many to check on the Swing thread, see
+     * openHistoryReader())
+     */
+    public int getMemoryFirstRow() {
+        return (int) (logStore.getHeadId() - getFirstId());
+    }
+
+    /**
+     * @return reader for rows before getMemoryFirstRow() that can be used on another thread; null if there are none
+     */
+    public LogSegmentStore.Reader openHistoryReader() {
+        if (segmentStore == null || getMemoryFirstRow() <= 0) return null;
+        return segmentStore.openReader(getFirstId(), logStore.getHeadId());
+    }
+
+    /**
+     * @return device rows on disk came from (see openHistory())
+     */
+    public String getHistorySerial() {
+        return historySerial;
+    }
+
+    /**
+     * @return id of row 0; rows before the in-memory store are read from disk
+     */
+    private long getFirstId() {
+        return segmentStore != null ? segmentStore.getFirstId() : logStore.getHeadId();
     }
 
     public enum Columns {
@@ -55,6 +175,7 @@ public class LogsTableModel extends AbstractTableModel {
         LEVEL("Level"),
         TAG("Tag"),
         MSG("Message"),
+        DEVICE("Device"),
         ;
         String desc;
 
@@ -69,98 +190,225 @@ public class LogsTableModel extends AbstractTableModel {
     }
 
     public LogsTableModel() {
-        logEntryList = new ArrayList<>();
+        this(false);
+    }
+
+    /**
+     * @param isMultiDevice true to show logs from more than 1 device (adds device column)
+     */
+    public LogsTableModel(boolean isMultiDevice) {
+        logStore = new LogStore();
         processMap = new HashMap<>();
+        List<Columns> columnList = new ArrayList<>(List.of(Columns.values()));
+        columnList.remove(Columns.DEVICE);
+        if (isMultiDevice) columnList.add(0, Columns.DEVICE);
+        columnArr = columnList.toArray(new Columns[0]);
+    }
+
+    /**
+     * load logs saved for this device and save new ones
+     */
+    public void openHistory(String serial) {
+        close();
+        try {
+            segmentStore = new LogSegmentStore(LogSegmentStore.getFolder(serial));
+            historySerial = serial;
+            logStore.reset(segmentStore.getTailId());
+            logIndex.clear();
+            searchResultList.clear();
+        } catch (IOException e) {
+            log.error("openHistory: {}, {}", serial, e.getMessage());
+            segmentStore = null;
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * stop saving logs (flushes anything not yet written)
+     */
+    public void close() {
+        if (segmentStore != null) segmentStore.close();
+        segmentStore = null;
     }
 
     public void clearLogs() {
-        this.logEntryList.clear();
+        logStore.clear();
+        logIndex.clear();
+        searchResultList.clear();
+        if (segmentStore != null) segmentStore.clear();
         fireTableDataChanged();
     }
 
     public void addLogEntry(List<LogEntry> logEntryList) {
-        this.logEntryList.addAll(logEntryList);
+        for (LogEntry logEntry : logEntryList) {
+            long id = logStore.add(logEntry);
+            if (logEntry.tag != null) tagSet.add(logEntry.tag);
+            logIndex.add(id, logEntry.tag, logEntry.message);
+            if (TextUtils.length(searchText) > 1 && isSearchMatch(id)) searchResultList.add(id);
+            if (segmentStore != null) {
+                try {
+                    segmentStore.append(logEntry);
+                } catch (IOException e) {
+                    // keep going with only what fits in memory
+                    log.error("addLogEntry: unable to save logs: {}", e.getMessage());
+                    close();
+                    fireTableDataChanged();
+                }
+            }
+        }
         checkSizeAndUpdate(logEntryList.size());
     }
 
-    public void setProcessMap(Map<String, String> processMap) {
-        this.processMap.clear();
-        this.processMap.putAll(processMap);
+    public void setProcessMap(String serial, Map<String, String> processMap) {
+        this.processMap.put(serial, new HashMap<>(processMap));
 
         // NOTE: is it worth refreshing all rows just to update old log entries?
         //fireTableDataChanged();
     }
 
+    /**
+     * highlight and find rows containing text (see getSearchCount(), findSearchRow())
+     * NOTE: caller should repaint table (rows aren't filtered again)
+     * NOTE: only in-memory rows are searched; rows before getMemoryFirstRow() (read from disk) are highlighted but not found
+     */
     public void setSearchText(String text) {
-        if (TextUtils.equals(searchText, text)) return;
+        if (TextUtils.isEmpty(text)) text = null;
         searchText = text;
-        fireTableDataChanged();
+        searchResultList.clear();
+        // NOTE: same as highlighting; single chars aren't searched
+        if (TextUtils.length(text) <= 1) return;
+        long startMs = System.currentTimeMillis();
+        long headId = logStore.getHeadId();
+        if (!logIndex.find(text, headId, this::isSearchMatch, searchResultList)) {
+            // too short to use index; check every row
+            for (long id = headId; id < logStore.getTailId(); id++) {
+                if (isSearchMatch(id)) searchResultList.add(id);
+            }
+        }
+        log.trace("setSearchText: {}, matches:{}, {}ms", text, searchResultList.size(), System.currentTimeMillis() - startMs);
+    }
+
+    private boolean isSearchMatch(long id) {
+        return TextUtils.indexOfIgnoreCase(logStore.getMessage(id), searchText) >= 0 ||
+                TextUtils.indexOfIgnoreCase(logStore.getTag(id), searchText) >= 0;
+    }
+
+    /**
+     * @return number of in-memory rows containing search text
+     */
+    public int getSearchCount() {
+        return searchResultList.size();
+    }
+
+    /**
+     * @param fromRow  search starts after this row (or before if searching backwards); -1 to start at first/last row
+     * @param isForward true to search down
+     * @return next/previous row containing search text or -1 if there are no more
+     */
+    public int findSearchRow(int fromRow, boolean isForward) {
+        int size = searchResultList.size();
+        if (size == 0) return -1;
+        long firstId = getFirstId();
+        int index;
+        if (fromRow < 0) {
+            index = isForward ? 0 : size - 1;
+        } else {
+            long fromId = firstId + fromRow;
+            // first match after fromId or last match before it
+            index = isForward ? searchResultList.search(fromId + 1) : searchResultList.search(fromId) - 1;
+        }
+        if (index < 0 || index >= size) return -1;
+        return (int) (searchResultList.get(index) - firstId);
     }
 
     /**
      * @return the latest log entry time
      */
     public Long getLastLogTime() {
-        if (logEntryList.isEmpty()) return null;
-        LogEntry last = logEntryList.get(logEntryList.size() - 1);
-        return last.timestamp;
+        if (logStore.size() > 0) return logStore.getTimestamp(logStore.getTailId() - 1);
+        else if (segmentStore != null && segmentStore.size() > 0) {
+            LogEntry last = segmentStore.read(segmentStore.getTailId() - 1);
+            return last != null ? last.timestamp : null;
+        }
+        return null;
     }
 
     private void checkSizeAndUpdate(int numAdded) {
-        if (logEntryList.size() > MAX_LINES) {
+        int numRemoved = 0;
+        if (logStore.size() > MAX_LINES) {
             // remove rows over the max and also a little more to prevent needing to do this on every new log
-            int numRemove = (logEntryList.size() - MAX_LINES) + REMOVE_EXTRA;
-            //log.trace("checkSizeAndUpdate: removing:{}, size:{}", numRemove, logEntryList.size());
-            logEntryList.subList(0, numRemove).clear();
-            fireTableRowsDeleted(0, numRemove - 1);
-        } else {
-            int startPos = logEntryList.size() - numAdded;
-            int endPos = logEntryList.size() - 1;
-            fireTableRowsInserted(startPos, endPos);
+            int numRemove = (logStore.size() - MAX_LINES) + REMOVE_EXTRA;
+            //log.trace("checkSizeAndUpdate: removing:{}, size:{}", numRemove, logStore.size());
+            logStore.removeHead(numRemove);
+            logIndex.trim(logStore.getHeadId());
+            searchResultList.removeBefore(logStore.getHeadId());
+            // rows are still available on disk if logs are saved
+            if (segmentStore == null) numRemoved = numRemove;
         }
+        if (segmentStore != null) numRemoved = segmentStore.trim();
+
+        // NOTE: rows are removed from the head and added to the tail (see LogsRowSorter)
+        if (numRemoved > 0) fireTableRowsDeleted(0, numRemoved - 1);
+        int startPos = Math.max(0, getRowCount() - numAdded);
+        int endPos = getRowCount() - 1;
+        if (endPos >= startPos) fireTableRowsInserted(startPos, endPos);
     }
 
     public int getColumnCount() {
-        return Columns.values().length;
+        return columnArr.length;
     }
 
     @Override
     public Class<?> getColumnClass(int columnIndex) {
-        return LogEntry.class;
+        return String.class;
     }
 
     /**
      * return one of the predefined columns
      */
     public LogsTableModel.Columns getColumnType(int colIndex) {
-        Columns[] values = Columns.values();
-        if (colIndex < values.length) {
-            return values[colIndex];
+        if (colIndex < columnArr.length) {
+            return columnArr[colIndex];
         }
         return null;
     }
 
     public String getColumnName(int i) {
-        Columns[] columns = Columns.values();
-        if (i < columns.length) {
-            Columns colType = columns[i];
+        if (i < columnArr.length) {
+            Columns colType = columnArr[i];
             return colType.toString();
         }
         return null;
     }
 
     public int getRowCount() {
-        return logEntryList.size();
+        return (int) (logStore.getTailId() - getFirstId());
     }
 
+    /**
+     * @return text value of cell; use {@link #getLogEntry(int)} to get the whole line
+     */
     public Object getValueAt(int row, int col) {
-        if (row >= logEntryList.size()) return null;
-        else if (col >= getColumnCount()) return null;
-        return logEntryList.get(row);
+        return getTextValue(row, col);
+    }
+
+    /**
+     * @return map of PID <-> app name for device (or null if not known yet)
+     */
+    public Map<String, String> getProcessMap(String serial) {
+        return processMap.get(serial);
+    }
+
+    /**
+     * @return tags of lines received so far, written as received
+     */
+    public Set<String> getTagSet() {
+        return tagSet;
     }
 
-    public String getAppForPid(String pid) {
-        return processMap.get(pid);
+    public String getAppForPid(String serial, String pid) {
+        Map<String, String> pidMap = processMap.get(serial);
+        return pidMap != null ? pidMap.get(pid) : null;
     }
 
     public String getSearchText() {
@@ -1,110 +1,224 @@
 package com.jpage4500.devicemanager.table.utils;
 
-import com.jpage4500.devicemanager.data.LogEntry;
 import com.jpage4500.devicemanager.table.LogsTableModel;
 import com.jpage4500.devicemanager.utils.PreferenceUtils;
 import com.jpage4500.devicemanager.utils.TextUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
-import javax.swing.border.Border;
-import javax.swing.border.EmptyBorder;
 import javax.swing.table.TableCellRenderer;
-import javax.swing.text.BadLocationException;
-import javax.swing.text.DefaultHighlighter;
-import javax.swing.text.Highlighter;
 import java.awt.*;
+import java.util.Arrays;
+import java.util.Map;
 
-public class LogsCellRenderer extends JTextField implements TableCellRenderer {
-    private static final Logger log = LoggerFactory.getLogger(LogsCellRenderer.class);
-
+/**
+ * Paints log cells directly (no text component per cell)
+ *
+ * - FontMetrics are looked up once per font change
+ * - text, level and search highlight of recently painted cells are kept (rows don't change once added), so
+ * repainting the same rows (scrolling, selection, new lines arriving) doesn't read or search them again
+ * - only the part of the text that fits in the cell is drawn
+ */
+public class LogsCellRenderer extends JComponent implements TableCellRenderer {
     private final static Color verboseColor = new Color(0, 38, 255, 255);
     private final static Color debugColor = new Color(0, 0, 0, 255);
     private final static Color infoColor = new Color(24, 134, 0, 255);
     private final static Color warnColor = new Color(251, 109, 8, 255);
     private final static Color errorColor = new Color(255, 0, 0, 255);
+    private final static Color highlightColor = Color.YELLOW;
+    private final static Color highlightSelectedColor = new Color(251, 109, 8);
 
-    private Highlighter.HighlightPainter highlightPainter;
-    private Highlighter.HighlightPainter highlightPainter2;
-    private boolean isHighlighted = false;
+    private static final int PADDING_LEFT = 10;
+    // cells remembered; must be a power of 2
+    private static final int CACHE_SIZE = 1024;
 
     private final int defaultFontSize;
+    private FontMetrics fontMetrics;
+    private final Map<?, ?> renderingHints;
+
+    // -- cell being painted --
+    private String text;
+    private int highlightStart = -1;
+    private int highlightLength;
+    private boolean isSelected;
+
+    // -- recently painted cells (direct mapped on row id + column) --
+    private final long[] cacheIdArr = new long[CACHE_SIZE];
+    private final int[] cacheColumnArr = new int[CACHE_SIZE];
+    private final String[] cacheTextArr = new String[CACHE_SIZE];
+    private final String[] cacheLevelArr = new String[CACHE_SIZE];
+    private final String[] cacheSearchArr = new String[CACHE_SIZE];
+    private final int[] cacheHighlightArr = new int[CACHE_SIZE];
+    private LogsTableModel cacheModel;
 
     public LogsCellRenderer() {
         setOpaque(true);
-        setEditable(false);
-        Border border = new EmptyBorder(0, 10, 0, 0);
-        setBorder(border);
-
-        defaultFontSize = getFont().getSize();
+        // same font cells had as text fields
+        Font font = UIManager.getFont("TextField.font");
+        if (font == null) font = UIManager.getFont("Label.font");
+        setFont(font);
+        defaultFontSize = font.getSize();
+        renderingHints = (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
         notifyFontChanged();
     }
 
     public Component getTableCellRendererComponent(JTable table, Object object, boolean isSelected, boolean hasFocus, int row, int column) {
-        LogEntry logEntry = (LogEntry) object;
         LogsTableModel model = (LogsTableModel) table.getModel();
         // convert table column to model column
         row = table.convertRowIndexToModel(row);
         column = table.convertColumnIndexToModel(column);
-        String text = model.getTextValue(row, column);
-        setText(text);
-
-        int highlightStartPos = -1;
         String searchText = model.getSearchText();
-        if (TextUtils.length(searchText) > 1 && text != null) {
-            highlightStartPos = TextUtils.indexOfIgnoreCase(text, searchText);
-        }
+        if (TextUtils.length(searchText) <= 1) searchText = null;
 
-        Highlighter highlighter = getHighlighter();
-        boolean doHighlight = highlightStartPos >= 0;
-        if (doHighlight || isHighlighted) {
-            // something changed..
-            highlighter.removeAllHighlights();
-
-            if (doHighlight) {
-                isHighlighted = true;
-                if (highlightPainter == null) {
-                    highlightPainter = new DefaultHighlighter.DefaultHighlightPainter(Color.YELLOW);
-                    highlightPainter2 = new DefaultHighlighter.DefaultHighlightPainter(new Color(251, 109, 8));
-                }
-                Highlighter.HighlightPainter highlight = isSelected ? highlightPainter2 : highlightPainter;
-                try {
-                    highlighter.addHighlight(highlightStartPos, highlightStartPos + searchText.length(), highlight);
-                } catch (BadLocationException e) {
-                    log.error("BadLocationException: {}", e.getMessage());
-                }
+        String level;
+        long id = model.getRowId(row);
+        if (model != cacheModel) {
+            // NOTE: renderer isn't normally shared between tables; start over if it is
+            clearCache();
+            cacheModel = model;
+        }
+        int slot = (int) ((id * 31 + column) & (CACHE_SIZE - 1));
+        // NOTE: app name can be resolved after line was added; not cached
+        boolean isCacheable = model.getColumnType(column) != LogsTableModel.Columns.APP;
+        if (isCacheable && cacheIdArr[slot] == id && cacheColumnArr[slot] == column && cacheTextArr[slot] != null) {
+            text = cacheTextArr[slot];
+            level = cacheLevelArr[slot];
+            if (!TextUtils.equals(cacheSearchArr[slot], searchText)) {
+                cacheHighlightArr[slot] = findHighlight(text, searchText);
+                cacheSearchArr[slot] = searchText;
+            }
+            highlightStart = cacheHighlightArr[slot];
+        } else {
+            text = model.getTextValue(row, column);
+            level = model.getLevel(row);
+            highlightStart = findHighlight(text, searchText);
+            if (isCacheable && text != null) {
+                cacheIdArr[slot] = id;
+                cacheColumnArr[slot] = column;
+                cacheTextArr[slot] = text;
+                cacheLevelArr[slot] = level;
+                cacheSearchArr[slot] = searchText;
+                cacheHighlightArr[slot] = highlightStart;
             }
         }
+        highlightLength = searchText != null ? searchText.length() : 0;
+        this.isSelected = isSelected;
 
         Color textColor = isSelected ? Color.WHITE : Color.BLACK;
-        if (!isSelected && logEntry.level != null) {
-            switch (logEntry.level) {
-                case "V":
-                    textColor = verboseColor;
-                    break;
-                case "D":
-                    textColor = debugColor;
-                    break;
-                case "I":
-                    textColor = infoColor;
-                    break;
-                case "W":
-                    textColor = warnColor;
-                    break;
-                case "E":
-                    textColor = errorColor;
-                    break;
+        if (!isSelected && level != null) {
+            switch (level) {
+                case "V" -> textColor = verboseColor;
+                case "D" -> textColor = debugColor;
+                case "I" -> textColor = infoColor;
+                case "W" -> textColor = warnColor;
+                case "E" -> textColor = errorColor;
             }
         }
         setForeground(textColor);
         setBackground(isSelected ? table.getSelectionBackground() : Color.WHITE);
-
         return this;
     }
 
+    private static int findHighlight(String text, String searchText) {
+        if (text == null || searchText == null) return -1;
+        return TextUtils.indexOfIgnoreCase(text, searchText);
+    }
+
+    private void clearCache() {
+        Arrays.fill(cacheTextArr, null);
+        Arrays.fill(cacheLevelArr, null);
+        Arrays.fill(cacheSearchArr, null);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        int width = getWidth();
+        int height = getHeight();
+        g.setColor(getBackground());
+        g.fillRect(0, 0, width, height);
+        if (text == null || text.isEmpty() || width <= PADDING_LEFT) return;
+
+        Graphics2D g2 = (Graphics2D) g;
+        if (renderingHints != null) g2.addRenderingHints(renderingHints);
+        g2.setFont(getFont());
+
+        // no need to draw text that can't fit
+        int len = getVisibleLength(text, width - PADDING_LEFT);
+        int baseline = (height - fontMetrics.getHeight()) / 2 + fontMetrics.getAscent();
+
+        if (highlightStart >= 0 && highlightStart < len) {
+            int startX = PADDING_LEFT + fontMetrics.stringWidth(text.substring(0, highlightStart));
+            int end = Math.min(highlightStart + highlightLength, text.length());
+            int highlightWidth = fontMetrics.stringWidth(text.substring(highlightStart, end));
+            g2.setColor(isSelected ? highlightSelectedColor : highlightColor);
+            g2.fillRect(startX, 0, highlightWidth, height);
+        }
+
+        g2.setColor(getForeground());
+        g2.drawString(len < text.length() ? text.substring(0, len) : text, PADDING_LEFT, baseline);
+    }
+
+    /**
+     * @return number of chars of text that fit in width (including the one cut off at the edge)
+     */
+    int getVisibleLength(String text, int width) {
+        int x = 0;
+        int len = text.length();
+        for (int i = 0; i < len; ) {
+            // NOTE: measured per char (not assumed from ASCII widths); CJK, emoji, etc can be much wider
+            int codePoint = text.codePointAt(i);
+            x += fontMetrics.charWidth(codePoint);
+            i += Character.charCount(codePoint);
+            if (x >= width) return i;
+        }
+        return len;
+    }
+
+    /**
+     * used to size columns and to check if text is cut off
+     */
+    @Override
+    public Dimension getPreferredSize() {
+        int textWidth = text != null ? fontMetrics.stringWidth(text) : 0;
+        return new Dimension(PADDING_LEFT + textWidth + 2, fontMetrics.getHeight());
+    }
+
     public void notifyFontChanged() {
         int fontOffset = PreferenceUtils.getPreference(PreferenceUtils.PrefInt.PREF_FONT_SIZE_OFFSET, 0);
         setFont(getFont().deriveFont(Font.PLAIN, fontOffset + defaultFontSize));
+        fontMetrics = getFontMetrics(getFont());
+    }
+
+    // -- NOTE: same as DefaultTableCellRenderer; renderer is only used to paint so these don't need to do anything --
+
+    @Override
+    public void invalidate() {
+    }
+
+    @Override
+    public void validate() {
+    }
+
+    @Override
+    public void revalidate() {
+    }
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+    }
+
+    @Override
+    public void repaint(Rectangle r) {
+    }
+
+    @Override
+    public void repaint() {
+    }
+
+    @Override
+    protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+    }
+
+    @Override
+    public void firePropertyChange(String propertyName, boolean oldValue, boolean newValue) {
     }
-}
\ No newline at end of file
+}
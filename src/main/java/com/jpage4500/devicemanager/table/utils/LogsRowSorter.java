@@ -2,67 +2,306 @@ package com.jpage4500.devicemanager.table.utils;
 
 import com.jpage4500.devicemanager.data.LogEntry;
 import com.jpage4500.devicemanager.data.LogFilter;
+import com.jpage4500.devicemanager.data.LogPredicate;
+import com.jpage4500.devicemanager.table.LogIndex;
+import com.jpage4500.devicemanager.table.LogSegmentStore;
+import com.jpage4500.devicemanager.table.LogsTableModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
 import javax.swing.table.TableModel;
-import javax.swing.table.TableRowSorter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
-public class LogsRowSorter extends TableRowSorter<TableModel> {
+/**
+ * Filtered view of logs (logs are never sorted; they stay in the order received)
+ *
+ * - appended rows are the only ones checked against the filter; matches are added to the end of the view
+ * - rows removed from the head of the model just move the start of the view
+ * - all rows are only checked again when the filter changes (or the model is reset)
+ * - only rows in memory are checked on the Swing thread; saved history (up to millions of rows read from disk) is
+ * checked on a background thread and its matches are added to the start of the view when done
+ */
+public class LogsRowSorter extends RowSorter<TableModel> {
     private static final Logger log = LoggerFactory.getLogger(LogsRowSorter.class);
 
-    private final LogsRowFilter logsRowFilter;
+    private final LogsTableModel model;
+    private LogFilter[] logFilterArr;
+    // all filters combined (cheapest checked first)
+    private LogPredicate predicate;
+    // reused for every row
+    private final LogEntry logEntry = new LogEntry();
 
-    public LogsRowSorter(TableModel model) {
-        super(model);
-        logsRowFilter = new LogsRowFilter();
+    private int modelRowCount;
+    // -- view (only used when filter is set) --
+    // model rows that match filter, stored as (row + numTrimmed) so removing rows from the head doesn't change them
+    private long[] viewArr = new long[1024];
+    private int viewStart;
+    private int viewEnd;
+    // rows removed from head of model since view was last built
+    private long numTrimmed;
+    // id of row 0 when view was last built
+    private long baseId;
+    // changes every time the view is rebuilt; stops history check that's no longer needed
+    private volatile int generation;
+
+    public LogsRowSorter(LogsTableModel model) {
+        this.model = model;
+        modelRowCount = model.getRowCount();
+    }
+
+    public void setFilter(LogFilter... logFilterArr) {
+        this.logFilterArr = logFilterArr;
+        predicate = hasFilter() ? compile(logFilterArr) : null;
+        rebuild();
+    }
+
+    public LogFilter[] getFilter() {
+        return logFilterArr;
+    }
+
+    /**
+     * @return all filters combined; null if no filter is set
+     */
+    public LogPredicate getPredicate() {
+        return predicate;
+    }
+
+    private boolean hasFilter() {
+        return logFilterArr != null && logFilterArr.length > 0;
+    }
+
+    /**
+     * @return predicate that's true if ALL filters match
+     */
+    private static LogPredicate compile(LogFilter[] logFilterArr) {
+        List<LogPredicate> list = new ArrayList<>();
+        for (LogFilter filter : logFilterArr) {
+            // a missing filter matches nothing
+            if (filter == null) return new LogFilter().compile();
+            list.add(filter.compile());
+        }
+        list.sort(Comparator.comparingInt(LogPredicate::getCost));
+        LogPredicate[] predicateArr = list.toArray(new LogPredicate[0]);
+        if (predicateArr.length == 1) return predicateArr[0];
+        return new LogPredicate() {
+            @Override
+            public boolean test(LogEntry logEntry) {
+                for (LogPredicate predicate : predicateArr) {
+                    if (!predicate.test(logEntry)) return false;
+                }
+                return true;
+            }
+
+            @Override
+            public int getCost() {
+                return list.stream().mapToInt(LogPredicate::getCost).sum();
+            }
+        };
+    }
+
+    private boolean isMatch(int row) {
+        if (model.getLogEntry(row, logEntry) == null) return false;
+        return predicate.test(logEntry);
+    }
+
+    /**
+     * check every row in memory against filter; history rows are checked in the background (see filterHistory())
+     */
+    private void rebuild() {
+        long startMs = System.currentTimeMillis();
+        generation++;
+        modelRowCount = model.getRowCount();
+        numTrimmed = 0;
+        baseId = model.getRowId(0);
+        viewStart = 0;
+        viewEnd = 0;
+        if (hasFilter()) {
+            for (int row = Math.max(0, model.getMemoryFirstRow()); row < modelRowCount; row++) {
+                if (isMatch(row)) addToView(row);
+            }
+            log.trace("rebuild: rows:{}, matches:{}, {}ms", modelRowCount, getViewRowCount(), System.currentTimeMillis() - startMs);
+            filterHistory();
+        }
+        fireRowSorterChanged(null);
+    }
+
+    /**
+     * check rows only saved on disk on a background thread
+     */
+    private void filterHistory() {
+        LogSegmentStore.Reader reader = model.openHistoryReader();
+        if (reader == null) return;
+        int scanGeneration = generation;
+        long scanBaseId = baseId;
+        // NOTE: predicates aren't shared between threads
+        LogPredicate historyPredicate = compile(logFilterArr);
+        String serial = model.getHistorySerial();
+        Thread thread = new Thread(() -> {
+            long startMs = System.currentTimeMillis();
+            LogIndex.LongList matchList = new LogIndex.LongList();
+            reader.read((id, logEntry) -> {
+                if (generation != scanGeneration) return false;
+                // NOTE: app is the one saved with the row (like LogsTableModel shows)
+                logEntry.device = serial;
+                if (historyPredicate.test(logEntry)) matchList.add(id - scanBaseId);
+                return true;
+            });
+            log.trace("filterHistory: rows:{}, matches:{}, {}ms", reader.getToId() - reader.getFromId(),
+                    matchList.size(), System.currentTimeMillis() - startMs);
+            SwingUtilities.invokeLater(() -> addHistoryMatches(scanGeneration, matchList));
+        }, "log-history-filter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * add history rows that match filter to the start of the view (Swing thread)
+     */
+    private void addHistoryMatches(int scanGeneration, LogIndex.LongList matchList) {
+        if (scanGeneration != generation) return;
+        // skip rows removed from the head while checking
+        int start = matchList.search(numTrimmed);
+        int numMatches = matchList.size() - start;
+        if (numMatches == 0) return;
+        int size = viewEnd - viewStart;
+        long[] newArr = new long[Math.max(viewArr.length, Integer.highestOneBit(numMatches + size) * 2)];
+        for (int i = 0; i < numMatches; i++) newArr[i] = matchList.get(start + i);
+        System.arraycopy(viewArr, viewStart, newArr, numMatches, size);
+        viewArr = newArr;
+        viewStart = 0;
+        viewEnd = numMatches + size;
+        fireRowSorterChanged(null);
+    }
+
+    private void addToView(int row) {
+        if (viewEnd == viewArr.length) {
+            int size = viewEnd - viewStart;
+            if (viewStart > 0 && size <= viewArr.length / 2) {
+                // mostly trimmed rows; re-use array
+                System.arraycopy(viewArr, viewStart, viewArr, 0, size);
+            } else {
+                long[] newArr = new long[viewArr.length * 2];
+                System.arraycopy(viewArr, viewStart, newArr, 0, size);
+                viewArr = newArr;
+            }
+            viewStart = 0;
+            viewEnd = size;
+        }
+        viewArr[viewEnd++] = row + numTrimmed;
+    }
+
+    /**
+     * @return index in viewArr of first value >= key
+     */
+    private int search(long key) {
+        int low = viewStart;
+        int high = viewEnd;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (viewArr[mid] < key) low = mid + 1;
+            else high = mid;
+        }
+        return low;
     }
 
     @Override
-    public boolean isSortable(int i) {
-        return false;
+    public TableModel getModel() {
+        return model;
     }
 
     @Override
-    protected boolean useToString(int c) {
-        return false;
+    public void toggleSortOrder(int column) {
+        // not sortable
     }
 
-    public void setFilter(LogFilter... logFilterArr) {
-        logsRowFilter.setFilter(logFilterArr);
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (index < 0 || index >= getViewRowCount()) throw new IndexOutOfBoundsException("invalid view index: " + index);
+        if (!hasFilter()) return index;
+        return (int) (viewArr[viewStart + index] - numTrimmed);
     }
 
-    public LogFilter[] getFilter() {
-        return logsRowFilter.logFilterArr;
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (index < 0 || index >= modelRowCount) throw new IndexOutOfBoundsException("invalid model index: " + index);
+        if (!hasFilter()) return index;
+        long key = index + numTrimmed;
+        int pos = search(key);
+        if (pos < viewEnd && viewArr[pos] == key) return pos - viewStart;
+        return -1;
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        // not sortable
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return hasFilter() ? viewEnd - viewStart : modelRowCount;
     }
 
     @Override
-    public RowFilter<? super TableModel, ? super Integer> getRowFilter() {
-        return logsRowFilter;
+    public int getModelRowCount() {
+        return modelRowCount;
     }
 
-    private class LogsRowFilter extends RowFilter<Object, Object> {
-        private LogFilter[] logFilterArr;
+    @Override
+    public void modelStructureChanged() {
+        rebuild();
+    }
 
-        @Override
-        public boolean include(Entry<?, ?> entry) {
-            // if no filter set, include log row
-            if (logFilterArr == null || logFilterArr.length == 0) return true;
+    @Override
+    public void allRowsChanged() {
+        rebuild();
+    }
 
-            // ALL filters must match in order to include this row
-            LogEntry logEntry = (LogEntry) entry.getValue(0);
-            for (LogFilter filter : logFilterArr) {
-                if (filter == null || !filter.isMatch(logEntry)) return false;
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        if (firstRow != modelRowCount) {
+            // not appended to the end
+            rebuild();
+            return;
+        }
+        if (hasFilter()) {
+            for (int row = firstRow; row <= endRow; row++) {
+                if (isMatch(row)) addToView(row);
             }
-            // all match!
-            return true;
         }
+        modelRowCount = endRow + 1;
+        fireRowSorterChanged(null);
+    }
 
-        public void setFilter(LogFilter... logFilterArr) {
-            this.logFilterArr = logFilterArr;
-            sort();
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        if (firstRow != 0) {
+            // not removed from the head
+            rebuild();
+            return;
         }
+        int numRemoved = endRow - firstRow + 1;
+        modelRowCount -= numRemoved;
+        numTrimmed += numRemoved;
+        if (hasFilter()) viewStart = search(numTrimmed);
+        fireRowSorterChanged(null);
     }
 
-}
\ No newline at end of file
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        rebuild();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        rebuild();
+    }
+}
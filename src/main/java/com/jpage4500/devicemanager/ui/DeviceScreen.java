@@ -81,6 +81,8 @@ public class DeviceScreen extends BaseScreen implements DeviceManager.DeviceList
     // open windows (per device)
     private final Map<String, ExploreScreen> exploreViewMap = new HashMap<>();
     private final Map<String, LogsScreen> logsViewMap = new HashMap<>();
+    // logs from several devices in 1 view
+    private LogsScreen mergedLogsScreen;
     private final Map<String, InputScreen> inputViewMap = new HashMap<>();
 
     public DeviceScreen() {
@@ -532,6 +534,7 @@ public class DeviceScreen extends BaseScreen implements DeviceManager.DeviceList
 
         LogsScreen logsScreen = logsViewMap.get(device.serial);
         if (logsScreen != null) logsScreen.updateDeviceState();
+        if (mergedLogsScreen != null && mergedLogsScreen.hasDevice(device.serial)) mergedLogsScreen.updateDeviceState();
 
         InputScreen inputScreen = inputViewMap.get(device.serial);
         if (inputScreen != null) inputScreen.updateDeviceState();
@@ -1282,8 +1285,12 @@ public class DeviceScreen extends BaseScreen implements DeviceManager.DeviceList
         exploreViewMap.remove(serial);
     }
 
+    /**
+     * @param serial device serial (null for merged logs view)
+     */
     public void handleLogsClosed(String serial) {
-        logsViewMap.remove(serial);
+        if (serial == null) mergedLogsScreen = null;
+        else logsViewMap.remove(serial);
     }
 
     public void handleInputClosed(String serial) {
@@ -1291,7 +1298,15 @@ public class DeviceScreen extends BaseScreen implements DeviceManager.DeviceList
     }
 
     public void handleLogsCommand(Device selectedDevice) {
-        if (selectedDevice == null) selectedDevice = getFirstSelectedDevice();
+        if (selectedDevice == null) {
+            List<Device> selectedDeviceList = getSelectedDevices();
+            if (selectedDeviceList.size() > 1) {
+                // show logs from all selected devices together
+                handleMergedLogsCommand(selectedDeviceList);
+                return;
+            }
+            selectedDevice = getFirstSelectedDevice();
+        }
         if (selectedDevice == null) return;
 
         LogsScreen logsScreen = logsViewMap.get(selectedDevice.serial);
@@ -1303,6 +1318,18 @@ public class DeviceScreen extends BaseScreen implements DeviceManager.DeviceList
         logsScreen.show();
     }
 
+    private void handleMergedLogsCommand(List<Device> deviceList) {
+        if (mergedLogsScreen != null && (!mergedLogsScreen.isDisplayable() || !mergedLogsScreen.isShowingDevices(deviceList))) {
+            // only 1 merged view; replace it when a different set of devices is selected
+            mergedLogsScreen.dispose();
+            mergedLogsScreen = null;
+        }
+        if (mergedLogsScreen == null) {
+            mergedLogsScreen = new LogsScreen(this, deviceList);
+        }
+        mergedLogsScreen.show();
+    }
+
     private void checkForUpdates() {
         // must be run off main/UI thread
         if (SwingUtilities.isEventDispatchThread()) {
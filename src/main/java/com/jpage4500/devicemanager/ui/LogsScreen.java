@@ -4,7 +4,11 @@ import com.jpage4500.devicemanager.data.Device;
 import com.jpage4500.devicemanager.data.FilterItem;
 import com.jpage4500.devicemanager.data.LogEntry;
 import com.jpage4500.devicemanager.data.LogFilter;
+import com.jpage4500.devicemanager.data.LogcatArgs;
 import com.jpage4500.devicemanager.manager.DeviceManager;
+import com.jpage4500.devicemanager.manager.LogExporter;
+import com.jpage4500.devicemanager.manager.LogMerger;
+import com.jpage4500.devicemanager.manager.LogPipeline;
 import com.jpage4500.devicemanager.table.LogsTableModel;
 import com.jpage4500.devicemanager.table.utils.LogsCellRenderer;
 import com.jpage4500.devicemanager.table.utils.LogsRowSorter;
@@ -17,6 +21,7 @@ import com.jpage4500.devicemanager.utils.GsonHelper;
 import com.jpage4500.devicemanager.utils.PreferenceUtils;
 import com.jpage4500.devicemanager.utils.TextUtils;
 import com.jpage4500.devicemanager.utils.UiUtils;
+import com.jpage4500.devicemanager.utils.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,27 +31,46 @@ import java.awt.*;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.StringSelection;
 import java.awt.event.*;
+import java.io.File;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
- * create and manage device view
+ * create and manage device logs view (1 device, or several devices merged by time)
  */
 public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogListener {
     private static final Logger log = LoggerFactory.getLogger(LogsScreen.class);
 
     private static final String HINT_FILTER = "Filter...";
     private static final String HINT_SEARCH = "Search...";
+    // how often new lines are shown (see PREF_LOGS_FPS)
+    public static final int DEFAULT_FPS = 30;
 
-    private final Device device;
+    private final List<Device> deviceList;
     private final DeviceScreen deviceScreen;
+    // combines logs by time when showing more than 1 device
+    private final LogMerger logMerger;
 
     public CustomTable table;
     public LogsTableModel model;
 
     public StatusBar statusBar;
+    // key = device serial
+    private final Map<String, LogPipeline> pipelineMap = new HashMap<>();
+    private final Map<String, DeviceManager.DeviceLogListener> listenerMap = new HashMap<>();
+    // logcat arguments each device was started with (when filtering on device)
+    private final Map<String, List<String>> filterArgsMap = new HashMap<>();
+    // wait for user to stop typing before restarting logcat with a new filter
+    private final Timer restartTimer = new Timer(1000, e -> restartFilteredLogging());
+    // lines received since last frame; added to table together (see handleFrame)
+    // NOTE: LogPipeline batches lines before they get here; this is the 2nd (and usually the limiting) window
+    private final List<LogEntry> pendingList = new ArrayList<>();
+    private final Timer frameTimer;
     public JToolBar toolbar;
     private JCheckBox autoScrollCheckBox;
     private HintTextField searchField;
@@ -58,30 +82,71 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
 
     private LogsRowSorter sorter;
     private MessageViewScreen viewScreen;
+    // export in progress (null if none)
+    private LogExporter logExporter;
 
     public JButton logButton;
     public boolean isLoggedPaused; // true when user clicks on 'stop logging'
 
     public LogsScreen(DeviceScreen deviceScreen, Device device) {
-        super("logs-" + device.serial, 1100, 800);
+        this(deviceScreen, List.of(device));
+    }
+
+    /**
+     * show logs from all devices in 1 list, ordered by time (adds a device column)
+     */
+    public LogsScreen(DeviceScreen deviceScreen, List<Device> deviceList) {
+        super(deviceList.size() == 1 ? "logs-" + deviceList.get(0).serial : "logs-merged", 1100, 800);
         this.deviceScreen = deviceScreen;
-        this.device = device;
+        this.deviceList = new ArrayList<>(deviceList);
+        logMerger = deviceList.size() > 1 ? new LogMerger(this) : null;
+        restartTimer.setRepeats(false);
+        int fps = Math.max(1, Math.min(60, PreferenceUtils.getPreference(PreferenceUtils.PrefInt.PREF_LOGS_FPS, DEFAULT_FPS)));
+        frameTimer = new Timer(1000 / fps, e -> handleFrame());
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         initalizeUi();
         updateDeviceState();
     }
 
     public void updateDeviceState() {
-        //log.trace("updateDeviceState: ONLINE:{}", device.isOnline);
-        if (device.isOnline) {
-            setTitle("Logs: [" + device.getDisplayName() + "]");
+        boolean isOnline = false;
+        for (Device device : deviceList) isOnline |= device.isOnline;
+        if (isOnline) {
+            setTitle("Logs: [" + getDeviceNames() + "]");
             startLogging();
         } else {
-            setTitle("OFFLINE [" + device.getDisplayName() + "]");
+            setTitle("OFFLINE [" + getDeviceNames() + "]");
             stopLogging();
         }
     }
 
+    /**
+     * @return true if showing logs for exactly these devices
+     */
+    public boolean isShowingDevices(List<Device> deviceList) {
+        if (deviceList.size() != this.deviceList.size()) return false;
+        for (Device device : deviceList) {
+            if (!hasDevice(device.serial)) return false;
+        }
+        return true;
+    }
+
+    public boolean hasDevice(String serial) {
+        for (Device device : deviceList) {
+            if (TextUtils.equals(device.serial, serial)) return true;
+        }
+        return false;
+    }
+
+    private String getDeviceNames() {
+        StringBuilder sb = new StringBuilder();
+        for (Device device : deviceList) {
+            if (!sb.isEmpty()) sb.append(", ");
+            sb.append(device.getDisplayName());
+        }
+        return sb.toString();
+    }
+
     protected void initalizeUi() {
         // ** MAIN PANEL **
         // ---- [toolbar] -----
@@ -115,7 +180,8 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
         JPanel rightPanel = new JPanel(new BorderLayout());
 
         // -- table --
-        table = new CustomTable("logs");
+        // NOTE: merged view has an extra column; save its layout separately
+        table = new CustomTable(logMerger != null ? "logs-merged" : "logs");
         setupTable();
         rightPanel.add(table.getScrollPane(), BorderLayout.CENTER);
 
@@ -152,7 +218,13 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
         switch (state) {
             case CLOSED -> {
                 // stop logging when window is closed
+                restartTimer.stop();
+                frameTimer.stop();
+                pendingList.clear();
+                if (logExporter != null) logExporter.cancel();
                 stopLogging();
+                if (logMerger != null) logMerger.stop();
+                model.close();
                 saveFrameSize();
                 table.saveTable();
             }
@@ -191,7 +263,7 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
         });
 
         // [CMD + 2] = show explorer
-        createCmdAction(windowMenu, DeviceScreen.SHOW_BROWSE, KeyEvent.VK_2, e -> deviceScreen.handleBrowseCommand(device));
+        createCmdAction(windowMenu, DeviceScreen.SHOW_BROWSE, KeyEvent.VK_2, e -> deviceScreen.handleBrowseCommand(deviceList.get(0)));
 
         // [CMD + T] = hide toolbar
         createCmdAction(windowMenu, "Hide Toolbar", KeyEvent.VK_T, e -> hideToolbar());
@@ -205,7 +277,10 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
         });
 
         // [CMD + K] = clear logs
-        createCmdAction(logsMenu, "Clear logs", KeyEvent.VK_K, e -> model.clearLogs());
+        createCmdAction(logsMenu, "Clear logs", KeyEvent.VK_K, e -> clearLogs());
+
+        // [CMD + S] = save logs to file
+        createCmdAction(logsMenu, "Export logs...", KeyEvent.VK_S, e -> handleExportClicked());
 
         // [CMD + KEY_UP] = scroll to top
         createCmdAction(logsMenu, "Scoll to top", KeyEvent.VK_UP, e -> {
@@ -233,6 +308,14 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
         // [CMD + F] = focus search field
         createCmdAction(editMenu, "Search for...", KeyEvent.VK_F, e -> searchField.requestFocus());
 
+        // [CMD + G] = find next
+        createCmdAction(editMenu, "Find Next", KeyEvent.VK_G, e -> findSearchRow(true));
+
+        // [CMD + SHIFT + G] = find previous
+        JMenuItem findPrevItem = createCmdAction(editMenu, "Find Previous", 0, e -> findSearchRow(false));
+        int mask = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx() | InputEvent.SHIFT_DOWN_MASK;
+        findPrevItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_G, mask));
+
         JMenuBar menubar = new JMenuBar();
         menubar.add(windowMenu);
         menubar.add(editMenu);
@@ -249,7 +332,7 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
     private void setFontSize(int fontOffset) {
         PreferenceUtils.setPreference(PreferenceUtils.PrefInt.PREF_FONT_SIZE_OFFSET, fontOffset);
 
-        LogsCellRenderer cellRenderer = (LogsCellRenderer) table.getDefaultRenderer(LogEntry.class);
+        LogsCellRenderer cellRenderer = (LogsCellRenderer) table.getDefaultRenderer(String.class);
         cellRenderer.notifyFontChanged();
         model.fireTableDataChanged();
     }
@@ -261,12 +344,13 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
     }
 
     private void closeWindow() {
-        log.trace("closeWindow: {}", device.getDisplayName());
+        log.trace("closeWindow: {}", getDeviceNames());
         // save last filter
         String filterText = filterField.getCleanText();
         PreferenceUtils.setPreference(PreferenceUtils.Pref.PREF_RECENT_MESSAGE_FILTER, filterText);
         //stopLogging();
-        deviceScreen.handleLogsClosed(device.serial);
+        // NOTE: merged view isn't saved by serial
+        deviceScreen.handleLogsClosed(logMerger == null ? deviceList.get(0).serial : null);
         dispose();
     }
 
@@ -275,10 +359,15 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
     }
 
     private void setupTable() {
-        model = new LogsTableModel();
+        model = new LogsTableModel(logMerger != null);
+        if (logMerger == null && PreferenceUtils.getPreference(PreferenceUtils.PrefBoolean.PREF_SAVE_LOGS, true)) {
+            // restore logs from previous sessions
+            // NOTE: merged view only shows logs while it's open (each device's own view saves them)
+            model.openHistory(deviceList.get(0).serial);
+        }
         table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
         table.setModel(model);
-        table.setDefaultRenderer(LogEntry.class, new LogsCellRenderer());
+        table.setDefaultRenderer(String.class, new LogsCellRenderer());
 
         // restore user-defined column sizes
         if (!table.restoreTable()) {
@@ -290,6 +379,7 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
             table.setPreferredColWidth(LogsTableModel.Columns.APP.toString(), 150);
             table.setPreferredColWidth(LogsTableModel.Columns.TAG.toString(), 200);
             table.setPreferredColWidth(LogsTableModel.Columns.MSG.toString(), 700);
+            table.setPreferredColWidth(LogsTableModel.Columns.DEVICE.toString(), 150);
         }
 
         table.setMaxColWidth(LogsTableModel.Columns.LEVEL.toString(), 35);
@@ -367,6 +457,7 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
                     case PID:
                     case LEVEL:
                     case TAG:
+                    case DEVICE:
                         // filter by value
                         String text = model.getTextValue(row, column);
                         UiUtils.addPopupMenuItem(popupMenu, "Add Filter", actionEvent -> handleQuickAddFilter(columnType, text));
@@ -384,7 +475,7 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
         table.setRowSorter(sorter);
 
         table.setDoubleClickListener((row, column, e) -> {
-            LogEntry logEntry = (LogEntry) model.getValueAt(row, column);
+            LogEntry logEntry = model.getLogEntry(row);
             if (logEntry == null) return;
             viewMessage(logEntry);
         });
@@ -413,6 +504,72 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
         });
     }
 
+    /**
+     * save logs to a .log or .log.gz file (filtered lines or all lines); click again to cancel
+     */
+    private void handleExportClicked() {
+        if (logExporter != null) {
+            int rc = JOptionPane.showConfirmDialog(this, "Cancel export to " + logExporter.getFile().getName() + "?", "Export Logs", JOptionPane.YES_NO_OPTION);
+            if (rc != JOptionPane.YES_OPTION) return;
+            logExporter.cancel();
+            logExporter = null;
+            refreshUi();
+            return;
+        }
+
+        boolean isFiltered = sorter.getPredicate() != null;
+        if (isFiltered) {
+            String[] options = {"Filtered Lines", "All Lines", "Cancel"};
+            int rc = JOptionPane.showOptionDialog(this, "Export filtered lines only?", "Export Logs", JOptionPane.DEFAULT_OPTION,
+                    JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
+            if (rc != 0 && rc != 1) return;
+            isFiltered = rc == 0;
+        }
+
+        String name = logMerger == null ? deviceList.get(0).serial : "merged";
+        String date = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        JFileChooser chooser = new JFileChooser();
+        chooser.setCurrentDirectory(new File(Utils.getDownloadFolder()));
+        chooser.setDialogTitle("Export Logs (.log or .log.gz)");
+        chooser.setSelectedFile(new File("logs-" + name.replaceAll("[^\\w.-]", "_") + "-" + date + ".log.gz"));
+        int rc = chooser.showSaveDialog(this);
+        if (rc != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        if (file == null) return;
+        if (!file.getName().endsWith(".log") && !file.getName().endsWith(".gz")) {
+            file = new File(file.getParentFile(), file.getName() + ".log");
+        }
+        if (file.exists()) {
+            rc = JOptionPane.showConfirmDialog(this, file.getName() + " already exists. Replace it?", "Export Logs", JOptionPane.YES_NO_OPTION);
+            if (rc != JOptionPane.YES_OPTION) return;
+        }
+
+        logExporter = new LogExporter(model, isFiltered ? sorter.getPredicate() : null, file, logMerger != null, new LogExporter.Listener() {
+            @Override
+            public void handleExportProgress(LogExporter exporter) {
+                refreshUi();
+            }
+
+            @Override
+            public void handleExportDone(LogExporter exporter, Exception error) {
+                if (logExporter == exporter) logExporter = null;
+                refreshUi();
+                if (error != null) {
+                    log.error("handleExportDone: {}, {}", exporter.getFile().getName(), error.getMessage());
+                    JOptionPane.showMessageDialog(LogsScreen.this, "Unable to export logs: " + error.getMessage(), "Export Logs", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                String msg = String.format("Exported %,d lines to %s\n(lines received after export started aren't included)",
+                        exporter.getNumWritten(), exporter.getFile().getName());
+                // eg: more lines arrived than fit in memory (and logs aren't saved)
+                if (exporter.getNumSkipped() > 0) msg += String.format("\n%,d lines were removed before they could be exported", exporter.getNumSkipped());
+                JOptionPane.showMessageDialog(LogsScreen.this, msg, "Export Logs", JOptionPane.INFORMATION_MESSAGE);
+            }
+        });
+        logExporter.start();
+        refreshUi();
+    }
+
     private void handleCopyMessageClicked() {
         List<LogEntry> logEntryList = getSelectedLogEntries();
         StringBuilder sb = new StringBuilder();
@@ -465,7 +622,7 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
         int[] selectedRows = table.getSelectedRows();
         for (int selectedRow : selectedRows) {
             int realRow = table.convertRowIndexToModel(selectedRow);
-            LogEntry logEntry = (LogEntry) model.getValueAt(realRow, 0);
+            LogEntry logEntry = model.getLogEntry(realRow);
             logEntryList.add(logEntry);
         }
         return logEntryList;
@@ -478,8 +635,12 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
     }
 
     private void handleQuickAddFilter(LogsTableModel.Columns columnType, String text) {
-        LogFilter filter = LogFilter.parse(columnType.name().toLowerCase() + ":" + text);
-        filterField.setText(filter.toString());
+        String value = text;
+        if (text.matches("(?s).*[&|()\"\\\\].*|[!/<>].*|\\s.*|.*\\s")) {
+            // quote text so it's matched as-is and not as filter syntax
+            value = "\"" + text.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        }
+        filterField.setText(columnType.name().toLowerCase() + ":" + value);
     }
 
     private int getLastVisibleRow() {
@@ -488,21 +649,88 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
     }
 
     private void stopLogging() {
-        DeviceManager.getInstance().stopLogging(device);
+        for (Device device : deviceList) stopLogging(device);
+    }
+
+    private void stopLogging(Device device) {
+        DeviceManager.getInstance().stopLogging(device, getLogListener(device));
+        LogPipeline pipeline = pipelineMap.remove(device.serial);
+        if (pipeline != null) pipeline.stop();
     }
 
+    /**
+     * start logging for each online device that isn't already logging
+     */
     private void startLogging() {
-        if (device.isOnline && !DeviceManager.getInstance().isLogging(device)) {
-            Long startTime = model.getLastLogTime();
+        for (Device device : deviceList) {
+            if (!device.isOnline) {
+                stopLogging(device);
+                continue;
+            }
+            if (DeviceManager.getInstance().isLogging(device, getLogListener(device))) continue;
+
+            // continue from last log received from this device
+            Long startTime = logMerger != null ? logMerger.getLastTimestamp(device.serial) : model.getLastLogTime();
             if (startTime == null) {
                 // by default only display logs from the last few hours
                 // - can speed up initial launch
                 startTime = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2);
             }
-            DeviceManager.getInstance().startLogging(device, startTime, this);
+            LogPipeline pipeline = pipelineMap.remove(device.serial);
+            if (pipeline != null) pipeline.stop();
+            List<String> filterArgs = getFilterArgs(device);
+            filterArgsMap.put(device.serial, filterArgs);
+            pipeline = DeviceManager.getInstance().startLogging(device, startTime, filterArgs, getLogListener(device));
+            pipelineMap.put(device.serial, pipeline);
         }
     }
 
+    /**
+     * @return logcat arguments so device only sends lines that can match current filter (if enabled)
+     */
+    private List<String> getFilterArgs(Device device) {
+        if (!PreferenceUtils.getPreference(PreferenceUtils.PrefBoolean.PREF_LOGCAT_PUSHDOWN)) return List.of();
+        return LogcatArgs.build(sorter.getFilter(), model.getProcessMap(device.serial), model.getTagSet(), device.getSdk());
+    }
+
+    /**
+     * restart logging on devices where filter (or app pids it uses) no longer matches what device was started with
+     * NOTE: lines are only added from where each device left off
+     */
+    private void restartFilteredLogging() {
+        boolean isRestarted = false;
+        for (Device device : deviceList) {
+            if (!pipelineMap.containsKey(device.serial)) continue;
+            if (getFilterArgs(device).equals(filterArgsMap.get(device.serial))) continue;
+            stopLogging(device);
+            isRestarted = true;
+        }
+        if (isRestarted) startLogging();
+    }
+
+    /**
+     * @return listener for logs from this device (merged view: goes through merger first)
+     */
+    private DeviceManager.DeviceLogListener getLogListener(Device device) {
+        if (logMerger == null) return this;
+        return listenerMap.computeIfAbsent(device.serial, this::createMergedListener);
+    }
+
+    private DeviceManager.DeviceLogListener createMergedListener(String serial) {
+        LogPipeline.Listener source = logMerger.addSource(serial);
+        return new DeviceManager.DeviceLogListener() {
+            @Override
+            public void handleLogEntries(List<LogEntry> logEntryList) {
+                source.handleLogEntries(logEntryList);
+            }
+
+            @Override
+            public void handleProcessMap(String serial, Map<String, String> processMap) {
+                LogsScreen.this.handleProcessMap(serial, processMap);
+            }
+        };
+    }
+
     private void scrollToFollow() {
         if (autoScrollCheckBox.isSelected()) {
             table.scrollToBottom();
@@ -521,6 +749,29 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
                 msg += " / " + totalRows;
             }
         }
+        if (model.getSearchText() != null) {
+            msg += String.format("  |  %,d matches", model.getSearchCount());
+            // NOTE: rows from disk history aren't searched
+            if (model.getMemoryFirstRow() > 0) msg += " (in memory)";
+        }
+        if (!pipelineMap.isEmpty()) {
+            // ingestion stats: lines/sec, how far behind display is, lines dropped when display couldn't keep up
+            // NOTE: totals for all devices; lag is the slowest device
+            double linesPerSec = 0;
+            long lagMs = 0;
+            long numDropped = 0;
+            for (LogPipeline pipeline : pipelineMap.values()) {
+                linesPerSec += pipeline.getLinesPerSec();
+                lagMs = Math.max(lagMs, pipeline.getLagMs());
+                numDropped += pipeline.getNumDropped();
+            }
+            msg += String.format("  |  %,.0f lines/s, lag %dms", linesPerSec, lagMs);
+            if (numDropped > 0) msg += String.format(", dropped %,d", numDropped);
+        }
+        if (logExporter != null) {
+            // NOTE: new lines aren't exported; only the ones showing when export started
+            msg += String.format("  |  exporting %d%% of %,d lines", logExporter.getPercent(), logExporter.getNumLines());
+        }
         statusBar.setLeftLabel(msg);
     }
 
@@ -535,6 +786,8 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
         // toolbar.addSeparator(new Dimension(10, 0));
 
         searchField = new HintTextField(HINT_SEARCH, this::doSearch);
+        // [ENTER] = find next, [SHIFT + ENTER] = find previous
+        searchField.addActionListener(e -> findSearchRow((e.getModifiers() & ActionEvent.SHIFT_MASK) == 0));
         searchField.setPreferredSize(new Dimension(250, 30));
         searchField.setMinimumSize(new Dimension(10, 30));
         searchField.setMaximumSize(new Dimension(250, 30));
@@ -546,7 +799,10 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
     }
 
     private void clearLogs() {
+        // lines not shown yet were received before clear
+        pendingList.clear();
         model.clearLogs();
+        refreshUi();
     }
 
     private void toggleLoggingButton() {
@@ -572,6 +828,35 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
         } else {
             model.setSearchText(text);
         }
+        table.repaint();
+        refreshUi();
+    }
+
+    /**
+     * select next/previous visible row containing search text (wraps around)
+     */
+    private void findSearchRow(boolean isForward) {
+        if (model.getSearchCount() == 0) return;
+        int selectedRow = table.getSelectedRow();
+        int row = selectedRow >= 0 ? table.convertRowIndexToModel(selectedRow) : -1;
+        boolean isWrapped = false;
+        while (true) {
+            row = model.findSearchRow(row, isForward);
+            if (row < 0) {
+                if (isWrapped) return;
+                // start over from first/last row
+                isWrapped = true;
+                continue;
+            }
+            // skip rows hidden by filter
+            int viewRow = table.convertRowIndexToView(row);
+            if (viewRow < 0) continue;
+            // stop following new logs so selected row stays in view
+            autoScrollCheckBox.setSelected(false);
+            table.setRowSelectionInterval(viewRow, viewRow);
+            table.scrollRectToVisible(table.getCellRect(viewRow, 0, true));
+            return;
+        }
     }
 
     private void setupFilterList() {
@@ -649,39 +934,58 @@ public class LogsScreen extends BaseScreen implements DeviceManager.DeviceLogLis
         }
 
         if (TextUtils.notEmpty(text)) {
-            LogFilter searchFilter;
-            if (TextUtils.indexOf(text, ':') >= 0) {
-                searchFilter = LogFilter.parse(text);
-            } else {
-                searchFilter = LogFilter.parse("*:*" + text + "*");
+            try {
+                // NOTE: plain text (no column) matches tag, app or message containing it
+                LogFilter searchFilter = LogFilter.parse(text);
+                log.debug("filterDevices: {}", searchFilter);
+                list.add(searchFilter);
+                if (!sb.isEmpty()) sb.append(" && ");
+                sb.append(text);
+            } catch (IllegalArgumentException e) {
+                // keep showing rows for other filters until text is valid
+                if (!sb.isEmpty()) sb.append(" && ");
+                sb.append("invalid filter: ").append(e.getMessage());
             }
-            log.debug("filterDevices: {}", searchFilter);
-            list.add(searchFilter);
-            if (!sb.isEmpty()) sb.append(" && ");
-            sb.append(text);
         }
 
         sorter.setFilter(list.toArray(new LogFilter[0]));
+        if (PreferenceUtils.getPreference(PreferenceUtils.PrefBoolean.PREF_LOGCAT_PUSHDOWN)) restartTimer.restart();
 
         // TODO: set label
         statusBar.setCenterLabel(sb.toString());
-        model.fireTableDataChanged();
+        refreshUi();
     }
 
     @Override
     public void handleLogEntries(List<LogEntry> logEntryList) {
-        // save log entries as they'll get cleared after this method returns
-        List<LogEntry> logList = new ArrayList<>(logEntryList);
-        SwingUtilities.invokeLater(() -> {
-            model.addLogEntry(logList);
-            scrollToFollow();
-            refreshUi();
-        });
+        // NOTE: called on Swing thread; list is re-used after this returns
+        pendingList.addAll(logEntryList);
+        if (!frameTimer.isRunning()) frameTimer.start();
+    }
+
+    /**
+     * add lines received since last frame, then scroll and update status once
+     * NOTE: table/status are only updated at most once per frame however fast lines arrive
+     */
+    private void handleFrame() {
+        if (pendingList.isEmpty()) {
+            // nothing new; next line received starts timer again
+            frameTimer.stop();
+            return;
+        }
+        model.addLogEntry(pendingList);
+        pendingList.clear();
+        scrollToFollow();
+        refreshUi();
     }
 
     @Override
-    public void handleProcessMap(Map<String, String> processMap) {
-        SwingUtilities.invokeLater(() -> model.setProcessMap(processMap));
+    public void handleProcessMap(String serial, Map<String, String> processMap) {
+        SwingUtilities.invokeLater(() -> {
+            model.setProcessMap(serial, processMap);
+            // app filter could now be a different pid
+            restartFilteredLogging();
+        });
     }
 
 }
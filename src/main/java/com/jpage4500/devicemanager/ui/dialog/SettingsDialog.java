@@ -2,8 +2,10 @@ package com.jpage4500.devicemanager.ui.dialog;
 
 import com.jpage4500.devicemanager.logging.AppLoggerFactory;
 import com.jpage4500.devicemanager.logging.Log;
+import com.jpage4500.devicemanager.manager.DeviceManager;
 import com.jpage4500.devicemanager.table.DeviceTableModel;
 import com.jpage4500.devicemanager.ui.DeviceScreen;
+import com.jpage4500.devicemanager.ui.LogsScreen;
 import com.jpage4500.devicemanager.ui.views.CheckBoxList;
 import com.jpage4500.devicemanager.utils.GsonHelper;
 import com.jpage4500.devicemanager.utils.PreferenceUtils;
@@ -54,6 +56,19 @@ public class SettingsDialog extends JPanel {
             AppLoggerFactory logger = (AppLoggerFactory) LoggerFactory.getILoggerFactory();
             logger.setFileLogLevel(isChecked ? Log.DEBUG : Log.INFO);
         });
+        addCheckbox("Live battery status", PreferenceUtils.PrefBoolean.PREF_STREAM_DEVICE_STATUS, true, isChecked -> {
+            DeviceManager.getInstance().setStatusStreamEnabled(isChecked);
+        });
+        // NOTE: takes effect next time logging is started
+        addCheckbox("Binary logcat (faster)", PreferenceUtils.PrefBoolean.PREF_BINARY_LOGCAT, false, null);
+        // NOTE: takes effect next time logs window is opened
+        addCheckbox("Save device logs", PreferenceUtils.PrefBoolean.PREF_SAVE_LOGS, true, null);
+        // NOTE: lines filtered out on the device are never received (clearing the filter won't bring them back)
+        addCheckbox("Filter logs on device (faster over Wi-Fi)", PreferenceUtils.PrefBoolean.PREF_LOGCAT_PUSHDOWN, false, null);
+        // NOTE: takes effect on next launch; requires Java 21+ (ignored otherwise)
+        addCheckbox("Use virtual threads (restart)", PreferenceUtils.PrefBoolean.PREF_VIRTUAL_THREADS, false, null);
+        // NOTE: takes effect next time logs window is opened
+        addNumber("Logs refresh rate (per second)", PreferenceUtils.PrefInt.PREF_LOGS_FPS, LogsScreen.DEFAULT_FPS, 1, 60);
 
         addButton("View Logs", "VIEW", this::viewLogs);
         addButton("Reset Preferences", "RESET", this::resetPreferences);
@@ -111,6 +126,16 @@ public class SettingsDialog extends JPanel {
 
     }
 
+    private void addNumber(String label, PreferenceUtils.PrefInt pref, int defaultValue, int min, int max) {
+        add(new JLabel(label));
+
+        int value = PreferenceUtils.getPreference(pref, defaultValue);
+        JSpinner spinner = new JSpinner(new SpinnerNumberModel(Math.max(min, Math.min(max, value)), min, max, 1));
+        add(spinner, "align center, wrap");
+
+        spinner.addChangeListener(e -> PreferenceUtils.setPreference(pref, (Integer) spinner.getValue()));
+    }
+
     private void resetPreferences() {
         int rc = JOptionPane.showConfirmDialog(this, "Reset All Preferences?", "Reset Preferences", JOptionPane.YES_NO_OPTION);
         if (rc != JOptionPane.YES_OPTION) return;
@@ -38,6 +38,11 @@ public class PreferenceUtils {
         PREF_AUTO_FORMAT_MESSAGE,
         PREF_WRAP_MESSAGE,
         PREF_EXIT_TO_TRAY,
+        PREF_VIRTUAL_THREADS,
+        PREF_STREAM_DEVICE_STATUS,
+        PREF_BINARY_LOGCAT,
+        PREF_SAVE_LOGS,
+        PREF_LOGCAT_PUSHDOWN,
     }
 
     /**
@@ -46,6 +51,7 @@ public class PreferenceUtils {
     public enum PrefInt {
         PREF_LAST_DEVICE_PORT,
         PREF_FONT_SIZE_OFFSET,
+        PREF_LOGS_FPS,
     }
 
     public static String getPreference(Pref pref) {
@@ -83,6 +83,13 @@ public class Utils {
         return System.getProperty("user.home");
     }
 
+    /**
+     * @return folder for data saved by app (~/.device_manager)
+     */
+    public static File getAppDataFolder() {
+        return new File(getUserHomeFolder(), ".device_manager");
+    }
+
     public static String getDownloadFolder() {
         String downloadFolder = PreferenceUtils.getPreference(PreferenceUtils.Pref.PREF_DOWNLOAD_FOLDER);
         if (TextUtils.isEmpty(downloadFolder)) {
@@ -4,44 +4,117 @@ import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
+/**
+ * Translates "\r\n" line endings (added by the device pty) to "\n".
+ *
+ * <p>Bulk reads filter the whole buffer in place; a '\r' at the end of a read is held back until the next
+ * byte shows whether it starts a "\r\n" pair.</p>
+ */
 public class AdbFilterInputStream extends FilterInputStream {
+    private static final byte CR = 0x0d;
+    private static final byte LF = 0x0a;
+
+    // byte read ahead but not yet returned, or -1
+    private int held = -1;
+
     public AdbFilterInputStream(InputStream inputStream) {
         super(inputStream);
     }
 
     @Override
     public int read() throws IOException {
-        int b1 = in.read();
-        if (b1 == 0x0d) {
-            in.mark(1);
-            int b2 = in.read();
-            if (b2 == 0x0a) {
+        int b1 = next();
+        if (b1 == CR) {
+            int b2 = next();
+            if (b2 == LF) {
                 return b2;
             }
-            in.reset();
+            held = b2;
         }
         return b1;
     }
 
     @Override
     public int read(byte[] buffer, int offset, int length) throws IOException {
-        int n = 0;
-        for (int i = 0; i < length; i++) {
+        if (length == 0) return 0;
+        // no room to hold back a '\r' and still return something
+        if (length == 1) {
             int b = read();
-            if (b == -1) return n == 0 ? -1 : n;
-            buffer[offset + n] = (byte) b;
-            n++;
+            if (b == -1) return -1;
+            buffer[offset] = (byte) b;
+            return 1;
+        }
+
+        while (true) {
+            int n = 0;
+            if (held != -1) {
+                buffer[offset] = (byte) held;
+                held = -1;
+                n = 1;
+            }
+            int numRead = in.read(buffer, offset + n, length - n);
+            boolean isEof = numRead == -1;
+            if (isEof) {
+                if (n == 0) return -1;
+            } else {
+                n += numRead;
+            }
 
-            // Return as soon as no more data is available (and at least one byte was read)
-            if (in.available() <= 0) {
-                return n;
+            int end = offset + n;
+            int w = offset;
+            for (int i = offset; i < end; i++) {
+                byte b = buffer[i];
+                if (b == CR && i + 1 < end && buffer[i + 1] == LF) continue;
+                buffer[w++] = b;
             }
+            // trailing '\r' might be followed by '\n' in the next read
+            if (!isEof && buffer[w - 1] == CR) {
+                held = CR;
+                w--;
+            }
+            // only a '\r' was read; block for the byte after it
+            if (w > offset) return w - offset;
         }
-        return n;
     }
 
     @Override
     public int read(byte[] buffer) throws IOException {
         return read(buffer, 0, buffer.length);
     }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) return 0;
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long remaining = n;
+        while (remaining > 0) {
+            int numRead = read(buffer, 0, (int) Math.min(remaining, buffer.length));
+            if (numRead < 0) break;
+            remaining -= numRead;
+        }
+        return n - remaining;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private int next() throws IOException {
+        if (held != -1) {
+            int b = held;
+            held = -1;
+            return b;
+        }
+        return in.read();
+    }
 }
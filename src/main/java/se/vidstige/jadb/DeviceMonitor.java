@@ -0,0 +1,204 @@
+package se.vidstige.jadb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tracks connected devices using "host:track-devices" on a {@link StreamSelector} thread.
+ *
+ * <p>Each device list sent by the server is compared with the previous one and only the differences are
+ * reported. If the connection to the ADB server is lost (eg: server restarted) the monitor keeps trying to
+ * reconnect, backing off up to {@link #MAX_RETRY_MS}.</p>
+ *
+ * <p>Connecting and the "host:track-devices" handshake are blocking, so they run on a separate thread; only the
+ * established stream is read on the selector thread.</p>
+ *
+ * <p>All listener methods are called on the selector thread and must not block.</p>
+ */
+public class DeviceMonitor implements Closeable {
+    private static final long MIN_RETRY_MS = 500;
+    private static final long MAX_RETRY_MS = 10_000;
+    // limit how long a stalled ADB server can hold up the connect thread
+    private static final int HANDSHAKE_TIMEOUT_MS = 5_000;
+
+    public interface Listener {
+        void onDeviceAdded(JadbDevice device, JadbDevice.State state);
+
+        void onDeviceStateChanged(JadbDevice device, JadbDevice.State oldState, JadbDevice.State state);
+
+        void onDeviceRemoved(JadbDevice device);
+
+        /**
+         * connected (or reconnected) to the ADB server
+         */
+        void onConnected();
+
+        /**
+         * connection to the ADB server failed or was lost; all devices are now considered offline and the
+         * monitor will keep trying to reconnect
+         */
+        void onDisconnected(Exception e);
+    }
+
+    private final JadbConnection connection;
+    private final StreamSelector selector;
+    private final Listener listener;
+    // blocking connect + handshake
+    private final ExecutorService connectExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "adb-monitor-connect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // only accessed on selector thread
+    private final Map<String, JadbDevice> deviceMap = new HashMap<>();
+    private final Map<String, JadbDevice.State> stateMap = new HashMap<>();
+    private StreamSelector.Registration registration;
+    private volatile boolean isConnected;
+    private boolean isDisconnectReported;
+    private long retryMs = MIN_RETRY_MS;
+    private volatile boolean isClosed;
+
+    DeviceMonitor(JadbConnection connection, StreamSelector selector, Listener listener) {
+        this.connection = connection;
+        this.selector = selector;
+        this.listener = listener;
+    }
+
+    public void start() {
+        connectExecutor.execute(this::connect);
+    }
+
+    @Override
+    public void close() {
+        isClosed = true;
+        connectExecutor.shutdown();
+        selector.execute(() -> {
+            if (registration != null) registration.close();
+            registration = null;
+        });
+    }
+
+    /**
+     * open "host:track-devices" (connect thread); the result is handled on the selector thread
+     */
+    private void connect() {
+        if (isClosed) return;
+        Transport transport = null;
+        try {
+            transport = connection.createTransport();
+            if (transport.getChannel() != null) transport.getChannel().socket().setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+            transport.send("host:track-devices");
+            transport.verifyResponse();
+            if (transport.getChannel() != null) transport.getChannel().socket().setSoTimeout(0);
+        } catch (IOException | JadbException e) {
+            closeQuietly(transport);
+            selector.execute(() -> handleDisconnect(e));
+            return;
+        }
+        Transport connected = transport;
+        selector.execute(() -> handleConnected(connected));
+    }
+
+    private void handleConnected(Transport transport) {
+        if (isClosed) {
+            closeQuietly(transport);
+            return;
+        }
+        try {
+            registration = selector.register(transport, new MessageStreamListener() {
+                @Override
+                public void onMessage(String message) {
+                    handleDeviceList(message);
+                }
+
+                @Override
+                public void onClosed(IOException e) {
+                    handleDisconnect(e != null ? e : new SocketException("ADB server closed connection"));
+                }
+            });
+        } catch (IOException e) {
+            closeQuietly(transport);
+            handleDisconnect(e);
+            return;
+        }
+        isConnected = true;
+        isDisconnectReported = false;
+        retryMs = MIN_RETRY_MS;
+        listener.onConnected();
+    }
+
+    private static void closeQuietly(Transport transport) {
+        if (transport == null) return;
+        try {
+            transport.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void handleDisconnect(Exception e) {
+        registration = null;
+        if (isClosed) return;
+        isConnected = false;
+        // keep known devices (as offline) so reconnecting reports state changes/removals instead of re-adding
+        stateMap.replaceAll((serial, state) -> JadbDevice.State.Offline);
+        // report once per outage, not for every retry
+        if (!isDisconnectReported) {
+            isDisconnectReported = true;
+            listener.onDisconnected(e);
+        }
+        selector.schedule(() -> {
+            if (!isClosed) connectExecutor.execute(this::connect);
+        }, retryMs);
+        retryMs = Math.min(retryMs * 2, MAX_RETRY_MS);
+    }
+
+    /**
+     * @param body "SERIAL\tSTATE\n" per device
+     */
+    private void handleDeviceList(String body) {
+        Set<String> foundSet = new HashSet<>();
+        int start = 0;
+        while (start < body.length()) {
+            int end = body.indexOf('\n', start);
+            if (end < 0) end = body.length();
+            int tab = body.indexOf('\t', start);
+            if (tab > start && tab < end) {
+                String serial = body.substring(start, tab);
+                JadbDevice.State state = JadbDevice.convertState(body.substring(tab + 1, end).trim());
+                foundSet.add(serial);
+                handleDevice(serial, state);
+            }
+            start = end + 1;
+        }
+
+        for (Iterator<Map.Entry<String, JadbDevice>> iterator = deviceMap.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<String, JadbDevice> entry = iterator.next();
+            if (foundSet.contains(entry.getKey())) continue;
+            iterator.remove();
+            stateMap.remove(entry.getKey());
+            listener.onDeviceRemoved(entry.getValue());
+        }
+    }
+
+    private void handleDevice(String serial, JadbDevice.State state) {
+        JadbDevice device = deviceMap.get(serial);
+        if (device == null) {
+            device = new JadbDevice(serial, connection);
+            deviceMap.put(serial, device);
+            stateMap.put(serial, state);
+            listener.onDeviceAdded(device, state);
+            return;
+        }
+        JadbDevice.State oldState = stateMap.put(serial, state);
+        if (oldState != state) listener.onDeviceStateChanged(device, oldState, state);
+    }
+
+    public boolean isConnected() {
+        return isConnected;
+    }
+}
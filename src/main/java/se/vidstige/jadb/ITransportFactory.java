@@ -7,4 +7,36 @@ import java.io.IOException;
  */
 public interface ITransportFactory {
     Transport createTransport() throws IOException;
+
+    /**
+     * Create a transport that is already switched to the given device.
+     *
+     * @param serial device serial, or null for any device
+     * @return transport ready to accept a device service request (e.g. "shell:")
+     */
+    default Transport createTransport(String serial) throws IOException, JadbException {
+        Transport transport = createTransport();
+        // Do not use try-with-resources here. We want to return unclosed Transport and it is up to caller
+        // to close it. Here we close it only in case of exception.
+        try {
+            transport.send(serial == null ? "host:transport-any" : "host:transport:" + serial);
+            transport.verifyResponse();
+        } catch (IOException | JadbException e) {
+            transport.close();
+            throw e;
+        }
+        return transport;
+    }
+
+    /**
+     * Create a transport for a long-lived stream (e.g. logcat) that stays open until the caller stops it.
+     *
+     * <p>Factories that limit how many transports are open to a device don't count these; a stream that never
+     * ends would otherwise hold a slot meant for short commands forever.</p>
+     *
+     * @param serial device serial, or null for any device
+     */
+    default Transport createStreamTransport(String serial) throws IOException, JadbException {
+        return createTransport(serial);
+    }
 }
@@ -3,14 +3,14 @@ package se.vidstige.jadb;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.Socket;
 import java.util.ArrayList;
 import java.util.List;
 
 public class JadbConnection implements ITransportFactory {
 
-    private final String host;
-    private final int port;
+    private final TransportPool transportPool;
+    // created on first use
+    private StreamSelector streamSelector;
 
     private static final int DEFAULTPORT = 5037;
 
@@ -19,12 +19,43 @@ public class JadbConnection implements ITransportFactory {
     }
 
     public JadbConnection(String host, int port) {
-        this.host = host;
-        this.port = port;
+        this.transportPool = new TransportPool(host, port);
     }
 
     public Transport createTransport() throws IOException {
-        return new Transport(new Socket(host, port));
+        return transportPool.createTransport();
+    }
+
+    @Override
+    public Transport createTransport(String serial) throws IOException, JadbException {
+        return transportPool.createTransport(serial);
+    }
+
+    @Override
+    public Transport createStreamTransport(String serial) throws IOException, JadbException {
+        return transportPool.createStreamTransport(serial);
+    }
+
+    public TransportPool getTransportPool() {
+        return transportPool;
+    }
+
+    /**
+     * @return selector thread shared by long-lived streams of this connection
+     */
+    public synchronized StreamSelector getStreamSelector() throws IOException {
+        if (streamSelector == null) streamSelector = new StreamSelector();
+        return streamSelector;
+    }
+
+    /**
+     * release pooled connections to the ADB server and stop any streams on the selector thread
+     */
+    public void close() {
+        synchronized (this) {
+            if (streamSelector != null) streamSelector.close();
+        }
+        transportPool.shutdown();
     }
 
     public String getHostVersion() throws IOException, JadbException {
@@ -65,6 +96,14 @@ public class JadbConnection implements ITransportFactory {
         return new DeviceWatcher(transport, listener, this);
     }
 
+    /**
+     * create a monitor that reports devices as they're added, removed or change state; call
+     * {@link DeviceMonitor#start()} to start it
+     */
+    public DeviceMonitor createDeviceMonitor(DeviceMonitor.Listener listener) throws IOException {
+        return new DeviceMonitor(this, getStreamSelector(), listener);
+    }
+
     public List<JadbDevice> parseDevices(String body) {
         String[] lines = body.split("\n");
         ArrayList<JadbDevice> devices = new ArrayList<>(lines.length);
@@ -5,6 +5,9 @@ import se.vidstige.jadb.managers.Bash;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
@@ -28,6 +31,10 @@ public class JadbDevice {
     private final String serial;
     private final ITransportFactory transportFactory;
     private static final int DEFAULT_TCPIP_PORT = 5555;
+    public static final String FEATURE_SHELL_V2 = "shell_v2";
+
+    // features reported by the device's adbd; fetched once
+    private volatile Set<String> featureSet;
 
     JadbDevice(String serial, ITransportFactory tFactory) {
         this.serial = serial;
@@ -43,7 +50,7 @@ public class JadbDevice {
         this.transportFactory = tFactory;
     }
 
-    private State convertState(String type) {
+    static State convertState(String type) {
         switch (type) {
             case "device":
                 return State.Device;
@@ -69,16 +76,12 @@ public class JadbDevice {
     }
 
     private Transport getTransport() throws IOException, JadbException {
-        Transport transport = transportFactory.createTransport();
-        // Do not use try-with-resources here. We want to return unclosed Transport and it is up to caller
-        // to close it. Here we close it only in case of exception.
-        try {
-            send(transport, serial == null ? "host:transport-any" : "host:transport:" + serial);
-        } catch (IOException | JadbException e) {
-            transport.close();
-            throw e;
-        }
-        return transport;
+        // NOTE: caller must close the returned Transport (or the stream it hands out)
+        return transportFactory.createTransport(serial);
+    }
+
+    private Transport getStreamTransport() throws IOException, JadbException {
+        return transportFactory.createStreamTransport(serial);
     }
 
     public String getSerial() {
@@ -92,6 +95,71 @@ public class JadbDevice {
         }
     }
 
+    /**
+     * @return features supported by the device's adbd (e.g. "shell_v2", "cmd"); cached after
+     * the first call. Empty if they can't be read (older adb server or device), which is cached too
+     */
+    public Set<String> getFeatures() {
+        Set<String> features = featureSet;
+        if (features != null) return features;
+        try (Transport transport = transportFactory.createTransport()) {
+            send(transport, serial == null ? "host:features" : "host-serial:" + serial + ":features");
+            features = new HashSet<>(Arrays.asList(transport.readString().trim().split(",")));
+        } catch (IOException | JadbException e) {
+            // NOTE: only legacy services are used from now on; not asked again
+            features = Collections.emptySet();
+        }
+        featureSet = features;
+        return features;
+    }
+
+    public boolean hasFeature(String feature) {
+        return getFeatures().contains(feature);
+    }
+
+    /**
+     * <p>Execute a shell command and wait for it to finish.</p>
+     *
+     * <p>Uses the "shell,v2" service when the device supports it, which keeps stdout and stderr separate,
+     * reports the exit code and doesn't translate line endings. Otherwise falls back to
+     * {@link #executeShell(String, String...)} (output combined, exit code unknown).</p>
+     *
+     * @param command main command to run. E.g. "ls"
+     * @param args    arguments to the command.
+     */
+    public ShellResponse executeShellCommand(String command, String... args) throws IOException, JadbException {
+        StringBuilder shellLine = buildCmdLine(command, args);
+        if (!hasFeature(FEATURE_SHELL_V2)) {
+            List<String> outputList;
+            try (InputStream inputStream = executeShell(shellLine.toString())) {
+                outputList = readLines(inputStream);
+            }
+            return new ShellResponse(outputList, ShellResponse.EXIT_CODE_UNKNOWN);
+        }
+
+        try (Transport transport = getTransport()) {
+            ShellV2Transport shell = transport.startShellV2(shellLine.toString());
+            ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+            ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+            int exitCode = shell.readResponseTo(stdout, stderr);
+            return new ShellResponse(readLines(stdout), readLines(stderr), exitCode);
+        }
+    }
+
+    private static List<String> readLines(ByteArrayOutputStream output) throws IOException {
+        return readLines(new ByteArrayInputStream(output.toByteArray()));
+    }
+
+    private static List<String> readLines(InputStream inputStream) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        List<String> lineList = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineList.add(line);
+        }
+        return lineList;
+    }
+
     /**
      * <p>Execute a shell command.</p>
      *
@@ -104,12 +172,112 @@ public class JadbDevice {
      * @throws JadbException
      */
     public InputStream executeShell(String command, String... args) throws IOException, JadbException {
-        Transport transport = getTransport();
+        return executeShell(getTransport(), command, args);
+    }
+
+    /**
+     * <p>Execute a long-running shell command (eg: logcat) that runs until the returned stream is closed.</p>
+     *
+     * <p>Same as {@link #executeShell(String, String...)}, but the connection isn't counted against the per-device
+     * transport limit (see {@link ITransportFactory#createStreamTransport(String)}).</p>
+     */
+    public InputStream executeShellStream(String command, String... args) throws IOException, JadbException {
+        return executeShell(getStreamTransport(), command, args);
+    }
+
+    private InputStream executeShell(Transport transport, String command, String... args) throws IOException, JadbException {
         StringBuilder shellLine = buildCmdLine(command, args);
-        send(transport, "shell:" + shellLine.toString());
+        try {
+            send(transport, "shell:" + shellLine.toString());
+        } catch (IOException | JadbException e) {
+            transport.close();
+            throw e;
+        }
         return new AdbFilterInputStream(new BufferedInputStream(transport.getInputStream()));
     }
 
+    /**
+     * <p>Run several shell commands over a single shell session.</p>
+     *
+     * <p>Each command is followed by a marker line carrying its index and exit code, which is used to split
+     * the output back into one response per command. Commands are passed to the shell as-is (no quoting) and
+     * run in order, regardless of whether previous commands failed.</p>
+     *
+     * @param commandList full command lines, e.g. "dumpsys battery"
+     * @return one response per command, in the same order; commands that didn't finish (e.g. connection
+     * dropped) have an exit code of {@link ShellResponse#EXIT_CODE_UNKNOWN}
+     */
+    public List<ShellResponse> executeShellBatch(List<String> commandList) throws IOException, JadbException {
+        if (commandList.isEmpty()) return new ArrayList<>();
+        // unique per call so command output can't be mistaken for a marker
+        String marker = "__jadb_" + Long.toHexString(new Random().nextLong() & Long.MAX_VALUE);
+        StringBuilder shellLine = new StringBuilder();
+        for (int i = 0; i < commandList.size(); i++) {
+            if (i > 0) shellLine.append(" ; ");
+            shellLine.append("{ ").append(commandList.get(i)).append(" ; } ; ");
+            // NOTE: echo, not printf (older shells don't have printf)
+            shellLine.append("echo \"").append(marker).append(' ').append(i).append(" $?\"");
+        }
+
+        List<ShellResponse> responseList = new ArrayList<>(commandList.size());
+        List<String> outputList = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(executeShell(shellLine.toString()), StandardCharsets.UTF_8))) {
+            String line;
+            while (responseList.size() < commandList.size() && (line = reader.readLine()) != null) {
+                int index = line.indexOf(marker);
+                if (index < 0) {
+                    outputList.add(line);
+                    continue;
+                }
+                // output that didn't end with a newline is followed directly by the marker
+                if (index > 0) outputList.add(line.substring(0, index));
+                responseList.add(new ShellResponse(outputList, parseExitCode(line.substring(index + marker.length()))));
+                outputList = new ArrayList<>();
+            }
+        }
+        // session ended early; hand back whatever output the interrupted command produced
+        while (responseList.size() < commandList.size()) {
+            responseList.add(new ShellResponse(outputList, ShellResponse.EXIT_CODE_UNKNOWN));
+            outputList = new ArrayList<>();
+        }
+        return responseList;
+    }
+
+    /**
+     * @param markerArgs remainder of a batch marker line: " INDEX EXIT_CODE"
+     */
+    private static int parseExitCode(String markerArgs) {
+        String[] argArr = markerArgs.trim().split(" ");
+        try {
+            return Integer.parseInt(argArr[argArr.length - 1]);
+        } catch (NumberFormatException e) {
+            return ShellResponse.EXIT_CODE_UNKNOWN;
+        }
+    }
+
+    /**
+     * <p>Execute a long-running shell command (eg: logcat) and deliver its output on a selector thread.</p>
+     *
+     * <p>Output is the raw shell output (stdout/stderr combined, "\r\n" line endings on older devices); use a
+     * {@link LineStreamListener} to get lines.</p>
+     *
+     * @return registration to close to stop the command
+     */
+    public Closeable executeShell(StreamSelector selector, StreamListener listener, String command, String... args) throws IOException, JadbException {
+        return startStream(selector, listener, "shell:" + buildCmdLine(command, args));
+    }
+
+    private Closeable startStream(StreamSelector selector, StreamListener listener, String service) throws IOException, JadbException {
+        Transport transport = getStreamTransport();
+        try {
+            send(transport, service);
+            return selector.register(transport, listener);
+        } catch (IOException | JadbException e) {
+            transport.close();
+            throw e;
+        }
+    }
+
     /**
      * @deprecated Use InputStream executeShell(String command, String... args) method instead. Together with
      * Stream.copy(in, out), it is possible to achieve the same effect.
@@ -141,9 +309,28 @@ public class JadbDevice {
      * @throws JadbException
      */
     public InputStream execute(String command, String... args) throws IOException, JadbException {
-        Transport transport = getTransport();
+        return execute(getTransport(), command, args);
+    }
+
+    /**
+     * <p>Execute a long-running command with raw binary output (eg: "logcat -B") that runs until the returned
+     * stream is closed.</p>
+     *
+     * <p>Same as {@link #execute(String, String...)}, but the connection isn't counted against the per-device
+     * transport limit (see {@link ITransportFactory#createStreamTransport(String)}).</p>
+     */
+    public InputStream executeStream(String command, String... args) throws IOException, JadbException {
+        return execute(getStreamTransport(), command, args);
+    }
+
+    private InputStream execute(Transport transport, String command, String... args) throws IOException, JadbException {
         StringBuilder shellLine = buildCmdLine(command, args);
-        send(transport, "exec:" + shellLine.toString());
+        try {
+            send(transport, "exec:" + shellLine.toString());
+        } catch (IOException | JadbException e) {
+            transport.close();
+            throw e;
+        }
         return new BufferedInputStream(transport.getInputStream());
     }
 
@@ -212,8 +399,16 @@ public class JadbDevice {
     }
 
     public void push(File local, RemoteFile remote) throws IOException, JadbException {
-        try (FileInputStream fileStream = new FileInputStream(local)) {
-            push(fileStream, TimeUnit.MILLISECONDS.toSeconds(local.lastModified()), DEFAULT_MODE, remote);
+        long lastModified = TimeUnit.MILLISECONDS.toSeconds(local.lastModified());
+        try (FileChannel fileChannel = FileChannel.open(local.toPath(), StandardOpenOption.READ);
+             Transport transport = getTransport()) {
+            SyncTransport sync = transport.startSync();
+            sync.send("SEND", remote.getPath() + "," + DEFAULT_MODE);
+
+            sync.sendFile(fileChannel);
+
+            sync.sendStatus("DONE", (int) lastModified);
+            sync.verifyStatus();
         }
     }
 
@@ -227,28 +422,34 @@ public class JadbDevice {
     }
 
     public void pull(RemoteFile remote, File local) throws IOException, JadbException {
-        try (FileOutputStream fileStream = new FileOutputStream(local)) {
-            pull(remote, fileStream);
+        try (FileChannel fileChannel = FileChannel.open(local.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+             Transport transport = getTransport()) {
+            SyncTransport sync = transport.startSync();
+            sync.send("RECV", remote.getPath());
+
+            sync.readChunksTo(fileChannel);
         }
     }
 
     public BufferedImage screencap() throws IOException, JadbException {
-        InputStream stdout = this.execute("screencap", "-p");
-        return ImageIO.read(stdout);
+        try (InputStream stdout = this.execute("screencap", "-p")) {
+            return ImageIO.read(stdout);
+        }
     }
 
     public String runPackage(String packageName) throws IOException, JadbException {
         String cmd = String.format("monkey -p %s 1", packageName);
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            InputStream is = this.executeShell(cmd);
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+             InputStream is = this.executeShell(cmd)) {
             Stream.copy(is, baos);
             return baos.toString();
         }
     }
 
     public HashSet<String> listInstalledPackages() throws IOException, JadbException {
-        try (ByteArrayOutputStream result = new ByteArrayOutputStream()) {
-            InputStream stdout = this.executeShell("pm list packages 2>/dev/null");
+        try (ByteArrayOutputStream result = new ByteArrayOutputStream();
+             InputStream stdout = this.executeShell("pm list packages 2>/dev/null")) {
             Stream.copy(stdout, result);
 
             String installedStr = result.toString();
@@ -262,8 +463,8 @@ public class JadbDevice {
     }
 
     public HashSet<String> listRunningPackages() throws IOException, JadbException {
-        try (ByteArrayOutputStream result = new ByteArrayOutputStream()) {
-            InputStream stdout = this.executeShell("ps | grep u0_");
+        try (ByteArrayOutputStream result = new ByteArrayOutputStream();
+             InputStream stdout = this.executeShell("ps | grep u0_")) {
             Stream.copy(stdout, result);
 
             String installedStr = result.toString();
@@ -303,8 +504,8 @@ public class JadbDevice {
 
     public Boolean isInstalled(String pkgName) throws IOException, JadbException {
         String cmd = String.format("'pm path %s", pkgName);
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            InputStream is = this.executeShell(cmd);
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+             InputStream is = this.executeShell(cmd)) {
             Stream.copy(is, baos);
             return baos.toString().contains("package:");
         }
@@ -312,8 +513,8 @@ public class JadbDevice {
 
     public Boolean istForegroundApp(String pkgName) throws IOException, JadbException {
         String cmd = "dumpsys activity recents | grep 'Recent #0' | cut -d= -f2 | sed 's| .*||' | cut -d '/' -f1";
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            InputStream is = this.executeShell(cmd);
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+             InputStream is = this.executeShell(cmd)) {
             Stream.copy(is, baos);
             String result = baos.toString();
             return result.contains(pkgName);
@@ -0,0 +1,28 @@
+package se.vidstige.jadb;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link StreamListener} that splits text output into lines ("\n" or "\r\n" terminated)
+ */
+public abstract class LineStreamListener implements StreamListener {
+
+    public abstract void onLine(String line);
+
+    @Override
+    public void onData(ByteBuffer buffer) {
+        byte[] data = buffer.array();
+        int start = buffer.arrayOffset() + buffer.position();
+        int end = buffer.arrayOffset() + buffer.limit();
+        int lineStart = start;
+        for (int i = start; i < end; i++) {
+            if (data[i] != '\n') continue;
+            int lineEnd = (i > lineStart && data[i - 1] == '\r') ? i - 1 : i;
+            onLine(new String(data, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+            lineStart = i + 1;
+        }
+        // keep partial line for next time
+        buffer.position(lineStart - buffer.arrayOffset());
+    }
+}
@@ -0,0 +1,31 @@
+package se.vidstige.jadb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link StreamListener} for host services that send a stream of length-prefixed messages
+ * (eg: "host:track-devices")
+ */
+public abstract class MessageStreamListener implements StreamListener {
+
+    public abstract void onMessage(String message);
+
+    @Override
+    public void onData(ByteBuffer buffer) throws IOException {
+        byte[] data = buffer.array();
+        while (buffer.remaining() >= 4) {
+            int start = buffer.arrayOffset() + buffer.position();
+            int length;
+            try {
+                length = Integer.parseInt(new String(data, start, 4, StandardCharsets.US_ASCII), 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("invalid message length: " + e.getMessage());
+            }
+            if (buffer.remaining() < 4 + length) break;
+            onMessage(new String(data, start + 4, length, StandardCharsets.UTF_8));
+            buffer.position(buffer.position() + 4 + length);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package se.vidstige.jadb;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Output and exit code of one shell command
+ */
+public class ShellResponse {
+    public static final int EXIT_CODE_UNKNOWN = -1;
+
+    private final List<String> outputList;
+    private final List<String> errorList;
+    private final int exitCode;
+
+    public ShellResponse(List<String> outputList, int exitCode) {
+        this(outputList, Collections.emptyList(), exitCode);
+    }
+
+    public ShellResponse(List<String> outputList, List<String> errorList, int exitCode) {
+        this.outputList = outputList;
+        this.errorList = errorList;
+        this.exitCode = exitCode;
+    }
+
+    /**
+     * @return output lines; includes stderr when the device doesn't support shell v2
+     */
+    public List<String> getOutputList() {
+        return outputList;
+    }
+
+    /**
+     * @return stderr lines (only available with shell v2)
+     */
+    public List<String> getErrorList() {
+        return errorList;
+    }
+
+    /**
+     * @return exit code of the command, or {@link #EXIT_CODE_UNKNOWN} if the command didn't finish or the
+     * device doesn't report exit codes
+     */
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public boolean isComplete() {
+        return exitCode != EXIT_CODE_UNKNOWN;
+    }
+
+    @Override
+    public String toString() {
+        return "exitCode: " + exitCode + ", output: " + outputList + ", error: " + errorList;
+    }
+}
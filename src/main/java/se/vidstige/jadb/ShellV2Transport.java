@@ -0,0 +1,106 @@
+package se.vidstige.jadb;
+
+import java.io.*;
+
+/**
+ * Packet framing of the "shell,v2" service: 1 byte id, 4 byte little-endian length, payload.
+ *
+ * <p>Unlike the legacy "shell:" service, stdout and stderr arrive as separate packets and the command's exit
+ * code is sent in a final packet.</p>
+ */
+public class ShellV2Transport {
+    public static final int ID_STDIN = 0;
+    public static final int ID_STDOUT = 1;
+    public static final int ID_STDERR = 2;
+    public static final int ID_EXIT = 3;
+    public static final int ID_CLOSE_STDIN = 4;
+    public static final int ID_WINDOW_SIZE_CHANGE = 5;
+
+    private static final int MAX_PAYLOAD_SIZE = 1024 * 64;
+    // largest packet accepted from a device (adbd sends at most 256K; length comes from the connection)
+    private static final int MAX_READ_SIZE = 1024 * 1024;
+
+    private final DataOutput output;
+    private final DataInput input;
+
+    private byte[] buffer = new byte[1024 * 8];
+    private int length;
+
+    public ShellV2Transport(DataOutput outputStream, DataInput inputStream) {
+        output = outputStream;
+        input = inputStream;
+    }
+
+    public void sendPacket(int id, byte[] data, int offset, int length) throws IOException {
+        output.writeByte(id);
+        output.writeInt(Integer.reverseBytes(length));
+        output.write(data, offset, length);
+    }
+
+    /**
+     * send all of a stream as packets of the given id (ID_STDOUT or ID_STDERR)
+     */
+    public void sendStream(int id, InputStream in) throws IOException {
+        byte[] data = new byte[MAX_PAYLOAD_SIZE];
+        int n;
+        while ((n = in.read(data)) != -1) {
+            if (n > 0) sendPacket(id, data, 0, n);
+        }
+    }
+
+    public void sendExit(int exitCode) throws IOException {
+        sendPacket(ID_EXIT, new byte[]{(byte) exitCode}, 0, 1);
+    }
+
+    /**
+     * read the next packet; payload is available from {@link #getData()} until the next call
+     *
+     * @return packet id or -1 if the connection was closed
+     */
+    public int readPacket() throws IOException {
+        int id;
+        try {
+            id = input.readUnsignedByte();
+        } catch (EOFException e) {
+            return -1;
+        }
+        length = Integer.reverseBytes(input.readInt());
+        if (length < 0 || length > MAX_READ_SIZE) throw new IOException("invalid shell packet length: " + length);
+        if (length > buffer.length) buffer = new byte[length];
+        input.readFully(buffer, 0, length);
+        return id;
+    }
+
+    public byte[] getData() {
+        return buffer;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * copy stdout/stderr packets to the given streams until the command exits
+     *
+     * @return exit code of the command or {@link ShellResponse#EXIT_CODE_UNKNOWN} if the connection closed first
+     */
+    public int readResponseTo(OutputStream stdout, OutputStream stderr) throws IOException {
+        int id;
+        while ((id = readPacket()) != -1) {
+            switch (id) {
+                case ID_STDOUT:
+                    stdout.write(buffer, 0, length);
+                    break;
+                case ID_STDERR:
+                    stderr.write(buffer, 0, length);
+                    break;
+                case ID_EXIT:
+                    return length > 0 ? buffer[0] & 0xff : ShellResponse.EXIT_CODE_UNKNOWN;
+                default:
+                    // ignore packets that don't carry output
+                    break;
+            }
+        }
+        return ShellResponse.EXIT_CODE_UNKNOWN;
+    }
+}
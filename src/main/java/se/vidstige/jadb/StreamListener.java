@@ -0,0 +1,21 @@
+package se.vidstige.jadb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Receives data from a stream registered with a {@link StreamSelector}.
+ *
+ * <p>Called on the selector thread, so implementations must not block.</p>
+ */
+public interface StreamListener {
+    /**
+     * @param buffer newly read data (ready to read); bytes left unread are passed again with the next data
+     */
+    void onData(ByteBuffer buffer) throws IOException;
+
+    /**
+     * @param e null if the stream ended normally
+     */
+    void onClosed(IOException e);
+}
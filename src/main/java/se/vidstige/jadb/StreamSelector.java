@@ -0,0 +1,214 @@
+package se.vidstige.jadb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Reads any number of long-lived ADB streams (track-devices, device status, ..) on a single thread.
+ *
+ * <p>A stream is set up with blocking I/O as usual (send service request, verify OKAY) and then handed to
+ * {@link #register} which switches its channel to non-blocking mode. Data is delivered to a
+ * {@link StreamListener} on the selector thread. The thread can also run (delayed) tasks, which is used
+ * for reconnecting.</p>
+ */
+public class StreamSelector implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(StreamSelector.class);
+
+    private static final int BUFFER_SIZE = 1024 * 64;
+
+    private final Selector selector;
+    private final Thread thread;
+    private final ConcurrentLinkedQueue<Runnable> taskQueue = new ConcurrentLinkedQueue<>();
+    // only accessed on selector thread
+    private final PriorityQueue<TimedTask> timerQueue = new PriorityQueue<>();
+    private volatile boolean isClosed;
+
+    /**
+     * a registered stream; closing it closes the underlying transport
+     */
+    public class Registration implements Closeable {
+        private final Transport transport;
+        private final StreamListener listener;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private SelectionKey key;
+        private boolean isClosed;
+
+        private Registration(Transport transport, StreamListener listener) {
+            this.transport = transport;
+            this.listener = listener;
+        }
+
+        @Override
+        public void close() {
+            if (isSelectorThread()) closeInternal(null, false);
+            else execute(() -> closeInternal(null, false));
+        }
+
+        private void read() {
+            try {
+                int n = transport.getChannel().read(buffer);
+                if (n == -1) {
+                    closeInternal(null, true);
+                    return;
+                }
+                buffer.flip();
+                listener.onData(buffer);
+                if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+                    // listener needs more than fits in the buffer (eg: very long line)
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    larger.put(buffer);
+                    buffer = larger;
+                } else {
+                    buffer.compact();
+                }
+            } catch (IOException e) {
+                closeInternal(e, true);
+            } catch (RuntimeException e) {
+                closeInternal(new IOException(e), true);
+            }
+        }
+
+        private void closeInternal(IOException e, boolean notify) {
+            if (isClosed) return;
+            isClosed = true;
+            if (key != null) key.cancel();
+            try {
+                transport.close();
+            } catch (IOException ignored) {
+            }
+            if (notify) listener.onClosed(e);
+        }
+    }
+
+    private static class TimedTask implements Comparable<TimedTask> {
+        final long timeMs;
+        final Runnable task;
+
+        TimedTask(long timeMs, Runnable task) {
+            this.timeMs = timeMs;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(TimedTask o) {
+            return Long.compare(timeMs, o.timeMs);
+        }
+    }
+
+    public StreamSelector() throws IOException {
+        selector = Selector.open();
+        thread = new Thread(this::loop, "adb-selector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * start delivering data from a transport whose service request was already accepted
+     *
+     * @param transport must be connected through a SocketChannel (see {@link TransportPool})
+     */
+    Registration register(Transport transport, StreamListener listener) throws IOException {
+        SocketChannel channel = transport.getChannel();
+        if (channel == null) throw new IOException("transport doesn't support non-blocking I/O");
+        channel.configureBlocking(false);
+        Registration registration = new Registration(transport, listener);
+        execute(() -> {
+            if (isClosed) {
+                registration.closeInternal(null, true);
+                return;
+            }
+            try {
+                registration.key = channel.register(selector, SelectionKey.OP_READ, registration);
+            } catch (IOException e) {
+                registration.closeInternal(e, true);
+            }
+        });
+        return registration;
+    }
+
+    /**
+     * run a task on the selector thread
+     */
+    public void execute(Runnable task) {
+        taskQueue.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * run a task on the selector thread after a delay
+     */
+    public void schedule(Runnable task, long delayMs) {
+        long timeMs = System.currentTimeMillis() + delayMs;
+        execute(() -> timerQueue.add(new TimedTask(timeMs, task)));
+    }
+
+    public boolean isSelectorThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    @Override
+    public void close() {
+        isClosed = true;
+        selector.wakeup();
+    }
+
+    private void loop() {
+        try {
+            while (!isClosed) {
+                runTasks();
+                long timeoutMs = 0;
+                TimedTask next = timerQueue.peek();
+                if (next != null) timeoutMs = Math.max(1, next.timeMs - System.currentTimeMillis());
+                selector.select(timeoutMs);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (key.isValid() && key.isReadable()) ((Registration) key.attachment()).read();
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException e) {
+            // selector itself failed; nothing left to do but close everything below
+            log.error("loop: selector failed: {}", e.getMessage());
+        } finally {
+            isClosed = true;
+            // pending registrations see isClosed and close themselves
+            runTasks();
+            for (SelectionKey key : new ArrayList<>(selector.keys())) {
+                ((Registration) key.attachment()).closeInternal(null, true);
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = taskQueue.poll()) != null) {
+            runTask(task);
+        }
+        long now = System.currentTimeMillis();
+        while (!timerQueue.isEmpty() && timerQueue.peek().timeMs <= now) {
+            runTask(timerQueue.poll().task);
+        }
+    }
+
+    private void runTask(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            // don't let one bad task stop every other stream
+            log.error("runTask: Exception", e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package se.vidstige.jadb;
 
 import java.io.*;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
 
 class Transport implements Closeable {
@@ -10,16 +11,34 @@ class Transport implements Closeable {
     private final InputStream inputStream;
     private final DataInputStream dataInput;
     private final DataOutputStream dataOutput;
+    // set when the socket was opened through a SocketChannel (see TransportPool)
+    private final SocketChannel channel;
 
-    private Transport(OutputStream outputStream, InputStream inputStream) {
+    // optional callback run once when this transport is closed (used by TransportPool)
+    private Runnable closeListener;
+    private boolean isClosed;
+
+    private Transport(OutputStream outputStream, InputStream inputStream, SocketChannel channel) {
         this.outputStream = outputStream;
         this.inputStream = inputStream;
         this.dataInput = new DataInputStream(inputStream);
         this.dataOutput = new DataOutputStream(outputStream);
+        this.channel = channel;
     }
 
     public Transport(Socket socket) throws IOException {
-        this(socket.getOutputStream(), socket.getInputStream());
+        this(socket.getOutputStream(), socket.getInputStream(), socket.getChannel());
+    }
+
+    /**
+     * @return channel of the underlying socket, or null if it wasn't opened through a SocketChannel
+     */
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    void setCloseListener(Runnable closeListener) {
+        this.closeListener = closeListener;
     }
 
     public String readString() throws IOException {
@@ -32,8 +51,16 @@ class Transport implements Closeable {
         Stream.copy(inputStream, output);
     }
 
+    /**
+     * @return stream of the remaining response; closing it closes this transport
+     */
     public InputStream getInputStream() {
-        return inputStream;
+        return new FilterInputStream(inputStream) {
+            @Override
+            public void close() throws IOException {
+                Transport.this.close();
+            }
+        };
     }
 
     public void verifyResponse() throws IOException, JadbException {
@@ -64,12 +91,26 @@ class Transport implements Closeable {
     public SyncTransport startSync() throws IOException, JadbException {
         send("sync:");
         verifyResponse();
-        return new SyncTransport(dataOutput, dataInput);
+        return new SyncTransport(dataOutput, dataInput, channel);
+    }
+
+    public ShellV2Transport startShellV2(String command) throws IOException, JadbException {
+        send("shell,v2,raw:" + command);
+        verifyResponse();
+        return new ShellV2Transport(dataOutput, dataInput);
     }
 
     @Override
     public void close() throws IOException {
-        dataInput.close();
-        dataOutput.close();
+        synchronized (this) {
+            if (isClosed) return;
+            isClosed = true;
+        }
+        try {
+            dataInput.close();
+            dataOutput.close();
+        } finally {
+            if (closeListener != null) closeListener.run();
+        }
     }
 }
@@ -0,0 +1,364 @@
+package se.vidstige.jadb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of connections to the ADB server.
+ *
+ * <p>The ADB server closes a connection as soon as a host request has been answered, and a connection that was
+ * switched to a device is consumed by the single service it runs, so sockets can't be handed back after use.
+ * Instead the pool keeps a few sockets connected ahead of time (and, per device, already switched with
+ * "host:transport:serial") so connect and handshake time is spent on a background thread instead of the caller's.</p>
+ *
+ * <p>It also limits how many command transports can be open to the same device at once. Long-lived streams
+ * ({@link #createStreamTransport(String)}) aren't counted, since they'd hold a permit for as long as they run.</p>
+ */
+public class TransportPool implements ITransportFactory {
+    private static final Logger log = LoggerFactory.getLogger(TransportPool.class);
+
+    private static final int DEFAULT_HOST_IDLE = 2;
+    private static final int DEFAULT_DEVICE_IDLE = 1;
+    private static final int DEFAULT_MAX_PER_DEVICE = 4;
+    private static final long MAX_IDLE_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final long PERMIT_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(10);
+
+    private final InetSocketAddress address;
+    private final int maxPerDevice;
+
+    // connected sockets not yet used for any request
+    private final ArrayDeque<IdleSocket> hostIdleList = new ArrayDeque<>();
+    // sockets already switched to a device; key = serial
+    private final Map<String, ArrayDeque<IdleSocket>> deviceIdleMap = new HashMap<>();
+    // limit concurrent transports per device; key = serial
+    private final Map<String, Semaphore> devicePermitMap = new ConcurrentHashMap<>();
+
+    private ExecutorService warmupExecutor;
+    private boolean isShutdown;
+
+    private final AtomicLong numOpened = new AtomicLong();
+    private final AtomicLong numHostHits = new AtomicLong();
+    private final AtomicLong numDeviceHits = new AtomicLong();
+    private final AtomicLong numMisses = new AtomicLong();
+    private final AtomicLong numExpired = new AtomicLong();
+    private final AtomicLong numWaits = new AtomicLong();
+    private final AtomicLong waitTimeMs = new AtomicLong();
+    private final AtomicLong numPermitTimeouts = new AtomicLong();
+    private final AtomicLong numStreams = new AtomicLong();
+
+    private static class IdleSocket {
+        final SocketChannel channel;
+        final long createdMs;
+
+        IdleSocket(SocketChannel channel) {
+            this.channel = channel;
+            this.createdMs = System.currentTimeMillis();
+        }
+
+        boolean isExpired(long now) {
+            return now - createdMs > MAX_IDLE_MS;
+        }
+    }
+
+    /**
+     * snapshot of pool statistics
+     */
+    public static class Stats {
+        public long opened;
+        public long hostHits;
+        public long deviceHits;
+        public long misses;
+        public long expired;
+        public long waits;
+        public long waitTimeMs;
+        public long permitTimeouts;
+        public long streams;
+        public int idleHost;
+        public int idleDevice;
+        public int activeDevice;
+
+        @Override
+        public String toString() {
+            return "opened:" + opened + ", hits:" + hostHits + "/" + deviceHits + ", misses:" + misses +
+                    ", expired:" + expired + ", waits:" + waits + " (" + waitTimeMs + "ms), timeouts:" + permitTimeouts +
+                    ", streams:" + streams + ", idle:" + idleHost + "/" + idleDevice + ", active:" + activeDevice;
+        }
+    }
+
+    public TransportPool(String host, int port) {
+        this(host, port, DEFAULT_MAX_PER_DEVICE);
+    }
+
+    public TransportPool(String host, int port, int maxPerDevice) {
+        this.address = new InetSocketAddress(host, port);
+        this.maxPerDevice = maxPerDevice;
+    }
+
+    @Override
+    public Transport createTransport() throws IOException {
+        IdleSocket idle;
+        synchronized (this) {
+            idle = pollFresh(hostIdleList);
+        }
+        SocketChannel channel;
+        if (idle != null) {
+            numHostHits.incrementAndGet();
+            channel = idle.channel;
+        } else {
+            numMisses.incrementAndGet();
+            channel = open();
+        }
+        scheduleWarmup(null);
+        return new Transport(channel.socket());
+    }
+
+    @Override
+    public Transport createTransport(String serial) throws IOException, JadbException {
+        if (serial == null) return ITransportFactory.super.createTransport(null);
+
+        Semaphore permit = acquirePermit(serial);
+        Transport transport = null;
+        try {
+            transport = createDeviceTransport(serial);
+        } finally {
+            if (transport == null) permit.release();
+        }
+        transport.setCloseListener(permit::release);
+        return transport;
+    }
+
+    /**
+     * same as {@link #createTransport(String)} but not counted against the per-device limit
+     */
+    @Override
+    public Transport createStreamTransport(String serial) throws IOException, JadbException {
+        if (serial == null) return ITransportFactory.super.createTransport(null);
+        numStreams.incrementAndGet();
+        return createDeviceTransport(serial);
+    }
+
+    private Transport createDeviceTransport(String serial) throws IOException, JadbException {
+        IdleSocket idle;
+        synchronized (this) {
+            idle = pollFresh(deviceIdleMap.get(serial));
+        }
+        Transport transport;
+        if (idle != null) {
+            numDeviceHits.incrementAndGet();
+            transport = new Transport(idle.channel.socket());
+        } else {
+            transport = ITransportFactory.super.createTransport(serial);
+        }
+        scheduleWarmup(serial);
+        return transport;
+    }
+
+    /**
+     * drop any pre-connected sockets and the transport limit for a device (call when device goes offline or is removed)
+     */
+    public void invalidate(String serial) {
+        ArrayDeque<IdleSocket> idleList;
+        synchronized (this) {
+            idleList = deviceIdleMap.remove(serial);
+        }
+        // NOTE: transports still open release the old permit when closed; a device that comes back starts fresh
+        devicePermitMap.remove(serial);
+        if (idleList != null) {
+            for (IdleSocket idle : idleList) closeQuietly(idle.channel);
+        }
+    }
+
+    /**
+     * drop all pre-connected sockets (call when the ADB server connection was lost)
+     */
+    public void clear() {
+        List<IdleSocket> closeList = new ArrayList<>();
+        synchronized (this) {
+            closeList.addAll(hostIdleList);
+            hostIdleList.clear();
+            for (ArrayDeque<IdleSocket> idleList : deviceIdleMap.values()) closeList.addAll(idleList);
+            deviceIdleMap.clear();
+        }
+        for (IdleSocket idle : closeList) closeQuietly(idle.channel);
+    }
+
+    public void shutdown() {
+        synchronized (this) {
+            isShutdown = true;
+            if (warmupExecutor != null) warmupExecutor.shutdownNow();
+        }
+        clear();
+    }
+
+    public Stats getStats() {
+        Stats stats = new Stats();
+        stats.opened = numOpened.get();
+        stats.hostHits = numHostHits.get();
+        stats.deviceHits = numDeviceHits.get();
+        stats.misses = numMisses.get();
+        stats.expired = numExpired.get();
+        stats.waits = numWaits.get();
+        stats.waitTimeMs = waitTimeMs.get();
+        stats.permitTimeouts = numPermitTimeouts.get();
+        stats.streams = numStreams.get();
+        synchronized (this) {
+            stats.idleHost = hostIdleList.size();
+            for (ArrayDeque<IdleSocket> idleList : deviceIdleMap.values()) stats.idleDevice += idleList.size();
+        }
+        for (Semaphore semaphore : devicePermitMap.values()) {
+            stats.activeDevice += maxPerDevice - semaphore.availablePermits();
+        }
+        return stats;
+    }
+
+    /**
+     * @return permit to release when transport is closed
+     * @throws IOException if none could be acquired within PERMIT_TIMEOUT_MS
+     */
+    private Semaphore acquirePermit(String serial) throws IOException {
+        Semaphore permit = devicePermitMap.computeIfAbsent(serial, k -> new Semaphore(maxPerDevice, true));
+        if (permit.tryAcquire()) return permit;
+
+        numWaits.incrementAndGet();
+        long startMs = System.currentTimeMillis();
+        try {
+            boolean isAcquired = permit.tryAcquire(PERMIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            waitTimeMs.addAndGet(System.currentTimeMillis() - startMs);
+            if (isAcquired) return permit;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted waiting for " + serial);
+        }
+        // a caller likely leaked a transport (or device is stuck); fail instead of going over the limit
+        long numTimeouts = numPermitTimeouts.incrementAndGet();
+        log.warn("acquirePermit: {}, timed out after {}ms, {} transports open, timeouts:{}", serial, PERMIT_TIMEOUT_MS, maxPerDevice, numTimeouts);
+        throw new IOException("timed out waiting for transport to " + serial);
+    }
+
+    /**
+     * @return the newest idle socket that is still usable, closing any stale ones
+     */
+    private IdleSocket pollFresh(ArrayDeque<IdleSocket> idleList) {
+        if (idleList == null) return null;
+        long now = System.currentTimeMillis();
+        while (!idleList.isEmpty()) {
+            IdleSocket idle = idleList.pollLast();
+            if (!idle.isExpired(now) && isAlive(idle.channel)) return idle;
+            numExpired.incrementAndGet();
+            closeQuietly(idle.channel);
+        }
+        return null;
+    }
+
+    /**
+     * non-blocking peek to detect a socket the server already closed
+     */
+    private boolean isAlive(SocketChannel channel) {
+        if (!channel.isOpen()) return false;
+        try {
+            channel.configureBlocking(false);
+            int n = channel.read(ByteBuffer.allocate(1));
+            channel.configureBlocking(true);
+            // server never sends anything on an idle connection
+            return n == 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private SocketChannel open() throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        channel.socket().setTcpNoDelay(true);
+        numOpened.incrementAndGet();
+        return channel;
+    }
+
+    private void scheduleWarmup(String serial) {
+        synchronized (this) {
+            if (isShutdown) return;
+            if (warmupExecutor == null) {
+                warmupExecutor = Executors.newSingleThreadExecutor(r -> {
+                    Thread thread = new Thread(r, "adb-pool");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            warmupExecutor.submit(() -> warmup(serial));
+        }
+    }
+
+    private void warmup(String serial) {
+        try {
+            while (needsHostSocket()) {
+                addIdle(null, open());
+            }
+            if (serial != null && needsDeviceSocket(serial)) {
+                SocketChannel channel = open();
+                Transport transport = new Transport(channel.socket());
+                try {
+                    transport.send("host:transport:" + serial);
+                    transport.verifyResponse();
+                } catch (IOException | JadbException e) {
+                    // device is likely gone; nothing to warm up
+                    closeQuietly(channel);
+                    return;
+                }
+                addIdle(serial, channel);
+            }
+        } catch (IOException e) {
+            // server not reachable; callers will see the error when they connect
+        }
+    }
+
+    private synchronized boolean needsHostSocket() {
+        if (isShutdown) return false;
+        pruneExpired(hostIdleList);
+        return hostIdleList.size() < DEFAULT_HOST_IDLE;
+    }
+
+    private synchronized boolean needsDeviceSocket(String serial) {
+        if (isShutdown) return false;
+        ArrayDeque<IdleSocket> idleList = deviceIdleMap.get(serial);
+        if (idleList == null) return true;
+        pruneExpired(idleList);
+        return idleList.size() < DEFAULT_DEVICE_IDLE;
+    }
+
+    private void addIdle(String serial, SocketChannel channel) {
+        synchronized (this) {
+            if (!isShutdown) {
+                if (serial == null) hostIdleList.addLast(new IdleSocket(channel));
+                else deviceIdleMap.computeIfAbsent(serial, k -> new ArrayDeque<>()).addLast(new IdleSocket(channel));
+                return;
+            }
+        }
+        closeQuietly(channel);
+    }
+
+    private void pruneExpired(ArrayDeque<IdleSocket> idleList) {
+        long now = System.currentTimeMillis();
+        for (Iterator<IdleSocket> iterator = idleList.iterator(); iterator.hasNext(); ) {
+            IdleSocket idle = iterator.next();
+            if (idle.isExpired(now)) {
+                iterator.remove();
+                numExpired.incrementAndGet();
+                closeQuietly(idle.channel);
+            }
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -44,8 +44,9 @@ public class PackageManager {
     }
 
     private void remove(RemoteFile file) throws IOException, JadbException {
-        InputStream s = device.executeShell("rm", "-f", file.getPath());
-        Stream.readAll(s, StandardCharsets.UTF_8);
+        try (InputStream s = device.executeShell("rm", "-f", file.getPath())) {
+            Stream.readAll(s, StandardCharsets.UTF_8);
+        }
     }
 
     private void install(File apkFile, List<String> extraArguments) throws IOException, JadbException {
@@ -55,8 +56,10 @@ public class PackageManager {
         arguments.add("install");
         arguments.addAll(extraArguments);
         arguments.add(remote.getPath());
-        InputStream s = device.executeShell("pm", arguments.toArray(new String[0]));
-        String result = Stream.readAll(s, StandardCharsets.UTF_8);
+        String result;
+        try (InputStream s = device.executeShell("pm", arguments.toArray(new String[0]))) {
+            result = Stream.readAll(s, StandardCharsets.UTF_8);
+        }
         remove(remote);
         verifyOperation("install", apkFile.getName(), result);
     }
@@ -79,8 +82,10 @@ public class PackageManager {
     }
 
     public void uninstall(Package name) throws IOException, JadbException {
-        InputStream s = device.executeShell("pm", "uninstall", name.toString());
-        String result = Stream.readAll(s, StandardCharsets.UTF_8);
+        String result;
+        try (InputStream s = device.executeShell("pm", "uninstall", name.toString())) {
+            result = Stream.readAll(s, StandardCharsets.UTF_8);
+        }
         verifyOperation("uninstall", name.toString(), result);
     }
 
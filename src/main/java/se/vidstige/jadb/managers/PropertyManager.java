@@ -7,7 +7,9 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -31,12 +33,23 @@ public class PropertyManager {
     }
 
     private Map<String, String> parseProp(BufferedReader bufferedReader) throws IOException {
+        List<String> lineList = new ArrayList<>();
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            lineList.add(line);
+        }
+        return parseProp(lineList);
+    }
+
+    /**
+     * parse getprop output lines ("[key]: [value]") that were already read from the device
+     */
+    public Map<String, String> parseProp(List<String> lineList) {
         HashMap<String, String> result = new HashMap<>();
 
-        String line;
         Matcher matcher = pattern.matcher("");
 
-        while ((line = bufferedReader.readLine()) != null) {
+        for (String line : lineList) {
             matcher.reset(line);
 
             if (matcher.find()) {
@@ -1,9 +1,12 @@
 package se.vidstige.jadb.server;
 
+import se.vidstige.jadb.JadbDevice;
 import se.vidstige.jadb.JadbException;
 import se.vidstige.jadb.RemoteFile;
+import se.vidstige.jadb.ShellV2Transport;
 
 import java.io.*;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -17,6 +20,37 @@ public interface AdbDeviceResponder {
     void filePulled(RemoteFile path, ByteArrayOutputStream buffer) throws JadbException, IOException;
 
     void shell(String command, DataOutputStream stdout, DataInput stdin) throws IOException;
+
+    /**
+     * run a command through the "shell,v2" service; by default runs {@link #shell} and reports its output as stdout
+     *
+     * @return exit code of the command
+     */
+    default int shellV2(String command, OutputStream stdout, OutputStream stderr) throws IOException {
+        shell(command, new DataOutputStream(stdout), new DataInputStream(new ByteArrayInputStream(new byte[0])));
+        return 0;
+    }
+
+    /**
+     * answer a "shell,v2" request; by default sends the output of {@link #shellV2(String, OutputStream, OutputStream)}
+     * as packets followed by its exit code
+     */
+    default void shellV2(String command, DataOutputStream output, DataInput input) throws IOException {
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        int exitCode = shellV2(command, stdout, stderr);
+        ShellV2Transport transport = new ShellV2Transport(output, input);
+        transport.sendStream(ShellV2Transport.ID_STDOUT, new ByteArrayInputStream(stdout.toByteArray()));
+        transport.sendStream(ShellV2Transport.ID_STDERR, new ByteArrayInputStream(stderr.toByteArray()));
+        transport.sendExit(exitCode);
+    }
+
+    /**
+     * @return features reported for "host-serial:SERIAL:features"; null if the device doesn't support the request
+     */
+    default List<String> getFeatures() {
+        return Arrays.asList(JadbDevice.FEATURE_SHELL_V2, "cmd");
+    }
     void enableIpCommand(String ip, DataOutputStream outputStream) throws IOException;
 
     List<RemoteFile> list(String path) throws IOException;
@@ -59,6 +59,9 @@ class AdbProtocolHandler implements Runnable {
                 hostTransportAny(output);
             } else if ("host:devices".equals(command)) {
                 hostDevices(output);
+            } else if ("host:track-devices".equals(command)) {
+                hostTrackDevices(input, output);
+                return false;
             } else if (command.startsWith("host:transport:")) {
                 hostTransport(output, command);
             } else if ("sync:".equals(command)) {
@@ -66,8 +69,13 @@ class AdbProtocolHandler implements Runnable {
             } else if (command.startsWith("shell:")) {
                 shell(input, output, command);
                 return false;
+            } else if (command.startsWith("shell,v2")) {
+                shellV2(input, output, command);
+                return false;
             } else if ("host:get-state".equals(command)) {
                 hostGetState(output);
+            } else if ("host:features".equals(command)) {
+                hostFeatures(output, responder.getDevices().get(0));
             } else if (command.startsWith("host-serial:")) {
                 hostSerial(output, command);
             } else if (command.startsWith("tcpip:")) {
@@ -89,27 +97,43 @@ class AdbProtocolHandler implements Runnable {
     }
 
     private void hostSerial(DataOutput output, String command) throws IOException {
-        String[] strs = command.split(":",0);
-        if (strs.length != 3) {
+        // host-serial:SERIAL:REQUEST; serial itself can contain ':' (eg: "192.168.1.10:5555")
+        int index = command.lastIndexOf(':');
+        if (index <= "host-serial:".length()) {
             throw new ProtocolException("Invalid command: " + command);
         }
+        String serial = command.substring("host-serial:".length(), index);
+        String request = command.substring(index + 1);
 
-        String serial = strs[1];
-        boolean found = false;
-        output.writeBytes("OKAY");
+        AdbDeviceResponder device = null;
         for (AdbDeviceResponder d : responder.getDevices()) {
             if (d.getSerial().equals(serial)) {
-                send(output, d.getType());
-                found = true;
+                device = d;
                 break;
             }
         }
 
-        if (!found) {
-            send(output, "unknown");
+        switch (request) {
+            case "get-state":
+                output.writeBytes("OKAY");
+                send(output, device != null ? device.getType() : "unknown");
+                break;
+            case "features":
+                if (device == null) throw new ProtocolException("device '" + serial + "' not found");
+                hostFeatures(output, device);
+                break;
+            default:
+                throw new ProtocolException("Invalid command: " + command);
         }
     }
 
+    private void hostFeatures(DataOutput output, AdbDeviceResponder device) throws IOException {
+        // eg: older adbd
+        if (device.getFeatures() == null) throw new ProtocolException("unknown host service");
+        output.writeBytes("OKAY");
+        send(output, String.join(",", device.getFeatures()));
+    }
+
     private void hostGetState(DataOutput output) throws IOException {
         // TODO: Check so that exactly one device is selected.
         AdbDeviceResponder device = responder.getDevices().get(0);
@@ -123,6 +147,15 @@ class AdbProtocolHandler implements Runnable {
         shell(shellCommand, output, input);
     }
 
+    private void shellV2(DataInput input, DataOutputStream output, String command) throws IOException {
+        // shell,v2,raw:COMMAND or shell,v2,pty:COMMAND
+        int index = command.indexOf(':');
+        if (index < 0) throw new ProtocolException("Invalid command: " + command);
+        String shellCommand = command.substring(index + 1);
+        output.writeBytes("OKAY");
+        selected.shellV2(shellCommand, output, input);
+    }
+
     private void hostTransport(DataOutput output, String command) throws IOException {
         String serial = command.substring("host:transport:".length());
         selected = findDevice(serial);
@@ -130,13 +163,30 @@ class AdbProtocolHandler implements Runnable {
     }
 
     private void hostDevices(DataOutput output) throws IOException {
+        output.writeBytes("OKAY");
+        send(output, getDeviceList());
+    }
+
+    private void hostTrackDevices(DataInput input, DataOutputStream output) throws IOException {
+        // send current list once, then hold the connection open until client closes it
+        output.writeBytes("OKAY");
+        send(output, getDeviceList());
+        output.flush();
+        try {
+            //noinspection InfiniteLoopStatement
+            while (true) input.readByte();
+        } catch (EOFException e) {
+            // client stopped tracking
+        }
+    }
+
+    private String getDeviceList() throws IOException {
         ByteArrayOutputStream tmp = new ByteArrayOutputStream();
         DataOutputStream writer = new DataOutputStream(tmp);
         for (AdbDeviceResponder d : responder.getDevices()) {
             writer.writeBytes(d.getSerial() + "\t" + d.getType() + "\n");
         }
-        output.writeBytes("OKAY");
-        send(output, new String(tmp.toByteArray(), StandardCharsets.UTF_8));
+        return new String(tmp.toByteArray(), StandardCharsets.UTF_8);
     }
 
     private void hostTransportAny(DataOutput output) throws IOException {
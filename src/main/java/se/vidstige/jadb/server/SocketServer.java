@@ -3,6 +3,9 @@ package se.vidstige.jadb.server;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 // >set ANDROID_ADB_SERVER_PORT=15037
 public abstract class SocketServer implements Runnable {
@@ -10,6 +13,8 @@ public abstract class SocketServer implements Runnable {
     private final int port;
     private ServerSocket socket;
     private Thread thread;
+    // accepted connections; closed on stop() like a real server going away
+    private final Set<Socket> clientSet = Collections.synchronizedSet(new HashSet<>());
 
     private boolean isStarted = false;
     private final Object lockObject = new Object();
@@ -33,14 +38,26 @@ public abstract class SocketServer implements Runnable {
     @Override
     public void run() {
         try {
-            socket = new ServerSocket(port);
+            // many clients connect at once in stress tests; default backlog (50) drops connects and they retry after 1s
+            socket = new ServerSocket(port, 512);
             socket.setReuseAddress(true);
 
             serverReady();
 
             while (true) {
                 Socket c = socket.accept();
-                createResponder(c).run();
+                clientSet.add(c);
+                // clients may hold idle connections open (see TransportPool) so serve each one on its own thread
+                Runnable responder = createResponder(c);
+                Thread responderThread = new Thread(() -> {
+                    try {
+                        responder.run();
+                    } finally {
+                        clientSet.remove(c);
+                    }
+                }, "Fake Adb Connection");
+                responderThread.setDaemon(true);
+                responderThread.start();
             }
         } catch (IOException e) {
             // Empty on purpose
@@ -67,5 +84,9 @@ public abstract class SocketServer implements Runnable {
     public void stop() throws IOException, InterruptedException {
         socket.close();
         thread.join();
+        synchronized (clientSet) {
+            for (Socket c : clientSet) c.close();
+            clientSet.clear();
+        }
     }
 }
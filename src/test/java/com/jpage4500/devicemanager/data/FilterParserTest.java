@@ -0,0 +1,185 @@
+package com.jpage4500.devicemanager.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilterParserTest {
+
+    @Test
+    void andBeforeOr() {
+        FilterParser.Node node = FilterParser.parse("tag:a || tag:b && level:E");
+        assertTrue(node.test(entry("a", "D", "")));
+        assertFalse(node.test(entry("b", "D", "")));
+        assertTrue(node.test(entry("b", "E", "")));
+        assertEquals("tag:a || (tag:b && level:E)", node.toString());
+    }
+
+    @Test
+    void not() {
+        FilterParser.Node node = FilterParser.parse("!tag:a");
+        assertFalse(node.test(entry("a", "D", "")));
+        assertTrue(node.test(entry("b", "D", "")));
+
+        node = FilterParser.parse("!(tag:a || tag:b) && !!level:E");
+        assertTrue(node.test(entry("c", "E", "")));
+        assertFalse(node.test(entry("b", "E", "")));
+        assertFalse(node.test(entry("c", "D", "")));
+    }
+
+    @Test
+    void nestedParentheses() {
+        FilterParser.Node node = FilterParser.parse("((tag:a || tag:b) && (level:E || (level:W)))");
+        assertTrue(node.test(entry("a", "W", "")));
+        assertTrue(node.test(entry("b", "E", "")));
+        assertFalse(node.test(entry("b", "I", "")));
+        assertFalse(node.test(entry("c", "E", "")));
+        // "(" and ")" that are part of a value
+        node = FilterParser.parse("(msg:*f(x)* || tag:z)");
+        assertTrue(node.test(entry("a", "D", "call f(x) now")));
+    }
+
+    @Test
+    void quotedValue() {
+        FilterParser.Node node = FilterParser.parse("msg:\"*a && b*\" || tag:\"say \\\"hi\\\"\"");
+        assertTrue(node.test(entry("t", "D", "x a && b y")));
+        assertFalse(node.test(entry("t", "D", "x a b y")));
+        assertTrue(node.test(entry("say \"hi\"", "D", "")));
+    }
+
+    @Test
+    void textWithoutColumn() {
+        FilterParser.Node node = FilterParser.parse("hello world");
+        assertTrue(node.test(entry("t", "D", "say Hello World!")));
+        assertTrue(node.test(entry("hello world tag", "D", "")));
+        assertFalse(node.test(entry("t", "D", "hello")));
+    }
+
+    @Test
+    void regex() {
+        FilterParser.Node node = FilterParser.parse("msg:/fo+ba?r/");
+        assertTrue(node.test(entry("t", "D", "xfoobr")));
+        assertFalse(node.test(entry("t", "D", "FOOBAR")));
+        node = FilterParser.parse("msg:/fo+ba?r/i");
+        assertTrue(node.test(entry("t", "D", "FOOBAR")));
+        // any column
+        node = FilterParser.parse("*:/^Act/");
+        assertTrue(node.test(entry("ActivityManager", "D", "")));
+        // not a regex; plain text that starts with "/"
+        node = FilterParser.parse("msg:/data/app");
+        assertTrue(node.test(entry("t", "D", "/data/app")));
+        assertFalse(node.test(entry("t", "D", "/data/app/x")));
+    }
+
+    @Test
+    void regexContainsOperators() {
+        FilterParser.Node node = FilterParser.parse("msg:/^(a||b)$/ && level:E");
+        assertEquals("msg:/^(a||b)$/ && level:E", node.toString());
+        assertTrue(node.test(entry("t", "E", "a")));
+        assertTrue(node.test(entry("t", "E", "")));
+        assertFalse(node.test(entry("t", "E", "c")));
+
+        node = FilterParser.parse("(msg:/x\\)/)");
+        assertEquals("msg:/x\\)/", node.toString());
+        assertTrue(node.test(entry("t", "D", "x)")));
+        assertFalse(node.test(entry("t", "D", "x")));
+
+        node = FilterParser.parse("msg:/a&&b/i || tag:/\\/sys/");
+        assertTrue(node.test(entry("t", "D", "A&&B")));
+        assertTrue(node.test(entry("/sys", "D", "")));
+    }
+
+    @Test
+    void compare() {
+        FilterParser.Node node = FilterParser.parse("date:>10:15:00");
+        assertTrue(node.test(dateEntry("2024-10-16 10:15:01")));
+        assertFalse(node.test(dateEntry("2024-10-16 10:15:00")));
+        assertTrue(FilterParser.parse("date:>=10:15:00").test(dateEntry("2024-10-16 10:15:00")));
+        assertTrue(FilterParser.parse("date:<2024-10-16 08:00").test(dateEntry("2024-10-15 23:00:00")));
+        assertFalse(FilterParser.parse("date:<10-16 08:00").test(dateEntry("2024-10-16 08:00:00")));
+
+        node = FilterParser.parse("pid:<100");
+        assertTrue(node.test(pidEntry("99")));
+        assertFalse(node.test(pidEntry("100")));
+        // numbers, not text order
+        assertFalse(node.test(pidEntry("1000")));
+        assertFalse(node.test(pidEntry("abc")));
+        assertTrue(FilterParser.parse("tid:<=5").test(pidEntry("5")));
+    }
+
+    @Test
+    void levelAndAbove() {
+        FilterParser.Node node = FilterParser.parse("level:W+");
+        assertTrue(node.test(entry("t", "W", "")));
+        assertTrue(node.test(entry("t", "E", "")));
+        assertFalse(node.test(entry("t", "I", "")));
+    }
+
+    @Test
+    void errors() {
+        assertError("expected ')' (position 7)", "(tag:a");
+        assertError("unexpected ')' (position 8)", "(tag:a))");
+        assertError("missing closing '\"' (position 9)", "msg:\"abc");
+        assertError("invalid regex: [ (position 8)", "msg:/[/");
+        assertError("not a number: abc", "pid:>abc");
+        assertError("missing value after >", "pid:>");
+    }
+
+    @Test
+    void toStringRoundTrip() {
+        List<String> textList = List.of(
+                "tag:a || tag:b && level:E",
+                "!(tag:a || tag:b) && level:W+",
+                "msg:\"*a && b*\"",
+                "msg:/^(a||b)$/i && pid:<100",
+                "(msg:/x\\)/) || date:>10:15:00",
+                "tag:ActivityManager && msg:*started*",
+                "hello world",
+                "app:com.foo* && tid:!123"
+        );
+        List<LogEntry> entryList = List.of(entry("a", "E", "x a && b"), entry("b", "W", "A"), entry("ActivityManager", "I", "started"),
+                entry("c", "D", "hello world"), entry("x)", "D", "x)"));
+        for (String text : textList) {
+            LogFilter filter = LogFilter.parse(text);
+            LogFilter parsed = LogFilter.parse(filter.toString());
+            assertEquals(filter.toString(), parsed.toString(), text);
+            for (LogEntry logEntry : entryList) {
+                assertEquals(filter.isMatch(logEntry), parsed.isMatch(logEntry), text + " : " + logEntry.message);
+            }
+        }
+    }
+
+    private static void assertError(String message, String text) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> FilterParser.parse(text));
+        assertEquals(message, e.getMessage(), text);
+    }
+
+    private static LogEntry entry(String tag, String level, String message) {
+        LogEntry logEntry = new LogEntry();
+        logEntry.tag = tag;
+        logEntry.level = level;
+        logEntry.message = message;
+        logEntry.pid = "100";
+        logEntry.tid = "101";
+        logEntry.app = "com.foo";
+        return logEntry;
+    }
+
+    private static LogEntry dateEntry(String date) {
+        LogEntry logEntry = entry("t", "D", "");
+        logEntry.date = date;
+        return logEntry;
+    }
+
+    private static LogEntry pidEntry(String pid) {
+        LogEntry logEntry = entry("t", "D", "");
+        logEntry.pid = pid;
+        logEntry.tid = pid;
+        return logEntry;
+    }
+}
@@ -0,0 +1,95 @@
+package com.jpage4500.devicemanager.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LogcatArgsTest {
+    private static final Set<String> TAG_SET = Set.of("ActivityManager", "WifiService", "chatty", "Chatty");
+
+    @Test
+    void level() {
+        assertEquals(List.of("*:W"), build(25, "level:W+"));
+        assertEquals(List.of("*:E"), build(25, "level:e"));
+        // highest level wins
+        assertEquals(List.of("*:E"), build(25, "level:W+", "level:E"));
+        assertEquals(List.of(), build(25, "level:V"));
+    }
+
+    @Test
+    void tag() {
+        assertEquals(List.of("ActivityManager:V", "*:S"), build(25, "tag:ActivityManager"));
+        assertEquals(List.of("ActivityManager:W", "*:S"), build(25, "tag:ActivityManager && level:W+"));
+        // every spelling received is sent
+        assertEquals(Set.of("chatty:V", "Chatty:V", "*:S"), Set.copyOf(build(25, "tag:chatty")));
+    }
+
+    @Test
+    void tagCaseNotSeen() {
+        // host filter ignores case; device would drop "ActivityManager" lines
+        assertEquals(List.of(), build(25, "tag:activitymanager"));
+        // never received; can't tell how device writes it
+        assertEquals(List.of(), build(25, "tag:Unknown"));
+        assertEquals(List.of(), LogcatArgs.build(filters("tag:ActivityManager"), null, null, 25));
+    }
+
+    @Test
+    void orTags() {
+        assertEquals(List.of("ActivityManager:V", "WifiService:V", "*:S"), build(25, "tag:ActivityManager || tag:WifiService"));
+        // 1 side can't be sent; neither is
+        assertEquals(List.of(), build(25, "tag:ActivityManager || tag:wifiservice"));
+        assertEquals(List.of(), build(25, "tag:ActivityManager || msg:hello"));
+    }
+
+    @Test
+    void notTerms() {
+        assertEquals(List.of(), build(25, "tag:!ActivityManager"));
+        assertEquals(List.of(), build(25, "level:!E"));
+        assertEquals(List.of(), build(25, "pid:!100"));
+        assertEquals(List.of(), build(25, "!(tag:ActivityManager)"));
+    }
+
+    @Test
+    void pidAndRegexNeedSdk24() {
+        assertEquals(List.of("--pid=1234"), build(24, "pid:1234"));
+        assertEquals(List.of(), build(23, "pid:1234"));
+        assertEquals(List.of("-e", "foo.*bar"), build(24, "msg:/foo.*bar/"));
+        assertEquals(List.of(), build(23, "msg:/foo.*bar/"));
+        // ignore case flag isn't the same on device
+        assertEquals(List.of(), build(24, "msg:/foo/i"));
+        // level still sent on older devices
+        assertEquals(List.of("*:W"), build(23, "level:W+ && pid:1234"));
+    }
+
+    @Test
+    void appResolvedToPid() {
+        Map<String, String> processMap = Map.of("100", "com.foo", "200", "com.bar", "300", "com.bar");
+        assertEquals(List.of("--pid=100"), LogcatArgs.build(filters("app:com.foo"), processMap, TAG_SET, 25));
+        assertEquals(List.of("--pid=100"), LogcatArgs.build(filters("app:COM.FOO"), processMap, TAG_SET, 25));
+        // more than 1 process
+        assertEquals(List.of(), LogcatArgs.build(filters("app:com.bar"), processMap, TAG_SET, 25));
+        // not running
+        assertEquals(List.of(), LogcatArgs.build(filters("app:com.baz"), processMap, TAG_SET, 25));
+        assertEquals(List.of(), LogcatArgs.build(filters("app:com.foo"), null, TAG_SET, 25));
+    }
+
+    @Test
+    void missingFilter() {
+        assertEquals(List.of(), LogcatArgs.build(new LogFilter[]{LogFilter.parse("level:E"), null}, null, TAG_SET, 25));
+        assertEquals(List.of(), LogcatArgs.build(null, null, TAG_SET, 25));
+    }
+
+    private static List<String> build(int sdk, String... filterArr) {
+        return LogcatArgs.build(filters(filterArr), null, TAG_SET, sdk);
+    }
+
+    private static LogFilter[] filters(String... filterArr) {
+        LogFilter[] logFilterArr = new LogFilter[filterArr.length];
+        for (int i = 0; i < filterArr.length; i++) logFilterArr[i] = LogFilter.parse(filterArr[i]);
+        return logFilterArr;
+    }
+}
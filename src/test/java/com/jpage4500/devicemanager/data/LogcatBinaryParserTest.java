@@ -0,0 +1,114 @@
+package com.jpage4500.devicemanager.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * binary-v*.bin hold the same entries with v1 (20 byte), v2 (euid), v3 (lid) and v4 (lid + uid) headers; v3/v4
+ * also have an events buffer entry that must be skipped. binary-threadtime.txt is what "logcat -v threadtime"
+ * shows for them on a device set to Asia/Kolkata.
+ */
+class LogcatBinaryParserTest {
+    private static final TimeZone DEVICE_TIME_ZONE = TimeZone.getTimeZone("Asia/Kolkata");
+
+    private final TimeZone defaultTimeZone = TimeZone.getDefault();
+
+    @BeforeEach
+    void setUp() {
+        // host in a different zone than the device
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4})
+    void sameAsText(int version) throws IOException {
+        List<LogEntry> binaryList = readBinary(version);
+
+        LogcatParser textParser = new LogcatParser(2024);
+        List<LogEntry> textList = new ArrayList<>();
+        for (String line : readResource("/logcat/binary-threadtime.txt").lines().toList()) {
+            textList.add(textParser.parse(line));
+        }
+
+        assertEquals(textList.size(), binaryList.size());
+        for (int i = 0; i < textList.size(); i++) {
+            LogEntry text = textList.get(i);
+            LogEntry binary = binaryList.get(i);
+            String name = "v" + version + ", line " + i;
+            assertEquals(text.date, binary.date, name);
+            // text timestamps are whole seconds
+            assertEquals(text.timestamp, binary.timestamp / 1000 * 1000, name);
+            assertEquals(text.pid, binary.pid, name);
+            assertEquals(text.tid, binary.tid, name);
+            assertEquals(text.level, binary.level, name);
+            assertEquals(text.tag, binary.tag, name);
+            assertEquals(text.message, binary.message, name);
+        }
+    }
+
+    @Test
+    void milliseconds() throws IOException {
+        List<LogEntry> logList = readBinary(4);
+        assertEquals(117, logList.get(0).timestamp % 1000);
+        // nsec 999,999,999 -> 999ms
+        assertEquals(999, logList.get(4).timestamp % 1000);
+    }
+
+    @Test
+    void notBinary() {
+        byte[] text = "10-18 09:00:05.117  1523  1601 I ActivityManager: Start proc\n".getBytes(StandardCharsets.UTF_8);
+        LogcatBinaryParser parser = new LogcatBinaryParser(new ByteArrayInputStream(text), DEVICE_TIME_ZONE);
+        assertThrows(IOException.class, () -> parser.readEntry(new ArrayList<>()));
+    }
+
+    @Test
+    void truncated() throws IOException {
+        byte[] data = readBytes("/logcat/binary-v3.bin");
+        byte[] truncated = new byte[data.length - 3];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        LogcatBinaryParser parser = new LogcatBinaryParser(new ByteArrayInputStream(truncated), DEVICE_TIME_ZONE);
+        List<LogEntry> logList = new ArrayList<>();
+        assertThrows(IOException.class, () -> {
+            while (parser.readEntry(logList)) ;
+        });
+        assertFalse(logList.isEmpty());
+    }
+
+    private static List<LogEntry> readBinary(int version) throws IOException {
+        byte[] data = readBytes("/logcat/binary-v" + version + ".bin");
+        LogcatBinaryParser parser = new LogcatBinaryParser(new ByteArrayInputStream(data), DEVICE_TIME_ZONE);
+        List<LogEntry> logList = new ArrayList<>();
+        while (parser.readEntry(logList)) ;
+        return logList;
+    }
+
+    private static byte[] readBytes(String name) throws IOException {
+        try (InputStream in = LogcatBinaryParserTest.class.getResourceAsStream(name)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static String readResource(String name) throws IOException {
+        return new String(readBytes(name), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,84 @@
+package com.jpage4500.devicemanager.data;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LogcatParser vs LogEntry(String, SimpleDateFormat, int) on the sample lines in /logcat/threadtime.txt
+ * <p>
+ * reports lines/sec and bytes allocated per line (HotSpot only)
+ * <p>
+ * run with: mvn test -Pbenchmark -Dtest=LogcatParserBenchmark
+ */
+@Tag("benchmark")
+class LogcatParserBenchmark {
+    private static final int YEAR = 2024;
+    private static final int NUM_LINES = 1_000_000;
+    private static final int ROUNDS = 5;
+
+    // keeps results reachable so the JIT can't skip parsing
+    private long checksum;
+
+    @Test
+    void parse() throws Exception {
+        List<String> lineList = createLines();
+        for (int round = 0; round < ROUNDS; round++) {
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            long startBytes = allocatedBytes();
+            long startNs = System.nanoTime();
+            for (String line : lineList) {
+                LogEntry logEntry = new LogEntry(line, dateFormat, YEAR);
+                checksum += logEntry.timestamp != null ? logEntry.timestamp : 0;
+            }
+            long legacyNs = System.nanoTime() - startNs;
+            long legacyBytes = allocatedBytes() - startBytes;
+
+            LogcatParser parser = new LogcatParser(YEAR);
+            startBytes = allocatedBytes();
+            startNs = System.nanoTime();
+            for (String line : lineList) {
+                LogEntry logEntry = parser.parse(line);
+                checksum += logEntry != null ? logEntry.timestamp : 0;
+            }
+            long parserNs = System.nanoTime() - startNs;
+            long parserBytes = allocatedBytes() - startBytes;
+
+            System.out.printf("round %d: LogEntry %.0fk lines/s, %d bytes/line | LogcatParser %.0fk lines/s, %d bytes/line%n",
+                    round, linesPerSec(lineList.size(), legacyNs), legacyBytes / lineList.size(),
+                    linesPerSec(lineList.size(), parserNs), parserBytes / lineList.size());
+        }
+        System.out.println("checksum: " + checksum);
+    }
+
+    /**
+     * sample log lines, repeated; new String per line so nothing is shared between lines like it would be when
+     * reading from a device
+     */
+    private static List<String> createLines() throws Exception {
+        List<String> sampleList = new ArrayList<>();
+        for (String line : LogcatParserTest.readSamples()) {
+            // only real log lines (both parsers keep lines they can't get a time from)
+            LogEntry logEntry = new LogcatParser(YEAR).parse(line);
+            if (logEntry != null && logEntry.timestamp != null) sampleList.add(line);
+        }
+        List<String> lineList = new ArrayList<>(NUM_LINES);
+        for (int i = 0; i < NUM_LINES; i++) lineList.add(new String(sampleList.get(i % sampleList.size()).toCharArray()));
+        return lineList;
+    }
+
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean) {
+            return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static double linesPerSec(int numLines, long ns) {
+        return numLines / (ns / 1e9) / 1000;
+    }
+}
@@ -0,0 +1,99 @@
+package com.jpage4500.devicemanager.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * LogcatParser must produce exactly what LogEntry(String, SimpleDateFormat, int) did
+ */
+class LogcatParserTest {
+    private static final int YEAR = 2024;
+
+    private final TimeZone defaultTimeZone = TimeZone.getDefault();
+
+    @AfterEach
+    void tearDown() {
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    void samples() throws IOException {
+        LogcatParser parser = new LogcatParser(YEAR);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        for (String line : readSamples()) {
+            assertSame(line, new LogEntry(line, dateFormat, YEAR), parser.parse(line));
+        }
+    }
+
+    @Test
+    void nonLogLines() {
+        LogcatParser parser = new LogcatParser(YEAR);
+        assertNull(parser.parse("--------- beginning of main"));
+        assertNull(parser.parse(""));
+        assertNull(parser.parse("10-18 09:00:01.313"));
+    }
+
+    @Test
+    void daylightSavingTime() {
+        // 2024-03-10 02:00 doesn't exist and 2024-11-03 01:00 happens twice in New York
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        LogcatParser parser = new LogcatParser(YEAR);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        for (String day : List.of("03-10", "11-03")) {
+            for (int hour = 0; hour < 4; hour++) {
+                for (int minute = 0; minute < 60; minute += 15) {
+                    String line = String.format("%s %02d:%02d:30.123  100  200 I Tag: message", day, hour, minute);
+                    assertSame(line, new LogEntry(line, dateFormat, YEAR), parser.parse(line));
+                }
+            }
+        }
+    }
+
+    @Test
+    void randomLines() {
+        LogcatParser parser = new LogcatParser(YEAR);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        Random random = new Random(7);
+        String[] partArr = {" ", "  ", "\t", ":", " : ", "Tag", "msg", "1234", "D", "", "::"};
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%02d-%02d %02d:%02d:%02d.%03d", 1 + random.nextInt(12), 1 + random.nextInt(28),
+                    random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextInt(1000)));
+            int numParts = random.nextInt(12);
+            for (int j = 0; j < numParts; j++) sb.append(partArr[random.nextInt(partArr.length)]);
+            String line = sb.toString();
+            assertSame(line, new LogEntry(line, dateFormat, YEAR), parser.parse(line));
+        }
+    }
+
+    private static void assertSame(String line, LogEntry expected, LogEntry actual) {
+        if (expected.date == null) {
+            assertNull(actual, line);
+            return;
+        }
+        assertEquals(expected.date, actual.date, line);
+        assertEquals(expected.timestamp, actual.timestamp, line);
+        assertEquals(expected.pid, actual.pid, line);
+        assertEquals(expected.tid, actual.tid, line);
+        assertEquals(expected.level, actual.level, line);
+        assertEquals(expected.tag, actual.tag, line);
+        assertEquals(expected.message, actual.message, line);
+    }
+
+    static List<String> readSamples() throws IOException {
+        try (InputStream in = LogcatParserTest.class.getResourceAsStream("/logcat/threadtime.txt")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+}
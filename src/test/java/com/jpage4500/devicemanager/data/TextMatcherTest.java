@@ -0,0 +1,108 @@
+package com.jpage4500.devicemanager.data;
+
+import com.jpage4500.devicemanager.utils.TextUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextMatcherTest {
+    // NOTE: non-ASCII written as escapes (test sources aren't compiled as UTF-8)
+    private static final List<String> VALUE_LIST = Arrays.asList(
+            "", "a", "A", "abc", "ABC", "aBc", "bc", "Activity", "ACTIVITYMANAGER", "tivityman",
+            // accented, greek (final/regular sigma), turkish dotted/dotless i, long s, kelvin sign, sharp s
+            "caf\u00E9", "CAF\u00C9", "\u03C3\u03BF\u03C2", "\u03A3\u039F\u03A3", "\u0130", "\u0131", "i", "I", "\u017F", "s", "S",
+            "\u212A", "k", "K", "stra\u00DFe", "STRASSE",
+            // CJK and emoji (surrogate pair)
+            "\u65E5\u672C", "\u8A9E", "\uD83D\uDE00", "x\uD83D\uDE00y"
+    );
+
+    private static final List<String> TEXT_LIST = Arrays.asList(
+            null, "", "a", "A", "abc", "xxABCxx", "xxabc", "ABCxx", "bcbcbc", "ActivityManager",
+            "I/ActivityManager: Start proc 1234:com.foo/u0a123 for activity",
+            "Caf\u00E9 au lait", "CAF\u00C9", "caf\u00C9!", "\u03A3\u039F\u03A3 \u03C3\u03BF\u03C2", "\u0130stanbul", "\u0131\u0130iI", "\u017Ftrange",
+            "S", "\u212Aelvin", "kelvin", "Stra\u00DFe", "STRASSE",
+            "\u65E5\u672C\u8A9E", "log \uD83D\uDE00 line", "x\uD83D\uDE00y", "\uD83D\uDE00"
+    );
+
+    @Test
+    void sameResultsAsTextUtils() {
+        List<String> mismatchList = new ArrayList<>();
+        for (String value : VALUE_LIST) {
+            TextMatcher matcher = new TextMatcher(value);
+            for (String text : TEXT_LIST) {
+                check(mismatchList, "equals", value, text, TextUtils.equalsIgnoreCase(text, value), matcher.isEqual(text));
+                check(mismatchList, "startsWith", value, text, TextUtils.startsWithAny(text, true, value), matcher.startsWith(text));
+                check(mismatchList, "endsWith", value, text, TextUtils.endsWithAny(text, true, value), matcher.endsWith(text));
+                check(mismatchList, "contains", value, text, containsIgnoreCase(text, value), matcher.contains(text));
+            }
+        }
+        assertTrue(mismatchList.isEmpty(), String.join("\n", mismatchList));
+    }
+
+    @Test
+    void mixedCase() {
+        TextMatcher matcher = new TextMatcher("ActivityManager");
+        assertTrue(matcher.isEqual("activitymanager"));
+        assertTrue(matcher.startsWith("ACTIVITYMANAGER: started"));
+        assertTrue(matcher.endsWith("I/activityManager"));
+        assertTrue(matcher.contains("I/ACTIVITYmanager: Start proc"));
+        assertFalse(matcher.contains("I/Activity Manager"));
+        assertFalse(matcher.isEqual("ActivityManager2"));
+    }
+
+    @Test
+    void emptyValue() {
+        TextMatcher matcher = new TextMatcher("");
+        assertTrue(matcher.isEqual(""));
+        assertFalse(matcher.isEqual("a"));
+        assertTrue(matcher.startsWith("a"));
+        assertTrue(matcher.endsWith("a"));
+        assertTrue(matcher.contains("a"));
+        // same as TextUtils.containsIgnoreCase(): nothing is contained in an empty field
+        assertFalse(matcher.contains(""));
+        assertFalse(matcher.contains(null));
+        assertFalse(matcher.isEqual(null));
+    }
+
+    @Test
+    void nonAsciiShiftsDontSkipMatches() {
+        // several different non-ASCII chars share 1 shift slot
+        TextMatcher matcher = new TextMatcher("\u00E9\u00E8x\u00EA");
+        assertTrue(matcher.contains("aaa\u00C9\u00C8X\u00CA"));
+        assertTrue(matcher.contains("\u00E9\u00E9\u00E8x\u00EA"));
+        assertFalse(matcher.contains("\u00E9\u00E8x\u00E9"));
+        assertEquals(TextUtils.containsIgnoreCase("\u00E8\u00E9\u00E8x\u00EA\u00E9", "\u00E9\u00E8x\u00EA"), matcher.contains("\u00E8\u00E9\u00E8x\u00EA\u00E9"));
+    }
+
+    @Test
+    void foldedFirstChar() {
+        // "i" and dotted capital "I" are the same ignoring case (String.regionMatches); TextUtils.containsIgnoreCase() misses it
+        TextMatcher matcher = new TextMatcher("id");
+        assertTrue(matcher.startsWith("\u0130d"));
+        assertTrue(matcher.contains("p\u0130d"));
+        assertFalse(TextUtils.containsIgnoreCase("p\u0130d", "id"));
+    }
+
+    /**
+     * TextUtils.containsIgnoreCase() without its 1st char shortcut
+     */
+    private static boolean containsIgnoreCase(String text, String value) {
+        if (TextUtils.isEmpty(text)) return false;
+        for (int i = 0; i <= text.length() - value.length(); i++) {
+            if (text.regionMatches(true, i, value, 0, value.length())) return true;
+        }
+        return false;
+    }
+
+    private static void check(List<String> mismatchList, String name, String value, String text, boolean expected, boolean actual) {
+        if (expected != actual) {
+            mismatchList.add(name + ": value:" + value + ", text:" + text + ", expected:" + expected + ", was:" + actual);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.jpage4500.devicemanager.manager;
+
+import com.jpage4500.devicemanager.data.Device;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import se.vidstige.jadb.JadbConnection;
+import se.vidstige.jadb.JadbDevice;
+import se.vidstige.jadb.fakes.FakeAdbServer;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Stress harness: 100 simulated devices on the fake ADB server
+ * <p>
+ * - a few devices are busy with long installs (INSTALL_MS each, submitted first)
+ * - every device then runs COMMANDS_PER_DEVICE short shell commands (COMMAND_MS each)
+ * - reports how long the short commands take and the worst wait, for the old shared fixed pool and for
+ * DeviceExecutor lanes (platform threads, and virtual threads when running on Java 21+)
+ * <p>
+ * run with: mvn test -Pbenchmark -Dtest=DeviceExecutorBenchmark
+ * NOTE: the fake server runs a thread per connection in the same JVM, so on a machine with few cores latency
+ * includes the server's own overhead
+ */
+@Tag("benchmark")
+class DeviceExecutorBenchmark {
+    private static final int NUM_DEVICES = 100;
+    private static final int NUM_INSTALL_DEVICES = 5;
+    private static final int INSTALLS_PER_DEVICE = 4;
+    private static final int COMMANDS_PER_DEVICE = 20;
+    private static final long INSTALL_MS = 2000;
+    private static final long COMMAND_MS = 20;
+    // thread count DeviceManager used before DeviceExecutor
+    private static final int OLD_POOL_SIZE = 10;
+
+    /**
+     * @param otherLatencyMs worst latency on devices that aren't installing anything
+     */
+    private record Result(long commandMs, long maxLatencyMs, long otherLatencyMs) {
+    }
+
+    @Test
+    void stress() throws Exception {
+        try (FakeAdbServer server = new FakeAdbServer()) {
+            for (int i = 0; i < NUM_DEVICES; i++) {
+                server.addDevice("device-" + i).setShellHandler((command, stdout) -> {
+                    try {
+                        Thread.sleep(command.startsWith("pm install") ? INSTALL_MS : COMMAND_MS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    stdout.writeBytes("ok\n");
+                });
+            }
+
+            ExecutorService fixedPool = Executors.newFixedThreadPool(OLD_POOL_SIZE);
+            print("fixed pool (" + OLD_POOL_SIZE + ")", run(server, (device, task) -> fixedPool.submit(task)));
+            fixedPool.shutdownNow();
+
+            DeviceExecutor laneExecutor = new DeviceExecutor(false);
+            print("lanes", run(server, (device, task) -> laneExecutor.submit(device, task)));
+            System.out.println("  " + laneExecutor.getStats());
+            laneExecutor.shutdownNow();
+
+            DeviceExecutor virtualExecutor = new DeviceExecutor(true);
+            if (virtualExecutor.isVirtualThreads()) {
+                print("lanes (virtual threads)", run(server, (device, task) -> virtualExecutor.submit(device, task)));
+            } else {
+                System.out.println("lanes (virtual threads): not available on Java " + Runtime.version().feature());
+            }
+            virtualExecutor.shutdownNow();
+        }
+    }
+
+    private Result run(FakeAdbServer server, BiFunction<Device, Runnable, Future<?>> submitter) throws Exception {
+        // new connection each run so pooled sockets from the previous run don't help
+        JadbConnection connection = server.createConnection();
+        List<Device> deviceList = new ArrayList<>();
+        for (JadbDevice jadbDevice : connection.getDevices()) {
+            Device device = new Device();
+            device.serial = jadbDevice.getSerial();
+            device.jadbDevice = jadbDevice;
+            deviceList.add(device);
+        }
+        assertEquals(NUM_DEVICES, deviceList.size());
+
+        List<Future<?>> installList = new ArrayList<>();
+        for (int i = 0; i < NUM_INSTALL_DEVICES; i++) {
+            Device device = deviceList.get(i);
+            for (int j = 0; j < INSTALLS_PER_DEVICE; j++) {
+                installList.add(submitter.apply(device, () -> shell(device, "pm install /data/local/tmp/app.apk")));
+            }
+        }
+
+        AtomicLong maxLatencyMs = new AtomicLong();
+        AtomicLong otherLatencyMs = new AtomicLong();
+        List<Future<?>> commandList = new ArrayList<>();
+        long startMs = System.currentTimeMillis();
+        for (int j = 0; j < COMMANDS_PER_DEVICE; j++) {
+            for (int i = 0; i < deviceList.size(); i++) {
+                Device device = deviceList.get(i);
+                boolean isInstalling = i < NUM_INSTALL_DEVICES;
+                long submitMs = System.currentTimeMillis();
+                commandList.add(submitter.apply(device, () -> {
+                    shell(device, "getprop ro.product.model");
+                    long latencyMs = System.currentTimeMillis() - submitMs;
+                    maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+                    if (!isInstalling) otherLatencyMs.accumulateAndGet(latencyMs, Math::max);
+                }));
+            }
+        }
+        for (Future<?> future : commandList) future.get(2, TimeUnit.MINUTES);
+        long commandMs = System.currentTimeMillis() - startMs;
+        for (Future<?> future : installList) future.get(2, TimeUnit.MINUTES);
+        assertEquals(NUM_DEVICES * COMMANDS_PER_DEVICE, commandList.size());
+        connection.close();
+        return new Result(commandMs, maxLatencyMs.get(), otherLatencyMs.get());
+    }
+
+    private static void shell(Device device, String command) {
+        try (InputStream in = device.jadbDevice.executeShell(command)) {
+            String output = new String(in.readAllBytes());
+            if (!output.equals("ok\n")) throw new IllegalStateException("unexpected output: " + output);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void print(String name, Result result) {
+        int numCommands = NUM_DEVICES * COMMANDS_PER_DEVICE;
+        System.out.printf("%s: %d commands in %dms (%.0f/s), max latency %dms (devices not installing: %dms)%n", name,
+                numCommands, result.commandMs, numCommands * 1000.0 / result.commandMs, result.maxLatencyMs, result.otherLatencyMs);
+    }
+}
@@ -0,0 +1,139 @@
+package com.jpage4500.devicemanager.manager;
+
+import com.jpage4500.devicemanager.data.Device;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeviceExecutorTest {
+    // matches DeviceExecutor.MAX_PER_DEVICE
+    private static final int MAX_PER_DEVICE = 4;
+
+    private final DeviceExecutor executor = new DeviceExecutor(false);
+    private final Device device = createDevice("device-1");
+    private final List<CountDownLatch> blockerList = new ArrayList<>();
+    private final List<String> runList = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (CountDownLatch latch : blockerList) latch.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void interactiveRunsBeforeBackground() throws Exception {
+        fillLane();
+        executor.submit(device, DeviceExecutor.Priority.BACKGROUND, null, record("bg-1"));
+        executor.submit(device, DeviceExecutor.Priority.BACKGROUND, null, record("bg-2"));
+        Future<?> last = executor.submit(device, DeviceExecutor.Priority.INTERACTIVE, null, record("ui-1"));
+        Future<?> end = executor.submit(device, DeviceExecutor.Priority.BACKGROUND, null, record("bg-3"));
+        assertTrue(runList.isEmpty());
+
+        // free 1 slot; queued tasks then run one at a time
+        blockerList.get(0).countDown();
+        end.get(5, TimeUnit.SECONDS);
+        assertTrue(last.isDone());
+        assertEquals(List.of("ui-1", "bg-1", "bg-2", "bg-3"), runList);
+    }
+
+    @Test
+    void duplicateKeyCollapses() throws Exception {
+        fillLane();
+        Future<?> first = executor.submit(device, DeviceExecutor.Priority.BACKGROUND, "refresh", record("refresh-1"));
+        Future<?> second = executor.submit(device, DeviceExecutor.Priority.BACKGROUND, "refresh", record("refresh-2"));
+        assertSame(first, second);
+        // same key on another device is a different task
+        Future<?> other = executor.submit(createDevice("device-2"), DeviceExecutor.Priority.BACKGROUND, "refresh", record("other"));
+
+        blockerList.get(0).countDown();
+        first.get(5, TimeUnit.SECONDS);
+        other.get(5, TimeUnit.SECONDS);
+        assertTrue(runList.contains("refresh-1"));
+        assertTrue(runList.contains("other"));
+        assertEquals(2, runList.size());
+        assertEquals(1, executor.getStats().coalesced);
+    }
+
+    @Test
+    void backgroundKeyPromoted() throws Exception {
+        fillLane();
+        executor.submit(device, DeviceExecutor.Priority.BACKGROUND, null, record("bg-1"));
+        Future<?> background = executor.submit(device, DeviceExecutor.Priority.BACKGROUND, "details", record("details"));
+        // user now waiting on the same thing
+        Future<?> interactive = executor.submit(device, DeviceExecutor.Priority.INTERACTIVE, "details", record("details-2"));
+        assertSame(background, interactive);
+
+        blockerList.get(0).countDown();
+        Future<?> end = executor.submit(device, DeviceExecutor.Priority.BACKGROUND, null, record("bg-2"));
+        end.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("details", "bg-1", "bg-2"), runList);
+        DeviceExecutor.Stats stats = executor.getStats();
+        assertEquals(1, stats.promoted);
+        assertEquals(1, stats.coalesced);
+    }
+
+    @Test
+    void removedLaneDroppedWhenIdle() throws Exception {
+        executor.submit(device, record("idle")).get(5, TimeUnit.SECONDS);
+        fillLane(createDevice("device-2"));
+        assertEquals(2, executor.getStats().lanes);
+
+        // NOTE: lane may still be finishing up "idle" task
+        executor.removeDevice("device-1");
+        waitForLanes(1);
+        // busy lane is kept until its tasks are done
+        executor.removeDevice("device-2");
+        assertEquals(1, executor.getStats().lanes);
+        for (CountDownLatch latch : blockerList) latch.countDown();
+        waitForLanes(0);
+    }
+
+    private void waitForLanes(int numLanes) throws InterruptedException {
+        long endMs = System.currentTimeMillis() + 5000;
+        while (executor.getStats().lanes != numLanes && System.currentTimeMillis() < endMs) Thread.sleep(10);
+        assertEquals(numLanes, executor.getStats().lanes);
+    }
+
+    /**
+     * occupy every slot in the lane with a task that waits until released
+     */
+    private void fillLane() throws InterruptedException {
+        fillLane(device);
+    }
+
+    private void fillLane(Device laneDevice) throws InterruptedException {
+        CountDownLatch startedLatch = new CountDownLatch(MAX_PER_DEVICE);
+        for (int i = 0; i < MAX_PER_DEVICE; i++) {
+            CountDownLatch blocker = new CountDownLatch(1);
+            blockerList.add(blocker);
+            executor.submit(laneDevice, () -> {
+                startedLatch.countDown();
+                try {
+                    blocker.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+        }
+        assertTrue(startedLatch.await(5, TimeUnit.SECONDS));
+    }
+
+    private Runnable record(String name) {
+        return () -> runList.add(name);
+    }
+
+    private static Device createDevice(String serial) {
+        Device device = new Device();
+        device.serial = serial;
+        return device;
+    }
+}
@@ -0,0 +1,72 @@
+package com.jpage4500.devicemanager.manager;
+
+import com.jpage4500.devicemanager.data.Device;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeviceRefresherTest {
+    private static final int NUM_DEVICES = 200;
+    private static final long BATTERY_TTL_MS = DeviceRefresher.Field.BATTERY.ttlMs;
+
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void firstRefreshIsStaggered() {
+        DeviceRefresher refresher = new DeviceRefresher(executor, (device, fieldSet) -> {
+        });
+        // all devices connected (and fetched) at the same time
+        for (int i = 0; i < NUM_DEVICES; i++) {
+            refresher.onRefreshDone(createDevice("device-" + i), EnumSet.allOf(DeviceRefresher.Field.class), true);
+        }
+
+        long[] delayArr = executor.getQueue().stream().mapToLong(r -> ((Delayed) r).getDelay(TimeUnit.MILLISECONDS)).sorted().toArray();
+        assertEquals(NUM_DEVICES, delayArr.length);
+        // battery has the shortest TTL so it decides each device's next refresh
+        assertTrue(delayArr[delayArr.length - 1] <= BATTERY_TTL_MS);
+        // spread across the TTL instead of bunched within +/- 15% of it
+        int numEarly = 0;
+        for (long delayMs : delayArr) if (delayMs < BATTERY_TTL_MS * 0.5) numEarly++;
+        assertTrue(numEarly > NUM_DEVICES / 4 && numEarly < NUM_DEVICES * 3 / 4, "early:" + numEarly);
+    }
+
+    @Test
+    void missingNicknameDoesNotForceDetails() {
+        List<Set<DeviceRefresher.Field>> refreshList = new CopyOnWriteArrayList<>();
+        DeviceRefresher refresher = new DeviceRefresher(executor, (device, fieldSet) -> refreshList.add(fieldSet));
+        // device without a nickname set
+        Device device = createDevice("device-1");
+        // 2nd fetch: every field is now a full TTL (+/- jitter) away
+        refresher.onRefreshDone(device, EnumSet.allOf(DeviceRefresher.Field.class), true);
+        refresher.onRefreshDone(device, EnumSet.allOf(DeviceRefresher.Field.class), true);
+
+        // run the next refresh right away; nothing is due yet so nothing should be fetched
+        Runnable next = executor.getQueue().peek();
+        executor.remove(next);
+        next.run();
+        assertEquals(List.of(), refreshList);
+    }
+
+    private static Device createDevice(String serial) {
+        Device device = new Device();
+        device.serial = serial;
+        device.isOnline = true;
+        device.isBooted = true;
+        return device;
+    }
+}
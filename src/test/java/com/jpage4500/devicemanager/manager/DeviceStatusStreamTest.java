@@ -0,0 +1,70 @@
+package com.jpage4500.devicemanager.manager;
+
+import com.jpage4500.devicemanager.data.Device;
+import org.junit.jupiter.api.Test;
+import se.vidstige.jadb.JadbConnection;
+import se.vidstige.jadb.fakes.FakeAdbServer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeviceStatusStreamTest {
+
+    @Test
+    void reportsOnlyChanges() throws Exception {
+        String output = """
+                boot_completed: 1
+                --ADM-STATUS--
+                boot_completed: 1
+                  AC powered: false
+                  USB powered: true
+                  level: 50
+                --ADM-STATUS--
+                I/battery_level: [50,4100,300]
+                I/battery_level: [51,4100,300]
+                I/battery_level: [51,4090,301]
+                I/battery_status: [2,2,1,1,Li-ion]
+                I/battery_status: [3,2,1,0,Li-ion]
+                """;
+        try (FakeAdbServer server = new FakeAdbServer()) {
+            server.addDevice("serial-1").setShellHandler((command, stdout) -> {
+                assertTrue(command.contains("logcat -b events"));
+                stdout.writeBytes(output);
+            });
+            JadbConnection connection = server.createConnection();
+            Device device = new Device();
+            device.serial = "serial-1";
+            device.jadbDevice = connection.getDevices().get(0);
+
+            List<String> changeList = new CopyOnWriteArrayList<>();
+            CountDownLatch closedLatch = new CountDownLatch(1);
+            DeviceStatusStream.start(device, connection.getStreamSelector(), new DeviceStatusStream.Listener() {
+                @Override
+                public void onStatusChanged(Device device, boolean isBootChanged) {
+                    changeList.add(device.isBooted + " " + device.batteryLevel + " " + device.powerStatus + " " + isBootChanged);
+                }
+
+                @Override
+                public void onStreamClosed(Device device, IOException e) {
+                    closedLatch.countDown();
+                }
+            });
+
+            assertTrue(closedLatch.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of(
+                    "true null POWER_NONE true",
+                    "true 50 POWER_USB false",
+                    "true 51 POWER_USB false",
+                    "true 51 POWER_AC false",
+                    "true 51 POWER_NONE false"
+            ), changeList);
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.jpage4500.devicemanager.manager;
+
+import com.jpage4500.devicemanager.data.LogEntry;
+import com.jpage4500.devicemanager.data.LogFilter;
+import com.jpage4500.devicemanager.data.LogPredicate;
+import com.jpage4500.devicemanager.table.LogsTableModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.swing.*;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogExporterTest {
+    private static final String[] LEVEL_ARR = {"V", "D", "I", "W", "E"};
+    // matches LogsTableModel.MAX_LINES / REMOVE_EXTRA
+    private static final int MAX_LINES = 1_000_000;
+    private static final int REMOVE_EXTRA = 50_000;
+
+    @TempDir
+    File folder;
+
+    private final LogsTableModel model = new LogsTableModel();
+    private int numCreated;
+
+    @Test
+    void allLines() throws Exception {
+        // more than 1 chunk
+        SwingUtilities.invokeAndWait(() -> addLines(12_345));
+        File file = new File(folder, "all.log");
+        LogExporter exporter = export(null, file);
+
+        List<String> lineList = readLines(file);
+        assertEquals(12_345, lineList.size());
+        assertEquals(12_345, exporter.getNumWritten());
+        assertEquals(0, exporter.getNumSkipped());
+        assertEquals(100, exporter.getPercent());
+        assertEquals("11-14 22:13:20.000   100   101 V Tag0: message 0", lineList.get(0));
+        assertEquals("11-14 22:13:20.000   100   101 E Tag4: message 12344", lineList.get(12_344));
+    }
+
+    @Test
+    void filteredLinesGzip() throws Exception {
+        SwingUtilities.invokeAndWait(() -> addLines(12_345));
+        File file = new File(folder, "filtered.log.gz");
+        LogPredicate predicate = LogFilter.parse("level:E").compile();
+        LogExporter exporter = export(predicate, file);
+
+        List<String> lineList = readLines(file);
+        // every 5th line is an error
+        assertEquals(12_345 / 5, lineList.size());
+        assertEquals(lineList.size(), exporter.getNumWritten());
+        for (String line : lineList) assertTrue(line.contains(" E Tag4: "), line);
+        assertEquals("11-14 22:13:20.000   100   101 E Tag4: message 4", lineList.get(0));
+    }
+
+    @Test
+    void headTrimmedWhileExporting() throws Exception {
+        SwingUtilities.invokeAndWait(() -> addLines(MAX_LINES));
+        File file = new File(folder, "trimmed.log");
+        CountDownLatch doneLatch = new CountDownLatch(1);
+        Exception[] errorArr = new Exception[1];
+        LogExporter[] exporterArr = new LogExporter[1];
+        SwingUtilities.invokeAndWait(() -> {
+            exporterArr[0] = new LogExporter(model, null, file, false, createListener(doneLatch, errorArr));
+            exporterArr[0].start();
+            // over max lines: head is removed before any lines are copied
+            addLines(1);
+        });
+        assertTrue(doneLatch.await(60, TimeUnit.SECONDS));
+        assertNull(errorArr[0]);
+
+        // line added after export started isn't included
+        int numRemoved = 1 + REMOVE_EXTRA;
+        LogExporter exporter = exporterArr[0];
+        assertEquals(numRemoved, exporter.getNumSkipped());
+        assertEquals(MAX_LINES - numRemoved, exporter.getNumWritten());
+        List<String> lineList = readLines(file);
+        assertEquals(MAX_LINES - numRemoved, lineList.size());
+        assertTrue(lineList.get(0).endsWith(": message " + numRemoved), lineList.get(0));
+        assertTrue(lineList.get(lineList.size() - 1).endsWith(": message " + (MAX_LINES - 1)));
+    }
+
+    private LogExporter export(LogPredicate predicate, File file) throws Exception {
+        CountDownLatch doneLatch = new CountDownLatch(1);
+        Exception[] errorArr = new Exception[1];
+        LogExporter exporter = new LogExporter(model, predicate, file, false, createListener(doneLatch, errorArr));
+        SwingUtilities.invokeAndWait(exporter::start);
+        assertTrue(doneLatch.await(30, TimeUnit.SECONDS));
+        assertNull(errorArr[0]);
+        return exporter;
+    }
+
+    private static LogExporter.Listener createListener(CountDownLatch doneLatch, Exception[] errorArr) {
+        return new LogExporter.Listener() {
+            @Override
+            public void handleExportProgress(LogExporter exporter) {
+            }
+
+            @Override
+            public void handleExportDone(LogExporter exporter, Exception error) {
+                errorArr[0] = error;
+                doneLatch.countDown();
+            }
+        };
+    }
+
+    private void addLines(int count) {
+        List<LogEntry> logEntryList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LogEntry logEntry = new LogEntry();
+            logEntry.timestamp = 1_700_000_000_000L + numCreated;
+            logEntry.date = "11-14 22:13:20.000";
+            logEntry.pid = "100";
+            logEntry.tid = "101";
+            logEntry.level = LEVEL_ARR[numCreated % LEVEL_ARR.length];
+            logEntry.tag = "Tag" + (numCreated % LEVEL_ARR.length);
+            logEntry.message = "message " + numCreated;
+            numCreated++;
+            logEntryList.add(logEntry);
+        }
+        model.addLogEntry(logEntryList);
+    }
+
+    private static List<String> readLines(File file) throws Exception {
+        List<String> lineList = new ArrayList<>();
+        try (InputStream in = file.getName().endsWith(".gz") ? new GZIPInputStream(new FileInputStream(file)) : new FileInputStream(file);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) lineList.add(line);
+        }
+        return lineList;
+    }
+}
@@ -0,0 +1,60 @@
+package com.jpage4500.devicemanager.manager;
+
+import com.jpage4500.devicemanager.data.LogEntry;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogMergerTest {
+
+    @Test
+    void waitsForSourceThatHasNotSentYet() throws Exception {
+        List<Long> mergedList = new CopyOnWriteArrayList<>();
+        CountDownLatch doneLatch = new CountDownLatch(1);
+        LogMerger merger = new LogMerger(logEntryList -> {
+            for (LogEntry logEntry : logEntryList) mergedList.add(logEntry.timestamp);
+            if (mergedList.size() == 3) doneLatch.countDown();
+        });
+        SwingUtilities.invokeAndWait(() -> {
+            LogPipeline.Listener first = merger.addSource("serial-1");
+            LogPipeline.Listener second = merger.addSource("serial-2");
+            first.handleLogEntries(List.of(createEntry(100), createEntry(300)));
+            // serial-2 hasn't sent anything yet; its first line could be older
+            assertTrue(mergedList.isEmpty());
+            second.handleLogEntries(List.of(createEntry(200)));
+        });
+        // 300 waits for serial-2 until it's held too long
+        assertEquals(List.of(100L, 200L), mergedList);
+        assertTrue(doneLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(100L, 200L, 300L), mergedList);
+        SwingUtilities.invokeAndWait(merger::stop);
+    }
+
+    @Test
+    void singleSourceNotHeld() throws Exception {
+        List<Long> mergedList = new CopyOnWriteArrayList<>();
+        LogMerger merger = new LogMerger(logEntryList -> {
+            for (LogEntry logEntry : logEntryList) mergedList.add(logEntry.timestamp);
+        });
+        SwingUtilities.invokeAndWait(() -> {
+            LogPipeline.Listener source = merger.addSource("serial-1");
+            source.handleLogEntries(List.of(createEntry(100), createEntry(200)));
+        });
+        assertEquals(List.of(100L, 200L), mergedList);
+        SwingUtilities.invokeAndWait(merger::stop);
+    }
+
+    private static LogEntry createEntry(long timestamp) {
+        LogEntry logEntry = new LogEntry();
+        logEntry.timestamp = timestamp;
+        logEntry.message = "line " + timestamp;
+        return logEntry;
+    }
+}
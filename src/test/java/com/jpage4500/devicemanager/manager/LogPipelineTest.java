@@ -0,0 +1,47 @@
+package com.jpage4500.devicemanager.manager;
+
+import com.jpage4500.devicemanager.data.LogEntry;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogPipelineTest {
+    // matches LogPipeline.CAPACITY
+    private static final int CAPACITY = 1 << 17;
+
+    @Test
+    void droppedLineComesAfterReceivedLines() throws Exception {
+        List<LogEntry> receivedList = new ArrayList<>();
+        CountDownLatch doneLatch = new CountDownLatch(1);
+        LogPipeline pipeline = new LogPipeline(logEntryList -> {
+            receivedList.addAll(logEntryList);
+            if (receivedList.size() == CAPACITY + 1) doneLatch.countDown();
+        });
+        // offer on Swing thread so nothing is drained until ring is full
+        SwingUtilities.invokeAndWait(() -> {
+            for (int i = 0; i < CAPACITY; i++) assertTrue(pipeline.offer(createEntry(i)));
+            for (int i = 0; i < 10; i++) assertFalse(pipeline.offer(createEntry(CAPACITY + i)));
+        });
+        assertTrue(doneLatch.await(10, TimeUnit.SECONDS));
+        SwingUtilities.invokeAndWait(pipeline::stop);
+
+        for (int i = 0; i < CAPACITY; i++) assertEquals("line " + i, receivedList.get(i).message);
+        LogEntry dropped = receivedList.get(CAPACITY);
+        assertTrue(dropped.message.contains("10 log lines dropped"), dropped.message);
+        assertEquals(10, pipeline.getNumDropped());
+    }
+
+    private static LogEntry createEntry(int i) {
+        LogEntry logEntry = new LogEntry();
+        logEntry.message = "line " + i;
+        return logEntry;
+    }
+}
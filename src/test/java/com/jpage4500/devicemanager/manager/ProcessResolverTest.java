@@ -0,0 +1,154 @@
+package com.jpage4500.devicemanager.manager;
+
+import com.jpage4500.devicemanager.data.Device;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProcessResolverTest {
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+    private final CountDownLatch releaseLatch = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        // keep scheduled lookups/notifies from running; tests call lookupPending() themselves
+        executor.execute(() -> {
+            try {
+                releaseLatch.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void pidMapCollisions() {
+        ProcessResolver.PidMap pidMap = new ProcessResolver.PidMap();
+        // 3 pids that land in the same slot
+        List<Integer> pidList = new ArrayList<>();
+        int slot = ProcessResolver.PidMap.hash(1000) & 1023;
+        for (int pid = 1000; pidList.size() < 3; pid++) {
+            if ((ProcessResolver.PidMap.hash(pid) & 1023) == slot) pidList.add(pid);
+        }
+        for (int pid : pidList) pidMap.put(pid, "app" + pid);
+        for (int pid : pidList) assertEquals("app" + pid, pidMap.get(pid));
+
+        // removing the 1st must not hide the ones after it
+        pidMap.remove(pidList.get(0));
+        assertNull(pidMap.get(pidList.get(0)));
+        assertEquals("app" + pidList.get(1), pidMap.get(pidList.get(1)));
+        assertEquals("app" + pidList.get(2), pidMap.get(pidList.get(2)));
+
+        // replace value
+        pidMap.put(pidList.get(2), "other");
+        assertEquals("other", pidMap.get(pidList.get(2)));
+        pidMap.remove(12345);
+        assertEquals(2, count(pidMap));
+    }
+
+    @Test
+    void pidMapGrow() {
+        ProcessResolver.PidMap pidMap = new ProcessResolver.PidMap();
+        // well past the initial 1024 slots
+        for (int pid = 1; pid <= 5000; pid++) pidMap.put(pid, "app" + pid);
+        for (int pid = 1; pid <= 5000; pid += 2) pidMap.remove(pid);
+        for (int pid = 1; pid <= 5000; pid++) {
+            assertEquals(pid % 2 == 0 ? "app" + pid : null, pidMap.get(pid), "pid:" + pid);
+        }
+        assertEquals(2500, count(pidMap));
+    }
+
+    @Test
+    void procStartAndDied() {
+        ProcessResolver resolver = createResolver(device -> new HashMap<>());
+        resolver.handleEvent("10-16 11:34:17.824  1000  1853 I am_proc_start: [0,12345,10123,com.foo.bar,activity,{com.foo.bar/com.foo.bar.MainActivity}]");
+        assertEquals("com.foo.bar", resolver.getApp("12345"));
+        int version = resolver.getVersion();
+
+        resolver.handleEvent("10-16 11:40:02.113  1000  1853 I am_proc_died: [0,12345,com.foo.bar,900,17]");
+        assertTrue(resolver.getVersion() > version);
+        assertFalse(resolver.getProcessMap().containsKey("12345"));
+        // not looked up again
+        assertNull(resolver.getApp("12345"));
+        resolver.lookupPending();
+        assertNull(resolver.getApp("12345"));
+
+        // pid reused
+        resolver.handleEvent("10-16 11:41:00.000  1000  1853 I am_proc_start: [0,12345,10124,com.other,service,{com.other/.Svc}]");
+        assertEquals("com.other", resolver.getApp("12345"));
+    }
+
+    @Test
+    void badEventsIgnored() {
+        ProcessResolver resolver = createResolver(device -> new HashMap<>());
+        int version = resolver.getVersion();
+        resolver.handleEvent("10-16 11:34:17.824  1000  1853 I am_proc_start: [0,12345]");
+        resolver.handleEvent("10-16 11:34:17.824  1000  1853 I am_proc_start: [0,abc,10123,com.foo,activity]");
+        resolver.handleEvent("10-16 11:34:17.824  1000  1853 I am_proc_start: 0,12345,10123,com.foo");
+        resolver.handleEvent("10-16 11:34:17.824  1000  1853 I am_focused_activity: [0,12345,com.foo]");
+        assertEquals(version, resolver.getVersion());
+        assertTrue(resolver.getProcessMap().isEmpty());
+    }
+
+    @Test
+    void pidSeenDuringPsStaysPending() {
+        List<Map<String, String>> resultList = new ArrayList<>();
+        int[] numScheduled = new int[1];
+        ProcessResolver[] resolver = new ProcessResolver[1];
+        resolver[0] = createResolver(device -> {
+            if (resultList.size() == 0) {
+                // line from a new pid arrives while "ps" is running; it gets a lookup of its own
+                int before = executor.getQueue().size();
+                assertNull(resolver[0].getApp("200"));
+                numScheduled[0] = executor.getQueue().size() - before;
+            }
+            Map<String, String> psMap = new HashMap<>();
+            psMap.put("100", "com.a");
+            // new pid is only in the 2nd "ps"
+            if (resultList.size() > 0) psMap.put("200", "com.b");
+            resultList.add(psMap);
+            return psMap;
+        });
+
+        assertNull(resolver[0].getApp("100"));
+        assertNull(resolver[0].getApp("300"));
+        resolver[0].lookupPending();
+        assertEquals(1, numScheduled[0]);
+        assertEquals("com.a", resolver[0].getApp("100"));
+
+        // 300 wasn't found; 200 wasn't part of that lookup so it's still pending
+        resolver[0].lookupPending();
+        assertEquals(2, resultList.size());
+        assertEquals("com.b", resolver[0].getApp("200"));
+        assertNull(resolver[0].getApp("300"));
+    }
+
+    private ProcessResolver createResolver(Function<Device, Map<String, String>> psFunction) {
+        Device device = new Device();
+        device.serial = "device-1";
+        return new ProcessResolver(device, null, executor, psFunction);
+    }
+
+    private static int count(ProcessResolver.PidMap pidMap) {
+        int[] count = new int[1];
+        pidMap.forEach((pid, app) -> count[0]++);
+        return count[0];
+    }
+}
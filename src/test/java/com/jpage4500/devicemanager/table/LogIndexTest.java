@@ -0,0 +1,146 @@
+package com.jpage4500.devicemanager.table;
+
+import com.jpage4500.devicemanager.utils.TextUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogIndexTest {
+    // matches LogIndex.BLOCK_ROWS / MAX_WORD
+    private static final int BLOCK_ROWS = 1 << 16;
+    private static final int MAX_WORD = 48;
+
+    private final LogIndex logIndex = new LogIndex();
+    // id -> message
+    private final Map<Long, String> messageMap = new TreeMap<>();
+
+    @Test
+    void partialFirstAndLastWord() {
+        add(0, "ActivityManager: Start proc 1234:com.foo/u0a123 for activity");
+        add(1, "ActivityManager: Killing 1234:com.foo/u0a123");
+        add(2, "WindowManager: Starting window");
+        add(3, "the manager start again");
+
+        // first word can end a longer word, last word can start one
+        assertEquals(List.of(0L), find("ivityManager: Sta"));
+        assertEquals(List.of(0L, 2L), find("Manager: Start"));
+        // middle word is a whole word
+        assertEquals(List.of(0L), find("Manager: Start proc"));
+        assertEquals(List.of(), find("Manager: Star proc"));
+        // whole words on both ends
+        assertEquals(List.of(3L), find(" manager start "));
+        assertEquals(List.of(0L, 1L), find("1234:com.foo/u0a"));
+    }
+
+    @Test
+    void longWordsCut() {
+        String longWord = "a".repeat(30) + "b".repeat(30);
+        add(0, "x " + longWord + " y");
+        add(1, "x " + "a".repeat(30) + " y");
+
+        // whole word longer than MAX_WORD
+        assertEquals(List.of(0L), find(" " + longWord + " "));
+        // only the end of it (after the cut)
+        assertEquals(List.of(0L), find("b".repeat(20) + " y"));
+        // start of it
+        assertEquals(List.of(0L, 1L), find("x " + "a".repeat(25)));
+        assertEquals(List.of(0L), find("x " + longWord.substring(0, MAX_WORD + 2)));
+    }
+
+    @Test
+    void shortTextNotUsable() {
+        add(0, "a b c");
+        LogIndex.LongList resultList = new LogIndex.LongList();
+        assertFalse(logIndex.find("a b", 0, id -> true, resultList));
+        assertFalse(logIndex.find("!!", 0, id -> true, resultList));
+        assertEquals(0, resultList.size());
+    }
+
+    @Test
+    void trimDropsBlocks() {
+        add(0, "hello world");
+        add(BLOCK_ROWS - 1, "hello world");
+        add(BLOCK_ROWS + 5, "hello world");
+        add(2L * BLOCK_ROWS + 1, "hello there");
+        assertEquals(List.of(0L, BLOCK_ROWS - 1L, BLOCK_ROWS + 5L), find("hello world"));
+
+        // block 0 only partly trimmed; fromId skips the removed rows
+        logIndex.trim(10);
+        assertEquals(List.of(BLOCK_ROWS - 1L, BLOCK_ROWS + 5L), find("hello world", 10));
+        // whole block gone (even when searching from 0)
+        logIndex.trim(BLOCK_ROWS + 1);
+        assertEquals(List.of(BLOCK_ROWS + 5L), find("hello world", 0));
+        assertEquals(List.of(2L * BLOCK_ROWS + 1), find("hello there", 0));
+
+        logIndex.clear();
+        assertEquals(List.of(), find("hello", 0));
+    }
+
+    @Test
+    void postingDeltas() {
+        // same word twice in a row, and gaps that need more than 1 varint byte
+        long[] idArr = {0, 1, 200, 20_000, BLOCK_ROWS - 1};
+        for (long id : idArr) add(id, "a word word b");
+        List<Long> expectedList = new ArrayList<>();
+        for (long id : idArr) expectedList.add(id);
+        assertEquals(expectedList, find(" word "));
+    }
+
+    @Test
+    void longListSearchAndRemove() {
+        LogIndex.LongList list = new LogIndex.LongList();
+        for (int i = 0; i < 100; i++) list.add(i * 10L);
+        assertEquals(100, list.size());
+        assertEquals(0, list.search(-1));
+        assertEquals(0, list.search(0));
+        assertEquals(1, list.search(1));
+        assertEquals(50, list.search(500));
+        assertEquals(100, list.search(10_000));
+
+        list.removeBefore(305);
+        assertEquals(69, list.size());
+        assertEquals(310, list.get(0));
+        assertEquals(0, list.search(0));
+        assertEquals(1, list.search(311));
+
+        // adding after removeBefore() reuses the space at the front, then grows
+        for (int i = 100; i < 300; i++) list.add(i * 10L);
+        assertEquals(269, list.size());
+        assertEquals(310, list.get(0));
+        assertEquals(2990, list.get(268));
+        for (int i = 1; i < list.size(); i++) assertTrue(list.get(i) > list.get(i - 1));
+
+        list.removeBefore(100_000);
+        assertEquals(0, list.size());
+        list.clear();
+        list.add(5);
+        assertEquals(5, list.get(0));
+    }
+
+    private void add(long id, String message) {
+        messageMap.put(id, message);
+        logIndex.add(id, null, message);
+    }
+
+    private List<Long> find(String text) {
+        return find(text, 0);
+    }
+
+    /**
+     * @return ids found with index (each candidate is checked against the message, same as LogsTableModel)
+     */
+    private List<Long> find(String text, long fromId) {
+        LogIndex.LongList resultList = new LogIndex.LongList();
+        assertTrue(logIndex.find(text, fromId, id -> TextUtils.containsIgnoreCase(messageMap.get(id), text), resultList));
+        List<Long> idList = new ArrayList<>();
+        for (int i = 0; i < resultList.size(); i++) idList.add(resultList.get(i));
+        return idList;
+    }
+}
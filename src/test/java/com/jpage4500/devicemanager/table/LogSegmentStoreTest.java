@@ -0,0 +1,112 @@
+package com.jpage4500.devicemanager.table;
+
+import com.jpage4500.devicemanager.data.LogEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogSegmentStoreTest {
+
+    @TempDir
+    File folder;
+
+    @Test
+    void readerReadsRange() throws Exception {
+        LogSegmentStore store = new LogSegmentStore(folder);
+        // more than 1 segment
+        for (int i = 0; i < 150_000; i++) store.append(createEntry(i));
+
+        LogSegmentStore.Reader reader = store.openReader(99_990, 100_010);
+        List<Long> idList = new ArrayList<>();
+        reader.read((id, logEntry) -> {
+            assertEquals("message " + id, logEntry.message);
+            idList.add(id);
+            return true;
+        });
+        assertEquals(20, idList.size());
+        assertEquals(99_990L, idList.get(0));
+        assertEquals(100_009L, idList.get(19));
+        store.close();
+    }
+
+    @Test
+    void readerSkipsDeletedRows() throws Exception {
+        LogSegmentStore store = new LogSegmentStore(folder);
+        for (int i = 0; i < 1000; i++) store.append(createEntry(i));
+        LogSegmentStore.Reader reader = store.openReader(0, 1000);
+        assertNotNull(store.read(5));
+
+        store.clear();
+        // cached rows are gone too
+        assertNull(store.read(5));
+        int[] count = new int[1];
+        reader.read((id, logEntry) -> {
+            count[0]++;
+            return true;
+        });
+        assertEquals(0, count[0]);
+        String[] nameArr = folder.list();
+        assertTrue(nameArr == null || nameArr.length == 0);
+        store.close();
+    }
+
+    @Test
+    void appSavedWithRow() throws Exception {
+        LogSegmentStore store = new LogSegmentStore(folder);
+        LogEntry withApp = createEntry(0);
+        withApp.app = "com.foo";
+        store.append(withApp);
+        // app wasn't known when line was received
+        store.append(createEntry(1));
+        store.close();
+
+        store = new LogSegmentStore(folder);
+        assertEquals("com.foo", store.read(0).app);
+        assertNull(store.read(1).app);
+        store.close();
+    }
+
+    @Test
+    void olderSegmentsReadWithoutApp() throws Exception {
+        LogSegmentStore store = new LogSegmentStore(folder);
+        LogEntry logEntry = createEntry(0);
+        logEntry.app = "com.foo";
+        store.append(logEntry);
+        store.close();
+        // segment saved before app was (extra field at end of record is never read)
+        File[] fileArr = folder.listFiles((dir, name) -> name.endsWith(".records"));
+        assertEquals(1, fileArr.length);
+        File oldFile = new File(folder, fileArr[0].getName().replace(".records", ".rows"));
+        assertTrue(fileArr[0].renameTo(oldFile));
+
+        store = new LogSegmentStore(folder);
+        assertEquals(1, store.size());
+        LogEntry read = store.read(0);
+        assertEquals("message 0", read.message);
+        assertNull(read.app);
+        // new rows go to a new segment
+        store.append(createEntry(1));
+        assertEquals("message 1", store.read(1).message);
+        store.close();
+    }
+
+    private static LogEntry createEntry(int i) {
+        LogEntry logEntry = new LogEntry();
+        logEntry.timestamp = 1_700_000_000_000L + i;
+        logEntry.date = "11-14 22:13:20.000";
+        logEntry.pid = "100";
+        logEntry.tid = "101";
+        logEntry.level = "D";
+        logEntry.tag = "Tag";
+        logEntry.message = "message " + i;
+        return logEntry;
+    }
+}
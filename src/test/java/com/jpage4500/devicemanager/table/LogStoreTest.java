@@ -0,0 +1,124 @@
+package com.jpage4500.devicemanager.table;
+
+import com.jpage4500.devicemanager.data.LogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogStoreTest {
+
+    @Test
+    void roundTrip() {
+        LogStore store = new LogStore();
+        List<LogEntry> entryList = new ArrayList<>();
+        // more than initial capacity so arrays grow
+        for (int i = 0; i < 40_000; i++) {
+            LogEntry logEntry = createEntry(i);
+            entryList.add(logEntry);
+            assertEquals(i, store.add(logEntry));
+        }
+        store.removeHead(1000);
+        assertEquals(39_000, store.size());
+        for (long id = store.getHeadId(); id < store.getTailId(); id++) {
+            LogEntry expected = entryList.get((int) id);
+            assertEntry(expected, store.load(id, new LogEntry()));
+        }
+    }
+
+    @Test
+    void dateKeptAsReceived() {
+        LogStore store = new LogStore();
+        // line whose time couldn't be parsed still shows its date
+        LogEntry noTimestamp = createEntry(0);
+        noTimestamp.timestamp = null;
+        noTimestamp.date = "2024-not a";
+        long id = store.add(noTimestamp);
+        assertNull(store.getTimestamp(id));
+        assertEquals("2024-not a", store.getDate(id));
+
+        // device wall time during DST change: text isn't regenerated from the (host) timestamp
+        LogEntry dst = createEntry(1);
+        dst.date = "2024-03-10 02:30:00";
+        dst.timestamp = 1710055800000L;
+        assertEquals("2024-03-10 02:30:00", store.getDate(store.add(dst)));
+    }
+
+    @Test
+    void clearResetsDates() {
+        LogStore store = new LogStore();
+        store.add(createEntry(0));
+        store.clear();
+        long id = store.add(createEntry(5));
+        assertEquals(createEntry(5).date, store.getDate(id));
+    }
+
+    @Test
+    void poolsRebuiltWhenHeadRemoved() {
+        LogStore store = new LogStore();
+        List<LogEntry> entryList = new ArrayList<>();
+        // unique pid per line and date per 10 lines; ~4MB of messages
+        String padding = "x".repeat(200);
+        for (int i = 0; i < 20_000; i++) {
+            LogEntry logEntry = createEntry(i);
+            logEntry.pid = "pid-" + i;
+            logEntry.message = "message " + i + " " + padding;
+            entryList.add(logEntry);
+            store.add(logEntry);
+        }
+        int poolSize = store.getPoolSize();
+        assertTrue(poolSize > 22_000, "pool:" + poolSize);
+
+        // frees message chunks; pools only keep what's used by the last 5000 lines
+        store.removeHead(15_000);
+        assertTrue(store.getPoolSize() < 6_000, "pool:" + store.getPoolSize());
+        for (long id = store.getHeadId(); id < store.getTailId(); id++) {
+            assertEntry(entryList.get((int) id), store.load(id, new LogEntry()));
+        }
+
+        // same date instance as the last line added before rebuild
+        LogEntry sameDate = createEntry(20_000);
+        sameDate.date = entryList.get(entryList.size() - 1).date;
+        entryList.add(sameDate);
+        assertEquals(sameDate.date, store.getDate(store.add(sameDate)));
+        for (int i = 20_001; i < 20_100; i++) {
+            LogEntry logEntry = createEntry(i);
+            entryList.add(logEntry);
+            store.add(logEntry);
+        }
+        for (long id = store.getHeadId(); id < store.getTailId(); id++) {
+            assertEntry(entryList.get((int) id), store.load(id, new LogEntry()));
+        }
+    }
+
+    private static void assertEntry(LogEntry expected, LogEntry actual) {
+        assertEquals(expected.date, actual.date);
+        assertEquals(expected.timestamp, actual.timestamp);
+        assertEquals(expected.pid, actual.pid);
+        assertEquals(expected.tid, actual.tid);
+        assertEquals(expected.level, actual.level);
+        assertEquals(expected.tag, actual.tag);
+        assertEquals(expected.message, actual.message);
+        assertEquals(expected.device, actual.device);
+        assertEquals(expected.app, actual.app);
+    }
+
+    private static LogEntry createEntry(int i) {
+        LogEntry logEntry = new LogEntry();
+        int sec = i / 10;
+        logEntry.date = String.format("2024-10-18 09:%02d:%02d", (sec / 60) % 60, sec % 60);
+        logEntry.timestamp = 1729242000000L + sec * 1000L;
+        logEntry.pid = Integer.toString(1000 + i % 7);
+        logEntry.tid = Integer.toString(2000 + i % 11);
+        logEntry.level = "VDIWE".substring(i % 5, i % 5 + 1);
+        logEntry.tag = "Tag" + i % 13;
+        logEntry.message = i % 17 == 0 ? null : "message " + i + " \u00FCn\u00EFc\u00F6d\u00E9";
+        logEntry.device = "serial-" + i % 3;
+        logEntry.app = i % 4 == 0 ? null : "com.example.app" + i % 4;
+        return logEntry;
+    }
+}
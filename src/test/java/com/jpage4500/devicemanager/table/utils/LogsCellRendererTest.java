@@ -0,0 +1,34 @@
+package com.jpage4500.devicemanager.table.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogsCellRendererTest {
+
+    @Test
+    void visibleTextFillsCell() {
+        LogsCellRenderer renderer = new LogsCellRenderer();
+        FontMetrics fontMetrics = renderer.getFontMetrics(renderer.getFont());
+        int width = 300;
+        // narrow, wide and non-ASCII text
+        String[] textArr = {
+                "i".repeat(500),
+                "W".repeat(500),
+                "\u65E5\u672C\u8A9E\u306E\u30ED\u30B0".repeat(100),
+                "ok \uD83D\uDE00 ".repeat(200),
+        };
+        for (String text : textArr) {
+            int len = renderer.getVisibleLength(text, width);
+            String visible = text.substring(0, len);
+            // nothing visible is left out, and not much more than that is drawn
+            assertTrue(fontMetrics.stringWidth(visible) >= width, text.substring(0, 10));
+            int lastLen = Character.isLowSurrogate(text.charAt(len - 1)) ? 2 : 1;
+            assertTrue(fontMetrics.stringWidth(text.substring(0, len - lastLen)) < width, text.substring(0, 10));
+        }
+        assertEquals(5, renderer.getVisibleLength("short", width));
+    }
+}
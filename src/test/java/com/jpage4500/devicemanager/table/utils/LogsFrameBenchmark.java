@@ -0,0 +1,105 @@
+package com.jpage4500.devicemanager.table.utils;
+
+import com.jpage4500.devicemanager.data.LogEntry;
+import com.jpage4500.devicemanager.data.LogFilter;
+import com.jpage4500.devicemanager.table.LogsTableModel;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Swing thread cost of 1 frame in LogsScreen at 10k lines/s (30 fps): add the lines received since the last frame,
+ * follow the bottom and paint the visible rows with LogsCellRenderer
+ * <p>
+ * painted into an image (runs headless); reports median/p99 ms per frame for an empty and a full (1M rows) table,
+ * without and with a filter
+ * <p>
+ * run with: mvn test -Pbenchmark -Dtest=LogsFrameBenchmark
+ */
+@Tag("benchmark")
+class LogsFrameBenchmark {
+    private static final int LINES_PER_SEC = 10_000;
+    private static final int FPS = 30;
+    private static final int NUM_FRAMES = 300;
+    private static final int WIDTH = 1600;
+    private static final int HEIGHT = 900;
+    private static final String[] MESSAGE_ARR = {
+            "onResume: activity=com.example.app/.MainActivity",
+            "Connection state changed: CONNECTED, rssi=-52, link speed=866Mbps, frequency=5180, bssid=aa:bb:cc:dd:ee:ff",
+            "\u901A\u77E5\u3092\u53D7\u4FE1\u3057\u307E\u3057\u305F: \u65B0\u3057\u3044\u30E1\u30C3\u30BB\u30FC\u30B8\u304C\u3042\u308A\u307E\u3059 (\u30C1\u30E3\u30CD\u30EB: default)",
+            "payload={\"id\":12345,\"items\":[1,2,3,4,5,6,7,8,9,10],\"name\":\"a fairly long json value to fill the cell\"}",
+            "GC freed 12345(1024KB) AllocSpace objects, 0(0B) LOS objects, 49% free, 10MB/20MB, paused 1.234ms total 12.345ms",
+    };
+
+    private int numCreated;
+
+    @Test
+    void frame() {
+        for (int round = 0; round < 2; round++) {
+            // round 0 is warm up
+            for (int prefill : new int[]{0, 990_000}) {
+                for (String filter : new String[]{null, "level:E"}) {
+                    long[] frameNsArr = run(prefill, filter);
+                    if (round == 0) continue;
+                    Arrays.sort(frameNsArr);
+                    System.out.printf("rows:%,d, filter:%s | %d lines/frame: median %.2fms, p99 %.2fms (budget %dms)%n",
+                            prefill, filter, LINES_PER_SEC / FPS, frameNsArr[NUM_FRAMES / 2] / 1e6,
+                            frameNsArr[NUM_FRAMES * 99 / 100] / 1e6, 1000 / FPS);
+                }
+            }
+        }
+    }
+
+    private long[] run(int prefill, String filter) {
+        LogsTableModel model = new LogsTableModel();
+        JTable table = new JTable(model);
+        table.setDefaultRenderer(String.class, new LogsCellRenderer());
+        LogsRowSorter sorter = new LogsRowSorter(model);
+        table.setRowSorter(sorter);
+        if (filter != null) sorter.setFilter(LogFilter.parse(filter));
+        for (int i = 0; i < prefill; i += 10_000) model.addLogEntry(createBatch(10_000));
+
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        long[] frameNsArr = new long[NUM_FRAMES];
+        for (int frame = 0; frame < NUM_FRAMES; frame++) {
+            List<LogEntry> batch = createBatch(LINES_PER_SEC / FPS);
+            long startNs = System.nanoTime();
+            model.addLogEntry(batch);
+            // what the viewport does when following the bottom
+            int tableHeight = table.getRowCount() * table.getRowHeight();
+            table.setSize(WIDTH, tableHeight);
+            table.doLayout();
+            Graphics2D g = image.createGraphics();
+            int top = Math.max(0, tableHeight - HEIGHT);
+            g.translate(0, -top);
+            g.setClip(0, top, WIDTH, HEIGHT);
+            table.paint(g);
+            g.dispose();
+            frameNsArr[frame] = System.nanoTime() - startNs;
+        }
+        return frameNsArr;
+    }
+
+    private List<LogEntry> createBatch(int count) {
+        List<LogEntry> logEntryList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LogEntry logEntry = new LogEntry();
+            logEntry.timestamp = 1_700_000_000_000L + numCreated;
+            logEntry.date = "11-14 22:13:20.000";
+            logEntry.pid = "1234";
+            logEntry.tid = "1240";
+            logEntry.level = numCreated % 10 == 0 ? "E" : "D";
+            logEntry.tag = "Tag" + (numCreated % 20);
+            logEntry.message = MESSAGE_ARR[numCreated % MESSAGE_ARR.length] + " #" + numCreated;
+            numCreated++;
+            logEntryList.add(logEntry);
+        }
+        return logEntryList;
+    }
+}
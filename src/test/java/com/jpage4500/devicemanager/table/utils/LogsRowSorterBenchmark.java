@@ -0,0 +1,75 @@
+package com.jpage4500.devicemanager.table.utils;
+
+import com.jpage4500.devicemanager.data.LogEntry;
+import com.jpage4500.devicemanager.data.LogFilter;
+import com.jpage4500.devicemanager.table.LogsTableModel;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * cost of adding a batch of lines to a filtered table as the number of lines already in the table grows
+ * <p>
+ * each batch goes through LogsTableModel.addLogEntry() and the JTable/LogsRowSorter update; with only appended
+ * rows being checked, the time per batch should stay about the same for 10k or 900k rows
+ * <p>
+ * run with: mvn test -Pbenchmark -Dtest=LogsRowSorterBenchmark
+ */
+@Tag("benchmark")
+class LogsRowSorterBenchmark {
+    private static final int[] SIZE_ARR = {10_000, 100_000, 900_000};
+    private static final int BATCH_LINES = 1000;
+    private static final int NUM_BATCHES = 100;
+    private static final String[] TAG_ARR = {"ActivityManager", "WifiService", "chatty", "MyApp", "Zygote"};
+
+    private int numCreated;
+
+    @Test
+    void addBatch() {
+        for (int round = 0; round < 2; round++) {
+            // round 0 is warm up
+            for (int size : SIZE_ARR) {
+                LogsTableModel model = new LogsTableModel();
+                JTable table = new JTable(model);
+                LogsRowSorter sorter = new LogsRowSorter(model);
+                table.setRowSorter(sorter);
+                sorter.setFilter(LogFilter.parse("tag:MyApp"));
+                for (int i = 0; i < size; i += BATCH_LINES) model.addLogEntry(createBatch());
+
+                long[] batchNsArr = new long[NUM_BATCHES];
+                for (int i = 0; i < NUM_BATCHES; i++) {
+                    List<LogEntry> batch = createBatch();
+                    long startNs = System.nanoTime();
+                    model.addLogEntry(batch);
+                    batchNsArr[i] = System.nanoTime() - startNs;
+                }
+                Arrays.sort(batchNsArr);
+                if (round == 0) continue;
+                System.out.printf("rows:%,d, view:%,d | per batch of %d: median %.1fus, p90 %.1fus%n", model.getRowCount(),
+                        sorter.getViewRowCount(), BATCH_LINES, batchNsArr[NUM_BATCHES / 2] / 1000.0,
+                        batchNsArr[NUM_BATCHES * 9 / 10] / 1000.0);
+            }
+        }
+    }
+
+    private List<LogEntry> createBatch() {
+        List<LogEntry> logEntryList = new ArrayList<>(BATCH_LINES);
+        for (int i = 0; i < BATCH_LINES; i++) {
+            LogEntry logEntry = new LogEntry();
+            logEntry.timestamp = 1_700_000_000_000L + numCreated;
+            logEntry.date = "11-14 22:13:20.000";
+            logEntry.pid = "1234";
+            logEntry.tid = "1234";
+            logEntry.level = "D";
+            logEntry.tag = TAG_ARR[numCreated % TAG_ARR.length];
+            logEntry.message = "message " + numCreated;
+            numCreated++;
+            logEntryList.add(logEntry);
+        }
+        return logEntryList;
+    }
+}
@@ -0,0 +1,122 @@
+package com.jpage4500.devicemanager.table.utils;
+
+import com.jpage4500.devicemanager.data.LogEntry;
+import com.jpage4500.devicemanager.data.LogFilter;
+import com.jpage4500.devicemanager.table.LogsTableModel;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogsRowSorterTest {
+    private static final String[] TAG_ARR = {"ActivityManager", "WifiService", "chatty", "MyApp", "Zygote"};
+    private static final String[] LEVEL_ARR = {"V", "D", "I", "W", "E"};
+
+    private final Random random = new Random(42);
+    private int numCreated;
+
+    @Test
+    void viewMatchesEveryRowChecked() {
+        LogsTableModel model = new LogsTableModel();
+        LogsRowSorter sorter = createSorter(model);
+        addLines(model, 5000);
+
+        sorter.setFilter(LogFilter.parse("tag:MyApp"));
+        assertTrue(sorter.getViewRowCount() > 0);
+        assertView(model, sorter);
+        for (int i = 0; i < 20; i++) {
+            addLines(model, 1 + random.nextInt(500));
+            assertView(model, sorter);
+        }
+
+        // filter changed: all rows checked again
+        sorter.setFilter(LogFilter.parse("level:E"), LogFilter.parse("msg:*7*"));
+        assertTrue(sorter.getViewRowCount() > 0);
+        assertView(model, sorter);
+        addLines(model, 1000);
+        assertView(model, sorter);
+
+        // no filter: every row
+        sorter.setFilter();
+        assertEquals(model.getRowCount(), sorter.getViewRowCount());
+        assertEquals(123, sorter.convertRowIndexToModel(123));
+    }
+
+    @Test
+    void removedRowsLeaveView() {
+        LogsTableModel model = new LogsTableModel();
+        LogsRowSorter sorter = createSorter(model);
+        sorter.setFilter(LogFilter.parse("tag:WifiService"));
+        // over LogsTableModel.MAX_LINES so rows are removed from the head
+        while (numCreated <= 1_000_000) {
+            addLines(model, 50_000);
+        }
+        assertTrue(model.getRowCount() < numCreated);
+        assertView(model, sorter);
+        addLines(model, 100);
+        assertView(model, sorter);
+    }
+
+    @Test
+    void clearRebuildsView() {
+        LogsTableModel model = new LogsTableModel();
+        LogsRowSorter sorter = createSorter(model);
+        sorter.setFilter(LogFilter.parse("tag:Zygote"));
+        addLines(model, 1000);
+        model.clearLogs();
+        assertEquals(0, sorter.getViewRowCount());
+        addLines(model, 1000);
+        assertView(model, sorter);
+    }
+
+    /**
+     * sorter is updated by table model events (like it is in LogsScreen)
+     */
+    private static LogsRowSorter createSorter(LogsTableModel model) {
+        JTable table = new JTable(model);
+        LogsRowSorter sorter = new LogsRowSorter(model);
+        table.setRowSorter(sorter);
+        return sorter;
+    }
+
+    private void addLines(LogsTableModel model, int count) {
+        List<LogEntry> logEntryList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LogEntry logEntry = new LogEntry();
+            logEntry.timestamp = 1_700_000_000_000L + numCreated;
+            logEntry.date = "11-14 22:13:20.000";
+            logEntry.pid = String.valueOf(100 + random.nextInt(10));
+            logEntry.tid = logEntry.pid;
+            logEntry.level = LEVEL_ARR[random.nextInt(LEVEL_ARR.length)];
+            logEntry.tag = TAG_ARR[random.nextInt(TAG_ARR.length)];
+            logEntry.message = "message " + numCreated;
+            numCreated++;
+            logEntryList.add(logEntry);
+        }
+        model.addLogEntry(logEntryList);
+    }
+
+    /**
+     * view must be exactly the model rows that match (checked one by one), in order
+     */
+    private static void assertView(LogsTableModel model, LogsRowSorter sorter) {
+        List<Integer> expectedList = new ArrayList<>();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            LogEntry logEntry = model.getLogEntry(row);
+            boolean isMatch = true;
+            for (LogFilter filter : sorter.getFilter()) isMatch &= filter.isMatch(logEntry);
+            if (isMatch) expectedList.add(row);
+        }
+        assertEquals(expectedList.size(), sorter.getViewRowCount());
+        for (int i = 0; i < expectedList.size(); i++) {
+            int row = expectedList.get(i);
+            assertEquals(row, sorter.convertRowIndexToModel(i));
+            assertEquals(i, sorter.convertRowIndexToView(row));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package se.vidstige.jadb;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * AdbFilterInputStream throughput on logcat-like text (CRLF line endings)
+ * <p>
+ * - bulk: read(byte[]) 8KB at a time, how BufferedReader/InputStreamReader read it
+ * - per byte: read() for every byte, what the old read(byte[]) did
+ * <p>
+ * run with: mvn test -Pbenchmark -Dtest=AdbFilterInputStreamBenchmark
+ */
+@Tag("benchmark")
+class AdbFilterInputStreamBenchmark {
+    private static final int SIZE = 64 * 1024 * 1024;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void throughput() throws IOException {
+        byte[] data = createLogcat();
+        long expected = data.length - countCrLf(data);
+        byte[] buffer = new byte[8192];
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long startNs = System.nanoTime();
+            long total = 0;
+            try (InputStream in = open(data)) {
+                for (int n; (n = in.read(buffer)) != -1; ) total += n;
+            }
+            long bulkNs = System.nanoTime() - startNs;
+            assertEquals(expected, total);
+
+            startNs = System.nanoTime();
+            total = 0;
+            try (InputStream in = open(data)) {
+                while (in.read() != -1) total++;
+            }
+            long byteNs = System.nanoTime() - startNs;
+            assertEquals(expected, total);
+
+            System.out.printf("round %d: bulk %.0f MB/s, per byte %.0f MB/s%n", round, mbPerSec(data.length, bulkNs),
+                    mbPerSec(data.length, byteNs));
+        }
+    }
+
+    private static InputStream open(byte[] data) {
+        // NOTE: same wrapping as JadbDevice.executeShell
+        return new AdbFilterInputStream(new BufferedInputStream(new ByteArrayInputStream(data)));
+    }
+
+    private static byte[] createLogcat() {
+        String line = "10-18 12:34:56.789  1234  5678 D ActivityManager: Start proc 4321:com.example.app/u0a123 for activity\r\n";
+        StringBuilder sb = new StringBuilder(SIZE + line.length());
+        while (sb.length() < SIZE) sb.append(line);
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static long countCrLf(byte[] data) {
+        long count = 0;
+        for (int i = 0; i + 1 < data.length; i++) if (data[i] == '\r' && data[i + 1] == '\n') count++;
+        return count;
+    }
+
+    private static double mbPerSec(long bytes, long ns) {
+        return bytes / (1024.0 * 1024.0) / (ns / 1e9);
+    }
+}
@@ -0,0 +1,117 @@
+package se.vidstige.jadb;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdbFilterInputStreamTest {
+
+    @Test
+    void translatesCrLf() throws IOException {
+        assertEquals("a\nb\n", readAll("a\r\nb\r\n", 1024, 1024));
+    }
+
+    @Test
+    void keepsLoneCr() throws IOException {
+        assertEquals("a\rb\r\n\r", readAll("a\rb\r\r\n\r", 1024, 1024));
+    }
+
+    @Test
+    void crLfSplitAcrossReads() throws IOException {
+        // underlying stream returns "a\r" then "\nb"
+        assertEquals("a\nb", readAll("a\r\nb", 2, 1024));
+        // caller's buffer ends right after the '\r'
+        assertEquals("a\nb", readAll("a\r\nb", 1024, 2));
+    }
+
+    @Test
+    void onlyCrRead() throws IOException {
+        // first read returns just "\r"; filter must block for the next byte rather than return 0
+        assertEquals("\n", readAll("\r\n", 1, 1024));
+        assertEquals("\r", readAll("\r", 1, 1024));
+    }
+
+    @Test
+    void singleByteReads() throws IOException {
+        InputStream in = new AdbFilterInputStream(new ByteArrayInputStream(bytes("x\r\ny\rz")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int b; (b = in.read()) != -1; ) out.write(b);
+        assertEquals("x\ny\rz", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void randomChunks() throws IOException {
+        Random random = new Random(42);
+        byte[] alphabet = bytes("ab\r\n");
+        for (int round = 0; round < 500; round++) {
+            byte[] data = new byte[random.nextInt(200)];
+            for (int i = 0; i < data.length; i++) data[i] = alphabet[random.nextInt(alphabet.length)];
+            String expected = new String(data, StandardCharsets.ISO_8859_1).replace("\r\n", "\n");
+            String actual = readAll(new String(data, StandardCharsets.ISO_8859_1), 1 + random.nextInt(8), 1 + random.nextInt(8));
+            assertEquals(expected, actual, "round " + round);
+        }
+    }
+
+    @Test
+    void binaryUnchanged() throws IOException {
+        byte[] data = new byte[100_000];
+        new Random(1).nextBytes(data);
+        for (int i = 0; i < data.length; i++) if (data[i] == '\r') data[i] = 0;
+        InputStream in = new AdbFilterInputStream(new ByteArrayInputStream(data));
+        assertArrayEquals(data, in.readAllBytes());
+    }
+
+    @Test
+    void skip() throws IOException {
+        InputStream in = new AdbFilterInputStream(new ChunkedInputStream(bytes("ab\r\ncd"), 2));
+        // nothing to skip (negative would throw creating the buffer)
+        assertEquals(0, in.skip(0));
+        assertEquals(0, in.skip(-5));
+        // counts bytes after "\r\n" is translated
+        assertEquals(3, in.skip(3));
+        assertEquals('c', in.read());
+        assertEquals(1, in.skip(100));
+        assertEquals(-1, in.read());
+    }
+
+    private static String readAll(String text, int maxChunk, int bufferSize) throws IOException {
+        InputStream in = new AdbFilterInputStream(new ChunkedInputStream(bytes(text), maxChunk));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[bufferSize];
+        for (int n; (n = in.read(buffer, 0, buffer.length)) != -1; ) {
+            if (n == 0) throw new AssertionError("read returned 0");
+            out.write(buffer, 0, n);
+        }
+        return out.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * returns at most maxChunk bytes per read, like a socket
+     */
+    static class ChunkedInputStream extends FilterInputStream {
+        private final int maxChunk;
+
+        ChunkedInputStream(byte[] data, int maxChunk) {
+            super(new ByteArrayInputStream(data));
+            this.maxChunk = maxChunk;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            return super.read(buffer, offset, Math.min(length, maxChunk));
+        }
+    }
+}
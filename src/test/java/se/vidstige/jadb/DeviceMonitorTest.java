@@ -0,0 +1,109 @@
+package se.vidstige.jadb;
+
+import org.junit.jupiter.api.Test;
+import se.vidstige.jadb.fakes.FakeAdbServer;
+
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeviceMonitorTest {
+
+    @Test
+    void reportsDevicesOnSelectorThread() throws Exception {
+        try (FakeAdbServer server = new FakeAdbServer()) {
+            server.addDevice("serial-1");
+            server.addDevice("serial-2");
+            JadbConnection connection = server.createConnection();
+            StreamSelector selector = connection.getStreamSelector();
+
+            List<String> addedList = new CopyOnWriteArrayList<>();
+            List<Boolean> threadList = new CopyOnWriteArrayList<>();
+            CountDownLatch latch = new CountDownLatch(3);
+            DeviceMonitor monitor = connection.createDeviceMonitor(new TestListener() {
+                @Override
+                public void onDeviceAdded(JadbDevice device, JadbDevice.State state) {
+                    addedList.add(device.getSerial());
+                    threadList.add(selector.isSelectorThread());
+                    latch.countDown();
+                }
+
+                @Override
+                public void onConnected() {
+                    threadList.add(selector.isSelectorThread());
+                    latch.countDown();
+                }
+            });
+            monitor.start();
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(monitor.isConnected());
+            assertEquals(List.of("serial-1", "serial-2"), addedList);
+            assertEquals(List.of(true, true, true), threadList);
+            monitor.close();
+            connection.close();
+        }
+    }
+
+    @Test
+    void stalledHandshakeDoesNotBlockSelector() throws Exception {
+        // accepts the connection but never answers "host:track-devices"
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            List<Socket> socketList = new CopyOnWriteArrayList<>();
+            Thread acceptThread = new Thread(() -> {
+                try {
+                    while (true) socketList.add(serverSocket.accept());
+                } catch (Exception ignored) {
+                }
+            });
+            acceptThread.setDaemon(true);
+            acceptThread.start();
+
+            JadbConnection connection = new JadbConnection("localhost", serverSocket.getLocalPort());
+            StreamSelector selector = connection.getStreamSelector();
+            DeviceMonitor monitor = connection.createDeviceMonitor(new TestListener());
+            monitor.start();
+            Thread.sleep(200);
+
+            CountDownLatch latch = new CountDownLatch(1);
+            long startMs = System.currentTimeMillis();
+            selector.execute(latch::countDown);
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+            assertTrue(System.currentTimeMillis() - startMs < 1000);
+            assertFalse(monitor.isConnected());
+
+            monitor.close();
+            connection.close();
+            for (Socket socket : socketList) socket.close();
+        }
+    }
+
+    private static class TestListener implements DeviceMonitor.Listener {
+        @Override
+        public void onDeviceAdded(JadbDevice device, JadbDevice.State state) {
+        }
+
+        @Override
+        public void onDeviceStateChanged(JadbDevice device, JadbDevice.State oldState, JadbDevice.State state) {
+        }
+
+        @Override
+        public void onDeviceRemoved(JadbDevice device) {
+        }
+
+        @Override
+        public void onConnected() {
+        }
+
+        @Override
+        public void onDisconnected(Exception e) {
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package se.vidstige.jadb;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.vidstige.jadb.fakes.FakeAdbServer;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * splitting the output of {@link JadbDevice#executeShellBatch(List)} back into 1 response per command
+ */
+class ShellBatchTest {
+    // "{ COMMAND ; } ; echo "MARKER INDEX $?""
+    private static final Pattern COMMAND_PATTERN = Pattern.compile("\\{ (.*?) ; } ; echo \"(\\S+) (\\d+) \\$\\?\"");
+
+    private FakeAdbServer server;
+    private FakeAdbServer.FakeDevice fakeDevice;
+    private JadbConnection connection;
+    private JadbDevice device;
+
+    private record Result(String output, int exitCode) {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeAdbServer();
+        fakeDevice = server.addDevice("serial-1");
+        connection = server.createConnection();
+        device = connection.getDevices().get(0);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connection.close();
+        server.close();
+    }
+
+    @Test
+    void splitByCommand() throws Exception {
+        setShell(Map.of(
+                "getprop ro.product.model", new Result("Pixel 8\n", 0),
+                "dumpsys battery", new Result("Current Battery Service state:\n  level: 80\n", 0),
+                "df /data", new Result("", 0)
+        ), -1);
+        List<ShellResponse> responseList = device.executeShellBatch(List.of("getprop ro.product.model", "dumpsys battery", "df /data"));
+        assertEquals(3, responseList.size());
+        assertEquals(List.of("Pixel 8"), responseList.get(0).getOutputList());
+        assertEquals(List.of("Current Battery Service state:", "  level: 80"), responseList.get(1).getOutputList());
+        assertEquals(List.of(), responseList.get(2).getOutputList());
+        for (ShellResponse response : responseList) assertEquals(0, response.getExitCode());
+    }
+
+    @Test
+    void outputWithoutNewline() throws Exception {
+        setShell(Map.of(
+                "cat /proc/a", new Result("no newline", 0),
+                "cat /proc/b", new Result("b\n", 0)
+        ), -1);
+        List<ShellResponse> responseList = device.executeShellBatch(List.of("cat /proc/a", "cat /proc/b"));
+        assertEquals(List.of("no newline"), responseList.get(0).getOutputList());
+        assertEquals(0, responseList.get(0).getExitCode());
+        assertEquals(List.of("b"), responseList.get(1).getOutputList());
+    }
+
+    @Test
+    void nonZeroExitCode() throws Exception {
+        setShell(Map.of(
+                "ls /data", new Result("ls: /data: Permission denied\n", 1),
+                "missing", new Result("/system/bin/sh: missing: not found\n", 127),
+                "true", new Result("", 0)
+        ), -1);
+        List<ShellResponse> responseList = device.executeShellBatch(List.of("ls /data", "missing", "true"));
+        assertEquals(1, responseList.get(0).getExitCode());
+        assertEquals(List.of("ls: /data: Permission denied"), responseList.get(0).getOutputList());
+        assertEquals(127, responseList.get(1).getExitCode());
+        assertEquals(0, responseList.get(2).getExitCode());
+    }
+
+    @Test
+    void sessionDropped() throws Exception {
+        // 2nd command's output starts, then connection closes
+        setShell(Map.of(
+                "echo a", new Result("a\n", 0),
+                "logcat -d", new Result("line 1\nline 2\n", 0),
+                "echo c", new Result("c\n", 0)
+        ), 1);
+        List<ShellResponse> responseList = device.executeShellBatch(List.of("echo a", "logcat -d", "echo c"));
+        assertEquals(3, responseList.size());
+        assertEquals(List.of("a"), responseList.get(0).getOutputList());
+        assertEquals(0, responseList.get(0).getExitCode());
+        assertEquals(List.of("line 1", "line 2"), responseList.get(1).getOutputList());
+        assertEquals(ShellResponse.EXIT_CODE_UNKNOWN, responseList.get(1).getExitCode());
+        assertTrue(responseList.get(2).getOutputList().isEmpty());
+        assertEquals(ShellResponse.EXIT_CODE_UNKNOWN, responseList.get(2).getExitCode());
+    }
+
+    /**
+     * answer batch like a shell would: output of each command followed by its marker line
+     *
+     * @param dropAfter stop after output (no marker) of this command; -1 to run all
+     */
+    private void setShell(Map<String, Result> resultMap, int dropAfter) {
+        fakeDevice.setShellHandler((command, stdout) -> {
+            Matcher matcher = COMMAND_PATTERN.matcher(command);
+            int index = 0;
+            while (matcher.find()) {
+                Result result = resultMap.get(matcher.group(1));
+                if (result == null) throw new IOException("unexpected: " + matcher.group(1));
+                write(stdout, result.output);
+                if (index == dropAfter) return;
+                assertEquals(index, Integer.parseInt(matcher.group(3)));
+                write(stdout, matcher.group(2) + " " + index + " " + result.exitCode + "\n");
+                index++;
+            }
+            assertEquals(resultMap.size(), index);
+        });
+    }
+
+    private static void write(DataOutputStream stdout, String text) throws IOException {
+        stdout.write(text.getBytes());
+    }
+}
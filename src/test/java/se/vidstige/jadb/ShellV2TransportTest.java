@@ -0,0 +1,118 @@
+package se.vidstige.jadb;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.vidstige.jadb.fakes.FakeAdbServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * "shell,v2" framing through {@link JadbDevice#executeShellCommand} and the fallback to "shell:"
+ */
+class ShellV2TransportTest {
+    private FakeAdbServer server;
+    private FakeAdbServer.FakeDevice fakeDevice;
+    private JadbConnection connection;
+    private JadbDevice device;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeAdbServer();
+        fakeDevice = server.addDevice("serial-1");
+        connection = server.createConnection();
+        device = connection.getDevices().get(0);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connection.close();
+        server.close();
+    }
+
+    @Test
+    void separateOutputAndExitCode() throws Exception {
+        fakeDevice.setShellV2Handler((command, stdout, stderr) -> {
+            assertEquals("ls '/data'", command);
+            stdout.write("line 1\nline 2\n".getBytes(StandardCharsets.UTF_8));
+            stderr.write("ls: /data: Permission denied\n".getBytes(StandardCharsets.UTF_8));
+            return 1;
+        });
+        ShellResponse response = device.executeShellCommand("ls", "/data");
+        assertEquals(List.of("line 1", "line 2"), response.getOutputList());
+        assertEquals(List.of("ls: /data: Permission denied"), response.getErrorList());
+        assertEquals(1, response.getExitCode());
+    }
+
+    @Test
+    void outputOverManyPackets() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) sb.append("line ").append(i).append('\n');
+        fakeDevice.setShellV2Handler((command, stdout, stderr) -> {
+            stdout.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            return 0;
+        });
+        ShellResponse response = device.executeShellCommand("cat", "big");
+        assertEquals(20_000, response.getOutputList().size());
+        assertEquals("line 19999", response.getOutputList().get(19_999));
+        assertEquals(0, response.getExitCode());
+    }
+
+    @Test
+    void connectionDroppedMidPacket() {
+        fakeDevice.setShellV2Handler((command, stdout, stderr) -> {
+            stdout.write(new byte[1000]);
+            return 0;
+        });
+        // "OKAY" + packet header + part of payload
+        fakeDevice.setDropAfterBytes(5 + 100);
+        assertThrows(IOException.class, () -> device.executeShellCommand("cat", "file"));
+    }
+
+    @Test
+    void connectionDroppedBeforeExit() throws Exception {
+        fakeDevice.setShellV2Handler((command, stdout, stderr) -> {
+            stdout.write("partial\n".getBytes(StandardCharsets.UTF_8));
+            return 0;
+        });
+        // stdout packet only
+        fakeDevice.setDropAfterBytes(5 + "partial\n".length());
+        ShellResponse response = device.executeShellCommand("cat", "file");
+        assertEquals(List.of("partial"), response.getOutputList());
+        assertEquals(ShellResponse.EXIT_CODE_UNKNOWN, response.getExitCode());
+    }
+
+    @Test
+    void fallbackWhenFeaturesFail() throws Exception {
+        fakeDevice.setFeatures(null);
+        fakeDevice.setShellHandler((command, stdout) -> stdout.writeBytes("out\n"));
+        for (int i = 0; i < 3; i++) {
+            ShellResponse response = device.executeShellCommand("echo", "out");
+            assertEquals(List.of("out"), response.getOutputList());
+            assertEquals(ShellResponse.EXIT_CODE_UNKNOWN, response.getExitCode());
+        }
+        // failure is remembered
+        assertEquals(1, fakeDevice.getNumFeatureRequests());
+    }
+
+    @Test
+    void oversizedPacketRejected() throws Exception {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(data);
+        out.writeByte(ShellV2Transport.ID_STDOUT);
+        out.writeInt(Integer.reverseBytes(Integer.MAX_VALUE));
+        ShellV2Transport transport = new ShellV2Transport(new DataOutputStream(new ByteArrayOutputStream()),
+                new DataInputStream(new ByteArrayInputStream(data.toByteArray())));
+        IOException e = assertThrows(IOException.class, transport::readPacket);
+        assertEquals("invalid shell packet length: " + Integer.MAX_VALUE, e.getMessage());
+    }
+}
@@ -0,0 +1,109 @@
+package se.vidstige.jadb;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.vidstige.jadb.fakes.FakeAdbServer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * push/pull throughput against the fake ADB server
+ * <p>
+ * - stream: plain Socket (no channel), so SyncTransport copies through a byte[] with DataOutput/DataInput (the
+ * path used before FileChannel support)
+ * - channel: push(File)/pull(File) through the pooled SocketChannel (transferTo / direct buffer)
+ * <p>
+ * run with: mvn test -Pbenchmark -Dtest=SyncTransportBenchmark
+ * NOTE: the fake server reads/writes through its own streams and buffers each file in memory, so it limits both
+ */
+@Tag("benchmark")
+class SyncTransportBenchmark {
+    private static final String SERIAL = "serial-1";
+    private static final int SIZE = 64 * 1024 * 1024;
+    private static final int ROUNDS = 5;
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void pushAndPull() throws Exception {
+        byte[] data = new byte[SIZE];
+        new Random(1).nextBytes(data);
+        File file = new File(tempDir, "data.bin");
+        Files.write(file.toPath(), data);
+        File outFile = new File(tempDir, "out.bin");
+        RemoteFile remote = new RemoteFile("/sdcard/data.bin");
+
+        try (FakeAdbServer server = new FakeAdbServer()) {
+            FakeAdbServer.FakeDevice fakeDevice = server.addDevice(SERIAL);
+            JadbConnection connection = server.createConnection();
+            JadbDevice device = connection.getDevices().get(0);
+
+            for (int round = 0; round < ROUNDS; round++) {
+                long startNs = System.nanoTime();
+                pushStream(server.getPort(), file, remote);
+                long streamPushNs = System.nanoTime() - startNs;
+
+                startNs = System.nanoTime();
+                device.push(file, remote);
+                long channelPushNs = System.nanoTime() - startNs;
+
+                startNs = System.nanoTime();
+                pullStream(server.getPort(), remote, outFile);
+                long streamPullNs = System.nanoTime() - startNs;
+
+                startNs = System.nanoTime();
+                device.pull(remote, outFile);
+                long channelPullNs = System.nanoTime() - startNs;
+
+                System.out.printf("round %d: push stream %.0f MB/s, channel %.0f MB/s | pull stream %.0f MB/s, channel %.0f MB/s%n",
+                        round, mbPerSec(streamPushNs), mbPerSec(channelPushNs), mbPerSec(streamPullNs), mbPerSec(channelPullNs));
+                if (round == 0) {
+                    assertArrayEquals(data, fakeDevice.getFile(remote.getPath()));
+                    assertArrayEquals(data, Files.readAllBytes(outFile.toPath()));
+                }
+            }
+            connection.close();
+        }
+    }
+
+    private static Transport openStreamTransport(int port) throws Exception {
+        // NOTE: not opened through a SocketChannel
+        Transport transport = new Transport(new Socket("localhost", port));
+        transport.send("host:transport:" + SERIAL);
+        transport.verifyResponse();
+        return transport;
+    }
+
+    private static void pushStream(int port, File file, RemoteFile remote) throws Exception {
+        try (Transport transport = openStreamTransport(port); InputStream in = new FileInputStream(file)) {
+            SyncTransport sync = transport.startSync();
+            sync.send("SEND", remote.getPath() + ",420");
+            sync.sendStream(in);
+            sync.sendStatus("DONE", 0);
+            sync.verifyStatus();
+        }
+    }
+
+    private static void pullStream(int port, RemoteFile remote, File file) throws Exception {
+        try (Transport transport = openStreamTransport(port); OutputStream out = new FileOutputStream(file)) {
+            SyncTransport sync = transport.startSync();
+            sync.send("RECV", remote.getPath());
+            sync.readChunksTo(out);
+        }
+    }
+
+    private static double mbPerSec(long ns) {
+        return SIZE / (1024.0 * 1024.0) / (ns / 1e9);
+    }
+}
@@ -0,0 +1,102 @@
+package se.vidstige.jadb;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.vidstige.jadb.fakes.FakeAdbServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * push/pull through the FileChannel and stream paths of {@link SyncTransport}
+ */
+class SyncTransportTest {
+    private FakeAdbServer server;
+    private FakeAdbServer.FakeDevice fakeDevice;
+    private JadbConnection connection;
+    private JadbDevice device;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeAdbServer();
+        fakeDevice = server.addDevice("serial-1");
+        connection = server.createConnection();
+        device = connection.getDevices().get(0);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connection.close();
+        server.close();
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    void pushFile() throws Exception {
+        // not a multiple of the 64k chunk size
+        byte[] data = randomBytes(300_001);
+        File file = new File(tempDir, "push.bin");
+        Files.write(file.toPath(), data);
+
+        device.push(file, new RemoteFile("/sdcard/push.bin"));
+
+        assertArrayEquals(data, fakeDevice.getFile("/sdcard/push.bin"));
+    }
+
+    @Test
+    void pushStream() throws Exception {
+        byte[] data = randomBytes(200_000);
+        device.push(new ByteArrayInputStream(data), 0, 0644, new RemoteFile("/sdcard/stream.bin"));
+
+        assertArrayEquals(data, fakeDevice.getFile("/sdcard/stream.bin"));
+    }
+
+    @Test
+    void pullFile() throws Exception {
+        byte[] data = randomBytes(500_000);
+        fakeDevice.putFile("/sdcard/pull.bin", data);
+        File file = new File(tempDir, "pull.bin");
+
+        device.pull(new RemoteFile("/sdcard/pull.bin"), file);
+
+        assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    void pullStream() throws Exception {
+        byte[] data = randomBytes(100_000);
+        fakeDevice.putFile("/sdcard/pull.bin", data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        device.pull(new RemoteFile("/sdcard/pull.bin"), out);
+
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    void emptyFile() throws Exception {
+        File file = new File(tempDir, "empty.bin");
+        Files.write(file.toPath(), new byte[0]);
+
+        device.push(file, new RemoteFile("/sdcard/empty.bin"));
+        device.pull(new RemoteFile("/sdcard/empty.bin"), new File(tempDir, "empty2.bin"));
+
+        assertArrayEquals(new byte[0], fakeDevice.getFile("/sdcard/empty.bin"));
+        assertArrayEquals(new byte[0], Files.readAllBytes(new File(tempDir, "empty2.bin").toPath()));
+    }
+}
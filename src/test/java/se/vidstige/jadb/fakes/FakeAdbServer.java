@@ -0,0 +1,221 @@
+package se.vidstige.jadb.fakes;
+
+import se.vidstige.jadb.JadbConnection;
+import se.vidstige.jadb.JadbDevice;
+import se.vidstige.jadb.JadbException;
+import se.vidstige.jadb.RemoteFile;
+import se.vidstige.jadb.server.AdbDeviceResponder;
+import se.vidstige.jadb.server.AdbResponder;
+import se.vidstige.jadb.server.AdbServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process ADB server for tests; devices keep pushed files in memory and answer shell commands with a handler
+ */
+public class FakeAdbServer implements AdbResponder, AutoCloseable {
+    private final AdbServer server;
+    private final List<AdbDeviceResponder> deviceList = new CopyOnWriteArrayList<>();
+
+    public interface ShellHandler {
+        void shell(String command, DataOutputStream stdout) throws IOException;
+    }
+
+    public interface ShellV2Handler {
+        /**
+         * @return exit code
+         */
+        int shell(String command, OutputStream stdout, OutputStream stderr) throws IOException;
+    }
+
+    public FakeAdbServer() throws IOException, InterruptedException {
+        server = new AdbServer(this, findFreePort());
+        server.start();
+    }
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+
+    public JadbConnection createConnection() {
+        return new JadbConnection("localhost", getPort());
+    }
+
+    public FakeDevice addDevice(String serial) {
+        FakeDevice device = new FakeDevice(serial);
+        deviceList.add(device);
+        return device;
+    }
+
+    @Override
+    public void onCommand(String command) {
+    }
+
+    @Override
+    public int getVersion() {
+        return 41;
+    }
+
+    @Override
+    public List<AdbDeviceResponder> getDevices() {
+        return new ArrayList<>(deviceList);
+    }
+
+    @Override
+    public void close() throws Exception {
+        server.stop();
+    }
+
+    public static class FakeDevice implements AdbDeviceResponder {
+        private final String serial;
+        private final Map<String, byte[]> fileMap = new ConcurrentHashMap<>();
+        private volatile ShellHandler shellHandler;
+        private volatile ShellV2Handler shellV2Handler;
+        private volatile List<String> featureList = List.of(JadbDevice.FEATURE_SHELL_V2, "cmd");
+        private volatile int dropAfterBytes = -1;
+        private final AtomicInteger numFeatureRequests = new AtomicInteger();
+
+        FakeDevice(String serial) {
+            this.serial = serial;
+        }
+
+        public void setShellHandler(ShellHandler shellHandler) {
+            this.shellHandler = shellHandler;
+        }
+
+        /**
+         * answer "shell,v2" requests with separate stdout/stderr and an exit code (otherwise shell handler is used)
+         */
+        public void setShellV2Handler(ShellV2Handler shellV2Handler) {
+            this.shellV2Handler = shellV2Handler;
+        }
+
+        /**
+         * @param featureList null to fail "features" requests (like older devices)
+         */
+        public void setFeatures(List<String> featureList) {
+            this.featureList = featureList;
+        }
+
+        /**
+         * close "shell,v2" connections after this many bytes of the response (-1 to send all of it)
+         */
+        public void setDropAfterBytes(int dropAfterBytes) {
+            this.dropAfterBytes = dropAfterBytes;
+        }
+
+        public int getNumFeatureRequests() {
+            return numFeatureRequests.get();
+        }
+
+        public void putFile(String path, byte[] data) {
+            fileMap.put(path, data);
+        }
+
+        public byte[] getFile(String path) {
+            return fileMap.get(path);
+        }
+
+        @Override
+        public String getSerial() {
+            return serial;
+        }
+
+        @Override
+        public String getType() {
+            return "device";
+        }
+
+        @Override
+        public void filePushed(RemoteFile path, int mode, ByteArrayOutputStream buffer) {
+            fileMap.put(path.getPath(), buffer.toByteArray());
+        }
+
+        @Override
+        public void filePulled(RemoteFile path, ByteArrayOutputStream buffer) throws JadbException, IOException {
+            byte[] data = fileMap.get(path.getPath());
+            if (data == null) throw new JadbException("file not found: " + path.getPath());
+            buffer.write(data);
+        }
+
+        @Override
+        public void shell(String command, DataOutputStream stdout, DataInput stdin) throws IOException {
+            ShellHandler handler = shellHandler;
+            if (handler != null) handler.shell(command, stdout);
+            stdout.flush();
+        }
+
+        @Override
+        public int shellV2(String command, OutputStream stdout, OutputStream stderr) throws IOException {
+            ShellV2Handler handler = shellV2Handler;
+            if (handler != null) return handler.shell(command, stdout, stderr);
+            return AdbDeviceResponder.super.shellV2(command, stdout, stderr);
+        }
+
+        @Override
+        public void shellV2(String command, DataOutputStream output, DataInput input) throws IOException {
+            int limit = dropAfterBytes;
+            if (limit >= 0) output = new DataOutputStream(new DropOutputStream(output, limit));
+            AdbDeviceResponder.super.shellV2(command, output, input);
+        }
+
+        @Override
+        public List<String> getFeatures() {
+            numFeatureRequests.incrementAndGet();
+            return featureList;
+        }
+
+        @Override
+        public void enableIpCommand(String ip, DataOutputStream outputStream) {
+        }
+
+        @Override
+        public List<RemoteFile> list(String path) {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * passes on the first limit bytes, then fails (server closes the connection)
+     */
+    private static class DropOutputStream extends FilterOutputStream {
+        private int remaining;
+
+        DropOutputStream(OutputStream out, int limit) {
+            super(out);
+            remaining = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (remaining-- <= 0) {
+                out.flush();
+                throw new IOException("dropped");
+            }
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            for (int i = 0; i < length; i++) write(data[offset + i]);
+        }
+    }
+}